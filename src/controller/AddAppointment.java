@@ -2,44 +2,50 @@ package controller;
 
 import database.AppointmentQuery;
 import database.ContactQuery;
-import database.CustomerQuery;
+import database.SeriesQuery;
 import database.UserQuery;
+import helper.ConflictChecker;
+import helper.CustomerPicker;
+import helper.SceneCache;
+import helper.SlotFinder;
+import helper.SlotTable;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
-import javafx.scene.Node;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.stage.Stage;
+import model.AppointmentSeries;
+import model.Conflict;
 import model.Contact;
 import model.Customer;
+import model.Recurrence;
+import model.TimeSlot;
 import model.User;
 
 import java.io.IOException;
 import java.net.URL;
 import java.sql.SQLException;
 import java.time.*;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.ResourceBundle;
 import java.util.function.BiPredicate;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 import static helper.Util.errorAlert;
-import static helper.Util.validateOverlapping;
+import static helper.Util.showOverlaps;
 
 /**
  * This class manages the user interface and logic for adding a new appointment.
- * It populates drop-down menus with contacts, users, customers, and available times within business hours.
+ * It populates drop-down menus with contacts, users, and available times within business hours,
+ * and offers customers as their name, phone number, postal code or address is typed (see CustomerPicker).
  * It validates user input and adds appointments to the database upon confirmation.
+ * The screen is kept between visits; each visit starts from an empty form.
  *
  * @author Daniel Akoko
  */
-public class AddAppointment implements Initializable {
+public class AddAppointment implements Initializable, SceneCache.Screen {
 
     @FXML private ComboBox<Customer> customerBox;
     @FXML private ComboBox<User> userBox;
@@ -53,17 +59,25 @@ public class AddAppointment implements Initializable {
     @FXML private ComboBox<LocalTime> endTime;
     @FXML private DatePicker startDate;
     @FXML private DatePicker endDate;
+    @FXML private ComboBox<Integer> durationBox;
+    @FXML private ComboBox<TimeSlot> slotBox;
+    @FXML private ComboBox<String> repeatBox;
+    @FXML private DatePicker repeatUntil;
 
-    private static final LocalTime BUSINESS_START_TIME = LocalTime.of(8, 0);
-    private static final LocalTime BUSINESS_END_TIME = LocalTime.of(22, 0);
+    private static final int SLOT_SEARCH_DAYS = 7;
+    private static final int SLOT_LIMIT = 10;
+    private static final String NO_REPEAT = "Does not repeat";
+
+    private CustomerPicker customerPicker;
 
     /**
      * Handles the save action for adding an appointment.
      * Attempts to save a new appointment based on user input.
      * Retrieves user-selected values for title, description, location, type, contact, customer, user, start date/time, and end date/time.
      * Validates if start and end dates and times are present and within business hours.
-     * Checks for overlap with existing appointments for the customer.
-     * If valid, adds the appointment to the database using AppointmentQuery.addAppointment.
+     * Checks for overlap with existing appointments for the customer, the contact and the user.
+     * If valid, adds the appointment to the database using AppointmentQuery.addAppointment,
+     * or stores a recurring series using SeriesQuery.addSeries when a repeat frequency is selected.
      * Navigates to the AppointmentScreen if successful.
      * Displays error messages for missing required fields or invalid times/overlaps.
      *
@@ -78,7 +92,12 @@ public class AddAppointment implements Initializable {
         String Type = type.getText();
         String Location = location.getText();
         int Contact = contact.getSelectionModel().getSelectedItem().getContactId();
-        int customer_Id = customerBox.getSelectionModel().getSelectedItem().getCustomerId();
+        Customer customer = customerPicker.getValue();
+        if (customer == null) {
+            errorAlert("Missing Fields", "Please choose a customer.");
+            return;
+        }
+        int customer_Id = customer.getCustomerId();
         int user_Id = userBox.getSelectionModel().getSelectedItem().getUserId();
         LocalDate start_date = startDate.getValue();
         LocalTime start_time = startTime.getSelectionModel().getSelectedItem();
@@ -88,25 +107,94 @@ public class AddAppointment implements Initializable {
         // Validating input fields
         if(start_date == null || start_time == null || end_date == null || end_time == null) {
             errorAlert("Missing Fields", "Please fill in all date and time fields.");
-
+            return;
         }
         LocalDateTime start_date_time = LocalDateTime.of(start_date.getYear(), start_date.getMonth(), start_date.getDayOfMonth(), start_time.getHour(), start_time.getMinute());
         LocalDateTime end_date_time = LocalDateTime.of(end_date.getYear(), end_date.getMonth(), end_date.getDayOfMonth(), end_time.getHour(), end_time.getMinute());
 
         //Appointment Time OverLap and Business hours validation needed here
-        boolean isValid = validateBusinessHours.test(start_time, end_time);
+        boolean isValid = validateBusinessHours.test(start_date_time, end_date_time);
+        Recurrence recurrence = selectedRecurrence();
         if(!isValid){
             errorAlert("Out of Bounds Error", "Appointments must be scheduled between 8:00 a.m. and 10:00 p.m. ET, including weekends.");
-        } else if(!validateOverlapping(customer_Id, start_date_time, end_date_time)){
-            // Adding the appointment to the database
-            AppointmentQuery.addAppointment(Title, Description, Location, Type, start_date_time, end_date_time, customer_Id, user_Id, Contact);
+        } else if(recurrence != null) {
+            AppointmentSeries series = new AppointmentSeries(0, Title, Description, Location, Type, start_date_time, end_date_time,
+                    customer_Id, user_Id, Contact, recurrence);
+            // Storing the series once, if every occurrence is free; its occurrences are expanded when they are viewed
+            List<Conflict> conflicts = new ArrayList<>();
+            ConflictChecker.bookIfFree(series, conflicts, () -> {
+                SeriesQuery.addSeries(Title, Description, Location, Type, start_date_time, end_date_time, customer_Id, user_Id, Contact, recurrence);
+                return true;
+            });
+            if(!showOverlaps("series", conflicts)) {
+                SceneCache.show(actionEvent, "AppointmentScreen");
+            }
+        } else {
+            // Adding the appointment to the database, if its time is free
+            List<Conflict> conflicts = new ArrayList<>();
+            ConflictChecker.bookIfFree(customer_Id, Contact, user_Id, start_date_time, end_date_time, 0, conflicts,
+                    () -> AppointmentQuery.addAppointment(Title, Description, Location, Type, start_date_time, end_date_time, customer_Id, user_Id, Contact));
+            if(!showOverlaps("appointment", conflicts)) {
+                // Redirecting to the main appointment screen
+                SceneCache.show(actionEvent, "AppointmentScreen");
+            }
+        }
+    }
 
-            // Redirecting to the main appointment screen
-            Parent parent = FXMLLoader.load(getClass().getResource("../view/AppointmentScreen.fxml"));
-            Scene scene = new Scene(parent);
-            Stage stage = (Stage) ((Node) actionEvent.getSource()).getScene().getWindow();
-            stage.setScene(scene);
-            stage.show();
+    /**
+     * Builds the recurrence rule selected in the repeat drop-down.
+     *
+     * @return The recurrence rule, or null if the appointment does not repeat.
+     */
+    private Recurrence selectedRecurrence() {
+        String repeat = repeatBox.getValue();
+        if (repeat == null || repeat.equals(NO_REPEAT)) {
+            return null;
+        }
+        return new Recurrence(Recurrence.Frequency.valueOf(repeat.toUpperCase()), 1, repeatUntil.getValue());
+    }
+
+    /**
+     * Handles the "Find Slots" action.
+     * Searches the week starting at the selected start date for windows in which the selected customer, contact and user
+     * are all free for the selected duration, and offers the earliest ones in the slot drop-down.
+     *
+     * @param actionEvent The ActionEvent associated with the event.
+     */
+    public void onFindSlots(ActionEvent actionEvent) {
+        Customer customer = customerPicker.getValue();
+        Contact selectedContact = contact.getSelectionModel().getSelectedItem();
+        User user = userBox.getSelectionModel().getSelectedItem();
+        LocalDate from = startDate.getValue();
+        if (customer == null || selectedContact == null || user == null || from == null) {
+            errorAlert("Missing Fields", "Please select a customer, contact, user and start date to search for free slots.");
+            return;
+        }
+
+        List<TimeSlot> slots = SlotFinder.findFreeSlots(customer.getCustomerId(), selectedContact.getContactId(), user.getUserId(),
+                Duration.ofMinutes(durationBox.getValue()), from, from.plusDays(SLOT_SEARCH_DAYS - 1), SLOT_LIMIT);
+        slotBox.setItems(FXCollections.observableArrayList(slots));
+        if (slots.isEmpty()) {
+            errorAlert("No Free Slots", "No free slots were found in the " + SLOT_SEARCH_DAYS + " days from the selected start date.");
+        } else {
+            slotBox.show();
+        }
+    }
+
+    /**
+     * Handles the selection of a free slot.
+     * Fills the start and end dates and times with the beginning of the slot and the selected duration.
+     *
+     * @param actionEvent The ActionEvent associated with the event.
+     */
+    public void onSlot(ActionEvent actionEvent) {
+        TimeSlot slot = slotBox.getValue();
+        if (slot != null) {
+            LocalDateTime end = slot.getStart().plusMinutes(durationBox.getValue());
+            startDate.setValue(slot.getStart().toLocalDate());
+            startTime.setValue(slot.getStart().toLocalTime());
+            endDate.setValue(end.toLocalDate());
+            endTime.setValue(end.toLocalTime());
         }
     }
 
@@ -127,21 +215,16 @@ public class AddAppointment implements Initializable {
 
         if(result.isPresent() && result.get() == ButtonType.YES) {
             // Redirecting to the main appointment screen
-            Parent parent = FXMLLoader.load(getClass().getResource("../view/AppointmentScreen.fxml"));
-            Scene scene = new Scene(parent);
-            Stage stage = (Stage) ((Node) actionEvent.getSource()).getScene().getWindow();
-            stage.setScene(scene);
-            stage.show();
+            SceneCache.show(actionEvent, "AppointmentScreen");
         }
     }
 
     /**
      * Initializes the controller.
      * Sets the ID for the appointmentID field (for potential customization).
-     * Populates drop-down menus with lists of contacts, users, and customers obtained from respective queries.
-     * Sets default values for dates and times.
-     * Creates ObservableLists for time and date options based on business hours (8:00 AM - 10:00 PM ET).
-     * Selects the first item in each ComboBox by default.
+     * Offers the precomputed times within business hours (8:00 AM - 10:00 PM ET) for whichever dates are picked,
+     * and the fixed duration and repeat choices, and sets up the customer picker.
+     * The drop-down lists and default values are loaded by onShow.
      *
      * @param url The location used to resolve relative paths for the root object.
      * @param resourceBundle The resources used to localize the root object.
@@ -149,65 +232,82 @@ public class AddAppointment implements Initializable {
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
         appointmentID.setId(appointmentID.getId());
-        ObservableList<model.Contact> contacts = ContactQuery.getAllContacts();
-        ObservableList<User> users = UserQuery.getUserList();
-        ObservableList<Customer> customers = CustomerQuery.getCustomerList();
         /*
         ObservableList<String> populateTime = FXCollections.observableArrayList();
         ObservableList<String> populateDate = FXCollections.observableArrayList();
                 // Initialize start and end time combo boxes
-        startTime.setItems(initializeBusinessHours(ZoneId.systemDefault(), ZoneId.of("America/New_York"), BUSINESS_START_TIME, BUSINESS_END_TIME));
-        endTime.setItems(initializeBusinessHours(ZoneId.systemDefault(), ZoneId.of("America/New_York"), BUSINESS_START_TIME, BUSINESS_END_TIME));
+        startTime.setItems(initializeBusinessHours(ZoneId.systemDefault(), BUSINESS_ZONE, BUSINESS_START_TIME, BUSINESS_END_TIME));
+        endTime.setItems(initializeBusinessHours(ZoneId.systemDefault(), BUSINESS_ZONE, BUSINESS_START_TIME, BUSINESS_END_TIME));
 
         */
 
+        // Offering the times that fall within business hours on whichever dates are picked
+        startDate.valueProperty().addListener((observable, oldDate, newDate) -> refreshTimes(startTime, SlotTable.getStartTimes(newDate)));
+        endDate.valueProperty().addListener((observable, oldDate, newDate) -> refreshTimes(endTime, SlotTable.getEndTimes(newDate)));
+        durationBox.setItems(FXCollections.observableArrayList(15, 30, 45, 60, 90, 120));
+        repeatBox.setItems(FXCollections.observableArrayList(NO_REPEAT, "Daily", "Weekly", "Monthly"));
+        customerPicker = new CustomerPicker(customerBox);
+    }
+
+    /**
+     * Resets the form each time the screen is shown, since the screen is kept between visits.
+     * Clears the text fields, chosen customer and free slots left from the last visit.
+     * Populates drop-down menus with lists of contacts and users obtained from respective queries.
+     * Sets default values for dates, times, duration and repeat.
+     * Selects the first item in each ComboBox by default.
+     */
+    @Override
+    public void onShow() {
+        title.clear();
+        description.clear();
+        location.clear();
+        type.clear();
+        slotBox.setItems(FXCollections.observableArrayList());
+        customerPicker.setValue(null);
+
+        ObservableList<model.Contact> contacts = ContactQuery.getAllContacts();
+        ObservableList<User> users = UserQuery.getUserList();
+
         // Populating dropdowns with data
         contact.setItems(contacts);
         contact.getSelectionModel().selectFirst();
         userBox.setItems(users);
         userBox.getSelectionModel().selectFirst();
-        customerBox.setItems(customers);
-        customerBox.getSelectionModel().selectFirst();
         startDate.setValue(LocalDate.now());
         endDate.setValue(LocalDate.now());
-        startTime.setItems(initializeBusinessHours(ZoneId.systemDefault(), ZoneId.of("America/New_York"), BUSINESS_START_TIME, BUSINESS_END_TIME));
+        startTime.setItems(FXCollections.observableArrayList(SlotTable.getStartTimes(startDate.getValue())));
         startTime.getSelectionModel().selectFirst();
-        endTime.setItems(initializeBusinessHours(ZoneId.systemDefault(), ZoneId.of("America/New_York"), BUSINESS_START_TIME, BUSINESS_END_TIME));
+        endTime.setItems(FXCollections.observableArrayList(SlotTable.getEndTimes(endDate.getValue())));
         endTime.getSelectionModel().selectFirst();
+        durationBox.setValue(30);
+        repeatBox.setValue(NO_REPEAT);
+        repeatUntil.setValue(null);
     }
 
     /**
-     * Initializes business hours for a given time zone.
+     * Replaces the times offered in a time drop-down, keeping the selected time if it is still offered.
      *
-     * @param systemZoneId   The system time zone.
-     * @param businessZoneId The business time zone.
-     * @param startHour      The starting hour of the business day.
-     * @param endHour        The ending hour of the business day.
-     * @return ObservableList of LocalTime representing business hours.
+     * @param timeBox The time drop-down.
+     * @param times   The precomputed times for the newly picked date.
      */
-    private static  ObservableList<LocalTime> initializeBusinessHours(ZoneId systemZoneId, ZoneId businessZoneId, LocalTime startHour, LocalTime endHour) {
-        ZonedDateTime businessStartTime = ZonedDateTime.of(LocalDate.now(), startHour, businessZoneId);
-        ZonedDateTime localStartTime = businessStartTime.withZoneSameInstant(systemZoneId);
-        int localStartingHour = localStartTime.getHour();
-
-        ZonedDateTime businessEndTime = ZonedDateTime.of(LocalDate.now(), endHour, businessZoneId);
-        ZonedDateTime localEndTime = businessEndTime.withZoneSameInstant(systemZoneId);
-        int localEndingHour = localEndTime.getHour();
-
-        return IntStream.range(localStartingHour, localEndingHour)
-                .filter(hour -> hour >= BUSINESS_START_TIME.getHour() && hour <= BUSINESS_END_TIME.getHour())
-                .mapToObj(i -> LocalTime.of(i / 2, (i % 2) * 30))
-                .collect(Collectors.toCollection(FXCollections::observableArrayList));
+    private static void refreshTimes(ComboBox<LocalTime> timeBox, List<LocalTime> times) {
+        LocalTime selected = timeBox.getValue();
+        timeBox.setItems(FXCollections.observableArrayList(times));
+        if (selected != null && times.contains(selected)) {
+            timeBox.setValue(selected);
+        } else {
+            timeBox.getSelectionModel().selectFirst();
+        }
     }
 
     /**
      * Validates if the appointment is scheduled within business hours.
+     * The start and end are compared in the business time zone, so the check holds wherever the system clock is set.
      *
      *<b>Lambda Expression 1</b>
      *
      */
-    static BiPredicate<LocalTime, LocalTime> validateBusinessHours =
-            (startTime, endTime) -> startTime.isBefore(BUSINESS_START_TIME) || endTime.isAfter(BUSINESS_END_TIME);
+    static BiPredicate<LocalDateTime, LocalDateTime> validateBusinessHours = SlotTable::isWithinBusinessHours;
 
     /*
     private static boolean validateBusinessHours(LocalTime startTime, LocalTime endTime) {
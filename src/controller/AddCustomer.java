@@ -3,18 +3,15 @@ package controller;
 import database.CountryQuery;
 import database.CustomerQuery;
 import database.DivisionQuery;
+import helper.SceneCache;
+import javafx.collections.FXCollections;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
-import javafx.scene.Node;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.TextField;
-import javafx.stage.Stage;
 
 import java.io.IOException;
 import java.net.URL;
@@ -29,10 +26,11 @@ import static helper.Util.errorAlert;
  * The AddCustomer class manages the user interface and logic for adding a new customer.
  * It allows users to input customer information including name, address, postal code, phone number, and division/country selection.
  * It interacts with database queries to validate country-specific divisions and add new customer data.
+ * The screen is kept between visits; each visit starts from an empty form.
  *
  * @author Daniel Akoko
  */
-public class AddCustomer implements Initializable {
+public class AddCustomer implements Initializable, SceneCache.Screen {
     @FXML private TextField customerID;
     @FXML private TextField Name;
     @FXML private TextField Address;
@@ -55,6 +53,10 @@ public class AddCustomer implements Initializable {
     public void onCountry(ActionEvent actionEvent) throws SQLException {
 
         model.Country country = Country.getValue();
+        if (country == null) {
+            // The form is being reset
+            return;
+        }
         try{
             // Populate the division dropdown based on the selected country
             Division.setItems(DivisionQuery.showDivision(country.getCountryId()));
@@ -76,7 +78,8 @@ public class AddCustomer implements Initializable {
      * Retrieves the selected Division object and gets its division ID.
      * Uses CustomerQuery.addCustomer to add the new customer data to the database.
      * Navigates to the CustomerScreen if successful.
-     * Catches and throws exceptions for invalid field formats (NumberFormatException) or database errors (SQLException).
+     * Catches and throws exceptions for invalid field formats (NumberFormatException); a database failure is shown by the
+     * uncaught exception handler.
      *
      * @param actionEvent The event triggering the save action.
      */
@@ -119,12 +122,8 @@ public class AddCustomer implements Initializable {
             CustomerQuery.addCustomer(name, address, postal_Code, phone, division_ID);
 
             // Redirecting to the main customer screen
-            Parent parent = FXMLLoader.load(getClass().getResource("../view/CustomerScreen.fxml"));
-            Scene scene = new Scene(parent);
-            Stage stage = (Stage) ((Node) actionEvent.getSource()).getScene().getWindow();
-            stage.setScene(scene);
-            stage.show();
-        } catch (NumberFormatException | IOException | SQLException e) {
+            SceneCache.show(actionEvent, "CustomerScreen");
+        } catch (NumberFormatException | IOException e) {
             e.printStackTrace();
             errorAlert("Error", "An unexpected error occurred. Please try again.");
         }
@@ -147,24 +146,36 @@ public class AddCustomer implements Initializable {
 
         if(result.isPresent() && result.get() == ButtonType.YES) {
             // Redirecting to the main customer screen
-            Parent parent = FXMLLoader.load(getClass().getResource("../view/CustomerScreen.fxml"));
-            Scene scene = new Scene(parent);
-            Stage stage = (Stage) ((Node) actionEvent.getSource()).getScene().getWindow();
-            stage.setScene(scene);
-            stage.show();
+            SceneCache.show(actionEvent, "CustomerScreen");
         }
     }
 
     /**
      * Initializes the controller.
-     * Populates the Country ComboBox with all available countries using CountryQuery.getAllCountry.
+     * Nothing needs wiring up; the drop-downs are loaded by onShow.
      *
      * @param url The location used to resolve relative paths for the root object.
      * @param resourceBundle The resources used to localize the root object.
      */
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
+    }
+
+    /**
+     * Resets the form each time the screen is shown, since the screen is kept between visits.
+     * Clears the fields left from the last visit and populates the Country ComboBox with all available countries
+     * using CountryQuery.getAllCountry.
+     */
+    @Override
+    public void onShow() {
+        Name.clear();
+        Address.clear();
+        postalCode.clear();
+        phoneNumber.clear();
+        Division.setValue(null);
+        Division.setItems(FXCollections.observableArrayList());
         // Populating the country dropdown with data
         Country.setItems(CountryQuery.getAllCountry());
+        Country.setValue(null);
     }
 }
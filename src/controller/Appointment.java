@@ -1,25 +1,27 @@
 package controller;
 
 import database.AppointmentQuery;
+import database.SeriesQuery;
+import helper.SceneCache;
+import helper.SeriesCache;
+import helper.TimeConverter;
+import helper.TimelineCache;
 import helper.Util;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
-import javafx.scene.Node;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
-import javafx.stage.Stage;
+import model.AppointmentSeries;
 
 import java.io.IOException;
 import java.net.URL;
 import java.sql.SQLException;
 import java.sql.Timestamp;
-import java.util.Objects;
+import java.time.LocalDateTime;
+import java.util.Optional;
 import java.util.ResourceBundle;
 
 import static helper.Util.confirmAlert;
@@ -29,10 +31,12 @@ import static helper.Util.confirmAlert;
  * The Appointment class manages the user interface and logic for displaying and manipulating appointments.
  * It allows users to filter appointments by all, weekly, and monthly views, add new appointments,
  * delete existing appointments, and update selected appointments.
+ * Occurrences of recurring series are expanded only for the window being viewed.
+ * The screen is kept between visits; each visit reloads the view that was last selected.
  *
  * @author Daniel Akoko
  */
-public class Appointment implements Initializable {
+public class Appointment implements Initializable, SceneCache.Screen {
     @FXML private RadioButton allAppointment;
     @FXML private ToggleGroup appointment;
     @FXML private RadioButton weeklyAppointment;
@@ -53,54 +57,53 @@ public class Appointment implements Initializable {
 
     /**
      * Handles the action when "All Appointments" is selected.
-     * Sets the appointmentTable data to display all appointments from the AppointmentQuery.getAppointmentList method.
+     * Sets the appointmentTable data to display all appointments from TimelineCache.getAppointments, which first fetches the
+     * changes every desk has made since the last fetch, followed by the recurring occurrences within the next month.
      *
      * @param actionEvent The event triggering the action.
      */
     @FXML void onAllAppointment(ActionEvent actionEvent) {
-        appointmentTable.setItems(AppointmentQuery.getAppointmentList());
+        appointmentTable.setItems(withOccurrences(TimelineCache.getAppointments(), LocalDateTime.now().plusMonths(1)));
         appointmentTable.refresh();
     }
 
     /**
      * Handles the action when "Monthly Appointments" is selected.
-     * Sets the appointmentTable data to display appointments within the next month from the AppointmentQuery.getMonthlyAppointment method.
+     * Sets the appointmentTable data to display appointments within the next month from the AppointmentQuery.getMonthlyAppointment method,
+     * together with the recurring occurrences in that month.
      * Sets a placeholder message displaying "No appointments exist within the next month" if no appointments are found.
      *
      * @param actionEvent The event triggering the action.
      */
     @FXML void onMonthlyAppointment(ActionEvent actionEvent) {
-        appointmentTable.setItems(AppointmentQuery.getMonthlyAppointment());
+        appointmentTable.setItems(withOccurrences(AppointmentQuery.getMonthlyAppointment(), LocalDateTime.now().plusMonths(1)));
         appointmentTable.setPlaceholder(new Label("No appointments exist within the next month"));
         appointmentTable.refresh();
     }
 
     /**
      * Handles the action when "Weekly Appointments" is selected.
-     * Sets the appointmentTable data to display appointments within the next week from the AppointmentQuery.getApptByWeek method.
+     * Sets the appointmentTable data to display appointments within the next week from the AppointmentQuery.getApptByWeek method,
+     * together with the recurring occurrences in that week.
      * Sets a placeholder message displaying "No appointments exist within the next week" if no appointments are found.
      *
      * @param actionEvent The event triggering the action.
      */
     @FXML void onWeeklyAppointment(ActionEvent actionEvent) {
-        appointmentTable.setItems(AppointmentQuery.getApptByWeek());
+        appointmentTable.setItems(withOccurrences(AppointmentQuery.getApptByWeek(), LocalDateTime.now().plusWeeks(1)));
         appointmentTable.setPlaceholder(new Label("No appointments exist within the next week"));
         appointmentTable.refresh();
     }
 
     /**
      * Handles the action when "Add Appointment" button is clicked.
-     * Opens the AddAppointment.fxml view to create a new appointment.
+     * Shows the AddAppointment.fxml view to create a new appointment.
      *
      * @param actionEvent The event triggering the action.
      * @throws IOException
      */
     @FXML void onAddAppointment(ActionEvent actionEvent) throws IOException {
-        Parent parent = FXMLLoader.load(Objects.requireNonNull(getClass().getResource("../view/AddAppointment.fxml")));
-        Scene scene = new Scene(parent);
-        Stage stage = (Stage) ((Node) actionEvent.getSource()).getScene().getWindow();
-        stage.setScene(scene);
-        stage.show();
+        SceneCache.show(actionEvent, "AddAppointment");
     }
 
     /**
@@ -108,6 +111,7 @@ public class Appointment implements Initializable {
      * Checks if an appointment is selected in the table.
      * Displays confirmation alerts for deletion and confirms user intent.
      * Uses AppointmentQuery.deleteAppointment to remove the selected appointment from the database.
+     * Recurring occurrences are handed to deleteOccurrence instead.
      * Refreshes the table with updated data.
      *
      * @param actionEvent The event triggering the action.
@@ -118,6 +122,10 @@ public class Appointment implements Initializable {
             confirmAlert("SELECTION ERROR", "No appointment selected. Please select an appointment to delete");
             return;
         }
+        if (selectedAppointment.getSeriesId() != 0) {
+            deleteOccurrence(selectedAppointment);
+            return;
+        }
 
         Alert alert = new Alert(Alert.AlertType.WARNING);
         alert.setTitle("Alert");
@@ -136,7 +144,7 @@ public class Appointment implements Initializable {
 
             // Deleting the appointment from the database
             AppointmentQuery.deleteAppointment(selectedAppointment.getAppointmentId());
-            AppointmentList = AppointmentQuery.getAppointmentList();
+            AppointmentList = withOccurrences(TimelineCache.getAppointments(), LocalDateTime.now().plusMonths(1));
             appointmentTable.setItems(AppointmentList);
             appointmentTable.refresh();
         } else if (alert.getResult() == ButtonType.CANCEL) {
@@ -146,28 +154,27 @@ public class Appointment implements Initializable {
 
     /**
      * Handles the action when "Update Appointment" button is clicked.
-     * Tries to load the UpdateAppointment.fxml view.
      * Retrieves the selected appointment from the table.
-     * Passes the selected appointment to the UpdateAppointment controller via modifyAppointment method.
-     * Opens the UpdateAppointment.fxml view with the selected appointment details.
-     * Catches exceptions for missing selection or database errors.
+     * Shows the UpdateAppointment.fxml view and passes the selected appointment to its controller via modifyAppointment method.
+     * Shows an error for a missing selection or a recurring occurrence.
      *
      * @param actionEvent The event triggering the action.
      * @throws IOException If there is an error loading the scene.
      */
     @FXML void onUpdateAppointment(ActionEvent actionEvent) throws IOException {
+        model.Appointment selectedAppointment = appointmentTable.getSelectionModel().getSelectedItem();
+        if (selectedAppointment == null) {
+            Util.errorAlert("SELECTION ERROR", "No Appointment was selected. Please select an appointment");
+            return;
+        }
+        if (selectedAppointment.getSeriesId() != 0) {
+            Util.errorAlert("RECURRING APPOINTMENT", "Occurrences of a recurring series cannot be edited individually. " +
+                    "Delete the occurrence and add a replacement appointment instead.");
+            return;
+        }
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("../view/UpdateAppointment.fxml"));
-            Parent parent = loader.load();
-            UpdateAppointment modifyAppointment = loader.getController();
-            model.Appointment selectedAppointment = appointmentTable.getSelectionModel().getSelectedItem();
+            UpdateAppointment modifyAppointment = SceneCache.show(actionEvent, "UpdateAppointment");
             modifyAppointment.modifyAppointment(selectedAppointment);
-
-            Stage stage = (Stage) ((Button) actionEvent.getSource()).getScene().getWindow();
-            stage.setScene(new Scene(parent));
-            stage.show();
-        } catch (RuntimeException e) {
-            Util.errorAlert("SELECTION ERROR", "No Appointment was selected. Please select an appointment");
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -175,20 +182,20 @@ public class Appointment implements Initializable {
 
     /**
      * Handles the action when "Back" button is clicked.
-     * Calls the loadScene method to navigate back to the MainScreen.fxml view.
+     * Navigates back to the MainScreen.fxml view.
      *
      * @param actionEvent The event triggering the action.
      * @throws IOException If there is an error loading the scene.
      */
     @FXML void back(ActionEvent actionEvent) throws IOException {
-        loadScene("../view/MainScreen.fxml", actionEvent);
+        SceneCache.show(actionEvent, "MainScreen");
     }
 
     /**
      * Initializes the controller.
      * Configures the radio buttons within the appointment toggle group.
-     * Sets the initial data for the appointment table using AppointmentQuery.getAppointmentList.
      * Initializes cell value factories for each table column using property value factories.
+     * The table's data is loaded by onShow.
      *
      * @param url The location used to resolve relative paths for the root object.
      * @param resourceBundle The resources used to localize the root object.
@@ -200,8 +207,6 @@ public class Appointment implements Initializable {
         this.weeklyAppointment.setToggleGroup(appointment);
         this.monthlyAppointment.setToggleGroup(appointment);
 
-        // Populating the appointment table with data
-        appointmentTable.setItems(AppointmentQuery.getAppointmentList());
         // Setting up cell value factories for table columns
         appointmentID.setCellValueFactory(new PropertyValueFactory<>("appointmentId"));
         title.setCellValueFactory(new PropertyValueFactory<>("title"));
@@ -216,18 +221,65 @@ public class Appointment implements Initializable {
     }
 
     /**
-     * Load a new scene with the given FXML file path.
-     * Sets the new scene on the current stage.
+     * Fills the appointment table each time the screen is shown, using the view last selected (all appointments by default),
+     * so appointments added, changed or deleted on the forms appear.
+     */
+    @Override
+    public void onShow() {
+        if (weeklyAppointment.isSelected()) {
+            onWeeklyAppointment(null);
+        } else if (monthlyAppointment.isSelected()) {
+            onMonthlyAppointment(null);
+        } else {
+            onAllAppointment(null);
+        }
+        appointmentTable.getSelectionModel().clearSelection();
+    }
+
+    /**
+     * Deletes an occurrence of a recurring series.
+     * Asks whether to remove only the selected occurrence, which records an exception date on the series,
+     * or the entire series.
      *
-     * @param fxmlPath    The FXML file path.
-     * @param actionEvent The event triggering the action.
-     * @throws IOException If there is an error loading the scene.
+     * @param occurrence The occurrence selected in the table.
+     */
+    private void deleteOccurrence(model.Appointment occurrence) {
+        AppointmentSeries series = SeriesCache.getSeries(occurrence.getSeriesId());
+        if (series == null) {
+            return;
+        }
+        ButtonType thisOccurrence = new ButtonType("This Occurrence");
+        ButtonType entireSeries = new ButtonType("Entire Series");
+        Alert alert = new Alert(Alert.AlertType.WARNING);
+        alert.setTitle("Alert");
+        alert.setContentText("The selected appointment is part of a recurring series. What would you like to remove?");
+        alert.getButtonTypes().setAll(thisOccurrence, entireSeries, ButtonType.CANCEL);
+        Optional<ButtonType> result = alert.showAndWait();
+
+        if (result.isPresent() && result.get() == thisOccurrence) {
+            SeriesQuery.addException(series.getSeriesId(), TimeConverter.toBusiness(occurrence.getStartMillis()).toLocalDate());
+        } else if (result.isPresent() && result.get() == entireSeries) {
+            SeriesQuery.deleteSeries(series.getSeriesId());
+        } else {
+            return;
+        }
+        appointmentTable.getItems().remove(occurrence);
+        if (result.get() == entireSeries) {
+            appointmentTable.getItems().removeIf(appointment -> appointment.getSeriesId() == series.getSeriesId());
+        }
+        appointmentTable.refresh();
+    }
+
+    /**
+     * Appends the occurrences of recurring series from now until the specified time to a list of stored appointments.
+     * Only occurrences inside that window are expanded.
+     *
+     * @param appointments The stored appointments.
+     * @param until        The end of the window.
+     * @return The same list, with the occurrences appended.
      */
-    private void loadScene(String fxmlPath, ActionEvent actionEvent) throws IOException {
-        Parent parent = FXMLLoader.load(getClass().getResource(fxmlPath));
-        Scene scene = new Scene(parent);
-        Stage stage = (Stage) ((Node) actionEvent.getSource()).getScene().getWindow();
-        stage.setScene(scene);
-        stage.show();
+    private ObservableList<model.Appointment> withOccurrences(ObservableList<model.Appointment> appointments, LocalDateTime until) {
+        appointments.addAll(SeriesCache.expand(LocalDateTime.now(), until));
+        return appointments;
     }
 }
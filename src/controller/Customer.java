@@ -2,22 +2,28 @@ package controller;
 
 import database.AppointmentQuery;
 import database.CustomerQuery;
+import database.SeriesQuery;
+import helper.CustomerCache;
+import helper.GeographyCache;
+import helper.SceneCache;
+import helper.UnitOfWork;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
-import javafx.scene.Node;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
-import javafx.stage.Stage;
-import model.Appointment;
+import javafx.scene.input.KeyEvent;
+import model.CustomerFilter;
 
 import java.io.IOException;
 import java.net.URL;
 import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.ResourceBundle;
 
@@ -28,10 +34,15 @@ import static helper.Util.errorAlert;
  * Controller class for handling customer-related actions.
  * The Customer class manages the user interface and logic for displaying and manipulating customer data.
  * It allows users to view a list of existing customers, add new customers, modify selected customers, and delete them.
+ * The list is filtered by country and division and sorted by the database, and fetched a page at a time as the table
+ * scrolls towards the end of what has been loaded, so the screen holds only the customers that have been scrolled past.
+ * Text typed in the search field is looked up in the CustomerCache search index as it is typed, matching names, addresses,
+ * postal codes and phone numbers; until the cache is built it filters names by prefix in the database instead.
+ * The screen is kept between visits; each visit reloads the list with the filter and sort left by the last one.
  *
  * @author Daniel Akoko
  */
-public class Customer implements Initializable {
+public class Customer implements Initializable, SceneCache.Screen {
     @FXML private TableView<model.Customer> customerTable;
     @FXML private TableColumn<model.Customer, Integer> customerID;
     @FXML private TableColumn<model.Customer, String> Name;
@@ -40,27 +51,40 @@ public class Customer implements Initializable {
     @FXML private TableColumn<model.Customer, String> postalCode;
     @FXML private TableColumn<model.Customer, String> phoneNumber;
     @FXML private TableColumn<model.Customer, Integer> Division;
+    @FXML private TextField searchField;
+    @FXML private ComboBox<model.Country> countryFilter;
+    @FXML private ComboBox<model.Division> divisionFilter;
+
+    /** Customers fetched per page. */
+    private static final int PAGE_SIZE = 100;
+    /** How close to the last loaded row a row must be shown for the next page to be fetched. */
+    private static final int PREFETCH_ROWS = 20;
+    /** The most search results shown. */
+    private static final int SEARCH_LIMIT = 500;
+
+    private final ObservableList<model.Customer> rows = FXCollections.observableArrayList();
+    private final Map<TableColumn<model.Customer, ?>, CustomerFilter.Sort> sortColumns = new HashMap<>();
+    private CustomerFilter filter = CustomerFilter.ALL;
+    private String search = "";
+    private boolean exhausted;
+    private boolean fetchQueued;
+    private boolean resettingFilter;
 
     /**
      * Handles the action when "Add Customer" button is clicked.
-     * Opens the AddCustomer.fxml view to create a new customer.
+     * Shows the AddCustomer.fxml view to create a new customer.
      *
      * @param actionEvent The event triggering the action.
      * @throws IOException If there is an error loading the scene.
      */
     public void onAddCustomer(ActionEvent actionEvent) throws IOException {
-        Parent parent = FXMLLoader.load(getClass().getResource("../view/AddCustomer.fxml"));
-        Scene scene = new Scene(parent);
-        Stage stage = (Stage)((Node) actionEvent.getSource()).getScene().getWindow();
-        stage.setScene(scene);
-        stage.show();
+        SceneCache.show(actionEvent, "AddCustomer");
     }
 
     /**
      * Handles the action when "Modify Customer" button is clicked.
      * Checks if a customer is selected in the table.
-     * Loads the UpdateCustomer.fxml view and passes the selected customer information to its controller.
-     * Shows the UpdateCustomer.fxml view with pre-populated data.
+     * Shows the UpdateCustomer.fxml view and passes the selected customer information to its controller to pre-populate it.
      * Displays an error message if no customer is selected.
      *
      * @param actionEvent The event triggering the action.
@@ -69,18 +93,8 @@ public class Customer implements Initializable {
      */
     public void onModifyCustomer(ActionEvent actionEvent) throws IOException, SQLException {
         if(customerTable.getSelectionModel().getSelectedItem() != null) {
-            FXMLLoader loader = new FXMLLoader();
-            loader.setLocation(getClass().getResource("../view/UpdateCustomer.fxml"));
-            loader.load();
-
-            UpdateCustomer MCController = loader.getController();
+            UpdateCustomer MCController = SceneCache.show(actionEvent, "UpdateCustomer");
             MCController.getCustomerInfo(customerTable.getSelectionModel().getSelectedItem());
-
-            Stage stage = (Stage)((Button) actionEvent.getSource()).getScene().getWindow();
-            Parent parent = loader.getRoot();
-            Scene scene = new Scene(parent);
-            stage.setScene(scene);
-            stage.show();
         } else {
             Alert alert = new Alert(Alert.AlertType.ERROR);
             alert.setTitle("SELECTION ERROR");
@@ -93,7 +107,7 @@ public class Customer implements Initializable {
      * Handles the action when "Delete Customer" button is clicked.
      * Checks if a customer is selected in the table.
      * Displays a confirmation alert for deletion.
-     * Removes all associated appointments before deleting the customer.
+     * Removes all associated appointments and recurring series before deleting the customer, in a single transaction.
      * Uses CustomerQuery.deleteCustomer to remove the selected customer from the database.
      * Refreshes the table with updated data.
      * Displays success or error messages based on the deletion outcome.
@@ -101,7 +115,6 @@ public class Customer implements Initializable {
      * @param actionEvent The event triggering the action.
      */
     public void onDeleteCustomer(ActionEvent actionEvent) {
-        ObservableList<Appointment> appointments = AppointmentQuery.getAppointmentList();
         model.Customer customer = customerTable.getSelectionModel().getSelectedItem();
 
         if(customer !=null) {
@@ -115,19 +128,17 @@ public class Customer implements Initializable {
             Optional<ButtonType> result = alert.showAndWait();
 
             if(result.isPresent() && result.get() == ButtonType.OK) {
-                // Deleting associated appointments
-                for (Appointment appointment : appointments) {
-                    if (appointment.getCustomerId() == customer_Id) {
-                        AppointmentQuery.deleteAppointment(appointment.getAppointmentId());
-                    }
+                // Deleting the customer's appointments, recurring series and then the customer as one transaction
+                int deletedCustomer;
+                try (UnitOfWork work = UnitOfWork.begin()) {
+                    AppointmentQuery.deleteCustomerAppointments(customer_Id);
+                    SeriesQuery.deleteCustomerSeries(customer_Id);
+                    deletedCustomer = CustomerQuery.deleteCustomer(customer_Id);
+                    work.commit();
                 }
-
-                // Deleting the customer
-                int deletedCustomer = CustomerQuery.deleteCustomer(customer_Id);
                  if(deletedCustomer > 0) {
                      confirmAlert("Deletion Successful", "Customer and associated appointments successfully deleted");
-                     customerTable.setItems(CustomerQuery.getCustomerList());
-                     customerTable.refresh();
+                     reload();
                  } else {
                      errorAlert("Deletion Error", "Failed to delete customer and associated appointments");
                  }
@@ -138,6 +149,67 @@ public class Customer implements Initializable {
         }
     }
 
+    /**
+     * Handles a key typed in the search field, and shows the customers that match.
+     *
+     * @param keyEvent The event triggering the action.
+     */
+    public void onSearch(KeyEvent keyEvent) {
+        applyFilter();
+    }
+
+    /**
+     * Handles a change to the division filter, and shows the customers that match.
+     *
+     * @param actionEvent The event triggering the action.
+     */
+    public void onFilter(ActionEvent actionEvent) {
+        if (!resettingFilter) {
+            applyFilter();
+        }
+    }
+
+    /**
+     * Handles a change to the country filter.
+     * Offers the country's divisions in the division filter, clears the division chosen before, and shows the customers that match.
+     *
+     * @param actionEvent The event triggering the action.
+     * @throws SQLException If the divisions cannot be read.
+     */
+    public void onCountryFilter(ActionEvent actionEvent) throws SQLException {
+        if (resettingFilter) {
+            return;
+        }
+        model.Country country = countryFilter.getValue();
+        resettingFilter = true;
+        try {
+            divisionFilter.setValue(null);
+            divisionFilter.setItems(country == null ? FXCollections.observableArrayList() : GeographyCache.getDivisions(country.getCountryId()));
+        } finally {
+            resettingFilter = false;
+        }
+        applyFilter();
+    }
+
+    /**
+     * Handles the action when "Clear" button is clicked.
+     * Empties the search and the filters and shows every customer, keeping the sort.
+     *
+     * @param actionEvent The event triggering the action.
+     */
+    public void onClearFilter(ActionEvent actionEvent) {
+        resettingFilter = true;
+        try {
+            searchField.clear();
+            countryFilter.setValue(null);
+            divisionFilter.setValue(null);
+            divisionFilter.setItems(FXCollections.observableArrayList());
+        } finally {
+            resettingFilter = false;
+        }
+        applyFilter();
+    }
+
     /**
      * Handles the action when "Back" button is clicked.
      * Navigates back to the MainScreen.fxml view.
@@ -146,25 +218,21 @@ public class Customer implements Initializable {
      * @throws IOException If there is an error loading the scene.
      */
     public void onBack(ActionEvent actionEvent) throws IOException {
-        Parent parent = FXMLLoader.load(getClass().getResource("../view/MainScreen.fxml"));
-        Scene scene = new Scene(parent);
-        Stage stage = (Stage)((Node) actionEvent.getSource()).getScene().getWindow();
-        stage.setScene(scene);
-        stage.show();
+        SceneCache.show(actionEvent, "MainScreen");
     }
 
     /**
      * Initializes the controller.
-     * Sets the initial data for the customerTable using CustomerQuery.getCustomerList.
      * Initializes cell value factories for each table column using property value factories.
+     * Hands sorting to the database, and fetches the next page whenever a row near the end of the loaded ones is shown.
+     * Country and division are filters rather than sort columns.
+     * The table's data is loaded by onShow.
      *
      * @param url The location used to resolve relative paths for the root object.
      * @param resourceBundle The resources used to localize the root object.
      */
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
-        // Populating the customer table with data
-        customerTable.setItems(CustomerQuery.getCustomerList());
         // Setting up cell value factories for table columns
         customerID.setCellValueFactory(new PropertyValueFactory<>("customerId"));
         Name.setCellValueFactory(new PropertyValueFactory<>("customerName"));
@@ -173,5 +241,135 @@ public class Customer implements Initializable {
         postalCode.setCellValueFactory(new PropertyValueFactory<>("postalCode"));
         phoneNumber.setCellValueFactory(new PropertyValueFactory<>("phone"));
         Division.setCellValueFactory(new PropertyValueFactory<>("divisionName"));
+
+        sortColumns.put(customerID, CustomerFilter.Sort.ID);
+        sortColumns.put(Name, CustomerFilter.Sort.NAME);
+        sortColumns.put(Address, CustomerFilter.Sort.ADDRESS);
+        sortColumns.put(postalCode, CustomerFilter.Sort.POSTAL_CODE);
+        sortColumns.put(phoneNumber, CustomerFilter.Sort.PHONE);
+        Country.setSortable(false);
+        Division.setSortable(false);
+
+        customerTable.setItems(rows);
+        // The rows are already in the order asked for; a new sort is fetched from the database instead of sorting the loaded rows
+        customerTable.setSortPolicy(table -> {
+            applySort();
+            return true;
+        });
+        customerTable.setRowFactory(table -> new TableRow<>() {
+            @Override
+            public void updateIndex(int index) {
+                super.updateIndex(index);
+                if (index >= rows.size() - PREFETCH_ROWS) {
+                    fetchMore();
+                }
+            }
+        });
+    }
+
+    /**
+     * Reloads the customer table each time the screen is shown, so customers added or changed on the forms appear.
+     * The countries are loaded into the country filter on the first visit.
+     */
+    @Override
+    public void onShow() {
+        if (countryFilter.getItems().isEmpty()) {
+            countryFilter.setItems(GeographyCache.getCountries());
+        }
+        reload();
+    }
+
+    /**
+     * Reads the search and the filters into the filter model and reloads the table if they changed.
+     */
+    private void applyFilter() {
+        String text = searchField.getText().trim();
+        // Until the customer cache is built, typed text is a name prefix for the database rather than a wait for the cache
+        boolean indexed = text.isEmpty() || CustomerCache.isLoaded();
+        model.Country country = countryFilter.getValue();
+        model.Division division = divisionFilter.getValue();
+        CustomerFilter updated = filter.withConditions(indexed ? "" : text,
+                country == null ? 0 : country.getCountryId(), division == null ? 0 : division.getDivisionId());
+        String updatedSearch = indexed ? text : "";
+        if (!updated.getNamePrefix().equals(filter.getNamePrefix()) || updated.getCountryId() != filter.getCountryId()
+                || updated.getDivisionId() != filter.getDivisionId() || !updatedSearch.equals(search)) {
+            filter = updated;
+            search = updatedSearch;
+            reload();
+        }
+    }
+
+    /**
+     * Reads the table's sort into the filter model and reloads the table if it changed.
+     * With no sort column the customers are in ID order.
+     */
+    private void applySort() {
+        CustomerFilter.Sort sort = CustomerFilter.Sort.ID;
+        boolean descending = false;
+        if (!customerTable.getSortOrder().isEmpty()) {
+            TableColumn<model.Customer, ?> column = customerTable.getSortOrder().get(0);
+            sort = sortColumns.getOrDefault(column, CustomerFilter.Sort.ID);
+            descending = column.getSortType() == TableColumn.SortType.DESCENDING;
+        }
+        if (sort != filter.getSort() || descending != filter.isDescending()) {
+            filter = filter.withSort(sort, descending);
+            reload();
+        }
+    }
+
+    /**
+     * Empties the table and fetches the first page, or shows the search results if there is a search.
+     */
+    private void reload() {
+        rows.clear();
+        exhausted = false;
+        customerTable.getSelectionModel().clearSelection();
+        if (search.isEmpty()) {
+            fetchPage();
+        } else {
+            showMatches();
+        }
+        customerTable.scrollTo(0);
+    }
+
+    /**
+     * Shows the cached customers matching the search and the filters, best match first unless a sort column is chosen.
+     * The results are all shown at once, so no page is fetched.
+     */
+    private void showMatches() {
+        List<model.Customer> matches = CustomerCache.search(search, filter::matches, SEARCH_LIMIT);
+        if (!customerTable.getSortOrder().isEmpty()) {
+            matches.sort(filter.comparator());
+        }
+        rows.setAll(matches);
+        exhausted = true;
+    }
+
+    /**
+     * Fetches the next page after the current layout pass, unless every customer the filter selects is loaded
+     * or a fetch is already waiting.
+     */
+    private void fetchMore() {
+        if (exhausted || fetchQueued) {
+            return;
+        }
+        fetchQueued = true;
+        Platform.runLater(() -> {
+            fetchQueued = false;
+            fetchPage();
+        });
+    }
+
+    /**
+     * Fetches the page after the last loaded customer and adds it to the table.
+     */
+    private void fetchPage() {
+        if (exhausted) {
+            return;
+        }
+        model.Customer last = rows.isEmpty() ? null : rows.get(rows.size() - 1);
+        List<model.Customer> page = CustomerQuery.getCustomerPage(filter, last, PAGE_SIZE);
+        exhausted = page.size() < PAGE_SIZE;
+        rows.addAll(page);
     }
 }
@@ -1,14 +1,15 @@
 package controller;
 
 import database.AppointmentQuery;
+import helper.SceneCache;
+import helper.Startup;
+import helper.TimeConverter;
+import javafx.application.Platform;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
 import javafx.scene.Node;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
 import model.Appointment;
@@ -18,11 +19,13 @@ import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
-import java.time.ZonedDateTime;
 import java.util.Locale;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletionException;
 import java.util.function.Consumer;
 
 import static database.UserQuery.*;
@@ -63,22 +66,49 @@ public class Login implements Initializable {
 
     /**
      * Handles the action when "Login" button is clicked.
-     * Performs login checks and processes:
+     * Performs login checks and processes once the startup pipeline has opened the database, without holding up the
+     * JavaFX thread while it does: the button is disabled until then and the checks continue on the JavaFX thread.
+     *
+     * @param actionEvent The event triggering the action.
+     */
+    public void loginButtonAction(ActionEvent actionEvent) {
+        //accepts username and password
+        String usernameInput = usernameTextField.getText();
+        String passwordInput = passwordTextField.getText();
+
+        // The database is opened in the background while this screen is up; it is normally ready by the time the user is
+        loginButton.setDisable(true);
+        Startup.whenReady().thenAcceptAsync(opened -> {
+            try {
+                login(actionEvent, usernameInput, passwordInput);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, Platform::runLater).whenComplete((done, failure) -> {
+            loginButton.setDisable(false);
+            if (failure != null) {
+                // Shown by the uncaught exception handler, as a failure in the event handler itself would be
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, failure);
+            }
+        });
+    }
+
+    /**
+     * Performs the login checks and processes:
      *     Validates username and password fields for emptiness and validity.
      *     Logs attempts and indicates success or otherwise.
      *     Displays error messages for invalid or empty fields.
      *     Navigates to the main screen on successful login and checks for upcoming appointments.
      *     Shows alerts for successful login with upcoming appointments or no upcoming appointments.
      *
-     * @param actionEvent The event triggering the action.
-     * @throws Exception If there is an exception.
+     * @param actionEvent   The event triggering the action.
+     * @param usernameInput The username entered.
+     * @param passwordInput The password entered.
+     * @throws SQLException If the user's ID cannot be read.
      */
-    public void loginButtonAction(ActionEvent actionEvent) throws Exception {
+    private void login(ActionEvent actionEvent, String usernameInput, String passwordInput) throws SQLException {
         try {
-            //accepts username and password
-            String usernameInput = usernameTextField.getText();
-            String passwordInput = passwordTextField.getText();
-
             //Username and Password Validation Check
             if (usernameInput.isEmpty() || usernameInput.isBlank()) {
                 errorAlert(rb.getString("UsernameFieldBlank"), rb.getString("BlankusernamefieldPleasetryagain"));
@@ -97,25 +127,18 @@ public class Login implements Initializable {
                 int userID = getUserId(usernameInput);
                 ObservableList<Appointment> appointments = AppointmentQuery.getUserAppointment(userID);
 
-                // Load the main screen upon successful login
-                Parent parent = FXMLLoader.load(getClass().getResource("../view/MainScreen.fxml"));
-                Scene scene = new Scene(parent);
-                Stage stage = (Stage)((Node) actionEvent.getSource()).getScene().getWindow();
-                stage.setScene(scene);
-                stage.show();
+                // Show the main screen upon successful login
+                SceneCache.show(actionEvent, "MainScreen");
 
                 loginAttempt(usernameInput, now, true);
 
-                //Check for appointments upon successful login
+                //Check for appointments upon successful login, comparing instants so no zone conversion is needed per row
                 boolean userValid = false;
+                long nowMillis = TimeConverter.toEpochMilli(now);
+                long upcomingAppt = nowMillis + Duration.ofMinutes(15).toMillis();
                 for (Appointment appointment : appointments) {
-                    ZoneId zone = ZoneId.systemDefault();
-                    ZonedDateTime zonedDateTime = now.atZone(zone);
-
-                    LocalDateTime upcomingAppt = now.plusMinutes(15);
-                    ZonedDateTime dateTime = ZonedDateTime.from(appointment.getStart().atZone(zone));
-
-                    if(dateTime.isAfter(zonedDateTime) && dateTime.isBefore(upcomingAppt.atZone(zone))){
+                    long start = appointment.getStartMillis();
+                    if(start > nowMillis && start < upcomingAppt){
                         showAppointmentAlert(appointment);
                         userValid = true;
                     }
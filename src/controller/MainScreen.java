@@ -1,11 +1,9 @@
 package controller;
 
+import helper.SceneCache;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.scene.Node;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.stage.Stage;
 
 import java.io.IOException;
@@ -23,35 +21,35 @@ public class MainScreen{
 
     /**
      * Event handler for the "Customer" button click.
-     * Loads the CustomerScreen.fxml view when clicked, enabling access to customer management features.
+     * Shows the CustomerScreen.fxml view when clicked, enabling access to customer management features.
      *
      * @param actionEvent The event triggering the action.
      * @throws IOException If there is an error loading the scene.
      */
     @FXML void customerButton(ActionEvent actionEvent) throws IOException {
-        loadScene("../view/CustomerScreen.fxml", actionEvent);
+        SceneCache.show(actionEvent, "CustomerScreen");
     }
 
     /**
      * Event handler for the "Appointment" button click.
-     * Loads the AppointmentScreen.fxml view when clicked, enabling access to appointment management features.
+     * Shows the AppointmentScreen.fxml view when clicked, enabling access to appointment management features.
      *
      * @param actionEvent The event triggering the action.
      * @throws IOException If there is an error loading the scene.
      */
     @FXML void appointmentButton(ActionEvent actionEvent) throws IOException {
-        loadScene("../view/AppointmentScreen.fxml", actionEvent);
+        SceneCache.show(actionEvent, "AppointmentScreen");
     }
 
     /**
      * Event handler for the "Report" button click.
-     * Loads the ReportScreen.fxml view when clicked, enabling access to report generation functionalities.
+     * Shows the ReportScreen.fxml view when clicked, enabling access to report generation functionalities.
      *
      * @param actionEvent The event triggering the action.
      * @throws IOException If there is an error loading the scene.
      */
     @FXML void reportButton(ActionEvent actionEvent) throws IOException {
-        loadScene("../view/ReportScreen.fxml", actionEvent);
+        SceneCache.show(actionEvent, "ReportScreen");
     }
 
     /**
@@ -64,20 +62,4 @@ public class MainScreen{
         Stage stage = (Stage) ((Node) actionEvent.getSource()).getScene().getWindow();
         stage.close();
     }
-
-
-    /**
-     * Load a new scene with the given FXML file path.
-     *
-     * @param fxmlPath    The FXML file path.
-     * @param actionEvent The ActionEvent associated with the event.
-     * @throws IOException If there is an error loading the scene.
-     */
-    private void loadScene(String fxmlPath, ActionEvent actionEvent) throws IOException {
-        Parent parent = FXMLLoader.load(getClass().getResource(fxmlPath));
-        Scene scene = new Scene(parent);
-        Stage stage = (Stage) ((Node) actionEvent.getSource()).getScene().getWindow();
-        stage.setScene(scene);
-        stage.show();
-    }
 }
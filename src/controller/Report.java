@@ -3,20 +3,19 @@ package controller;
 import database.AppointmentQuery;
 import database.ContactQuery;
 import database.CountryQuery;
+import helper.SceneCache;
+import helper.TimelineCache;
+import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
-import javafx.scene.Node;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
-import javafx.stage.Stage;
 import model.Appointment;
 import model.Contact;
 import model.Country;
+import model.ReportTotal;
 
 import java.io.IOException;
 import java.net.URL;
@@ -27,18 +26,19 @@ import java.util.ResourceBundle;
  * The Report class manages the user interface and logic for generating various reports in the application.
  * It offers tabs for reports on appointment types, monthly appointment counts, and contact schedules.
  * Users can select a contact from a combo box to view their associated appointments.
+ * The screen is kept between visits; each visit reloads the reports.
  */
-public class Report implements Initializable {
+public class Report implements Initializable, SceneCache.Screen {
 
     @FXML private TableView<Country> monthTable;
     @FXML private TableColumn<Country, Integer> monthCount;
     @FXML private TableColumn<Country, String> month;
-    @FXML private TableView<Appointment> typeCountTable;
-    @FXML private TableColumn<Appointment, Integer> typeTotal;
-    @FXML private TableColumn<Appointment, String> typeColumn;
-    @FXML private TableView<Appointment> monthCountTable;
-    @FXML private TableColumn<Appointment, Integer> monthTotal;
-    @FXML private TableColumn<Appointment, String> monthColumn;
+    @FXML private TableView<ReportTotal> typeCountTable;
+    @FXML private TableColumn<ReportTotal, Integer> typeTotal;
+    @FXML private TableColumn<ReportTotal, String> typeColumn;
+    @FXML private TableView<ReportTotal> monthCountTable;
+    @FXML private TableColumn<ReportTotal, Integer> monthTotal;
+    @FXML private TableColumn<ReportTotal, String> monthColumn;
     @FXML private TableView<Appointment> contactScheduleTable;
     @FXML private TableColumn<Appointment, Integer> appointmentID;
     @FXML private TableColumn<Appointment, String> title;
@@ -58,34 +58,28 @@ public class Report implements Initializable {
      * @throws IOException If there is an error loading the scene.
      */
     public void onBack(ActionEvent actionEvent) throws IOException {
-        Parent parent = FXMLLoader.load(getClass().getResource("../view/MainScreen.fxml"));
-        Scene scene = new Scene(parent);
-        Stage stage = (Stage)((Node) actionEvent.getSource()).getScene().getWindow();
-        stage.setScene(scene);
-        stage.show();
+        SceneCache.show(actionEvent, "MainScreen");
     }
 
     /**
      * Event handler for the selection in the "Contact Combo" box.
      * Updates the contact schedule table based on the selected contact from the combo box.
+     * The schedule is read from the cached contact timelines once they are brought up to date, so switching contacts fetches
+     * only the appointments changed since the last look instead of the whole schedule.
      *
      * @param actionEvent The event triggering the action.
      */
     public void onContactCombo(ActionEvent actionEvent) {
-        int contacts = contactCombo.getSelectionModel().getSelectedItem().getContactId();
-        contactScheduleTable.setItems(AppointmentQuery.getContactAppointment(contacts));
+        Contact selected = contactCombo.getValue();
+        if (selected != null) {
+            contactScheduleTable.setItems(TimelineCache.getContactSchedule(selected.getContactId()));
+        }
     }
 
     /**
      * Initializes the Report Screen.
-     * Initializes data for each report tab:
-     *     Appointments by Type: Fills the typeCountTable with appointment types and their occurrences.
-     *     Appointments by Month: Fills the monthCountTable with appointment counts for each month.
-     *     Contact Schedule:
-     *         Populates the contactCombo with available contacts.
-     *         Sets a placeholder message for the table when no contact is selected.
-     *         Initializes table columns with appointment details (ID, title, type, etc.).
-     *         Fills the table with appointments for the currently selected contact (updated with onContactCombo).
+     * Sets up each report tab's table columns and the placeholder shown while no contact is selected.
+     * The reports themselves are loaded by onShow.
      *
      * @param url            The location used to resolve relative paths for the root object.
      * @param resourceBundle The resources used to localize the root object.
@@ -93,17 +87,13 @@ public class Report implements Initializable {
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
         //Initialize customer appointments table
-        typeCountTable.setItems(AppointmentQuery.getAppointmentType());
-        typeTotal.setCellValueFactory(new PropertyValueFactory<>("typeTotal"));
-        typeColumn.setCellValueFactory(new PropertyValueFactory<>("type"));
+        typeTotal.setCellValueFactory(new PropertyValueFactory<>("total"));
+        typeColumn.setCellValueFactory(new PropertyValueFactory<>("label"));
 
-        monthCountTable.setItems(AppointmentQuery.getAppointmentTypeMonth());
-        monthTotal.setCellValueFactory(new PropertyValueFactory<>("typeTotal"));
-        monthColumn.setCellValueFactory(new PropertyValueFactory<>("type"));
+        monthTotal.setCellValueFactory(new PropertyValueFactory<>("total"));
+        monthColumn.setCellValueFactory(new PropertyValueFactory<>("label"));
 
         //Initialize contact schedule table
-        ObservableList<Contact> contacts = ContactQuery.getAllContacts();
-        contactCombo.setItems(contacts);
         contactScheduleTable.setPlaceholder(new Label("Select contact from the contact list above"));
         appointmentID.setCellValueFactory(new PropertyValueFactory<>("appointmentId"));
         title.setCellValueFactory(new PropertyValueFactory<>("title"));
@@ -113,12 +103,31 @@ public class Report implements Initializable {
         end.setCellValueFactory(new PropertyValueFactory<>("end"));
         customerID.setCellValueFactory(new PropertyValueFactory<>("customerId"));
         contact.setCellValueFactory(new PropertyValueFactory<>("contact"));
-        contactScheduleTable.refresh();
 
         //Initialize Country (custom) reports table
-        monthTable.setItems(CountryQuery.countryTotals());
         month.setCellValueFactory(new PropertyValueFactory<>("month"));
         monthCount.setCellValueFactory(new PropertyValueFactory<>("monthCount"));
+    }
+
+    /**
+     * Loads the reports each time the screen is shown, so they include the changes made since the last visit:
+     *     Appointments by Type: Fills the typeCountTable with appointment types and their occurrences, counted from the cache once it is up to date.
+     *     Appointments by Month: Fills the monthCountTable with appointment counts for each month.
+     *     Contact Schedule: Populates the contactCombo with available contacts and reloads the schedule of the contact
+     *     selected on the last visit, if any (updated with onContactCombo).
+     *     Customers by Country: Fills the monthTable with the number of customers in each country.
+     */
+    @Override
+    public void onShow() {
+        typeCountTable.setItems(TimelineCache.getTypeTotals());
+        monthCountTable.setItems(AppointmentQuery.getAppointmentTypeMonth());
 
+        ObservableList<Contact> contacts = ContactQuery.getAllContacts();
+        contactCombo.setItems(contacts);
+        Contact selected = contactCombo.getValue();
+        contactScheduleTable.setItems(selected == null ? FXCollections.observableArrayList()
+                : TimelineCache.getContactSchedule(selected.getContactId()));
+
+        monthTable.setItems(CountryQuery.countryTotals());
     }
 }
@@ -1,17 +1,18 @@
 package controller;
 
 import database.*;
+import helper.ConflictChecker;
+import helper.CustomerCache;
+import helper.CustomerPicker;
+import helper.SceneCache;
+import helper.SlotTable;
+import helper.ThreeWayMerge;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
-import javafx.scene.Node;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.stage.Stage;
 import model.*;
 import model.Appointment;
 import model.Customer;
@@ -20,10 +21,11 @@ import java.io.IOException;
 import java.net.URL;
 import java.sql.SQLException;
 import java.time.*;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.ResourceBundle;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.function.ToIntFunction;
 
 import static helper.Util.*;
 
@@ -31,11 +33,13 @@ import static helper.Util.*;
  * Controller class for the Update Appointment Screen, handling appointment modification functionalities.
  * This class manages the user interface and logic for modifying existing appointments in the application.
  * It allows users to edit details like title, description, location, type, and date/time.
- * The system validates appointments for empty fields, valid dates/times, and overlaps with existing bookings for the chosen customer.
+ * The system validates appointments for empty fields, valid dates/times, and overlaps with existing bookings for the chosen customer, contact and user.
+ * No lock is held while the form is open: if another user saves the appointment first, their changes are merged into the form
+ * and the user is asked to review it and save again.
  *
  * @author Daniel Akoko
  */
-public class UpdateAppointment implements Initializable {
+public class UpdateAppointment implements Initializable, SceneCache.Screen {
 
     @FXML private TextField appointmentId;
     @FXML private ComboBox<Customer> customerId;
@@ -50,22 +54,25 @@ public class UpdateAppointment implements Initializable {
     @FXML private DatePicker startDate;
     @FXML private DatePicker endDate;
 
-    private static final LocalTime BUSINESS_START_TIME = LocalTime.of(8, 0);
-    private static final LocalTime BUSINESS_END_TIME = LocalTime.of(22, 0);
+    /** The appointment as it was when the form was filled, at the version the save is made against. */
+    private Appointment original;
+    private CustomerPicker customerPicker;
 
     /**
      * Event handler for the "Save" button click, saving the modified appointment details.
      * Saves edited appointment details upon clicking the "Save" button:
      *     Extracts input from text fields and combo boxes.
      *     Validates for empty fields and business hours compliance.
-     *     Checks for potential appointment overlaps with the chosen customer.
-     *     Updates the appointment in the database if valid.
+     *     Checks for potential appointment overlaps with the chosen customer, contact and user, ignoring the appointment itself.
+     *     Updates the appointment in the database if valid and not changed by anyone else since the form was filled;
+     *     otherwise merges the saved changes into the form and stays on it.
      *     Navigates back to the main appointment screen.
      *
      * @param actionEvent The event triggering the action.
      * @throws IOException If there is an error loading the scene.
+     * @throws SQLException If the merged form cannot be filled.
      */
-    public void onSave(ActionEvent actionEvent) throws IOException {
+    public void onSave(ActionEvent actionEvent) throws IOException, SQLException {
         // Retrieve appointment details from the input fields
         int appointment_Id = Integer.parseInt(appointmentId.getText());
         String title = Title.getText();
@@ -73,14 +80,17 @@ public class UpdateAppointment implements Initializable {
         String type = Type.getText();
         String location = Location.getText();
         int contactID = Contact.getSelectionModel().getSelectedItem().getContactId();
-        int customerID = customerId.getSelectionModel().getSelectedItem().getCustomerId();
+        Customer customer = customerPicker.getValue();
+        if (customer == null) {
+            errorAlert("Missing Fields", "Please choose a customer.");
+            return;
+        }
+        int customerID = customer.getCustomerId();
         int userID = userId.getSelectionModel().getSelectedItem().getUserId();
         LocalDate start_date = startDate.getValue();
         LocalTime start_time = startTime.getSelectionModel().getSelectedItem();
         LocalDate end_date = endDate.getValue();
         LocalTime end_time = endTime.getSelectionModel().getSelectedItem();
-        LocalDateTime start_date_time = LocalDateTime.of(start_date.getYear(), start_date.getMonth(), start_date.getDayOfMonth(), start_time.getHour(), start_time.getMinute());
-        LocalDateTime end_date_time = LocalDateTime.of(end_date.getYear(), end_date.getMonth(), end_date.getDayOfMonth(), end_time.getHour(), end_time.getMinute());
 
         // Validate input fields
         if(title.isBlank() || title.isEmpty()) {
@@ -95,20 +105,32 @@ public class UpdateAppointment implements Initializable {
             // Validate date and time fields
             if(start_date == null || start_time == null || end_date == null || end_time == null) {
                 errorAlert("Missing Fields", "Please fill in all date and time fields.");
+                return;
             }
+            LocalDateTime start_date_time = LocalDateTime.of(start_date, start_time);
+            LocalDateTime end_date_time = LocalDateTime.of(end_date, end_time);
+
             //Appointment Time OverLap and Business hours validation needed here
-            if(!validateBusinessHours(start_time, end_time)){
+            if(!validateBusinessHours(start_date_time, end_date_time)){
                 errorAlert("Out of Bounds Error", "Appointments must be scheduled between 8:00 a.m. and 10:00 p.m. ET, including weekends.");
-            } else if(!validatingOverlap(customerID, start_date_time, end_date_time)){
-                // Modify the appointment details in the database
-                AppointmentQuery.modifyAppointment(appointment_Id, title, description, location, type, start_date_time, end_date_time, customerID, userID, contactID);
+            } else {
+                // Modify the appointment details in the database, if its time is free and no one else has saved it since the form was filled
+                List<Conflict> conflicts = new ArrayList<>();
+                UpdateResult<Appointment> result = ConflictChecker.bookIfFree(customerID, contactID, userID, start_date_time, end_date_time,
+                        appointment_Id, conflicts, () -> AppointmentQuery.modifyAppointment(appointment_Id, original.getVersion(), title,
+                                description, location, type, start_date_time, end_date_time, customerID, userID, contactID));
+                if (showOverlaps("appointment", conflicts)) {
+                    return;
+                } else if (result.getStatus() == UpdateResult.Status.STALE) {
+                    merge(new Appointment(appointment_Id, title, description, location, type, start_date_time, end_date_time,
+                            customerID, userID, contactID), result.getCurrent());
+                    return;
+                } else if (result.getStatus() == UpdateResult.Status.DELETED) {
+                    errorAlert("APPOINTMENT DELETED", "Another user deleted this appointment while you were editing it. Your changes were not saved.");
+                }
 
                 // Return to the Appointment Screen
-                Parent parent = FXMLLoader.load(getClass().getResource("../view/AppointmentScreen.fxml"));
-                Scene scene = new Scene(parent);
-                Stage stage = (Stage) ((Node) actionEvent.getSource()).getScene().getWindow();
-                stage.setScene(scene);
-                stage.show();
+                SceneCache.show(actionEvent, "AppointmentScreen");
             }
         }
     }
@@ -130,38 +152,42 @@ public class UpdateAppointment implements Initializable {
 
         // If user confirms, return to the Appointment Screen
         if(result.isPresent() && result.get() == ButtonType.YES) {
-            Parent parent = FXMLLoader.load(getClass().getResource("../view/AppointmentScreen.fxml"));
-            Scene scene = new Scene(parent);
-            Stage stage = (Stage) ((Node) actionEvent.getSource()).getScene().getWindow();
-            stage.setScene(scene);
-            stage.show();
+            SceneCache.show(actionEvent, "AppointmentScreen");
         }
     }
 
     /**
      * Initializes the UpdateAppointment Screen.
-     * Populates combo boxes with available contacts, customers, and users.
+     * Sets up the start and end time combo boxes and the customer picker; the contact and user lists are loaded by onShow.
      *
      * @param url            The location used to resolve relative paths for the root object.
      * @param resourceBundle The resources used to localize the root object.
      */
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
+        // Initialize start and end time combo boxes, and refresh them whenever a different date is picked
+        startDate.valueProperty().addListener((observable, oldDate, newDate) -> refreshTimes(startTime, SlotTable.getStartTimes(newDate)));
+        endDate.valueProperty().addListener((observable, oldDate, newDate) -> refreshTimes(endTime, SlotTable.getEndTimes(newDate)));
+        startTime.setItems(FXCollections.observableArrayList(SlotTable.getStartTimes(LocalDate.now())));
+        startTime.getSelectionModel().selectFirst();
+        endTime.setItems(FXCollections.observableArrayList(SlotTable.getEndTimes(LocalDate.now())));
+        endTime.getSelectionModel().selectFirst();
+        customerPicker = new CustomerPicker(customerId);
+    }
+
+    /**
+     * Populates combo boxes with available contacts and users each time the screen is shown,
+     * since the screen is kept between visits. Customers are searched for as they are typed, so the book is not loaded.
+     * The form itself is filled by modifyAppointment.
+     */
+    @Override
+    public void onShow() {
         // Populate dropdowns with data from the database
         ObservableList<Contact> contacts = ContactQuery.getAllContacts();
         Contact.setItems(contacts);
 
-        ObservableList<Customer> customers = CustomerQuery.getCustomerList();
-        customerId.setItems(customers);
-
         ObservableList<User> users = UserQuery.getUserList();
         userId.setItems(users);
-
-        // Initialize start and end time combo boxes
-        startTime.setItems(initializeBusinessHours(ZoneId.systemDefault(), ZoneId.of("America/New_York"), BUSINESS_START_TIME, BUSINESS_END_TIME));
-        startTime.getSelectionModel().selectFirst();
-        endTime.setItems(initializeBusinessHours(ZoneId.systemDefault(), ZoneId.of("America/New_York"), BUSINESS_START_TIME, BUSINESS_END_TIME));
-        endTime.getSelectionModel().selectFirst();
     }
 
     /**
@@ -172,6 +198,19 @@ public class UpdateAppointment implements Initializable {
      * @throws SQLException If there is an error with the SQL query.
      */
     public void modifyAppointment(Appointment appointment) throws SQLException {
+        original = appointment;
+        fill(appointment);
+    }
+
+    /**
+     * Fills the form with an appointment's details.
+     * The contact and user are picked from the lists onShow loaded, and the customer comes from the customer cache, so filling
+     * the form runs no query; one is run only for an entity added since, or for the customer while the cache is being built.
+     *
+     * @param appointment The appointment to show.
+     * @throws SQLException If there is an error with the SQL query.
+     */
+    private void fill(Appointment appointment) throws SQLException {
         // Set values in the input fields based on the selected appointment
         appointmentId.setText(String.valueOf(appointment.getAppointmentId()));
         Title.setText(appointment.getTitle());
@@ -180,73 +219,93 @@ public class UpdateAppointment implements Initializable {
         Type.setText(appointment.getType());
         // Set start date and time
         startDate.setValue(appointment.getStart().toLocalDate());
-        ObservableList<LocalTime> startTimes = initializeBusinessHours(
-                ZoneId.systemDefault(),
-                ZoneId.of("America/New_York"),
-                BUSINESS_START_TIME,
-                BUSINESS_END_TIME
-        );
-        startTime.setItems(startTimes);
         startTime.setValue(appointment.getStart().toLocalTime());
 
         // Set end date and time
         endDate.setValue(appointment.getEnd().toLocalDate());
-        ObservableList<LocalTime> endTimes = initializeBusinessHours(
-                ZoneId.systemDefault(),
-                ZoneId.of("America/New_York"),
-                BUSINESS_START_TIME,
-                BUSINESS_END_TIME
-        );
-        endTime.setItems(endTimes);
         endTime.setValue(appointment.getEnd().toLocalTime());
 
-        Contact contact = ContactQuery.returnContactList(appointment.getContact());
-        Contact.setValue(contact);
+        Contact contact = find(Contact.getItems(), model.Contact::getContactId, appointment.getContact());
+        Contact.setValue(contact != null ? contact : ContactQuery.returnContactList(appointment.getContact()));
 
-        Customer customer = CustomerQuery.returnCustomerList(appointment.getCustomerId());
-        customerId.setValue(customer);
+        customerPicker.setValue(CustomerCache.getCustomer(appointment.getCustomerId()));
 
-        User user = UserQuery.returnUserId(appointment.getUserId());
-        userId.setValue(user);
+        User user = find(userId.getItems(), User::getUserId, appointment.getUserId());
+        userId.setValue(user != null ? user : UserQuery.returnUserId(appointment.getUserId()));
     }
 
     /**
-     * Initializes a list of LocalTime within business hours.
+     * Finds the item with an ID in a loaded drop-down list.
      *
-     * @param systemZoneId   The system time zone.
-     * @param businessZoneId The business time zone.
-     * @param startHour      The starting hour of business hours.
-     * @param endHour   TThe ending hour of business hour.
-     * @return The list of LocalTime within business hours.
+     * @param items  The items of the drop-down.
+     * @param id     Gets an item's ID.
+     * @param wanted The ID to find.
+     * @param <T>    The type of the items.
+     * @return The item, or null if the list has none with the ID.
      */
-    private static  ObservableList<LocalTime> initializeBusinessHours(ZoneId systemZoneId, ZoneId businessZoneId, LocalTime startHour, LocalTime endHour) {
-        ZonedDateTime businessStartTime = ZonedDateTime.of(LocalDate.now(), startHour, businessZoneId);
-        ZonedDateTime localStartTime = businessStartTime.withZoneSameInstant(systemZoneId);
-        int localStartingHour = localStartTime.getHour();
-
-        ZonedDateTime businessEndTime = ZonedDateTime.of(LocalDate.now(), endHour, businessZoneId);
-        ZonedDateTime localEndTime = businessEndTime.withZoneSameInstant(systemZoneId);
-        int localEndingHour = localEndTime.getHour();
-
-        return IntStream.range(localStartingHour, localEndingHour)
-                .filter(hour -> hour >= BUSINESS_START_TIME.getHour() && hour <= BUSINESS_END_TIME.getHour())
-                .mapToObj(i -> LocalTime.of(i / 2, (i % 2) * 30))
-                .collect(Collectors.toCollection(FXCollections::observableArrayList));
+    private static <T> T find(List<T> items, ToIntFunction<T> id, int wanted) {
+        for (T item : items) {
+            if (id.applyAsInt(item) == wanted) {
+                return item;
+            }
+        }
+        return null;
     }
 
     /**
-     * Validates that an appointment is scheduled within business hours.
+     * Merges the form with the appointment another user saved while it was open, and shows what happened.
+     * The form then edits the saved version, so the next save succeeds unless the appointment changes again.
      *
-     * @param startTime The start time of the appointment.
-     * @param endTime   The end time of the appointment.
-     * @return True if the appointment is within business hours, otherwise false.
+     * @param mine    The appointment as entered in the form.
+     * @param current The appointment as now saved.
+     * @throws SQLException If there is an error with the SQL query.
+     */
+    private void merge(Appointment mine, Appointment current) throws SQLException {
+        ThreeWayMerge merge = new ThreeWayMerge();
+        Appointment merged = new Appointment(current.getAppointmentId(),
+                merge.field("Title", original.getTitle(), mine.getTitle(), current.getTitle()),
+                merge.field("Description", original.getDescription(), mine.getDescription(), current.getDescription()),
+                merge.field("Location", original.getLocation(), mine.getLocation(), current.getLocation()),
+                merge.field("Type", original.getType(), mine.getType(), current.getType()),
+                merge.field("Start", original.getStart(), mine.getStart(), current.getStart()),
+                merge.field("End", original.getEnd(), mine.getEnd(), current.getEnd()),
+                merge.field("Customer ID", original.getCustomerId(), mine.getCustomerId(), current.getCustomerId()),
+                merge.field("User ID", original.getUserId(), mine.getUserId(), current.getUserId()),
+                merge.field("Contact ID", original.getContact(), mine.getContact(), current.getContact()));
+        original = current;
+        fill(merged);
+
+        Alert alert = new Alert(Alert.AlertType.WARNING);
+        alert.setTitle("Appointment changed by another user");
+        alert.setContentText(merge.describe("appointment"));
+        alert.showAndWait();
+    }
+
+    /**
+     * Replaces the times offered in a time drop-down, keeping the selected time if it is still offered.
+     *
+     * @param timeBox The time drop-down.
+     * @param times   The precomputed times for the newly picked date.
      */
-    static boolean validateBusinessHours(LocalTime startTime, LocalTime endTime) {
-        // Validate that an appointment is scheduled within business hours
-        if (startTime.isBefore(BUSINESS_START_TIME) || endTime.isAfter(BUSINESS_END_TIME)) {
-            return true;
+    private static void refreshTimes(ComboBox<LocalTime> timeBox, List<LocalTime> times) {
+        LocalTime selected = timeBox.getValue();
+        timeBox.setItems(FXCollections.observableArrayList(times));
+        if (selected != null && times.contains(selected)) {
+            timeBox.setValue(selected);
         } else {
-            return false;
+            timeBox.getSelectionModel().selectFirst();
         }
     }
+
+    /**
+     * Validates that an appointment is scheduled within business hours.
+     * The start and end are compared in the business time zone, so the check holds wherever the system clock is set.
+     *
+     * @param start The start date and time of the appointment.
+     * @param end   The end date and time of the appointment.
+     * @return True if the appointment is within business hours, otherwise false.
+     */
+    static boolean validateBusinessHours(LocalDateTime start, LocalDateTime end) {
+        return SlotTable.isWithinBusinessHours(start, end);
+    }
 }
@@ -1,21 +1,18 @@
 package controller;
 
-import database.CountryQuery;
 import database.CustomerQuery;
-import database.DivisionQuery;
+import helper.GeographyCache;
+import helper.SceneCache;
+import helper.ThreeWayMerge;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
-import javafx.scene.Node;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.TextField;
-import javafx.stage.Stage;
 import model.Customer;
+import model.UpdateResult;
 
 import java.io.IOException;
 import java.net.URL;
@@ -31,10 +28,12 @@ import static helper.Util.errorAlert;
  * Users can edit details like name, address, postal code, phone number, and division.
  * The system validates for empty fields and provides error messages for invalid entries.
  * Updated customer information is saved to the database upon successful validation.
+ * No lock is held while the form is open: if another user saves the customer first, their changes are merged into the form
+ * and the user is asked to review it and save again.
  *
  * @author Daniel Akoko
  */
-public class UpdateCustomer implements Initializable {
+public class UpdateCustomer implements Initializable, SceneCache.Screen {
 
     @FXML private TextField customerID;
     @FXML private TextField Name;
@@ -44,6 +43,9 @@ public class UpdateCustomer implements Initializable {
     @FXML private ComboBox<model.Division> Division;
     @FXML private ComboBox<model.Country> Country;
 
+    /** The customer as it was when the form was filled, at the version the save is made against. */
+    private Customer original;
+
     /**
      * Populates the Update Customer Screen with details of the selected customer for modification.
      * Fills the UI elements with existing data from the selected customer.
@@ -53,26 +55,29 @@ public class UpdateCustomer implements Initializable {
      * @throws SQLException If there is an error with the SQL query.
      */
     public void getCustomerInfo(Customer customer) throws SQLException {
-        try {// Set values in the input fields based on the selected customer
-            customerID.setText(Integer.toString(customer.getCustomerId()));
-            Name.setText(customer.getCustomerName());
-            Address.setText(customer.getAddress());
-            phoneNumber.setText(customer.getPhone());
-            postalCode.setText(customer.getPostalCode());
-
-            model.Division level = DivisionQuery.returnDivisionLevel(customer.getDivisionId());
-            Division.setValue(level);
-
-            model.Country country = CountryQuery.returnCountry(customer.getCountryId());
-            Country.setValue(country);
-
-            model.Country countryValue = Country.getValue();
-            if (countryValue != null) {
-                Division.setItems(DivisionQuery.showDivision(countryValue.getCountryId()));
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        original = customer;
+        fill(customer);
+    }
+
+    /**
+     * Fills the form with a customer's details, with the division and country looked up from the customer's IDs in
+     * GeographyCache, so filling the form runs no query.
+     *
+     * @param customer The customer to show.
+     */
+    private void fill(Customer customer) {
+        // Set values in the input fields based on the selected customer
+        customerID.setText(Integer.toString(customer.getCustomerId()));
+        Name.setText(customer.getCustomerName());
+        Address.setText(customer.getAddress());
+        phoneNumber.setText(customer.getPhone());
+        postalCode.setText(customer.getPostalCode());
+
+        model.Division level = GeographyCache.getDivision(customer.getDivisionId());
+        int countryId = level == null ? customer.getCountryId() : level.getCountryId();
+        Country.setValue(GeographyCache.getCountry(countryId));
+        Division.setItems(GeographyCache.getDivisions(countryId));
+        Division.setValue(level);
     }
 
     /**
@@ -80,7 +85,8 @@ public class UpdateCustomer implements Initializable {
      * Saves edited customer details upon clicking the "Save" button:
      *     Extracts input from text fields and combo boxes.
      *     Validates for empty fields and phone number format.
-     *     Updates the customer in the database if valid.
+     *     Updates the customer in the database if valid and not changed by anyone else since the form was filled;
+     *     otherwise merges the saved changes into the form and stays on it.
      *     Navigates back to the main customer screen.
      *
      * @param actionEvent The event triggering the action.
@@ -110,20 +116,49 @@ public class UpdateCustomer implements Initializable {
             }
 
             int division_ID = Division.getValue().getDivisionId();
-            // Update the customer details in the database
-            CustomerQuery.updateCustomer(customer_ID, name, address, postal_Code, phone, division_ID);
+            // Update the customer details in the database, if no one else has saved them since the form was filled
+            UpdateResult<Customer> result = CustomerQuery.updateCustomer(customer_ID, original.getVersion(), name, address,
+                    postal_Code, phone, division_ID);
+            if (result.getStatus() == UpdateResult.Status.STALE) {
+                merge(new Customer(customer_ID, name, address, postal_Code, phone, division_ID, Country.getValue().getCountryId(),
+                        null, null), result.getCurrent());
+                return;
+            } else if (result.getStatus() == UpdateResult.Status.DELETED) {
+                errorAlert("Customer deleted", "Another user deleted this customer while you were editing it. Your changes were not saved.");
+            }
 
             // Return to the Customer Screen
-            Parent parent = FXMLLoader.load(getClass().getResource("../view/CustomerScreen.fxml"));
-            Scene scene = new Scene(parent);
-            Stage stage = (Stage) ((Node) actionEvent.getSource()).getScene().getWindow();
-            stage.setScene(scene);
-            stage.show();
+            SceneCache.show(actionEvent, "CustomerScreen");
         } catch (NumberFormatException | IOException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Merges the form with the customer another user saved while it was open, and shows what happened.
+     * The form then edits the saved version, so the next save succeeds unless the customer changes again.
+     *
+     * @param mine    The customer as entered in the form.
+     * @param current The customer as now saved.
+     */
+    private void merge(Customer mine, Customer current) {
+        ThreeWayMerge merge = new ThreeWayMerge();
+        String name = merge.field("Name", original.getCustomerName(), mine.getCustomerName(), current.getCustomerName());
+        String address = merge.field("Address", original.getAddress(), mine.getAddress(), current.getAddress());
+        String postal = merge.field("Postal code", original.getPostalCode(), mine.getPostalCode(), current.getPostalCode());
+        String phone = merge.field("Phone", original.getPhone(), mine.getPhone(), current.getPhone());
+        int divisionId = merge.field("Division ID", original.getDivisionId(), mine.getDivisionId(), current.getDivisionId());
+        // The country follows whichever side's division was kept
+        int countryId = divisionId == mine.getDivisionId() ? mine.getCountryId() : current.getCountryId();
+        original = current;
+        fill(new Customer(current.getCustomerId(), name, address, postal, phone, divisionId, countryId, null, null));
+
+        Alert alert = new Alert(Alert.AlertType.WARNING);
+        alert.setTitle("Customer changed by another user");
+        alert.setContentText(merge.describe("customer"));
+        alert.showAndWait();
+    }
+
     /**
      * Event handler for the "Cancel" button click, prompting the user for confirmation before leaving the page.
      *
@@ -140,11 +175,7 @@ public class UpdateCustomer implements Initializable {
 
         // If user confirms, return to the Customer Screen
         if(result.isPresent() && result.get() == ButtonType.YES) {
-            Parent parent = FXMLLoader.load(getClass().getResource("../view/CustomerScreen.fxml"));
-            Scene scene = new Scene(parent);
-            Stage stage = (Stage) ((Node) actionEvent.getSource()).getScene().getWindow();
-            stage.setScene(scene);
-            stage.show();
+            SceneCache.show(actionEvent, "CustomerScreen");
         }
     }
 
@@ -155,28 +186,32 @@ public class UpdateCustomer implements Initializable {
      * @throws SQLException If there is an error with the SQL query.
      */
     public void onCountry(ActionEvent actionEvent) throws SQLException {
-        try {// Retrieve the selected country ID and update the Division dropdown
-            model.Country selectedCountry = Country.getValue();
-            if (selectedCountry != null) {
-                int county_Id = selectedCountry.getCountryId();
-                Division.setItems(DivisionQuery.showDivision(county_Id));
-                Division.getSelectionModel().selectFirst();
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
+        // Retrieve the selected country ID and update the Division dropdown
+        model.Country selectedCountry = Country.getValue();
+        if (selectedCountry != null) {
+            Division.setItems(GeographyCache.getDivisions(selectedCountry.getCountryId()));
+            Division.getSelectionModel().selectFirst();
         }
     }
 
     /**
      * Initializes the UpdateCustomer Screen.
-     * Populates the "Country" combo box with all available countries.
+     * Nothing needs wiring up; the "Country" combo box is loaded by onShow.
      *
      * @param url            The location used to resolve relative paths for the root object.
      * @param resourceBundle The resources used to localize the root object.
      */
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
-        // Populate the Country dropdown with data from the database
-        Country.setItems(CountryQuery.getAllCountry());
+    }
+
+    /**
+     * Populates the "Country" combo box with all available countries each time the screen is shown,
+     * since the screen is kept between visits. The form itself is filled by getCustomerInfo.
+     */
+    @Override
+    public void onShow() {
+        // Populate the Country dropdown from the lookup tables
+        Country.setItems(GeographyCache.getCountries());
     }
 }
@@ -1,72 +1,227 @@
 package database;
 
+import helper.Dictionary;
 import helper.JDBC;
+import helper.TimeConverter;
+import helper.TimelineCache;
+import helper.UnitOfWork;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import model.Appointment;
+import model.Conflict;
+import model.ReportTotal;
+import model.UpdateResult;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Timestamp;
+import java.sql.Statement;
 import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.format.TextStyle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
 
 /**
  * A utility class for handling database queries and appointment data retrieval from the database.
  * It uses prepared statements to ensure secure and efficient database access.
+ * Start and End are stored as UTC date-times and converted only through TimeConverter.
  */
 public class AppointmentQuery {
 
-    //Static variables for defining time intervals
-    static LocalDateTime now = LocalDateTime.now();
-    static LocalDateTime weekLater = now.plusWeeks(1);
-    static LocalDateTime monthLater = now.plusMonths(1);
+    /** The query of getAppointment. */
+    public static final String APPOINTMENT_QUERY = "SELECT * FROM appointments WHERE Appointment_ID = ?";
+    /** The query of getChangedSince. */
+    public static final String CHANGED_SINCE_QUERY = "SELECT * FROM appointments WHERE Last_Update >= ?";
+    /** The query of getApptByWeek and getMonthlyAppointment. */
+    public static final String STARTING_BETWEEN_QUERY = "SELECT * FROM appointments INNER JOIN contacts " +
+            "ON appointments.Contact_ID = contacts.Contact_ID WHERE Start >= ? AND Start <= ?";
+    /** The statement of deleteAppointment. */
+    public static final String DELETE_QUERY = "DELETE FROM appointments WHERE Appointment_ID = ?";
+    /** The statement of deleteCustomerAppointments. */
+    public static final String DELETE_CUSTOMER_QUERY = "DELETE FROM appointments WHERE Customer_ID = ?";
+    /** The query of getAppointments. */
+    public static final String CUSTOMER_QUERY = "SELECT * FROM appointments WHERE Customer_ID = ?";
+    /** The query of getUserAppointment. */
+    public static final String USER_QUERY = "SELECT * FROM appointments WHERE User_ID = ?";
+    /**
+     * The query of getConflicts: one range branch per resource, each taking the
+     * owner's ID, the requested end and start, and the ID of an appointment to ignore.
+     */
+    public static final String CONFLICTS_QUERY = conflictsQuery();
+    /** The query of getContactAppointment. */
+    public static final String CONTACT_QUERY = "SELECT * FROM appointments WHERE Contact_ID = ? ORDER BY Start";
+
+    /**
+     * Creates an Appointment object from the current row of a result set.
+     * Start and End are read as UTC date-times straight into epoch milliseconds,
+     * and Type and Location are replaced by their canonical instances.
+     *
+     * @param resultSet The result set, positioned on an appointment row.
+     * @return The Appointment object.
+     * @throws SQLException If a column cannot be read.
+     */
+    static Appointment mapAppointment(ResultSet resultSet) throws SQLException {
+        Appointment appointment = new Appointment(
+                resultSet.getInt("Appointment_ID"),
+                resultSet.getString("Title"),
+                resultSet.getString("Description"),
+                Dictionary.read(resultSet, "Location", Dictionary.LOCATIONS),
+                Dictionary.read(resultSet, "Type", Dictionary.TYPES),
+                TimeConverter.getUtc(resultSet, "Start"),
+                TimeConverter.getUtc(resultSet, "End"),
+                resultSet.getInt("Customer_ID"),
+                resultSet.getInt("User_ID"),
+                resultSet.getInt("Contact_ID"));
+        appointment.setVersion(resultSet.getInt("Version"));
+        return appointment;
+    }
+
+    /**
+     * Fetches one appointment by its ID, at its current version.
+     * Uses a prepared statement with a SELECT query on the primary key.
+     * Runs as a retryable read and throws a DatabaseException if it fails.
+     *
+     * @param appointmentId The ID of the appointment.
+     * @return The appointment, or null if there is none with the ID.
+     */
+    public static Appointment getAppointment(int appointmentId) {
+        return JDBC.read(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(APPOINTMENT_QUERY)) {
+                statement.setInt(1, appointmentId);
+                ResultSet resultSet = statement.executeQuery();
+                return resultSet.next() ? mapAppointment(resultSet) : null;
+            }
+        });
+    }
 
     /**
      * Fetches all appointments from the "appointments" table, joined with the "contacts" table.
      * Uses a prepared statement with a SELECT query to retrieve data.
      * Loops through the result set and creates Appointment objects based on the retrieved data.
-     * Catches and prints any SQL exceptions.
+     * Runs as a retryable read and throws a DatabaseException if it fails.
      *
      * @return ObservableList of Appointment objects
      */
     public static ObservableList<Appointment> getAppointmentList() {
-        ObservableList<Appointment> appointmentList = FXCollections.observableArrayList();
-        try {
+        return JDBC.read(connection -> {
+            ObservableList<Appointment> appointmentList = FXCollections.observableArrayList();
             String query = "SELECT * FROM appointments JOIN contacts ON appointments.Contact_ID = contacts.CONTACT_ID ORDER BY appointments.Appointment_ID";
-            PreparedStatement statement = JDBC.connection.prepareStatement(query);
-            ResultSet resultSet = statement.executeQuery();
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+                ResultSet resultSet = statement.executeQuery();
 
+                while (resultSet.next()) {
+                    // Creating Appointment object and adding it to the list
+                    Appointment c = mapAppointment(resultSet);
+                    appointmentList.add(c);
+                }
+                return appointmentList;
+            }
+        });
+    }
+
+    /**
+     * Passes every appointment to a consumer as it is read, without building a list, for responses too large to hold in memory.
+     * Uses a prepared statement with a SELECT query whose rows are streamed from the server rather than buffered.
+     * Not retried, since the consumer may already have used part of the rows; throws a DatabaseException if it fails.
+     *
+     * @param sink Receives each appointment, in ID order.
+     */
+    public static void forEachAppointment(Consumer<Appointment> sink) {
+        String query = "SELECT * FROM appointments ORDER BY Appointment_ID";
+        try (PreparedStatement statement = JDBC.getConnection().prepareStatement(query)) {
+            JDBC.streamRows(statement);
+            ResultSet resultSet = statement.executeQuery();
             while (resultSet.next()) {
-                //Extracting appointment details from the result set
-                int appointmentId = resultSet.getInt("Appointment_ID");
-                String title = resultSet.getString("Title");
-                String description = resultSet.getString("Description");
-                int contactId = resultSet.getInt("Contact_ID");
-                String location = resultSet.getString("Location");
-                String type = resultSet.getString("Type");
-                LocalDateTime start = resultSet.getTimestamp("Start").toLocalDateTime();
-                LocalDateTime end = resultSet.getTimestamp("End").toLocalDateTime();
-                int customerId = resultSet.getInt("Customer_ID");
-                int userId = resultSet.getInt("User_ID");
-
-                // Creating Appointment object and adding it to the list
-                Appointment c = new Appointment(appointmentId, title, description, location, type, start, end, customerId, userId, contactId);
-                appointmentList.add(c);
+                sink.accept(mapAppointment(resultSet));
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw JDBC.failure(e);
         }
-        return appointmentList;
     }
 
     /**
-     * Updates an existing appointment with the provided information.
-     * Uses a prepared statement with an UPDATE query.
-     * Sets the prepared statement parameters based on the provided arguments.
-     * Executes the statement and throws a RuntimeException if an SQL exception occurs.
+     * Gets the latest Last_Update of any appointment, to be used as the high-water mark of a snapshot.
+     * The mark is only ever compared with Last_Update again, so it is read and bound through the same UTC mapping
+     * as Start and End whatever zone the server writes Last_Update in.
+     * Uses a prepared statement with a SELECT MAX query.
+     * Runs as a retryable read and throws a DatabaseException if it fails.
+     *
+     * @return The latest Last_Update in epoch milliseconds, or 0 if there are no appointments.
+     */
+    public static long getLastUpdate() {
+        return JDBC.read(connection -> {
+            String query = "SELECT MAX(Last_Update) AS Last_Update FROM appointments";
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+                ResultSet resultSet = statement.executeQuery();
+                if (resultSet.next() && resultSet.getObject("Last_Update") != null) {
+                    return TimeConverter.getUtc(resultSet, "Last_Update");
+                }
+                return 0L;
+            }
+        });
+    }
+
+    /**
+     * Fetches the appointments added or modified since a high-water mark.
+     * Uses a prepared statement with a SELECT query on Last_Update; rows changed in the same second as the mark are fetched again,
+     * which is harmless because applying a row twice leaves the same result.
+     * Runs as a retryable read and throws a DatabaseException if it fails.
+     *
+     * @param since The high-water mark in epoch milliseconds.
+     * @return List of the changed appointments.
+     */
+    public static List<Appointment> getChangedSince(long since) {
+        return JDBC.read(connection -> {
+            List<Appointment> changed = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(CHANGED_SINCE_QUERY)) {
+                TimeConverter.setUtc(statement, 1, since);
+                ResultSet resultSet = statement.executeQuery();
+                while (resultSet.next()) {
+                    changed.add(mapAppointment(resultSet));
+                }
+            }
+            return changed;
+        });
+    }
+
+    /**
+     * Fetches the ID of every appointment, so a snapshot can drop the appointments deleted since it was written.
+     * Uses a prepared statement with a SELECT query that reads only the primary key.
+     * Runs as a retryable read and throws a DatabaseException if it fails.
+     *
+     * @return The IDs in ascending order.
+     */
+    public static int[] getAppointmentIds() {
+        return JDBC.read(connection -> {
+            int[] ids = new int[256];
+            int count = 0;
+            String query = "SELECT Appointment_ID FROM appointments ORDER BY Appointment_ID";
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+                ResultSet resultSet = statement.executeQuery();
+                while (resultSet.next()) {
+                    if (count == ids.length) {
+                        ids = Arrays.copyOf(ids, count * 2);
+                    }
+                    ids[count++] = resultSet.getInt(1);
+                }
+            }
+            return Arrays.copyOf(ids, count);
+        });
+    }
+
+    /**
+     * Updates an existing appointment with the provided information, if it is still at the version the caller read.
+     * Uses a prepared statement with an UPDATE query that matches both the ID and the version and increments the version,
+     * so no lock is held while a form is open: a save made over someone else's change updates no row.
+     * In that case the current row is read back and returned with the result, for the form to merge with.
+     * Executes the statement and throws a DatabaseException if an SQL exception occurs.
      *
      * @param appointmentId The unique identifier for the appointment.
+     * @param version       The version of the appointment the change was made to.
      * @param title         The title of the appointment.
      * @param description   The description of the appointment.
      * @param location      The location of the appointment.
@@ -76,35 +231,55 @@ public class AppointmentQuery {
      * @param customerId    The ID of the customer associated with the appointment.
      * @param userId        The ID of the user associated with the appointment.
      * @param contactId     The ID of the contact related to the appointment.
+     * @return The outcome, holding the appointment as written or as it now is.
      */
-    public static void modifyAppointment(int appointmentId, String title, String description, String location, String type,
-                                         LocalDateTime start, LocalDateTime end, int customerId, int userId, int contactId) {
+    public static UpdateResult<Appointment> modifyAppointment(int appointmentId, int version, String title, String description,
+                                                              String location, String type, LocalDateTime start, LocalDateTime end,
+                                                              int customerId, int userId, int contactId) {
+        int count;
         try {
-            String query = "UPDATE appointments SET Title = ?, Description = ?, Location = ?, Type = ?, Start = ?, End = ?, Customer_Id = ?, User_ID = ?, Contact_ID  = ? WHERE Appointment_ID = ?";
-            PreparedStatement statement = JDBC.connection.prepareStatement(query);
-
-            statement.setString(1, title);
-            statement.setString(2, description);
-            statement.setString(3, location);
-            statement.setString(4, type);
-            statement.setTimestamp(5, Timestamp.valueOf(start));
-            statement.setTimestamp(6, Timestamp.valueOf(end));
-            statement.setInt(7, customerId);
-            statement.setInt(8, userId);
-            statement.setInt(9, contactId);
-            statement.setInt(10, appointmentId);
-            statement.executeUpdate();
-
+            String query = "UPDATE appointments SET Title = ?, Description = ?, Location = ?, Type = ?, Start = ?, End = ?, Customer_Id = ?, User_ID = ?, Contact_ID  = ?, Version = Version + 1, Last_Update = NOW() WHERE Appointment_ID = ? AND Version = ?";
+            try (PreparedStatement statement = JDBC.getConnection().prepareStatement(query)) {
+                statement.setString(1, title);
+                statement.setString(2, description);
+                statement.setString(3, location);
+                statement.setString(4, type);
+                TimeConverter.setUtc(statement, 5, start);
+                TimeConverter.setUtc(statement, 6, end);
+                statement.setInt(7, customerId);
+                statement.setInt(8, userId);
+                statement.setInt(9, contactId);
+                statement.setInt(10, appointmentId);
+                statement.setInt(11, version);
+                count = statement.executeUpdate();
+            }
         } catch (SQLException e) {
-            throw new RuntimeException(e);
+            throw JDBC.failure(e);
+        }
+
+        if (count == 0) {
+            Appointment current = getAppointment(appointmentId);
+            if (current == null) {
+                UnitOfWork.afterCommit(() -> TimelineCache.deleted(appointmentId));
+                return UpdateResult.deleted();
+            }
+            // The cached timelines may not have seen the other change yet
+            UnitOfWork.afterCommit(() -> TimelineCache.modified(current));
+            return UpdateResult.stale(current);
         }
+
+        // Keeping the cached timelines in step with the database
+        Appointment modified = new Appointment(appointmentId, title, description, location, type, start, end, customerId, userId, contactId);
+        modified.setVersion(version + 1);
+        UnitOfWork.afterCommit(() -> TimelineCache.modified(modified));
+        return UpdateResult.updated(modified);
     }
 
     /**
      * Inserts a new appointment into the "appointments" table.
      * Uses a prepared statement with an INSERT query.
      * Sets the prepared statement parameters based on the provided arguments.
-     * Executes the statement and throws a RuntimeException if an SQL exception occurs.
+     * Executes the statement and throws a DatabaseException if an SQL exception occurs.
      *
      * @param title         The title of the appointment.
      * @param description   The description of the appointment.
@@ -115,26 +290,35 @@ public class AppointmentQuery {
      * @param customerId    The ID of the customer associated with the appointment.
      * @param userId        The ID of the user associated with the appointment.
      * @param contactId     The ID of the contact related to the appointment.
+     * @return The ID of the new appointment, or 0 if the driver did not return it.
      */
-    public static void addAppointment(String title, String description, String location, String type,
+    public static int addAppointment(String title, String description, String location, String type,
                                       LocalDateTime start, LocalDateTime end, int customerId, int userId, int contactId){
         try {
-            String query = "INSERT INTO appointments (Title, Description, Location, Type, Start, End, Customer_ID, USER_ID, Contact_ID) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
-            PreparedStatement statement = JDBC.connection.prepareStatement(query);
-
-            statement.setString(1, title);
-            statement.setString(2, description);
-            statement.setString(3, location);
-            statement.setString(4, type);
-            statement.setTimestamp(5, Timestamp.valueOf(start));
-            statement.setTimestamp(6, Timestamp.valueOf(end));
-            statement.setInt(7, customerId);
-            statement.setInt(8,userId);
-            statement.setInt(9, contactId);
-            statement.executeUpdate();
+            String query = "INSERT INTO appointments (Title, Description, Location, Type, Start, End, Customer_ID, USER_ID, Contact_ID, Create_Date, Last_Update) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, NOW(), NOW())";
+            try (PreparedStatement statement = JDBC.getConnection().prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+                statement.setString(1, title);
+                statement.setString(2, description);
+                statement.setString(3, location);
+                statement.setString(4, type);
+                TimeConverter.setUtc(statement, 5, start);
+                TimeConverter.setUtc(statement, 6, end);
+                statement.setInt(7, customerId);
+                statement.setInt(8,userId);
+                statement.setInt(9, contactId);
+                statement.executeUpdate();
 
+                // Keeping the cached timelines in step with the database
+                ResultSet keys = statement.getGeneratedKeys();
+                if (keys.next()) {
+                    Appointment added = new Appointment(keys.getInt(1), title, description, location, type, start, end, customerId, userId, contactId);
+                    UnitOfWork.afterCommit(() -> TimelineCache.added(added));
+                    return added.getAppointmentId();
+                }
+                return 0;
+            }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw JDBC.failure(e);
         }
     }
 
@@ -142,57 +326,66 @@ public class AppointmentQuery {
      * Fetches appointments scheduled within the current week (starting from now).
      * Uses a prepared statement with a SELECT query that filters based on the start date.
      * Creates Appointment objects from the result set and adds them to an ObservableList.
-     * Catches and prints any SQL exceptions.
+     * Runs as a retryable read and throws a DatabaseException if it fails.
      * Returns the ObservableList of appointments for the current week.
      *
      * @return ObservableList of Appointment objects.
      */
     public static ObservableList<Appointment> getApptByWeek(){
-        ObservableList<Appointment> weekAppointments = FXCollections.observableArrayList();
-        try {
-            String query = "SELECT * FROM appointments INNER JOIN contacts ON appointments.Contact_ID = contacts.Contact_ID WHERE Start >=? AND Start <= ?";
-            PreparedStatement statement = JDBC.connection.prepareStatement(query);
-            statement.setTimestamp(1, Timestamp.valueOf(now));
-            statement.setTimestamp(2, Timestamp.valueOf(weekLater));
+        return JDBC.read(connection -> {
+            ObservableList<Appointment> weekAppointments = FXCollections.observableArrayList();
+            try (PreparedStatement statement = connection.prepareStatement(STARTING_BETWEEN_QUERY)) {
+                LocalDateTime now = LocalDateTime.now();
+                TimeConverter.setUtc(statement, 1, now);
+                TimeConverter.setUtc(statement, 2, now.plusWeeks(1));
 
-            ResultSet resultSet = statement.executeQuery();
-            while (resultSet.next()) {
-                int appointmentId = resultSet.getInt("Appointment_ID");
-                String title = resultSet.getString("Title");
-                String description = resultSet.getString("Description");
-                String location = resultSet.getString("Location");
-                String type = resultSet.getString("Type");
-                LocalDateTime start = resultSet.getTimestamp("Start").toLocalDateTime();
-                LocalDateTime end = resultSet.getTimestamp("End").toLocalDateTime();
-                int customerId = resultSet.getInt("Customer_ID");
-                int userId = resultSet.getInt("User_ID");
-                int contactId = resultSet.getInt("Contact_ID");
-                Appointment byWeek = new Appointment(appointmentId, title, description, location, type, start, end, customerId, userId, contactId);
-                weekAppointments.add(byWeek);
-            }
+                ResultSet resultSet = statement.executeQuery();
+                while (resultSet.next()) {
+                    Appointment byWeek = mapAppointment(resultSet);
+                    weekAppointments.add(byWeek);
+                }
 
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return weekAppointments;
+                return weekAppointments;
+            }
+        });
     }
 
     /**
      * Deletes an appointment from the "appointments" table based on the provided ID.
      * Uses a prepared statement with a DELETE query.
      * Sets the prepared statement parameter to the appointment ID.
-     * Executes the statement and throws a RuntimeException if an SQL exception occurs.
+     * Executes the statement and throws a DatabaseException if an SQL exception occurs.
      *
      * @param appointmentId appointment's ID
      */
     public static void deleteAppointment(int appointmentId){
         try {
-            String query = "DELETE FROM appointments WHERE Appointment_ID = ?";
-            PreparedStatement statement = JDBC.connection.prepareStatement(query);
-            statement.setInt(1, appointmentId);
-            statement.execute();
+            try (PreparedStatement statement = JDBC.getConnection().prepareStatement(DELETE_QUERY)) {
+                statement.setInt(1, appointmentId);
+                statement.execute();
+                UnitOfWork.afterCommit(() -> TimelineCache.deleted(appointmentId));
+            }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw JDBC.failure(e);
+        }
+    }
+
+    /**
+     * Deletes every appointment of a customer with a single statement, so the customer can be deleted.
+     * Uses a prepared statement with a DELETE query.
+     * Throws a DatabaseException if the statement fails.
+     *
+     * @param customerId The ID of the customer.
+     * @return The number of appointments deleted.
+     */
+    public static int deleteCustomerAppointments(int customerId) {
+        try (PreparedStatement statement = JDBC.getConnection().prepareStatement(DELETE_CUSTOMER_QUERY)) {
+            statement.setInt(1, customerId);
+            int count = statement.executeUpdate();
+            UnitOfWork.afterCommit(() -> TimelineCache.customerDeleted(customerId));
+            return count;
+        } catch (SQLException e) {
+            throw JDBC.failure(e);
         }
     }
 
@@ -200,73 +393,51 @@ public class AppointmentQuery {
      * Retrieves appointments for the current month (starting from now).
      * Uses a prepared statement with a SELECT query that filters based on the start date.
      * Creates Appointment objects from the result set and adds them to an ObservableList.
-     * Catches and prints any SQL exceptions.
+     * Runs as a retryable read and throws a DatabaseException if it fails.
      *
      * @return The ObservableList of appointments for the current month.
      */
     public static ObservableList<Appointment> getMonthlyAppointment(){
-        ObservableList<Appointment> monthAppointments = FXCollections.observableArrayList();
-        try {
-            String query = "SELECT * FROM appointments INNER JOIN contacts ON appointments.Contact_ID = contacts.Contact_ID WHERE Start >=? AND Start <=?";
-            PreparedStatement statement = JDBC.connection.prepareStatement(query);
-            statement.setTimestamp(1, Timestamp.valueOf(now));
-            statement.setTimestamp(2, Timestamp.valueOf(monthLater));
+        return JDBC.read(connection -> {
+            ObservableList<Appointment> monthAppointments = FXCollections.observableArrayList();
+            try (PreparedStatement statement = connection.prepareStatement(STARTING_BETWEEN_QUERY)) {
+                LocalDateTime now = LocalDateTime.now();
+                TimeConverter.setUtc(statement, 1, now);
+                TimeConverter.setUtc(statement, 2, now.plusMonths(1));
 
-            ResultSet resultSet = statement.executeQuery();
-            while (resultSet.next()) {
-                int appointmentId = resultSet.getInt("Appointment_ID");
-                String title = resultSet.getString("Title");
-                String description = resultSet.getString("Description");
-                String location = resultSet.getString("Location");
-                String type = resultSet.getString("Type");
-                LocalDateTime start = resultSet.getTimestamp("Start").toLocalDateTime();
-                LocalDateTime end = resultSet.getTimestamp("End").toLocalDateTime();
-                int customerId = resultSet.getInt("Customer_ID");
-                int userId = resultSet.getInt("User_ID");
-                int contactId = resultSet.getInt("Contact_ID");
-                Appointment byMonth = new Appointment(appointmentId, title, description, location, type, start, end, customerId, userId, contactId);
-                monthAppointments.add(byMonth);
-            }
+                ResultSet resultSet = statement.executeQuery();
+                while (resultSet.next()) {
+                    Appointment byMonth = mapAppointment(resultSet);
+                    monthAppointments.add(byMonth);
+                }
 
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return monthAppointments;
+                return monthAppointments;
+            }
+        });
     }
 
     /**
      * Fetches appointments specific to a user based on their ID.
      * Uses a prepared statement with a SELECT query that filters by user ID.
      * Creates Appointment objects from the result set and adds them to an ObservableList.
-     * Catches and prints any SQL exceptions.
+     * Runs as a retryable read and throws a DatabaseException if it fails.
      *
      * @param userID user's ID
      * @return The ObservableList of appointments for the specified user.
      */
     public static ObservableList<Appointment> getUserAppointment(int userID){
-        ObservableList<Appointment> userAppointments = FXCollections.observableArrayList();
-        try {
-            String query = "SELECT * FROM appointments WHERE User_ID = ' " + userID + " ' ";
-            PreparedStatement statement = JDBC.connection.prepareStatement(query);
-            ResultSet resultSet = statement.executeQuery();
-            while (resultSet.next()) {
-                int appointmentId = resultSet.getInt("Appointment_ID");
-                String title = resultSet.getString("Title");
-                String description = resultSet.getString("Description");
-                String location = resultSet.getString("Location");
-                String type = resultSet.getString("Type");
-                LocalDateTime start = resultSet.getTimestamp("Start").toLocalDateTime();
-                LocalDateTime end = resultSet.getTimestamp("End").toLocalDateTime();
-                int customerId = resultSet.getInt("customer_ID");
-                int userId = resultSet.getInt("User_ID");
-                int contactId = resultSet.getInt("Contact_ID");
-                Appointment results = new Appointment(appointmentId, title, description, location, type, start, end, customerId, userId, contactId);
-                userAppointments.add(results);
+        return JDBC.read(connection -> {
+            ObservableList<Appointment> userAppointments = FXCollections.observableArrayList();
+            try (PreparedStatement statement = connection.prepareStatement(USER_QUERY)) {
+                statement.setInt(1, userID);
+                ResultSet resultSet = statement.executeQuery();
+                while (resultSet.next()) {
+                    Appointment results = mapAppointment(resultSet);
+                    userAppointments.add(results);
+                }
+                return userAppointments;
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return userAppointments;
+        });
     }
 
     /**
@@ -276,31 +447,19 @@ public class AppointmentQuery {
      * @return customerAppointment
      */
     public static ObservableList<Appointment> getAppointments (int customerId){
-        ObservableList<Appointment> customerAppointment = FXCollections.observableArrayList();
-        try {
-            String query = "SELECT * FROM appointments WHERE Customer_ID =? ";
-            PreparedStatement statement = JDBC.connection.prepareStatement(query);
-            statement.setInt(1, customerId);
+        return JDBC.read(connection -> {
+            ObservableList<Appointment> customerAppointment = FXCollections.observableArrayList();
+            try (PreparedStatement statement = connection.prepareStatement(CUSTOMER_QUERY)) {
+                statement.setInt(1, customerId);
 
-            ResultSet resultSet = statement.executeQuery();
-            while (resultSet.next()) {
-                int appointmentId = resultSet.getInt("Appointment_ID");
-                String title = resultSet.getString("Title");
-                String description = resultSet.getString("Description");
-                String location = resultSet.getString("Location");
-                String type = resultSet.getString("Type");
-                LocalDateTime start = resultSet.getTimestamp("Start").toLocalDateTime();
-                LocalDateTime end = resultSet.getTimestamp("End").toLocalDateTime();
-                customerId = resultSet.getInt("customer_ID");
-                int userId = resultSet.getInt("User_ID");
-                int contactId = resultSet.getInt("Contact_ID");
-                Appointment results = new Appointment(appointmentId, title, description, location, type, start, end, customerId, userId, contactId);
-                customerAppointment.add(results);
+                ResultSet resultSet = statement.executeQuery();
+                while (resultSet.next()) {
+                    Appointment results = mapAppointment(resultSet);
+                    customerAppointment.add(results);
+                }
+                return customerAppointment;
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return customerAppointment;
+        });
     }
 
     /**
@@ -308,83 +467,159 @@ public class AppointmentQuery {
      * Fetches appointments specific to a contact based on their contact ID.
      * Uses a prepared statement with a SELECT query that filters by contact ID.
      * Creates Appointment objects from the result set and adds them to an ObservableList.
-     * Catches and prints any SQL exceptions.
+     * Runs as a retryable read and throws a DatabaseException if it fails.
+     * Reports should prefer TimelineCache.getContactSchedule, which answers from memory after fetching only what changed.
      *
      * @param contactID contact's id
      * @return The ObservableList of appointments for the specified contact
      */
     public static ObservableList<Appointment> getContactAppointment( int contactID) {
-        ObservableList<Appointment> contactAppointments = FXCollections.observableArrayList();
-        try {
-            String query = "SELECT * FROM appointments WHERE Contact_ID = ' " + contactID + " ' ";
-            PreparedStatement statement = JDBC.connection.prepareStatement(query);
+        return JDBC.read(connection -> {
+            ObservableList<Appointment> contactAppointments = FXCollections.observableArrayList();
+            try (PreparedStatement statement = connection.prepareStatement(CONTACT_QUERY)) {
+                statement.setInt(1, contactID);
                 ResultSet resultSet = statement.executeQuery();
-            while (resultSet.next()) {
-                int appointmentId = resultSet.getInt("Appointment_ID");
-                String title = resultSet.getString("Title");
-                String description = resultSet.getString("Description");
-                String location = resultSet.getString("Location");
-                String type = resultSet.getString("Type");
-                LocalDateTime start = resultSet.getTimestamp("Start").toLocalDateTime();
-                LocalDateTime end = resultSet.getTimestamp("End").toLocalDateTime();
-                int customerId = resultSet.getInt("customer_ID");
-                int userId = resultSet.getInt("User_ID");
-                int contactId = resultSet.getInt("Contact_ID");
-                Appointment results = new Appointment(appointmentId, title, description, location, type, start, end, customerId, userId, contactId);
-                contactAppointments.add(results);
-            }
+                while (resultSet.next()) {
+                    Appointment results = mapAppointment(resultSet);
+                    contactAppointments.add(results);
+                }
 
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return contactAppointments;
+                return contactAppointments;
+            }
+        });
     }
 
     /**
      * Counts the number of appointments for each type
+     * The report screen uses TimelineCache.getTypeTotals, which brings the cache up to date and counts by type code in memory.
      *
-     * @return The results as a list of Appointment objects with "type" and "count" fields.
+     * @return The results as a list of ReportTotal objects, one per type.
      */
-    public static ObservableList<Appointment> getAppointmentType(){
-        ObservableList<Appointment> appointmentListType = FXCollections.observableArrayList();
-        try {
+    public static ObservableList<ReportTotal> getAppointmentType(){
+        return JDBC.read(connection -> {
+            ObservableList<ReportTotal> appointmentListType = FXCollections.observableArrayList();
             String query = "SELECT Type, Count(*) AS NUM FROM appointments GROUP BY Type";
-            PreparedStatement statement = JDBC.connection.prepareStatement(query);
-            ResultSet resultSet = statement.executeQuery();
-            while (resultSet.next()) {
-                String type = resultSet.getString("Type");
-                int typeTotal = resultSet.getInt("NUM");
-                Appointment results = new Appointment(type, typeTotal);
-                appointmentListType.add(results);
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+                ResultSet resultSet = statement.executeQuery();
+                while (resultSet.next()) {
+                    String type = Dictionary.read(resultSet, "Type", Dictionary.TYPES);
+                    int typeTotal = resultSet.getInt("NUM");
+                    ReportTotal results = new ReportTotal(type, typeTotal);
+                    appointmentListType.add(results);
+                }
+
+                return appointmentListType;
             }
+        });
+    }
 
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return appointmentListType;
+    /**
+     * Counts the number of appointments for each month of the year, in local time.
+     * Start is stored in UTC, so the database only counts the appointments per start time, and each start is put in its
+     * local month here; an appointment early on the first of a month is not counted in the month before.
+     * Runs as a retryable read and throws a DatabaseException if it fails.
+     *
+     * @return The results as a list of ReportTotal objects, one per month, in calendar order.
+     */
+    public static ObservableList<ReportTotal> getAppointmentTypeMonth(){
+        return JDBC.read(connection -> {
+            int[] counts = new int[12];
+            String query = "SELECT Start, COUNT(*) AS NUM FROM appointments GROUP BY Start";
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+                ResultSet resultSet = statement.executeQuery();
+                while (resultSet.next()) {
+                    Month month = TimeConverter.toLocal(TimeConverter.getUtc(resultSet, "Start")).getMonth();
+                    counts[month.ordinal()] += resultSet.getInt("NUM");
+                }
+            }
+
+            ObservableList<ReportTotal> appointmentTypeMonthTotal = FXCollections.observableArrayList();
+            for (Month month : Month.values()) {
+                if (counts[month.ordinal()] > 0) {
+                    appointmentTypeMonthTotal.add(new ReportTotal(month.getDisplayName(TextStyle.FULL, Locale.ENGLISH), counts[month.ordinal()]));
+                }
+            }
+            return appointmentTypeMonthTotal;
+        });
     }
 
     /**
-     * Counts the number of appointments for each month
+     * Locks the rows of an appointment's customer, contact and user until the active UnitOfWork ends.
+     * A save that locks its owners before checking for conflicts waits for any other save booking one of them to commit,
+     * so the check it then makes still holds when it writes. The rows are always locked in the same table order, so two
+     * saves never wait on each other. Outside a UnitOfWork the locks are released at once.
+     * Throws a DatabaseException if a statement fails.
      *
-     * @return The results as a list of Appointment objects with "month" and "count" fields.
+     * @param customerId The ID of the customer.
+     * @param contactId  The ID of the contact.
+     * @param userId     The ID of the user.
      */
-    public static ObservableList<Appointment> getAppointmentTypeMonth(){
-        ObservableList<Appointment> appointmentTypeMonthTotal = FXCollections.observableArrayList();
+    public static void lockOwners(int customerId, int contactId, int userId) {
+        String[] queries = {
+                "SELECT Customer_ID FROM customers WHERE Customer_ID = ? FOR UPDATE",
+                "SELECT Contact_ID FROM contacts WHERE Contact_ID = ? FOR UPDATE",
+                "SELECT User_ID FROM users WHERE User_ID = ? FOR UPDATE"
+        };
+        int[] ownerIds = {customerId, contactId, userId};
         try {
-            String query = "SELECT DISTINCT(MONTHNAME(Start)) AS Month, Count(*) AS NUM FROM appointments GROUP BY Month";
-            PreparedStatement statement = JDBC.connection.prepareStatement(query);
-            ResultSet resultSet = statement.executeQuery();
-            while (resultSet.next()) {
-                String type = resultSet.getString("Month");
-                int typeTotal = resultSet.getInt("NUM");
-                Appointment results = new Appointment(type, typeTotal);
-                appointmentTypeMonthTotal.add(results);
+            for (int i = 0; i < queries.length; i++) {
+                try (PreparedStatement statement = JDBC.getConnection().prepareStatement(queries[i])) {
+                    statement.setInt(1, ownerIds[i]);
+                    statement.executeQuery().close();
+                }
             }
-
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw JDBC.failure(e);
         }
-        return appointmentTypeMonthTotal;
+    }
+
+    /**
+     * Finds the appointments that overlap a requested time for a customer, a contact or a user, in one round-trip.
+     * Uses a prepared statement with one range branch per resource, so each branch can use the (owner, Start) index.
+     * Each row is tagged with the resource it double-books.
+     * Runs as a retryable read and throws a DatabaseException if it fails.
+     *
+     * @param customerId           The ID of the customer.
+     * @param contactId            The ID of the contact.
+     * @param userId               The ID of the user.
+     * @param start                The requested start date and time.
+     * @param end                  The requested end date and time.
+     * @param excludeAppointmentId The ID of an appointment to ignore, such as the one being edited.
+     * @return The list of conflicts, grouped by owner.
+     */
+    public static List<Conflict> getConflicts(int customerId, int contactId, int userId, LocalDateTime start, LocalDateTime end,
+                                              int excludeAppointmentId) {
+        return JDBC.read(connection -> {
+            List<Conflict> conflicts = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(CONFLICTS_QUERY)) {
+                int[] ownerIds = {customerId, contactId, userId};
+                for (int i = 0; i < ownerIds.length; i++) {
+                    statement.setInt(i * 4 + 1, ownerIds[i]);
+                    TimeConverter.setUtc(statement, i * 4 + 2, end);
+                    TimeConverter.setUtc(statement, i * 4 + 3, start);
+                    statement.setInt(i * 4 + 4, excludeAppointmentId);
+                }
+
+                ResultSet resultSet = statement.executeQuery();
+                while (resultSet.next()) {
+                    Conflict.Owner owner = Conflict.Owner.valueOf(resultSet.getString("Owner"));
+                    Appointment appointment = mapAppointment(resultSet);
+                    conflicts.add(new Conflict(owner, ownerIds[owner.ordinal()], appointment));
+                }
+            }
+            return conflicts;
+        });
+    }
+
+    /**
+     * Builds the conflict query, so its three branches share one range condition.
+     *
+     * @return The query.
+     */
+    private static String conflictsQuery() {
+        String range = " AND Start < ? AND End > ? AND Appointment_ID <> ?";
+        return "SELECT 'CUSTOMER' AS Owner, appointments.* FROM appointments WHERE Customer_ID = ?" + range +
+                " UNION ALL SELECT 'CONTACT' AS Owner, appointments.* FROM appointments WHERE Contact_ID = ?" + range +
+                " UNION ALL SELECT 'USER' AS Owner, appointments.* FROM appointments WHERE User_ID = ?" + range;
     }
 }
@@ -17,68 +17,69 @@ import java.sql.SQLException;
  */
 public class ContactQuery {
 
+    /** The query of returnContactList. */
+    public static final String CONTACT_QUERY = "SELECT * FROM contacts WHERE Contact_ID = ?";
+    /** The query of returnContactId. */
+    public static final String CONTACT_NAME_QUERY = "SELECT * FROM contacts WHERE Contact_Name = ?";
+
     /**
      * Retrieves all contacts from the "contacts" table.
      * Uses a prepared statement with a SELECT query to fetch data.
      * Creates Contact objects based on the retrieved data and adds them to an ObservableList.
-     * Catches and throws any SQL exceptions.
+     * Runs as a retryable read and throws a DatabaseException if it fails.
      *
      * @return ObservableList of Contact objects containing details like contact ID, contact name, and email.
      */
     public static ObservableList<Contact> getAllContacts() {
-        ObservableList<Contact> contactList = FXCollections.observableArrayList();
-        try{
+        return JDBC.read(connection -> {
+            ObservableList<Contact> contactList = FXCollections.observableArrayList();
             String query = "SELECT Contact_ID, Contact_Name, Email FROM contacts";
-            PreparedStatement preparedStatement = JDBC.connection.prepareStatement(query);
-            ResultSet resultSet = preparedStatement.executeQuery();
+            try (PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+                ResultSet resultSet = preparedStatement.executeQuery();
 
-            while (resultSet.next()) {
+                while (resultSet.next()) {
 
-                // Extracting contact details from the result set
-                int contactId = resultSet.getInt("Contact_ID");
-                String contactName = resultSet.getString("Contact_Name");
-                String contactEmail = resultSet.getString("Email");
+                    // Extracting contact details from the result set
+                    int contactId = resultSet.getInt("Contact_ID");
+                    String contactName = resultSet.getString("Contact_Name");
+                    String contactEmail = resultSet.getString("Email");
 
-                // Creating Contact object and adding it to the list
-                Contact d = new Contact(contactId, contactName, contactEmail);
-                contactList.add(d);
+                    // Creating Contact object and adding it to the list
+                    Contact d = new Contact(contactId, contactName, contactEmail);
+                    contactList.add(d);
+                }
+                return contactList;
             }
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
-        return contactList;
+        });
     }
 
     /**
      * Retrieves a specific contact based on their ID.
      * Uses a prepared statement with a SELECT query that filters by the contact ID.
      * Creates a single Contact object from the result set.
-     * Catches and throws any SQL exceptions.
+     * Runs as a retryable read and throws a DatabaseException if it fails.
      *
      * @param contactID The ID of the contact to retrieve.
      * @return Contact object containing details like contact ID, contact name, and email.
      */
     public static Contact returnContactList(int contactID) {
-        try{
-            String query = "SELECT * FROM contacts WHERE Contact_ID = ?";
-            PreparedStatement preparedStatement = JDBC.connection.prepareStatement(query);
-
-            // Setting the parameter for the prepared statement
-            preparedStatement.setInt(1, contactID);
-            preparedStatement.execute();
+        return JDBC.read(connection -> {
+            try (PreparedStatement preparedStatement = connection.prepareStatement(CONTACT_QUERY)) {
+                // Setting the parameter for the prepared statement
+                preparedStatement.setInt(1, contactID);
+                preparedStatement.execute();
 
-            ResultSet resultSet = preparedStatement.getResultSet();
-            resultSet.next();
+                ResultSet resultSet = preparedStatement.getResultSet();
+                resultSet.next();
 
-            // Extracting contact details from the result set
-            int contactId = resultSet.getInt("Contact_ID");
-            String contactName = resultSet.getString("Contact_Name");
-            String contactEmail = resultSet.getString("Email");
-            Contact s = new Contact(contactId, contactName, contactEmail);
-            return s;
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
+                // Extracting contact details from the result set
+                int contactId = resultSet.getInt("Contact_ID");
+                String contactName = resultSet.getString("Contact_Name");
+                String contactEmail = resultSet.getString("Email");
+                Contact s = new Contact(contactId, contactName, contactEmail);
+                return s;
+            }
+        });
     }
 
     /**
@@ -93,17 +94,16 @@ public class ContactQuery {
      */
     public static int returnContactId(String contactName) throws SQLException {
         int contactId = 0;
-        String query = "SELECT * FROM contacts WHERE Contact_Name = ?";
-        PreparedStatement preparedStatement = JDBC.connection.prepareStatement(query);
-
-        // Setting the parameter for the prepared statement
-        preparedStatement.setString(1, contactName);
-        ResultSet resultSet = preparedStatement.executeQuery();
+        try (PreparedStatement preparedStatement = JDBC.getConnection().prepareStatement(CONTACT_NAME_QUERY)) {
+            // Setting the parameter for the prepared statement
+            preparedStatement.setString(1, contactName);
+            ResultSet resultSet = preparedStatement.executeQuery();
 
-        while(resultSet.next()) {
-            // Extracting contact ID from the result set
-            contactId = resultSet.getInt("Contact_ID");
+            while(resultSet.next()) {
+                // Extracting contact ID from the result set
+                contactId = resultSet.getInt("Contact_ID");
+            }
+            return contactId;
         }
-        return contactId;
     }
 }
@@ -1,5 +1,6 @@
 package database;
 
+import helper.Dictionary;
 import helper.JDBC;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -7,7 +8,6 @@ import model.Country;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
-import java.sql.SQLException;
 
 /**
  * The CountryQuery class provides methods for querying and retrieving country data from a database.
@@ -17,66 +17,66 @@ import java.sql.SQLException;
  */
 public class CountryQuery {
 
+    /** The query of returnCountry. */
+    public static final String COUNTRY_QUERY = "SELECT Country_ID, Country FROM countries WHERE Country_ID = ?";
+
     /**
      * Retrieves all countries from the "countries" table.
      * Uses a prepared statement with a SELECT query to fetch data.
      * Creates Country objects based on the retrieved data and adds them to an ObservableList.
-     * Catches and throws any SQL exceptions.
+     * Runs as a retryable read and throws a DatabaseException if it fails.
      *
      * @return ObservableList of Country objects containing all available countries.
      */
     public static ObservableList<Country> getAllCountry() {
-        ObservableList<Country> countryList = FXCollections.observableArrayList();
-        try {
+        return JDBC.read(connection -> {
+            ObservableList<Country> countryList = FXCollections.observableArrayList();
             String query = "SELECT Country_ID, Country FROM countries";
-            PreparedStatement preparedStatement = JDBC.connection.prepareStatement(query);
-            ResultSet resultSet = preparedStatement.executeQuery();
+            try (PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+                ResultSet resultSet = preparedStatement.executeQuery();
 
-            while(resultSet.next()) {
-                // Extracting country details from the result set
-                int countryId = resultSet.getInt("Country_ID");
-                String countryName = resultSet.getString("Country");
+                while(resultSet.next()) {
+                    // Extracting country details from the result set
+                    int countryId = resultSet.getInt("Country_ID");
+                    String countryName = Dictionary.read(resultSet, "Country", Dictionary.COUNTRIES);
 
-                // Creating Country object and adding it to the list
-                Country c = new Country(countryId, countryName);
-                countryList.add(c);
+                    // Creating Country object and adding it to the list
+                    Country c = new Country(countryId, countryName);
+                    countryList.add(c);
+                }
+                return countryList;
             }
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
-        return countryList;
+        });
     }
 
     /**
      * Retrieves a specific country from the database based on the provided country ID.
      * Uses a prepared statement with a SELECT query that filters by the country ID.
      * Creates a single Country object from the result set.
-     * Catches and throws any SQL exceptions.
+     * Runs as a retryable read and throws a DatabaseException if it fails.
      *
      * @param countryId The ID of the country to retrieve.
      * @return The Country object if found, or null if not.
      */
     public static Country returnCountry(int countryId) {
-        try {
-            String query = "SELECT Country_ID, Country FROM countries WHERE Country_ID = ?";
-            PreparedStatement preparedStatement = JDBC.connection.prepareStatement(query);
-            preparedStatement.setInt(1, countryId);
-            ResultSet resultSet = preparedStatement.executeQuery();;
+        return JDBC.read(connection -> {
+            try (PreparedStatement preparedStatement = connection.prepareStatement(COUNTRY_QUERY)) {
+                preparedStatement.setInt(1, countryId);
+                ResultSet resultSet = preparedStatement.executeQuery();;
 
-            if (resultSet.next()){
-                // Extracting country details from the result set
-                int country_Id = resultSet.getInt("Country_ID");
-                String countryName = resultSet.getString("Country");
+                if (resultSet.next()){
+                    // Extracting country details from the result set
+                    int country_Id = resultSet.getInt("Country_ID");
+                    String countryName = Dictionary.read(resultSet, "Country", Dictionary.COUNTRIES);
 
-                // Returning Country object
-                return new Country(country_Id, countryName);
-            } else {
-                // No result found, return null or handle accordingly
-                return null;
+                    // Returning Country object
+                    return new Country(country_Id, countryName);
+                } else {
+                    // No result found, return null or handle accordingly
+                    return null;
+                }
             }
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
+        });
     }
 
     /**
@@ -84,29 +84,28 @@ public class CountryQuery {
      * Uses a JOIN between multiple tables to connect countries with customers through divisions.
      * Groups the results by country and retrieves the count for each.
      * Creates Country objects with "country" and "count" fields for each entry.
-     * Catches and prints any SQL exceptions.
+     * Runs as a retryable read and throws a DatabaseException if it fails.
      *
      * @return ObservableList containing country and customer count pairs.
      */
     public static ObservableList<Country> countryTotals() {
-        ObservableList<Country> customerCountry = FXCollections.observableArrayList();
-        try {
+        return JDBC.read(connection -> {
+            ObservableList<Country> customerCountry = FXCollections.observableArrayList();
             String query = "SELECT countries.Country, COUNT(customers.Customer_ID) AS Count FROM countries INNER JOIN first_level_divisions ON countries.Country_ID = first_level_divisions.Country_ID INNER JOIN customers ON customers.Division_ID = first_level_divisions.Division_ID group by countries.Country";
-            PreparedStatement preparedStatement = JDBC.connection.prepareStatement(query);
-            ResultSet resultSet = preparedStatement.executeQuery();
+            try (PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+                ResultSet resultSet = preparedStatement.executeQuery();
 
-            while(resultSet.next()) {
-                // Extracting country details and customer count from the result set
-                String month = resultSet.getString("Country");
-                int monthCount = resultSet.getInt("Count");
+                while(resultSet.next()) {
+                    // Extracting country details and customer count from the result set
+                    String month = Dictionary.read(resultSet, "Country", Dictionary.COUNTRIES);
+                    int monthCount = resultSet.getInt("Count");
 
-                // Creating Country object and adding it to the list
-                Country country1 = new Country(month, monthCount);
-                customerCountry.add(country1);
+                    // Creating Country object and adding it to the list
+                    Country country1 = new Country(month, monthCount);
+                    customerCountry.add(country1);
+                }
+                return customerCountry;
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return customerCountry;
+        });
     }
 }
@@ -1,14 +1,25 @@
 package database;
 
+import helper.CustomerCache;
+import helper.GeographyCache;
 import helper.JDBC;
+import helper.UnitOfWork;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import javafx.scene.control.Alert;
+import model.Country;
 import model.Customer;
+import model.CustomerFilter;
+import model.Division;
+import model.UpdateResult;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.function.Consumer;
 
 /**
  * The CustomerQuery class provides methods for querying and managing customer data in a database.
@@ -19,54 +30,272 @@ import java.sql.SQLException;
 public class CustomerQuery {
 
     /**
-     * Retrieves all customers from the "customers" table, joined with "first_level_divisions" and "countries" tables for additional information.
-     * Uses a prepared statement with a complex JOIN query to fetch detailed customer data.
+     * Customers, from the customers table alone; their division and country names come from GeographyCache,
+     * so no customer query joins first_level_divisions and countries.
+     */
+    private static final String CUSTOMER_SELECT = "SELECT customers.Customer_ID, customers.Customer_Name, customers.Address, " +
+            "customers.Postal_Code, customers.Phone, customers.Division_ID, customers.Version FROM customers ";
+    /** Every customer, in ID order. */
+    private static final String CUSTOMER_QUERY = CUSTOMER_SELECT + "ORDER BY customers.Customer_ID";
+    /** The query of getCustomer. */
+    public static final String CUSTOMER_BY_ID_QUERY = CUSTOMER_SELECT + "WHERE customers.Customer_ID = ?";
+    /** The query of returnCustomerList. */
+    public static final String CUSTOMER_ID_QUERY = "SELECT * FROM customers WHERE Customer_ID = ?";
+
+    /**
+     * Creates a Customer object from the current row of the customer query, with its division and country looked up in
+     * GeographyCache. The caller loads the lookup tables before running the query (see GeographyCache.preload).
+     *
+     * @param resultSet The result set, positioned on a customer row.
+     * @return The Customer object.
+     * @throws SQLException If a column cannot be read.
+     */
+    static Customer mapCustomer(ResultSet resultSet) throws SQLException {
+        // Extracting customer details from the result set
+        int customerId = resultSet.getInt("Customer_ID");
+        String customerName = resultSet.getString("Customer_Name");
+        String address = resultSet.getString("Address");
+        String postalCode = resultSet.getString("Postal_Code");
+        String phone = resultSet.getString("Phone");
+        int divisionId = resultSet.getInt("Division_ID");
+        Customer customer = withGeography(new Customer(customerId, customerName, address, postalCode, phone, divisionId, 0, null, null));
+        customer.setVersion(resultSet.getInt("Version"));
+        return customer;
+    }
+
+    /**
+     * Fills in a customer's country ID, division name and country name from its division ID, using the lookup tables.
+     * A division the tables do not know, e.g. one added by another desk since they were read, leaves them empty.
+     *
+     * @param customer The customer, with its division ID set.
+     * @return The same customer.
+     */
+    private static Customer withGeography(Customer customer) {
+        Division division = GeographyCache.getDivision(customer.getDivisionId());
+        if (division != null) {
+            Country country = GeographyCache.getCountry(division.getCountryId());
+            customer.setCountryId(division.getCountryId());
+            customer.setDivisionName(division.getDivision());
+            customer.setCountry(country == null ? null : country.getCountry());
+        }
+        return customer;
+    }
+
+    /**
+     * Retrieves one customer, with its division and country, at its current version.
+     * Uses a prepared statement with the query of getCustomerList filtered by the customer ID.
+     * Runs as a retryable read and throws a DatabaseException if it fails.
+     *
+     * @param customerId The ID of the customer.
+     * @return The customer, or null if there is none with the ID.
+     */
+    public static Customer getCustomer(int customerId) {
+        GeographyCache.preload();
+        return JDBC.read(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(CUSTOMER_BY_ID_QUERY)) {
+                statement.setInt(1, customerId);
+                ResultSet resultSet = statement.executeQuery();
+                return resultSet.next() ? mapCustomer(resultSet) : null;
+            }
+        });
+    }
+
+    /**
+     * Retrieves all customers from the "customers" table, with their division and country filled in from GeographyCache.
+     * Uses a prepared statement with a SELECT query on the customers table alone.
      * Creates Customer objects based on the retrieved data and adds them to an ObservableList.
-     * Catches and prints any SQL exceptions.
+     * Runs as a retryable read and throws a DatabaseException if it fails.
      *
      * @return ObservableList of Customer objects containing all customers.
      */
     public static ObservableList<Customer> getCustomerList() {
-        ObservableList<Customer> customerList = FXCollections.observableArrayList();
-        try {
-            String query = "SELECT customers.Customer_ID, customers.Customer_Name, customers.Address, " +
-                            "customers.Create_Date, customers.Last_Update, customers.Postal_Code, " +
-                            "customers.Phone, customers.Division_ID, first_level_divisions.Division, " +
-                            "first_level_divisions.Country_ID, countries.Country " +
-                            "FROM customers " +
-                            "JOIN first_level_divisions ON customers.Division_ID = first_level_divisions.Division_ID " +
-                            "JOIN countries ON countries.Country_ID = first_level_divisions.Country_ID " +
-                            "ORDER BY customers.Customer_ID";
-            PreparedStatement statement = JDBC.connection.prepareStatement(query);
+        GeographyCache.preload();
+        return JDBC.read(connection -> {
+            ObservableList<Customer> customerList = FXCollections.observableArrayList();
+            try (PreparedStatement statement = connection.prepareStatement(CUSTOMER_QUERY)) {
+                ResultSet resultSet = statement.executeQuery();
+                while(resultSet.next()){
+                    // Creating Customer object and adding it to the list
+                    customerList.add(mapCustomer(resultSet));
+                }
+                return customerList;
+            }
+        });
+    }
+
+    /**
+     * Retrieves one page of the customers a filter selects, with their division and country, sorted and filtered by the database.
+     * Pages are found by keyset: the next page starts after the sort value and ID of the last customer of the previous one,
+     * so every page is an index seek however deep into the book it is, and rows added or deleted meanwhile do not shift it.
+     * Customers with no value in the sort column come first in an ascending sort and last in a descending one.
+     * Only the customers table is read: a country is matched through the IDs of its divisions, taken from GeographyCache.
+     * Runs as a retryable read and throws a DatabaseException if it fails.
+     *
+     * @param filter The name prefix, country and division to match, and the sort.
+     * @param after  The last customer of the previous page, or null for the first page.
+     * @param limit  The most customers to return.
+     * @return The page; fewer than limit customers means there are no more.
+     */
+    public static List<Customer> getCustomerPage(CustomerFilter filter, Customer after, int limit) {
+        List<Integer> countryDivisions = new ArrayList<>();
+        if (filter.getDivisionId() <= 0 && filter.getCountryId() > 0) {
+            for (Division division : GeographyCache.getDivisions(filter.getCountryId())) {
+                countryDivisions.add(division.getDivisionId());
+            }
+            if (countryDivisions.isEmpty()) {
+                return new ArrayList<>();
+            }
+        }
+        List<Object> parameters = new ArrayList<>();
+        String query = pageQuery(filter, countryDivisions, after, limit, parameters);
+
+        GeographyCache.preload();
+        return JDBC.read(connection -> {
+            List<Customer> page = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+                for (int i = 0; i < parameters.size(); i++) {
+                    statement.setObject(i + 1, parameters.get(i));
+                }
+                ResultSet resultSet = statement.executeQuery();
+                while (resultSet.next()) {
+                    page.add(mapCustomer(resultSet));
+                }
+            }
+            return page;
+        });
+    }
+
+    /**
+     * Builds the query of getCustomerPage.
+     *
+     * @param filter           The name prefix, country and division to match, and the sort.
+     * @param countryDivisions The IDs of the divisions of the filter's country; used only if it names a country but no division.
+     * @param after            The last customer of the previous page, or null for the first page.
+     * @param limit            The most customers to return.
+     * @param parameters       Receives the query's parameters, in order.
+     * @return The query.
+     */
+    public static String pageQuery(CustomerFilter filter, List<Integer> countryDivisions, Customer after, int limit,
+                                   List<Object> parameters) {
+        String column = sortColumn(filter.getSort());
+        boolean byId = filter.getSort() == CustomerFilter.Sort.ID;
+        String direction = filter.isDescending() ? " DESC" : "";
+        StringBuilder query = new StringBuilder(CUSTOMER_SELECT).append("WHERE 1 = 1");
+
+        if (!filter.getNamePrefix().isEmpty()) {
+            query.append(" AND customers.Customer_Name LIKE ?");
+            parameters.add(likePrefix(filter.getNamePrefix()));
+        }
+        if (filter.getDivisionId() > 0) {
+            query.append(" AND customers.Division_ID = ?");
+            parameters.add(filter.getDivisionId());
+        } else if (filter.getCountryId() > 0) {
+            StringJoiner ids = new StringJoiner(", ", " AND customers.Division_ID IN (", ")");
+            for (int divisionId : countryDivisions) {
+                ids.add("?");
+                parameters.add(divisionId);
+            }
+            query.append(ids);
+        }
+        if (after != null) {
+            String greater = filter.isDescending() ? " < ?" : " > ?";
+            String value = sortValue(filter.getSort(), after);
+            if (byId) {
+                query.append(" AND customers.Customer_ID").append(greater);
+            } else if (value == null) {
+                // The previous page ended among the customers with no value, which sort as lowest
+                query.append(filter.isDescending()
+                        ? " AND " + column + " IS NULL AND customers.Customer_ID < ?"
+                        : " AND (" + column + " IS NOT NULL OR customers.Customer_ID > ?)");
+            } else {
+                query.append(" AND (").append(column).append(greater)
+                        .append(" OR (").append(column).append(" = ? AND customers.Customer_ID").append(greater).append(")")
+                        .append(filter.isDescending() ? " OR " + column + " IS NULL)" : ")");
+                parameters.add(value);
+                parameters.add(value);
+            }
+            parameters.add(after.getCustomerId());
+        }
+        if (!byId) {
+            query.append(" ORDER BY ").append(column).append(direction).append(", customers.Customer_ID").append(direction);
+        } else {
+            query.append(" ORDER BY customers.Customer_ID").append(direction);
+        }
+        query.append(" LIMIT ?");
+        parameters.add(limit);
+        return query.toString();
+    }
+
+    /**
+     * Gets the column a sort orders by.
+     *
+     * @param sort The sort.
+     * @return The qualified column name.
+     */
+    private static String sortColumn(CustomerFilter.Sort sort) {
+        switch (sort) {
+            case NAME: return "customers.Customer_Name";
+            case ADDRESS: return "customers.Address";
+            case POSTAL_CODE: return "customers.Postal_Code";
+            case PHONE: return "customers.Phone";
+            default: return "customers.Customer_ID";
+        }
+    }
+
+    /**
+     * Gets a customer's value in the column a sort orders by, for the keyset of the next page.
+     *
+     * @param sort     The sort.
+     * @param customer The customer.
+     * @return The value, or null if the customer has none; unused for the ID sort.
+     */
+    private static String sortValue(CustomerFilter.Sort sort, Customer customer) {
+        switch (sort) {
+            case NAME: return customer.getCustomerName();
+            case ADDRESS: return customer.getAddress();
+            case POSTAL_CODE: return customer.getPostalCode();
+            case PHONE: return customer.getPhone();
+            default: return null;
+        }
+    }
+
+    /**
+     * Turns typed text into a LIKE pattern that matches values starting with it, taking any % or _ in it literally.
+     *
+     * @param prefix The typed text.
+     * @return The pattern.
+     */
+    static String likePrefix(String prefix) {
+        return prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+
+    /**
+     * Passes every customer, with its division and country, to a consumer as it is read, without building a list.
+     * Uses the same query as getCustomerList, with its rows streamed from the server rather than buffered.
+     * Not retried, since the consumer may already have used part of the rows; throws a DatabaseException if it fails.
+     *
+     * @param sink Receives each customer, in ID order.
+     */
+    public static void forEachCustomer(Consumer<Customer> sink) {
+        // The lookup tables cannot be read on the connection once the customers are streaming
+        GeographyCache.preload();
+        try (PreparedStatement statement = JDBC.getConnection().prepareStatement(CUSTOMER_QUERY)) {
+            JDBC.streamRows(statement);
             ResultSet resultSet = statement.executeQuery();
-            while(resultSet.next()){
-                // Extracting customer details from the result set
-                int customerId = resultSet.getInt("Customer_ID");
-                String customerName = resultSet.getString("Customer_Name");
-                String address = resultSet.getString("Address");
-                String postalCode = resultSet.getString("Postal_Code");
-                String phone = resultSet.getString("Phone");
-                int divisionId = resultSet.getInt("Division_ID");
-                String divisionName = resultSet.getString("Division");
-                int countryId = resultSet. getInt("Country_ID");
-                String country = resultSet.getString("Country");
-
-                // Creating Customer object and adding it to the list
-                Customer customer = new Customer(customerId, customerName, address, postalCode, phone, divisionId, countryId, divisionName, country);
-                customerList.add(customer);
+            while (resultSet.next()) {
+                sink.accept(mapCustomer(resultSet));
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw JDBC.failure(e);
         }
-        return customerList;
     }
 
     /**
      * Attempts to delete a customer based on their ID.
      * Uses a prepared statement with a DELETE query targeting the "customers" table.
-     * Counts the number of affected rows (representing deleted customers).
-     * Displays a confirmation alert based on the deletion success or failure.
-     * Catches and prints any SQL exceptions.
+     * Counts the number of affected rows (representing deleted customers); the caller reports the outcome,
+     * so nothing is shown while a surrounding UnitOfWork is still open.
+     * Throws a DatabaseException if the statement fails.
      *
      * @param customerId The ID of the customer to be deleted.
      * @return The number of rows affected by the delete operation.
@@ -75,55 +304,63 @@ public class CustomerQuery {
         int count = 0;
         try {
             String query = "DELETE FROM customers WHERE Customer_ID = ?";
-            PreparedStatement preparedStatement = JDBC.connection.prepareStatement(query);
-            preparedStatement.setInt(1, customerId);
-            count = preparedStatement.executeUpdate();
-
-            // Displaying confirmation or failure message using an Alert
-            Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
-            alert.setTitle("Customer DELETE");
-
-            if(count > 0) {
-                alert.setContentText("Customer " + customerId +" was successfully deleted.");
-                alert.showAndWait();
-            } else {
-                alert.setContentText("Customer " + customerId +" failed to delete.");
-                alert.showAndWait();
+            try (PreparedStatement preparedStatement = JDBC.getConnection().prepareStatement(query)) {
+                preparedStatement.setInt(1, customerId);
+                count = preparedStatement.executeUpdate();
+                if (count > 0) {
+                    UnitOfWork.afterCommit(() -> CustomerCache.deleted(customerId));
+                }
             }
-
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw JDBC.failure(e);
         }
         return count;
     }
 
     /**
-     * Updates the information of a specific customer based on their ID.
-     * Uses a prepared statement with an UPDATE query targeting the "customers" table.
-     * Sets the prepared statement parameters to the provided customer information.
-     * Executes the query to update the customer record.
-     * Catches and prints any SQL exceptions.
+     * Updates the information of a specific customer based on their ID, if it is still at the version the caller read.
+     * Uses a prepared statement with an UPDATE query that matches both the ID and the version and increments the version,
+     * so no lock is held while the form is open: a save made over someone else's change updates no row.
+     * In that case the current row is read back and returned with the result, for the form to merge with.
+     * Throws a DatabaseException if the statement fails.
      *
      * @param customerId The ID of the customer to be updated
+     * @param version The version of the customer the change was made to.
      * @param customerName The new name for the customer.
      * @param address The new address for the customer.
      * @param postalCode The new postal code for the customer.
      * @param phone The new phone number for the customer.
      * @param divisionId The new division ID for the customer.
+     * @return The outcome; a stale result holds the customer as it now is, an updated one holds no customer.
      */
-    public static void updateCustomer(int customerId, String customerName, String address, String postalCode, String phone, int divisionId) {
-        String query ="UPDATE customers SET Customer_Name = ?, Address = ?, Postal_Code = ?, Phone = ?, Division_ID = ? WHERE Customer_ID = ?";
-        try (PreparedStatement preparedStatement = JDBC.connection.prepareStatement(query)){
+    public static UpdateResult<Customer> updateCustomer(int customerId, int version, String customerName, String address,
+                                                        String postalCode, String phone, int divisionId) {
+        String query ="UPDATE customers SET Customer_Name = ?, Address = ?, Postal_Code = ?, Phone = ?, Division_ID = ?, Version = Version + 1, Last_Update = NOW() WHERE Customer_ID = ? AND Version = ?";
+        int count;
+        try (PreparedStatement preparedStatement = JDBC.getConnection().prepareStatement(query)){
             preparedStatement.setString(1, customerName);
             preparedStatement.setString(2, address);
             preparedStatement.setString(3, postalCode);
             preparedStatement.setString(4, phone);
             preparedStatement.setInt(5, divisionId);
             preparedStatement.setInt(6, customerId);
-            preparedStatement.executeUpdate();
+            preparedStatement.setInt(7, version);
+            count = preparedStatement.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw JDBC.failure(e);
+        }
+        if (count > 0) {
+            // Keeping the cached customers in step with the database
+            UnitOfWork.afterCommit(() -> CustomerCache.refresh(customerId));
+            return UpdateResult.updated(null);
+        }
+        Customer current = getCustomer(customerId);
+        if (current == null) {
+            UnitOfWork.afterCommit(() -> CustomerCache.deleted(customerId));
+            return UpdateResult.deleted();
         }
+        UnitOfWork.afterCommit(() -> CustomerCache.modified(current));
+        return UpdateResult.stale(current);
     }
 
     /**
@@ -131,53 +368,62 @@ public class CustomerQuery {
      * Uses a prepared statement with an INSERT query.
      * Sets the prepared statement parameters to the provided customer information.
      * Executes the query to insert the new customer record.
-     * Catches and throws any SQL exceptions.
+     * Throws a DatabaseException if the statement fails.
      *
      * @param customerName The name of the new customer.
      * @param address  The address of the new customer.
      * @param postalCode The postal code of the new customer.
      * @param phone The phone number of the new customer.
      * @param divisionId The division ID of the new customer.
-     * @throws SQLException If a SQL exception occurs during the database interaction.
+     * @return The ID of the new customer, or 0 if the driver did not return it.
      */
-    public static void addCustomer(String customerName, String address, String postalCode, String phone, int divisionId) throws SQLException {
+    public static int addCustomer(String customerName, String address, String postalCode, String phone, int divisionId) {
         String query = "INSERT INTO customers (Customer_Name, Address, Postal_Code, Phone, Division_ID) VALUES (?, ?, ?, ?, ?)";
-        PreparedStatement preparedStatement = JDBC.connection.prepareStatement(query);
-        preparedStatement.setString(1, customerName);
-        preparedStatement.setString(2, address);
-        preparedStatement.setString(3, postalCode);
-        preparedStatement.setString(4, phone);
-        preparedStatement.setInt(5, divisionId);
-        preparedStatement.execute();
-
+        try (PreparedStatement preparedStatement = JDBC.getConnection().prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+            preparedStatement.setString(1, customerName);
+            preparedStatement.setString(2, address);
+            preparedStatement.setString(3, postalCode);
+            preparedStatement.setString(4, phone);
+            preparedStatement.setInt(5, divisionId);
+            preparedStatement.execute();
 
+            ResultSet keys = preparedStatement.getGeneratedKeys();
+            if (!keys.next()) {
+                return 0;
+            }
+            int customerId = keys.getInt(1);
+            UnitOfWork.afterCommit(() -> CustomerCache.refresh(customerId));
+            return customerId;
+        } catch (SQLException e) {
+            throw JDBC.failure(e);
+        }
     }
 
     /**
      * Retrieves a specific customer based on their ID.
      * Uses a prepared statement with a SELECT query that filters by the customer ID.
      * Creates a single Customer object from the first matching result in the result set.
-     * Catches and throws any SQL exceptions.
+     * Runs as a retryable read and throws a DatabaseException if it fails.
      *
      * @param customerId The ID of the customer to retrieve.
      * @return Customer object if found, or null if not.
-     * @throws SQLException If a SQL exception occurs during the database interaction.
      */
-    public static Customer returnCustomerList(int customerId) throws SQLException {
-        String query = "SELECT * FROM customers WHERE Customer_ID = ?";
-        PreparedStatement preparedStatement = JDBC.connection.prepareStatement(query);
-        preparedStatement.setInt(1, customerId);
-        preparedStatement.execute();
-        ResultSet resultSet = preparedStatement.executeQuery();
-
-        while (resultSet.next()) {
-            // Extracting customer details from the result set
-            int customer_ID = resultSet.getInt("Customer_ID");
-            String customerName = resultSet.getString("Customer_Name");
-
-            // Creating and returning Customer object
-            return new Customer(customer_ID, customerName);
-        }
-        return null;
+    public static Customer returnCustomerList(int customerId) {
+        return JDBC.read(connection -> {
+            try (PreparedStatement preparedStatement = connection.prepareStatement(CUSTOMER_ID_QUERY)) {
+                preparedStatement.setInt(1, customerId);
+                ResultSet resultSet = preparedStatement.executeQuery();
+
+                while (resultSet.next()) {
+                    // Extracting customer details from the result set
+                    int customer_ID = resultSet.getInt("Customer_ID");
+                    String customerName = resultSet.getString("Customer_Name");
+
+                    // Creating and returning Customer object
+                    return new Customer(customer_ID, customerName);
+                }
+                return null;
+            }
+        });
     }
 }
@@ -1,5 +1,6 @@
 package database;
 
+import helper.Dictionary;
 import helper.JDBC;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -19,71 +20,73 @@ import java.time.LocalDateTime;
  */
 public class DivisionQuery {
 
+    /** The query of showDivision. */
+    public static final String COUNTRY_DIVISIONS_QUERY = "SELECT * FROM first_level_divisions WHERE Country_ID = ?";
+    /** The query of returnDivisionLevel. */
+    public static final String DIVISION_QUERY = "SELECT Division_ID, Division FROM first_level_divisions WHERE Division_ID = ?";
+
     /**
      * Retrieves all divisions from the "first_level_divisions" table.
      * Uses a prepared statement with a SELECT query to fetch data.
      * Creates Division objects based on the retrieved data, including timestamps and converted local date/times.
-     * Catches and throws any SQL exceptions.
+     * Runs as a retryable read and throws a DatabaseException if it fails.
      *
      * @return ObservableList of Division objects containing all divisions.
      */
     public static ObservableList<Division> getAllDivisionID() {
-        ObservableList<Division> divisionList = FXCollections.observableArrayList();
-        try{
+        return JDBC.read(connection -> {
+            ObservableList<Division> divisionList = FXCollections.observableArrayList();
             String sql = "SELECT * FROM first_level_divisions";
-            PreparedStatement contacts = JDBC.connection.prepareStatement(sql);
-            ResultSet rs = contacts.executeQuery();
+            try (PreparedStatement contacts = connection.prepareStatement(sql)) {
+                ResultSet rs = contacts.executeQuery();
 
-            while (rs.next()) {
-                // Extracting division details from the result set
-                int divisionId = rs.getInt("Division_ID");
-                String division = rs.getString("Contact_Name");
-                int countryId = rs.getInt("Country_ID");
-                Timestamp create_date = rs.getTimestamp("Create_Date");
-                LocalDateTime createDate = create_date.toLocalDateTime();
-                String createdBy = rs.getString("Created_By");
-                Timestamp last_update = rs.getTimestamp("Last_Update");
-                LocalDateTime lastUpdate = last_update.toLocalDateTime();
-                String lastUpdatedBy = rs.getString("Last_Updated_By");
+                while (rs.next()) {
+                    // Extracting division details from the result set
+                    int divisionId = rs.getInt("Division_ID");
+                    String division = Dictionary.read(rs, "Division", Dictionary.DIVISIONS);
+                    int countryId = rs.getInt("Country_ID");
+                    Timestamp create_date = rs.getTimestamp("Create_Date");
+                    LocalDateTime createDate = create_date.toLocalDateTime();
+                    String createdBy = rs.getString("Created_By");
+                    Timestamp last_update = rs.getTimestamp("Last_Update");
+                    LocalDateTime lastUpdate = last_update.toLocalDateTime();
+                    String lastUpdatedBy = rs.getString("Last_Updated_By");
 
-                // Creating Division object and adding it to the list
-                Division d = new Division(divisionId, division, createDate, createdBy, lastUpdate, lastUpdatedBy, countryId);
-                divisionList.add(d);
+                    // Creating Division object and adding it to the list
+                    Division d = new Division(divisionId, division, createDate, createdBy, lastUpdate, lastUpdatedBy, countryId);
+                    divisionList.add(d);
+                }
+                return divisionList;
             }
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
-        return divisionList;
+        });
     }
 
     /**
      * Retrieves a specific division based on its ID.
      * Uses a prepared statement with a SELECT query that filters by the division ID.
      * Creates a single Division object from the first matching result in the result set.
-     * Catches and throws any SQL exceptions.
+     * Runs as a retryable read and throws a DatabaseException if it fails.
      *
      * @param divisionId The ID of the division to retrieve.
      * @return Division object if found, or null if not.
      */
     public static Division returnDivisionLevel(int divisionId){
-        try {
-            String sql = "SELECT Division_ID, Division FROM first_level_divisions WHERE Division_ID = ?";
-            PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-            ps.setInt(1, divisionId);
-            ps.execute();
+        return JDBC.read(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(DIVISION_QUERY)) {
+                ps.setInt(1, divisionId);
+                ps.execute();
 
-            ResultSet rs = ps.getResultSet();
+                ResultSet rs = ps.getResultSet();
 
-            rs.next();
-            // Extracting division details from the result set
-            int division_ID = rs.getInt("Division_ID");
-            String division = rs.getString("Division");
+                rs.next();
+                // Extracting division details from the result set
+                int division_ID = rs.getInt("Division_ID");
+                String division = Dictionary.read(rs, "Division", Dictionary.DIVISIONS);
 
-            // Creating and returning Division object
-            return new Division(division_ID, division);
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
+                // Creating and returning Division object
+                return new Division(division_ID, division);
+            }
+        });
     }
 
     /**
@@ -99,28 +102,29 @@ public class DivisionQuery {
     public static ObservableList<Division> showDivision(int countryId) throws SQLException {
         ObservableList<Division> divisionCountryOptions = FXCollections.observableArrayList();
 
-        String sql = "SELECT * FROM first_level_divisions WHERE Country_ID = " + countryId;
-        PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-        ps.execute();
-        ResultSet rs = ps.getResultSet();
-
-        while(rs.next()) {
-            // Extracting division details from the result set
-            int divisionId = rs.getInt("Division_ID");
-            String division = rs.getString("Division");
-            countryId = rs.getInt("Country_ID");
-            Timestamp create_date = rs.getTimestamp("Create_Date");
-            LocalDateTime createDate = create_date.toLocalDateTime();
-            String createdBy = rs.getString("Created_By");
-            Timestamp last_update = rs.getTimestamp("Last_Update");
-            LocalDateTime lastUpdate = last_update.toLocalDateTime();
-            String lastUpdatedBy = rs.getString("Last_Updated_By");
-
-            // Creating Division object and adding it to the list
-            Division division1 = new Division(divisionId, division, createDate, createdBy, lastUpdate, lastUpdatedBy, countryId);
-            divisionCountryOptions.add(division1);
+        try (PreparedStatement ps = JDBC.getConnection().prepareStatement(COUNTRY_DIVISIONS_QUERY)) {
+            ps.setInt(1, countryId);
+            ps.execute();
+            ResultSet rs = ps.getResultSet();
+
+            while(rs.next()) {
+                // Extracting division details from the result set
+                int divisionId = rs.getInt("Division_ID");
+                String division = Dictionary.read(rs, "Division", Dictionary.DIVISIONS);
+                countryId = rs.getInt("Country_ID");
+                Timestamp create_date = rs.getTimestamp("Create_Date");
+                LocalDateTime createDate = create_date.toLocalDateTime();
+                String createdBy = rs.getString("Created_By");
+                Timestamp last_update = rs.getTimestamp("Last_Update");
+                LocalDateTime lastUpdate = last_update.toLocalDateTime();
+                String lastUpdatedBy = rs.getString("Last_Updated_By");
+
+                // Creating Division object and adding it to the list
+                Division division1 = new Division(divisionId, division, createDate, createdBy, lastUpdate, lastUpdatedBy, countryId);
+                divisionCountryOptions.add(division1);
+            }
+            return divisionCountryOptions;
         }
-        return divisionCountryOptions;
     }
 
 }
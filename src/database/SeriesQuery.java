@@ -0,0 +1,267 @@
+package database;
+
+import helper.Dictionary;
+import helper.JDBC;
+import helper.SeriesCache;
+import helper.TimeConverter;
+import helper.UnitOfWork;
+import model.AppointmentSeries;
+import model.Recurrence;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * The SeriesQuery class provides methods for storing and retrieving recurring appointment series.
+ * A series is stored once, as its first occurrence plus a recurrence rule; occurrences are expanded in memory.
+ * It uses prepared statements to ensure secure and efficient database access.
+ *
+ * @author Daniel Akoko
+ */
+public class SeriesQuery {
+
+    /** The query of getOwnerSeries. */
+    public static final String OWNER_SERIES_QUERY =
+            "SELECT * FROM appointment_series WHERE Customer_ID = ? OR Contact_ID = ? OR User_ID = ? ORDER BY Series_ID";
+    /** The statement of deleteCustomerSeries. */
+    public static final String DELETE_CUSTOMER_QUERY = "DELETE FROM appointment_series WHERE Customer_ID = ?";
+
+    /**
+     * Retrieves every recurring series from the "appointment_series" table.
+     * Uses a prepared statement with a SELECT query to fetch data.
+     * Runs as a retryable read and throws a DatabaseException if it fails.
+     *
+     * @return List of AppointmentSeries objects.
+     */
+    public static List<AppointmentSeries> getAllSeries() {
+        return JDBC.read(connection -> {
+            List<AppointmentSeries> seriesList = new ArrayList<>();
+            String query = "SELECT * FROM appointment_series ORDER BY Series_ID";
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+                ResultSet resultSet = statement.executeQuery();
+                while (resultSet.next()) {
+                    seriesList.add(mapSeries(resultSet));
+                }
+            }
+            return seriesList;
+        });
+    }
+
+    /**
+     * Retrieves the series that book a customer, a contact or a user, as they are now stored.
+     * Used by the conflict check before a write, so series added or changed by other desks are seen.
+     * Runs as a retryable read and throws a DatabaseException if it fails.
+     *
+     * @param customerId The ID of the customer.
+     * @param contactId  The ID of the contact.
+     * @param userId     The ID of the user.
+     * @return List of AppointmentSeries objects.
+     */
+    public static List<AppointmentSeries> getOwnerSeries(int customerId, int contactId, int userId) {
+        return JDBC.read(connection -> {
+            List<AppointmentSeries> seriesList = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(OWNER_SERIES_QUERY)) {
+                statement.setInt(1, customerId);
+                statement.setInt(2, contactId);
+                statement.setInt(3, userId);
+                ResultSet resultSet = statement.executeQuery();
+                while (resultSet.next()) {
+                    seriesList.add(mapSeries(resultSet));
+                }
+            }
+            return seriesList;
+        });
+    }
+
+    /**
+     * Retrieves the version of every series, so a cache can tell which series other desks have added, changed or deleted
+     * without reading them all.
+     * Runs as a retryable read and throws a DatabaseException if it fails.
+     *
+     * @return The version of each series, by series ID.
+     */
+    public static Map<Integer, Integer> getSeriesVersions() {
+        return JDBC.read(connection -> {
+            Map<Integer, Integer> versions = new HashMap<>();
+            String query = "SELECT Series_ID, Version FROM appointment_series";
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+                ResultSet resultSet = statement.executeQuery();
+                while (resultSet.next()) {
+                    versions.put(resultSet.getInt("Series_ID"), resultSet.getInt("Version"));
+                }
+            }
+            return versions;
+        });
+    }
+
+    /**
+     * Retrieves the series with the given IDs, as they are now stored.
+     * Runs as a retryable read and throws a DatabaseException if it fails.
+     *
+     * @param seriesIds The IDs of the series; IDs with no series are skipped.
+     * @return List of AppointmentSeries objects, ordered by series ID.
+     */
+    public static List<AppointmentSeries> getSeries(Collection<Integer> seriesIds) {
+        if (seriesIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        StringJoiner ids = new StringJoiner(", ", "SELECT * FROM appointment_series WHERE Series_ID IN (", ") ORDER BY Series_ID");
+        for (int i = 0; i < seriesIds.size(); i++) {
+            ids.add("?");
+        }
+        String query = ids.toString();
+        return JDBC.read(connection -> {
+            List<AppointmentSeries> seriesList = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+                int index = 1;
+                for (int seriesId : seriesIds) {
+                    statement.setInt(index++, seriesId);
+                }
+                ResultSet resultSet = statement.executeQuery();
+                while (resultSet.next()) {
+                    seriesList.add(mapSeries(resultSet));
+                }
+            }
+            return seriesList;
+        });
+    }
+
+    /**
+     * Creates an AppointmentSeries object from the current row of a series query.
+     *
+     * @param resultSet The result set, positioned on a series row.
+     * @return The AppointmentSeries object.
+     * @throws SQLException If a column cannot be read.
+     */
+    private static AppointmentSeries mapSeries(ResultSet resultSet) throws SQLException {
+        // Extracting series details from the result set
+        int seriesId = resultSet.getInt("Series_ID");
+        String title = resultSet.getString("Title");
+        String description = resultSet.getString("Description");
+        String location = Dictionary.read(resultSet, "Location", Dictionary.LOCATIONS);
+        String type = Dictionary.read(resultSet, "Type", Dictionary.TYPES);
+        LocalDateTime start = TimeConverter.toLocal(TimeConverter.getUtc(resultSet, "Start"));
+        LocalDateTime end = TimeConverter.toLocal(TimeConverter.getUtc(resultSet, "End"));
+        Recurrence recurrence = Recurrence.parse(resultSet.getString("Recurrence_Rule"), resultSet.getString("Exception_Dates"));
+        int customerId = resultSet.getInt("Customer_ID");
+        int userId = resultSet.getInt("User_ID");
+        int contactId = resultSet.getInt("Contact_ID");
+        return new AppointmentSeries(seriesId, title, description, location, type, start, end, customerId, userId, contactId, recurrence);
+    }
+
+    /**
+     * Inserts a new recurring series into the "appointment_series" table.
+     * Uses a prepared statement with an INSERT query.
+     * Throws a DatabaseException if the statement fails.
+     *
+     * @param title       The title of each occurrence.
+     * @param description The description of each occurrence.
+     * @param location    The location of each occurrence.
+     * @param type        The type of each occurrence.
+     * @param start       The start date and time of the first occurrence.
+     * @param end         The end date and time of the first occurrence.
+     * @param customerId  The ID of the customer associated with the series.
+     * @param userId      The ID of the user associated with the series.
+     * @param contactId   The ID of the contact associated with the series.
+     * @param recurrence  The rule that generates the occurrences.
+     */
+    public static void addSeries(String title, String description, String location, String type, LocalDateTime start, LocalDateTime end,
+                                 int customerId, int userId, int contactId, Recurrence recurrence) {
+        String query = "INSERT INTO appointment_series (Title, Description, Location, Type, Start, End, Recurrence_Rule, Exception_Dates, " +
+                "Customer_ID, User_ID, Contact_ID) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement statement = JDBC.getConnection().prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+            statement.setString(1, title);
+            statement.setString(2, description);
+            statement.setString(3, location);
+            statement.setString(4, type);
+            TimeConverter.setUtc(statement, 5, start);
+            TimeConverter.setUtc(statement, 6, end);
+            statement.setString(7, recurrence.toRule());
+            statement.setString(8, recurrence.toExceptions());
+            statement.setInt(9, customerId);
+            statement.setInt(10, userId);
+            statement.setInt(11, contactId);
+            statement.executeUpdate();
+
+            ResultSet keys = statement.getGeneratedKeys();
+            if (keys.next()) {
+                AppointmentSeries added = new AppointmentSeries(keys.getInt(1), title, description, location, type, start, end,
+                        customerId, userId, contactId, recurrence);
+                UnitOfWork.afterCommit(() -> SeriesCache.added(added));
+            }
+        } catch (SQLException e) {
+            throw JDBC.failure(e);
+        }
+    }
+
+    /**
+     * Excludes a single occurrence from a series, leaving the rest of the series unchanged.
+     * Uses a prepared statement with an UPDATE query that appends the date to the stored list in place, so exceptions
+     * added by other desks meanwhile are kept. The cached series is patched only once the change is committed.
+     * Throws a DatabaseException if the statement fails.
+     *
+     * @param seriesId The ID of the series to change.
+     * @param date     The date of the occurrence to exclude, in the business time zone.
+     */
+    public static void addException(int seriesId, LocalDate date) {
+        String query = "UPDATE appointment_series SET Exception_Dates = CASE WHEN Exception_Dates IS NULL OR Exception_Dates = '' " +
+                "THEN ? ELSE CONCAT(Exception_Dates, ',', ?) END, Version = Version + 1 WHERE Series_ID = ?";
+        String formatted = date.format(DateTimeFormatter.BASIC_ISO_DATE);
+        try (PreparedStatement statement = JDBC.getConnection().prepareStatement(query)) {
+            statement.setString(1, formatted);
+            statement.setString(2, formatted);
+            statement.setInt(3, seriesId);
+            if (statement.executeUpdate() > 0) {
+                UnitOfWork.afterCommit(() -> SeriesCache.exceptionAdded(seriesId, date));
+            }
+        } catch (SQLException e) {
+            throw JDBC.failure(e);
+        }
+    }
+
+    /**
+     * Deletes a series and all of its occurrences.
+     * Uses a prepared statement with a DELETE query.
+     * Throws a DatabaseException if the statement fails.
+     *
+     * @param seriesId The ID of the series to delete.
+     */
+    public static void deleteSeries(int seriesId) {
+        String query = "DELETE FROM appointment_series WHERE Series_ID = ?";
+        try (PreparedStatement statement = JDBC.getConnection().prepareStatement(query)) {
+            statement.setInt(1, seriesId);
+            statement.executeUpdate();
+            UnitOfWork.afterCommit(() -> SeriesCache.deleted(seriesId));
+        } catch (SQLException e) {
+            throw JDBC.failure(e);
+        }
+    }
+
+    /**
+     * Deletes every series that belongs to a customer, so the customer can be deleted.
+     * Uses a prepared statement with a DELETE query.
+     * Throws a DatabaseException if the statement fails.
+     *
+     * @param customerId The ID of the customer.
+     */
+    public static void deleteCustomerSeries(int customerId) {
+        try (PreparedStatement statement = JDBC.getConnection().prepareStatement(DELETE_CUSTOMER_QUERY)) {
+            statement.setInt(1, customerId);
+            statement.executeUpdate();
+            UnitOfWork.afterCommit(() -> SeriesCache.customerDeleted(customerId));
+        } catch (SQLException e) {
+            throw JDBC.failure(e);
+        }
+    }
+}
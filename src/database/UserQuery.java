@@ -16,111 +16,106 @@ import java.sql.SQLException;
  */
 public class UserQuery {
 
+    /** The query of getUserId. */
+    public static final String USER_NAME_QUERY = "SELECT User_ID, User_Name FROM Users WHERE User_Name = ?";
+    /** The query of returnUserId. */
+    public static final String USER_QUERY = "SELECT User_ID, User_Name FROM users WHERE User_ID = ?";
+
     /**
      * Retrieves all users from the "Users" table.
      * Uses a prepared statement with a simple SELECT query to fetch data.
      * Creates User objects based on the retrieved user ID and name.
-     * Catches and prints any SQL exceptions.
+     * Runs as a retryable read and throws a DatabaseException if it fails.
      *
      * @return ObservableList of User objects containing all users.
      */
     public static ObservableList<User> getUserList() {
-        ObservableList<User> userList = FXCollections.observableArrayList();
-        try {
+        return JDBC.read(connection -> {
+            ObservableList<User> userList = FXCollections.observableArrayList();
             // Selecting all users from the database
-            PreparedStatement preparedStatement = JDBC.connection.prepareStatement("SELECT * FROM Users ");
-            ResultSet resultSet = preparedStatement.executeQuery();
-
-            while (resultSet.next()) {
-                // Extracting user details from the result set
-                int userId = resultSet.getInt("User_ID");
-                String username = resultSet.getString("User_Name");
-
-                // Creating User object and adding it to the list
-                User user = new User(userId, username);
-                userList.add(user);
+            try (PreparedStatement preparedStatement = connection.prepareStatement("SELECT * FROM Users ")) {
+                ResultSet resultSet = preparedStatement.executeQuery();
+
+                while (resultSet.next()) {
+                    // Extracting user details from the result set
+                    int userId = resultSet.getInt("User_ID");
+                    String username = resultSet.getString("User_Name");
+
+                    // Creating User object and adding it to the list
+                    User user = new User(userId, username);
+                    userList.add(user);
+                }
+                return userList;
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return userList;
+        });
     }
 
     /**
      * Attempts to validate a user login by checking username and password.
      * Uses a prepared statement with a SELECT query that filters by username and password.
      * Checks if any result is found in the result set.
-     * Catches and prints any SQL exceptions.
+     * Runs as a retryable read and throws a DatabaseException if it fails.
      *
      * @param username The username to validate.
      * @param password The password to validate.
      * @return True if the username and password combination match, false otherwise.
      */
     public static boolean validateUser(String username, String password) {
-         try {
-             // Selecting user based on username and password
+        return JDBC.read(connection -> {
+            // Selecting user based on username and password
             String query = "SELECT * FROM Users WHERE User_Name = ? AND Password = ?";
-            PreparedStatement preparedStatement = JDBC.connection.prepareStatement(query);
-             preparedStatement.setString(1, username);
-             preparedStatement.setString(2, password);
-             ResultSet resultSet = preparedStatement.executeQuery();
-
-             // Checking if a matching user is found
-             if(resultSet.next()) {
-                 return true;
-             }
-        } catch (SQLException e) {
-             e.printStackTrace();
-         }
-         return false;
+            try (PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+                preparedStatement.setString(1, username);
+                preparedStatement.setString(2, password);
+                ResultSet resultSet = preparedStatement.executeQuery();
+
+                // Checking if a matching user is found
+                return resultSet.next();
+            }
+        });
     }
 
     /**
      * Checks if a provided username already exists in the "Users" table.
      * Uses a prepared statement with a SELECT query that filters by username (case-sensitive).
      * Checks if any result is found in the result set.
-     * Catches and prints any SQL exceptions.
+     * Runs as a retryable read and throws a DatabaseException if it fails.
      *
      * @param username The username to check.
      * @return True if the username already exists, false otherwise.
      */
     public static boolean validUsername(String username) {
-        try(PreparedStatement preparedStatement = JDBC.connection.prepareStatement("SELECT * FROM Users WHERE BINARY User_Name = ?")) {
-            preparedStatement.setString(1, username);
-            ResultSet resultSet = preparedStatement.executeQuery();
-
-            // Checking if a matching username is found
-            if (resultSet.next()) {
-                return true;
+        return JDBC.read(connection -> {
+            try (PreparedStatement preparedStatement = connection.prepareStatement(validUsernameQuery())) {
+                preparedStatement.setString(1, username);
+                preparedStatement.setString(2, username);
+                ResultSet resultSet = preparedStatement.executeQuery();
+
+                // Checking if a matching username is found
+                return resultSet.next();
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return false;
+        });
     }
 
     /**
      * Checks if a provided password exists in the "Users" table.
      * Uses a prepared statement with a SELECT query that filters by password (case-sensitive).
      * Checks if any result is found in the result set.
-     * Catches and prints any SQL exceptions.
+     * Runs as a retryable read and throws a DatabaseException if it fails.
      *
      * @param password The password to check.
      * @return True if the password already exists, false otherwise.
      */
     public static boolean validPassword(String password) {
-        try(PreparedStatement preparedStatement = JDBC.connection.prepareStatement("SELECT * FROM Users WHERE BINARY Password = ?")) {
-            preparedStatement.setString(1, password);
-            ResultSet resultSet = preparedStatement.executeQuery();
+        return JDBC.read(connection -> {
+            try (PreparedStatement preparedStatement = connection.prepareStatement("SELECT * FROM Users WHERE " + JDBC.caseSensitive("Password") + " = ?")) {
+                preparedStatement.setString(1, password);
+                ResultSet resultSet = preparedStatement.executeQuery();
 
-            // Checking if a matching password is found
-            if (resultSet.next()) {
-                return true;
+                // Checking if a matching password is found
+                return resultSet.next();
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return false;
+        });
     }
 
     /**
@@ -136,46 +131,56 @@ public class UserQuery {
     public static int getUserId(String username) throws SQLException {
         int userId = 0;
         // Selecting user ID based on username
-        PreparedStatement preparedStatement = JDBC.connection.prepareStatement("SELECT User_ID, User_Name FROM Users WHERE User_Name = '" + username + "'");
-        ResultSet resultSet = preparedStatement.executeQuery();
+        try (PreparedStatement preparedStatement = JDBC.getConnection().prepareStatement(USER_NAME_QUERY)) {
+            preparedStatement.setString(1, username);
+            ResultSet resultSet = preparedStatement.executeQuery();
 
-        while (resultSet.next()) {
-            // Extracting user ID from the result set
-            userId = resultSet.getInt("User_ID");
-            username = resultSet.getString("User_Name");
-            }
-        return userId;
+            while (resultSet.next()) {
+                // Extracting user ID from the result set
+                userId = resultSet.getInt("User_ID");
+                username = resultSet.getString("User_Name");
+                }
+            return userId;
+        }
     }
 
     /**
      * Retrieves user information based on their ID.
      * Uses a prepared statement with a SELECT query that filters by user ID.
      * Creates a User object based on the retrieved user ID and name.
-     * Catches and throws any SQL exceptions.
+     * Runs as a retryable read and throws a DatabaseException if it fails.
      *
      * @param userId The ID of the user to retrieve.
-     * @return User object if found, or throws a RuntimeException if not.
+     * @return User object if found, or throws a DatabaseException if not.
      */
     public static User returnUserId(int userId) {
-        try {
+        return JDBC.read(connection -> {
             // Selecting user based on user ID
-            String query = "SELECT User_ID, User_Name FROM users WHERE User_ID = ?";
-            PreparedStatement preparedStatement = JDBC.connection.prepareStatement(query);
-            preparedStatement.setInt(1, userId);
-            preparedStatement.execute();
-
-            ResultSet resultSet = preparedStatement.getResultSet();
-
-            resultSet.next();
-            // Extracting user details from the result set
-            int user_ID = resultSet.getInt("User_ID");
-            String username = resultSet.getString("User_Name");
-
-            // Creating and returning User object
-            return new User(user_ID, username);
-        } catch (SQLException e){
-            throw new RuntimeException(e);
-        }
+            try (PreparedStatement preparedStatement = connection.prepareStatement(USER_QUERY)) {
+                preparedStatement.setInt(1, userId);
+                preparedStatement.execute();
+
+                ResultSet resultSet = preparedStatement.getResultSet();
+
+                resultSet.next();
+                // Extracting user details from the result set
+                int user_ID = resultSet.getInt("User_ID");
+                String username = resultSet.getString("User_Name");
+
+                // Creating and returning User object
+                return new User(user_ID, username);
+            }
+        });
     }
 
+    /**
+     * Builds the query of validUsername.
+     * The case-sensitive comparison depends on the backend, so the query is built once the connection is open.
+     *
+     * @return The query.
+     */
+    public static String validUsernameQuery() {
+        // The plain comparison lets the User_Name index find the row; the case-sensitive one then filters it
+        return "SELECT * FROM Users WHERE User_Name = ? AND " + JDBC.caseSensitive("User_Name") + " = ?";
+    }
 }
@@ -0,0 +1,19 @@
+-- Recurring appointment series, expanded into occurrences by the application.
+
+CREATE TABLE IF NOT EXISTS appointment_series (
+    Series_ID INT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    Title VARCHAR(50),
+    Description VARCHAR(50),
+    Location VARCHAR(50),
+    Type VARCHAR(50),
+    Start DATETIME NOT NULL,
+    End DATETIME NOT NULL,
+    Recurrence_Rule VARCHAR(100) NOT NULL,
+    Exception_Dates TEXT,
+    Customer_ID INT NOT NULL,
+    User_ID INT NOT NULL,
+    Contact_ID INT NOT NULL,
+    FOREIGN KEY (Customer_ID) REFERENCES customers (Customer_ID),
+    FOREIGN KEY (User_ID) REFERENCES users (User_ID),
+    FOREIGN KEY (Contact_ID) REFERENCES contacts (Contact_ID)
+);
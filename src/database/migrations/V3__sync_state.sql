@@ -0,0 +1,5 @@
+-- Used only by the embedded backend to remember when it last synchronized with the central database
+CREATE TABLE IF NOT EXISTS sync_state (
+    Name VARCHAR(50) NOT NULL PRIMARY KEY,
+    Last_Sync DATETIME
+);
@@ -0,0 +1,27 @@
+-- Indexes for the predicates the application filters on.
+-- The (owner, Start) indexes also serve lookups by owner alone, and let each branch of the conflict query seek on owner and start time.
+-- Migrator.checkIndexes runs EXPLAIN on every filtered query to confirm none of them falls back to a full scan.
+
+-- AppointmentQuery.getAppointments, deleteCustomerAppointments and the customer branch of getConflicts
+CREATE INDEX idx_appointments_customer_start ON appointments (Customer_ID, Start);
+
+-- AppointmentQuery.getUserAppointment and the user branch of getConflicts
+CREATE INDEX idx_appointments_user_start ON appointments (User_ID, Start);
+
+-- AppointmentQuery.getContactAppointment and the contact branch of getConflicts
+CREATE INDEX idx_appointments_contact_start ON appointments (Contact_ID, Start);
+
+-- AppointmentQuery.getApptByWeek and getMonthlyAppointment
+CREATE INDEX idx_appointments_start ON appointments (Start);
+
+-- AppointmentQuery.getChangedSince and getLastUpdate, used by the snapshot delta fetch
+CREATE INDEX idx_appointments_last_update ON appointments (Last_Update);
+
+-- UserQuery.getUserId and validUsername
+CREATE INDEX idx_users_user_name ON users (User_Name);
+
+-- DivisionQuery.showDivision
+CREATE INDEX idx_divisions_country ON first_level_divisions (Country_ID);
+
+-- ContactQuery.returnContactId
+CREATE INDEX idx_contacts_name ON contacts (Contact_Name);
@@ -0,0 +1,6 @@
+-- Row versions for optimistic concurrency on the edit forms.
+-- An update names the version it was read at and bumps it, so a form saved over someone else's change updates no row
+-- and is shown the current row to merge with, without any lock being held while the form is open.
+-- Last_Update is not used for this because it only has second precision.
+ALTER TABLE appointments ADD COLUMN Version INT NOT NULL DEFAULT 0;
+ALTER TABLE customers ADD COLUMN Version INT NOT NULL DEFAULT 0;
@@ -0,0 +1,11 @@
+-- Indexes for the customer screen, which sorts, filters and pages in the database (CustomerQuery.getCustomerPage).
+-- Each sortable column is indexed together with Customer_ID, the tie-breaker of the sort, so a page is one seek to the
+-- keyset of the previous page followed by a short ordered scan. The name index also serves the name prefix filter.
+
+CREATE INDEX idx_customers_name ON customers (Customer_Name, Customer_ID);
+CREATE INDEX idx_customers_address ON customers (Address, Customer_ID);
+CREATE INDEX idx_customers_postal_code ON customers (Postal_Code, Customer_ID);
+CREATE INDEX idx_customers_phone ON customers (Phone, Customer_ID);
+
+-- The division filter, in name order
+CREATE INDEX idx_customers_division_name ON customers (Division_ID, Customer_Name, Customer_ID);
@@ -0,0 +1,13 @@
+-- Row tracking for the embedded backend's synchronization with the central database (DatabaseSync).
+-- Series get a Version like appointments and customers, so a series changed on a desk can be pushed without a timestamp.
+-- sync_rows remembers, per table, the key and Version of every central row as of the last pull: a desk row missing from it
+-- was created on the desk, a row whose Version differs from it was changed on the desk, and a key in it that is missing
+-- from one side was deleted there.
+ALTER TABLE appointment_series ADD COLUMN Version INT NOT NULL DEFAULT 0;
+
+CREATE TABLE IF NOT EXISTS sync_rows (
+    Table_Name VARCHAR(50) NOT NULL,
+    Row_ID INT NOT NULL,
+    Version INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (Table_Name, Row_ID)
+);
@@ -0,0 +1,12 @@
+-- The central IDs a desk's created rows were given by a push, recorded on the desk before the central side commits (DatabaseSync).
+-- If the desk's own transaction then fails, the next sync finds its created rows here and updates their central copies
+-- instead of inserting them a second time. Pushed_Version is the desk row's Version that was pushed, Central_Version the
+-- central row's Version once the push committed; the table is emptied when a sync completes.
+CREATE TABLE IF NOT EXISTS sync_pending (
+    Table_Name VARCHAR(50) NOT NULL,
+    Row_ID INT NOT NULL,
+    Central_ID INT NOT NULL,
+    Pushed_Version INT NOT NULL,
+    Central_Version INT NOT NULL,
+    PRIMARY KEY (Table_Name, Row_ID)
+);
@@ -0,0 +1,199 @@
+package helper;
+
+import model.AppointmentTable;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A local, memory-mapped copy of the appointment table, so a desk can start without reading every appointment from the database.
+ * The file holds a fixed-size header, the URL of the database the rows came from, and fixed-width rows:
+ * <pre>
+ *   header: magic (int), version (int), row count (int), URL length in bytes (int), Last_Update high-water mark (long),
+ *           written at (long)
+ *   URL:    the database URL in UTF-8
+ *   row:    appointment ID, customer ID, user ID, contact ID (int each), start, end (long each, epoch milliseconds),
+ *           row version (int), title, description, location, type (each a char count followed by up to 50 chars)
+ * </pre>
+ * On startup the file is mapped and read straight into the in-memory table; only appointments changed since the
+ * high-water mark are then fetched from the database. A snapshot of another database, e.g. from before the backend or
+ * the settings were switched, is ignored.
+ *
+ * @author Daniel Akoko
+ */
+public class AppointmentSnapshot {
+
+    private static final Path FILE = Path.of("appointment_snapshot.bin");
+    private static final int MAGIC = 0x41505054;
+    private static final int VERSION = 3;
+    private static final int HEADER_BYTES = 32;
+    /** The text columns are VARCHAR(50), so each is stored in a fixed slot of 50 chars. */
+    private static final int TEXT_CHARS = 50;
+    private static final int TEXT_BYTES = 2 + TEXT_CHARS * 2;
+    private static final int ROW_BYTES = 5 * 4 + 8 * 2 + TEXT_BYTES * 4;
+
+    /**
+     * Reads the snapshot into a table.
+     * If the file is missing, unreadable, written by a different layout or taken from another database, the table is left empty.
+     *
+     * @param table The table to fill.
+     * @param url   The URL of the database the table is for.
+     * @return The Last_Update high-water mark of the snapshot, or -1 if there is no usable snapshot.
+     */
+    public static long read(AppointmentTable table, String url) {
+        if (!Files.isRegularFile(FILE)) {
+            return -1;
+        }
+        try (FileChannel channel = FileChannel.open(FILE, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                return -1;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int count = buffer.getInt(8);
+            int urlBytes = buffer.getInt(12);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || urlBytes < 0
+                    || channel.size() != HEADER_BYTES + urlBytes + (long) count * ROW_BYTES) {
+                return -1;
+            }
+            byte[] stored = new byte[urlBytes];
+            buffer.get(HEADER_BYTES, stored);
+            if (!new String(stored, StandardCharsets.UTF_8).equals(String.valueOf(url))) {
+                return -1;
+            }
+            long highWater = buffer.getLong(16);
+
+            char[] text = new char[TEXT_CHARS];
+            for (int i = 0; i < count; i++) {
+                int row = HEADER_BYTES + urlBytes + i * ROW_BYTES;
+                int textStart = row + 36;
+                table.put(buffer.getInt(row), readText(buffer, textStart, text), readText(buffer, textStart + TEXT_BYTES, text),
+                        readText(buffer, textStart + TEXT_BYTES * 2, text), readText(buffer, textStart + TEXT_BYTES * 3, text),
+                        buffer.getLong(row + 16), buffer.getLong(row + 24),
+                        buffer.getInt(row + 4), buffer.getInt(row + 8), buffer.getInt(row + 12), buffer.getInt(row + 32));
+            }
+            return highWater;
+        } catch (IOException | RuntimeException e) {
+            // A damaged snapshot is not fatal; the caller falls back to a full load
+            table.clear();
+            return -1;
+        }
+    }
+
+    /**
+     * Writes a table to the snapshot file.
+     * The file is written under a temporary name and then moved into place, so a crash never leaves a half-written snapshot.
+     * Nothing is written if a text value does not fit its fixed slot.
+     *
+     * @param table     The table to write.
+     * @param highWater The Last_Update high-water mark the table is current to.
+     * @param url       The URL of the database the table was read from.
+     * @return True if the snapshot was written, false otherwise.
+     */
+    public static boolean write(AppointmentTable table, long highWater, String url) {
+        Path temp = FILE.resolveSibling(FILE.getFileName() + ".tmp");
+        int count = table.size();
+        byte[] source = String.valueOf(url).getBytes(StandardCharsets.UTF_8);
+        boolean complete = true;
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                        HEADER_BYTES + source.length + (long) count * ROW_BYTES);
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putInt(8, count);
+                buffer.putInt(12, source.length);
+                buffer.putLong(16, highWater);
+                buffer.putLong(24, System.currentTimeMillis());
+                buffer.put(HEADER_BYTES, source);
+
+                for (int i = 0; i < count && complete; i++) {
+                    int row = HEADER_BYTES + source.length + i * ROW_BYTES;
+                    buffer.putInt(row, table.getId(i));
+                    buffer.putInt(row + 4, table.getCustomerId(i));
+                    buffer.putInt(row + 8, table.getUserId(i));
+                    buffer.putInt(row + 12, table.getContactId(i));
+                    buffer.putLong(row + 16, table.getStart(i));
+                    buffer.putLong(row + 24, table.getEnd(i));
+                    buffer.putInt(row + 32, table.getVersion(i));
+                    int textStart = row + 36;
+                    complete = writeText(buffer, textStart, table.getTitle(i))
+                            && writeText(buffer, textStart + TEXT_BYTES, table.getDescription(i))
+                            && writeText(buffer, textStart + TEXT_BYTES * 2, table.getLocation(i))
+                            && writeText(buffer, textStart + TEXT_BYTES * 3, table.getType(i));
+                }
+                if (complete) {
+                    buffer.force();
+                }
+            }
+            if (!complete) {
+                Files.deleteIfExists(temp);
+                return false;
+            }
+            Files.move(temp, FILE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            System.out.println("Error:" + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Deletes the snapshot file, so the next start does a full load.
+     */
+    public static void delete() {
+        try {
+            Files.deleteIfExists(FILE);
+        } catch (IOException e) {
+            System.out.println("Error:" + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads a text slot.
+     *
+     * @param buffer   The mapped file.
+     * @param position The position of the slot.
+     * @param chars    A scratch array of TEXT_CHARS chars.
+     * @return The text, or null if the slot holds a null value.
+     */
+    private static String readText(MappedByteBuffer buffer, int position, char[] chars) {
+        short length = buffer.getShort(position);
+        if (length < 0) {
+            return null;
+        }
+        for (int i = 0; i < length; i++) {
+            chars[i] = buffer.getChar(position + 2 + i * 2);
+        }
+        return new String(chars, 0, length);
+    }
+
+    /**
+     * Writes a text slot.
+     *
+     * @param buffer   The mapped file.
+     * @param position The position of the slot.
+     * @param text     The text, or null.
+     * @return True if the text fits the slot, false otherwise.
+     */
+    private static boolean writeText(MappedByteBuffer buffer, int position, String text) {
+        if (text == null) {
+            buffer.putShort(position, (short) -1);
+            return true;
+        }
+        if (text.length() > TEXT_CHARS) {
+            return false;
+        }
+        buffer.putShort(position, (short) text.length());
+        for (int i = 0; i < text.length(); i++) {
+            buffer.putChar(position + 2 + i * 2, text.charAt(i));
+        }
+        return true;
+    }
+}
@@ -0,0 +1,88 @@
+package helper;
+
+/**
+ * Stops the application from hammering a database that is down.
+ * After a run of failed connection attempts the breaker opens: database calls then fail at once with a DatabaseException
+ * instead of each waiting out a connect timeout, and a background thread probes the database with exponential backoff.
+ * When a probe succeeds the breaker closes and calls go through again. The JavaFX thread therefore never sleeps or
+ * waits on a reconnect storm; it only sees a fast, typed failure until the database is back.
+ *
+ * @author Daniel Akoko
+ */
+public class CircuitBreaker {
+
+    /** Consecutive connection failures that open the breaker. */
+    private static final int FAILURE_THRESHOLD = 2;
+    /** The first wait between probes, doubled after every failed probe up to MAX_BACKOFF. */
+    private static final long INITIAL_BACKOFF = 500;
+    private static final long MAX_BACKOFF = 30_000;
+
+    private static int failures;
+    private static boolean open;
+    private static Thread prober;
+
+    /**
+     * Fails fast if the breaker is open.
+     *
+     * @throws DatabaseException If the database is known to be unreachable.
+     */
+    public static synchronized void check() {
+        if (open) {
+            throw new DatabaseException("The database cannot be reached. The application keeps trying to reconnect in the background.", null, true);
+        }
+    }
+
+    /**
+     * Checks whether the breaker is open.
+     *
+     * @return True if database calls are currently refused, false otherwise.
+     */
+    public static synchronized boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Records a successful connection, resetting the failure count.
+     */
+    public static synchronized void recordSuccess() {
+        failures = 0;
+    }
+
+    /**
+     * Records a failed connection, opening the breaker once the threshold is reached.
+     */
+    public static synchronized void recordFailure() {
+        if (open || ++failures < FAILURE_THRESHOLD) {
+            return;
+        }
+        open = true;
+        System.out.println("Database unreachable, reconnecting in the background");
+        prober = new Thread(CircuitBreaker::probe, "database-reconnect");
+        prober.setDaemon(true);
+        prober.start();
+    }
+
+    /**
+     * Retries the database with exponential backoff until it answers, then closes the breaker.
+     */
+    private static void probe() {
+        long backoff = INITIAL_BACKOFF;
+        while (true) {
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (JDBC.probe()) {
+                synchronized (CircuitBreaker.class) {
+                    open = false;
+                    failures = 0;
+                    prober = null;
+                }
+                System.out.println("Connection restored!");
+                return;
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package helper;
+
+import database.AppointmentQuery;
+import database.SeriesQuery;
+import model.Appointment;
+import model.AppointmentSeries;
+import model.Conflict;
+
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Checks a requested appointment time against the calendars of every resource it books.
+ * The check runs against the database, not the caches, since the caches only see this desk's own writes and a booking
+ * made by another desk must still be caught: the appointments are a single indexed range query with one branch per resource,
+ * and the series that book any of the resources are read and only their occurrences within the requested time expanded.
+ * Saves go through bookIfFree, which checks and writes in one transaction with the resources locked, so a desk form and an
+ * API client cannot both find the same time free and both book it.
+ *
+ * @author Daniel Akoko
+ */
+public class ConflictChecker {
+
+    /**
+     * Finds every existing appointment that overlaps the requested time for the customer, the contact or the user.
+     * Appointments that only touch the requested time (one ends exactly when the other starts) do not conflict.
+     * Throws a DatabaseException if the database cannot be read.
+     *
+     * @param customerId           The ID of the customer.
+     * @param contactId            The ID of the contact.
+     * @param userId               The ID of the user.
+     * @param start                The requested start date and time.
+     * @param end                  The requested end date and time.
+     * @param excludeAppointmentId The ID of the appointment being edited, which cannot conflict with itself; 0 for a new appointment.
+     * @return The conflicts, grouped by owner; empty if the time is free.
+     */
+    public static List<Conflict> findConflicts(int customerId, int contactId, int userId, LocalDateTime start, LocalDateTime end,
+                                               int excludeAppointmentId) {
+        List<Conflict> conflicts = AppointmentQuery.getConflicts(customerId, contactId, userId, start, end, excludeAppointmentId);
+        conflicts.addAll(seriesConflicts(SeriesQuery.getOwnerSeries(customerId, contactId, userId), customerId, contactId, userId, start, end));
+        return conflicts;
+    }
+
+    /**
+     * Finds every existing appointment and series occurrence that overlaps an occurrence of a new series, up to a horizon.
+     * The bookings of the series' customer, contact and user are read once for the whole span of its occurrences,
+     * and each one is then checked against the occurrences in memory, so a long series still costs two queries.
+     * Throws a DatabaseException if the database cannot be read.
+     *
+     * @param series  The new series.
+     * @param horizon The time after which occurrences are not checked.
+     * @return The conflicts, grouped by owner; empty if every occurrence is free.
+     */
+    public static List<Conflict> findConflicts(AppointmentSeries series, LocalDateTime horizon) {
+        List<Conflict> conflicts = new ArrayList<>();
+        List<Appointment> occurrences = series.expand(series.getStart(), horizon);
+        if (occurrences.isEmpty()) {
+            return conflicts;
+        }
+        LocalDateTime from = occurrences.get(0).getStart();
+        LocalDateTime to = occurrences.get(occurrences.size() - 1).getEnd();
+        List<Conflict> booked = findConflicts(series.getCustomerId(), series.getContact(), series.getUserId(), from, to, 0);
+        for (Conflict conflict : booked) {
+            for (Appointment occurrence : occurrences) {
+                if (overlaps(conflict.getAppointment(), occurrence)) {
+                    conflicts.add(conflict);
+                    break;
+                }
+            }
+        }
+        return conflicts;
+    }
+
+    /**
+     * Writes an appointment only if its time is free: the customer, contact and user rows are locked (see
+     * AppointmentQuery.lockOwners), the time is checked and the write runs, all in one transaction, so no other save can book
+     * any of them in between. Nothing should be shown to the user from the write, since the locks are held until it returns.
+     * Throws a DatabaseException if the database cannot be read or written.
+     *
+     * @param customerId           The ID of the customer.
+     * @param contactId            The ID of the contact.
+     * @param userId               The ID of the user.
+     * @param start                The requested start date and time.
+     * @param end                  The requested end date and time.
+     * @param excludeAppointmentId The ID of the appointment being edited; 0 for a new appointment.
+     * @param conflicts            Receives the conflicts found; the write is skipped if there are any.
+     * @param write                Adds or updates the appointment.
+     * @param <T>                  What the write returns.
+     * @return What the write returned, or null if the time was not free.
+     */
+    public static <T> T bookIfFree(int customerId, int contactId, int userId, LocalDateTime start, LocalDateTime end,
+                                   int excludeAppointmentId, List<Conflict> conflicts, Supplier<T> write) {
+        return book(customerId, contactId, userId,
+                () -> findConflicts(customerId, contactId, userId, start, end, excludeAppointmentId), conflicts, write);
+    }
+
+    /**
+     * Writes a new series only if every occurrence is free, in one transaction with its customer, contact and user locked,
+     * as bookIfFree does for a single appointment. Occurrences are checked up to the end of the series, or one year ahead
+     * for a series without an end date.
+     * Throws a DatabaseException if the database cannot be read or written.
+     *
+     * @param series    The new series.
+     * @param conflicts Receives the conflicts found; the write is skipped if there are any.
+     * @param write     Adds the series.
+     * @param <T>       What the write returns.
+     * @return What the write returned, or null if an occurrence was not free.
+     */
+    public static <T> T bookIfFree(AppointmentSeries series, List<Conflict> conflicts, Supplier<T> write) {
+        LocalDate until = series.getRecurrence().getUntil();
+        LocalDateTime horizon = until != null ? until.plusDays(1).atStartOfDay() : series.getStart().plusYears(1);
+        return book(series.getCustomerId(), series.getContact(), series.getUserId(),
+                () -> findConflicts(series, horizon), conflicts, write);
+    }
+
+    /**
+     * Locks the owners, runs the check and, if it found nothing, the write, in one transaction.
+     * READ_COMMITTED, so the check reads what the saves it waited for committed rather than a snapshot taken before them.
+     *
+     * @param customerId The ID of the customer.
+     * @param contactId  The ID of the contact.
+     * @param userId     The ID of the user.
+     * @param check      Finds the conflicts.
+     * @param conflicts  Receives the conflicts found.
+     * @param write      The write.
+     * @param <T>        What the write returns.
+     * @return What the write returned, or null if there were conflicts.
+     */
+    private static <T> T book(int customerId, int contactId, int userId, Supplier<List<Conflict>> check, List<Conflict> conflicts,
+                              Supplier<T> write) {
+        try (UnitOfWork work = UnitOfWork.begin(Connection.TRANSACTION_READ_COMMITTED)) {
+            AppointmentQuery.lockOwners(customerId, contactId, userId);
+            conflicts.addAll(check.get());
+            T written = conflicts.isEmpty() ? write.get() : null;
+            work.commit();
+            return written;
+        }
+    }
+
+    /**
+     * Finds the occurrences of series that overlap the requested time, tagged with each of the resources they double-book.
+     *
+     * @param seriesList The series to check.
+     * @param customerId The ID of the customer.
+     * @param contactId  The ID of the contact.
+     * @param userId     The ID of the user.
+     * @param start      The requested start date and time.
+     * @param end        The requested end date and time.
+     * @return The conflicts, one per owner that an occurrence double-books.
+     */
+    private static List<Conflict> seriesConflicts(List<AppointmentSeries> seriesList, int customerId, int contactId, int userId,
+                                                  LocalDateTime start, LocalDateTime end) {
+        List<Conflict> conflicts = new ArrayList<>();
+        for (AppointmentSeries series : seriesList) {
+            boolean customer = series.getCustomerId() == customerId;
+            boolean contact = series.getContact() == contactId;
+            boolean user = series.getUserId() == userId;
+            for (Appointment occurrence : series.expand(start, end)) {
+                if (customer) {
+                    conflicts.add(new Conflict(Conflict.Owner.CUSTOMER, customerId, occurrence));
+                }
+                if (contact) {
+                    conflicts.add(new Conflict(Conflict.Owner.CONTACT, contactId, occurrence));
+                }
+                if (user) {
+                    conflicts.add(new Conflict(Conflict.Owner.USER, userId, occurrence));
+                }
+            }
+        }
+        return conflicts;
+    }
+
+    /**
+     * Checks whether two appointments overlap; appointments that only touch do not.
+     *
+     * @param first  The first appointment.
+     * @param second The second appointment.
+     * @return True if they overlap, false otherwise.
+     */
+    private static boolean overlaps(Appointment first, Appointment second) {
+        return first.getStartMillis() < second.getEndMillis() && second.getStartMillis() < first.getEndMillis();
+    }
+}
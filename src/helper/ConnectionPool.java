@@ -0,0 +1,143 @@
+package helper;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A small, fixed-size pool of database connections.
+ * Connections are opened on demand up to the pool size and kept open between uses, and checked before they are handed out again.
+ * Closing the pool drains it: idle connections are closed at once, and connections still in use are closed when they are released,
+ * so a replacement pool can be built without interrupting queries that are already running.
+ *
+ * @author Daniel Akoko
+ */
+public class ConnectionPool {
+
+    /**
+     * Opens a new physical connection for the pool.
+     */
+    @FunctionalInterface
+    public interface Opener {
+        /**
+         * Opens a connection.
+         *
+         * @return The new connection.
+         * @throws SQLException If the connection fails.
+         */
+        Connection open() throws SQLException;
+    }
+
+    private static final int VALIDATE_TIMEOUT_SECONDS = 2;
+
+    private final Opener opener;
+    private final long borrowTimeout;
+    private final Semaphore permits;
+    private final Deque<Connection> idle = new ArrayDeque<>();
+    private boolean closed;
+
+    /**
+     * Constructs an empty pool.
+     *
+     * @param opener        Opens the pool's connections.
+     * @param size          The maximum number of connections in use at once.
+     * @param borrowTimeout How long borrow waits for a free connection, in milliseconds.
+     */
+    public ConnectionPool(Opener opener, int size, long borrowTimeout) {
+        this.opener = opener;
+        this.borrowTimeout = borrowTimeout;
+        this.permits = new Semaphore(size, true);
+    }
+
+    /**
+     * Takes a connection from the pool, opening one if none is idle.
+     * Waits for a connection to be released if the pool is at its size.
+     *
+     * @return The connection, which must be handed back with release.
+     * @throws SQLException If the pool is closed, no connection becomes free in time, or a new connection fails to open.
+     */
+    public Connection borrow() throws SQLException {
+        try {
+            if (!permits.tryAcquire(borrowTimeout, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("No database connection became free within " + borrowTimeout + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        try {
+            Connection connection;
+            synchronized (this) {
+                if (closed) {
+                    throw new SQLException("The connection pool is closed");
+                }
+                connection = idle.pollFirst();
+            }
+            // An idle connection may have been dropped by the server while it sat in the pool
+            if (connection != null && !connection.isValid(VALIDATE_TIMEOUT_SECONDS)) {
+                connection.close();
+                connection = null;
+            }
+            return connection != null ? connection : opener.open();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Hands a borrowed connection back to the pool.
+     * The connection is closed instead of kept if the pool has been closed or the connection is no longer usable.
+     *
+     * @param connection The connection returned by borrow.
+     */
+    public void release(Connection connection) {
+        try {
+            boolean keep;
+            synchronized (this) {
+                keep = !closed && !connection.isClosed();
+                if (keep) {
+                    idle.addFirst(connection);
+                }
+            }
+            if (!keep) {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            System.out.println("Error:" + e.getMessage());
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Closes the pool and its idle connections. Connections still in use are closed as they are released.
+     */
+    public void close() {
+        Connection[] drained;
+        synchronized (this) {
+            closed = true;
+            drained = idle.toArray(new Connection[0]);
+            idle.clear();
+        }
+        for (Connection connection : drained) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                System.out.println("Error:" + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Checks whether the pool has been closed.
+     *
+     * @return True if the pool is closed, false otherwise.
+     */
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+}
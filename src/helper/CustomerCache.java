@@ -0,0 +1,213 @@
+package helper;
+
+import database.CustomerQuery;
+import model.Customer;
+import model.CustomerFilter;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+/**
+ * In-memory cache of the customers, with a prefix search index over their names, addresses, postal codes and phone numbers.
+ * The cache is streamed from the database the first time it is used and is then patched by CustomerQuery whenever a customer
+ * is added, updated or deleted, so a search as the user types is a memory lookup instead of a query.
+ * Those patches only cover this desk's own writes: a customer another desk added since the cache was built is found by a
+ * search that matches nothing in memory, which asks the database by name prefix and adds what it finds.
+ *
+ * @author Daniel Akoko
+ */
+public class CustomerCache {
+    private static final Map<Integer, Customer> customers = new HashMap<>();
+    private static final CustomerIndex index = new CustomerIndex();
+    private static volatile boolean loaded;
+
+    /**
+     * Finds the customers matching typed text: those with, for every word typed, a word in their name, address, postal code
+     * or phone number that starts with it. Customers whose name starts with the text come first, then the rest by name.
+     * If nothing cached matches, the customers whose name starts with the text are read with the indexed name query of
+     * CustomerQuery.getCustomerPage and added to the cache; throws a DatabaseException if that query fails.
+     *
+     * @param query     The typed text; blank matches every customer.
+     * @param condition Further condition the customers must meet, e.g. a country, or null for none.
+     * @param limit     The most customers to return.
+     * @return The matching customers, best first.
+     */
+    public static synchronized List<Customer> search(String query, Predicate<Customer> condition, int limit) {
+        load();
+        BitSet ids = index.search(query);
+        String start = query == null ? "" : query.trim();
+        Comparator<Customer> order = Comparator.comparing((Customer customer) -> !nameStartsWith(customer, start))
+                .thenComparing(CustomerCache::name, String.CASE_INSENSITIVE_ORDER)
+                .thenComparingInt(Customer::getCustomerId);
+        // Keeping only the best matches seen so far, so a short prefix that matches much of the book is not sorted in full
+        PriorityQueue<Customer> best = new PriorityQueue<>(order.reversed());
+        Iterable<Customer> candidates = ids == null ? customers.values() : () -> ids.stream().mapToObj(customers::get).iterator();
+        for (Customer customer : candidates) {
+            if (condition == null || condition.test(customer)) {
+                best.add(customer);
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        }
+        List<Customer> matches = new ArrayList<>(best);
+        matches.sort(order);
+        if (matches.isEmpty() && !start.isEmpty()) {
+            // Possibly added by another desk after the cache was built
+            CustomerFilter byName = new CustomerFilter(start, 0, 0, CustomerFilter.Sort.NAME, false);
+            for (Customer customer : CustomerQuery.getCustomerPage(byName, null, limit)) {
+                modified(customer);
+                if (condition == null || condition.test(customer)) {
+                    matches.add(customer);
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Finds a customer by its ID, e.g. to fill a form: from the cache if it has been built, or else with one query that does
+     * not build it, so a form opened while the cache is still loading does not wait for the whole book.
+     * Throws a DatabaseException if the query fails.
+     *
+     * @param customerId The ID of the customer.
+     * @return The customer, or null if there is none with the ID.
+     */
+    public static Customer getCustomer(int customerId) {
+        if (loaded) {
+            synchronized (CustomerCache.class) {
+                Customer customer = loaded ? customers.get(customerId) : null;
+                if (customer != null) {
+                    return customer;
+                }
+            }
+        }
+        return CustomerQuery.getCustomer(customerId);
+    }
+
+    /**
+     * Checks whether the cache has been built, so a search will not have to wait for the customers to be read.
+     *
+     * @return True if the cache is built, false otherwise.
+     */
+    public static boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Builds the cache ahead of its first use, e.g. on a background thread while the user logs in.
+     */
+    public static synchronized void preload() {
+        load();
+    }
+
+    /**
+     * Patches the cache with a customer as it is now stored, replacing the cached one if there is one.
+     * Does nothing if the cache has not been built yet, since the next build will read the customer anyway.
+     *
+     * @param customer The customer.
+     */
+    public static synchronized void modified(Customer customer) {
+        if (loaded) {
+            remove(customer.getCustomerId());
+            customers.put(customer.getCustomerId(), customer);
+            index.add(customer);
+        }
+    }
+
+    /**
+     * Rereads a customer that was added or updated and patches the cache with it.
+     * Does nothing if the cache has not been built yet.
+     *
+     * @param customerId The ID of the customer.
+     */
+    public static synchronized void refresh(int customerId) {
+        if (loaded) {
+            Customer customer = CustomerQuery.getCustomer(customerId);
+            if (customer == null) {
+                remove(customerId);
+            } else {
+                modified(customer);
+            }
+        }
+    }
+
+    /**
+     * Removes a deleted customer from the cache.
+     *
+     * @param customerId The ID of the customer that was deleted.
+     */
+    public static synchronized void deleted(int customerId) {
+        if (loaded) {
+            remove(customerId);
+        }
+    }
+
+    /**
+     * Discards the cached customers so the next lookup rebuilds the cache from the database.
+     */
+    public static synchronized void invalidate() {
+        customers.clear();
+        index.clear();
+        loaded = false;
+    }
+
+    /**
+     * Removes a customer and its words from the cache.
+     *
+     * @param customerId The ID of the customer.
+     */
+    private static void remove(int customerId) {
+        Customer previous = customers.remove(customerId);
+        if (previous != null) {
+            index.remove(previous);
+        }
+    }
+
+    /**
+     * Gets a customer's name for ordering matches.
+     *
+     * @param customer The customer.
+     * @return The name, or an empty string if it has none.
+     */
+    private static String name(Customer customer) {
+        String name = customer.getCustomerName();
+        return name == null ? "" : name;
+    }
+
+    /**
+     * Checks whether a customer's name starts with text, ignoring case.
+     *
+     * @param customer The customer.
+     * @param start    The text.
+     * @return True if the name starts with the text, false otherwise.
+     */
+    private static boolean nameStartsWith(Customer customer, String start) {
+        return name(customer).regionMatches(true, 0, start, 0, start.length());
+    }
+
+    /**
+     * Builds the cache and its index if they have not been built yet, streaming the customers rather than buffering them.
+     */
+    private static void load() {
+        if (!loaded) {
+            try {
+                CustomerQuery.forEachCustomer(customer -> {
+                    customers.put(customer.getCustomerId(), customer);
+                    index.add(customer);
+                });
+            } catch (RuntimeException e) {
+                // Not keeping half a cache; the next lookup starts again
+                invalidate();
+                throw e;
+            }
+            loaded = true;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package helper;
+
+import model.Customer;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * A prefix index over the customers' names, addresses, postal codes and phone numbers.
+ * Each field is split into words, lower-cased, and every word maps to the IDs of the customers that have it. The words are
+ * kept sorted, so the words starting with a typed prefix are one contiguous range, found in logarithmic time like a walk
+ * down a trie. A search matches the customers that have, for every word typed, a word starting with it.
+ * <p>
+ * Names and addresses are split at every character that is not a letter or digit. In postal codes and phone numbers, digits
+ * separated only by spaces, dashes, dots or brackets form one word, so "555-0100" and "(555) 0100" are both found by 5550;
+ * a query is matched both ways, so "555-01" finds the phone number and "12 Main" still finds "Unit 5 12 Main St".
+ * Not thread-safe; CustomerCache guards it.
+ *
+ * @author Daniel Akoko
+ */
+class CustomerIndex {
+
+    private final TreeMap<String, IdList> words = new TreeMap<>();
+
+    /**
+     * Adds a customer's words.
+     *
+     * @param customer The customer.
+     */
+    void add(Customer customer) {
+        for (String word : words(customer)) {
+            words.computeIfAbsent(word, key -> new IdList()).add(customer.getCustomerId());
+        }
+    }
+
+    /**
+     * Removes a customer's words. The customer must be as it was added.
+     *
+     * @param customer The customer.
+     */
+    void remove(Customer customer) {
+        for (String word : words(customer)) {
+            IdList ids = words.get(word);
+            if (ids != null && ids.remove(customer.getCustomerId()) && ids.size == 0) {
+                words.remove(word);
+            }
+        }
+    }
+
+    /**
+     * Empties the index.
+     */
+    void clear() {
+        words.clear();
+    }
+
+    /**
+     * Finds the customers that have, for every word of a query, a word starting with it.
+     *
+     * @param query The typed text.
+     * @return The IDs of the matching customers as set bits, or null if the query has no words, which matches everyone.
+     */
+    BitSet search(String query) {
+        Set<String> words = split(query, false);
+        Set<String> numbers = split(query, true);
+        BitSet matches = search(words);
+        if (matches != null && !numbers.equals(words)) {
+            matches.or(search(numbers));
+        }
+        return matches;
+    }
+
+    /**
+     * Finds the customers that have, for every prefix, a word starting with it.
+     *
+     * @param query The words of the typed text.
+     * @return The IDs of the matching customers as set bits, or null if there are no words.
+     */
+    private BitSet search(Set<String> query) {
+        List<String> prefixes = new ArrayList<>(query);
+        // The longest prefix usually matches the fewest customers, so the others only have to check those
+        prefixes.sort(Comparator.comparingInt(String::length).reversed());
+        BitSet matches = null;
+        for (String prefix : prefixes) {
+            BitSet found = new BitSet();
+            for (IdList ids : words.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+                for (int i = 0; i < ids.size; i++) {
+                    if (matches == null || matches.get(ids.ids[i])) {
+                        found.set(ids.ids[i]);
+                    }
+                }
+            }
+            matches = found;
+            if (matches.isEmpty()) {
+                break;
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Gets the distinct words of a customer's searchable fields.
+     *
+     * @param customer The customer.
+     * @return The words.
+     */
+    private static Set<String> words(Customer customer) {
+        Set<String> words = new LinkedHashSet<>();
+        words.addAll(split(customer.getCustomerName(), false));
+        words.addAll(split(customer.getAddress(), false));
+        words.addAll(split(customer.getPostalCode(), true));
+        words.addAll(split(customer.getPhone(), true));
+        return words;
+    }
+
+    /**
+     * Splits text into lower-case words.
+     *
+     * @param text             The text, or null.
+     * @param mergeDigitGroups Whether digit groups separated only by spaces, dashes, dots or brackets form one word, as in
+     *                         a phone number; otherwise every character that is not a letter or digit ends a word.
+     * @return The distinct words, in order.
+     */
+    private static Set<String> split(String text, boolean mergeDigitGroups) {
+        Set<String> words = new LinkedHashSet<>();
+        if (text == null) {
+            return words;
+        }
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                word.append(Character.toLowerCase(c));
+            } else if (!(mergeDigitGroups && isDigitSeparator(c) && endsWithDigit(word) && nextIsDigit(text, i))) {
+                addWord(words, word);
+            }
+        }
+        addWord(words, word);
+        return words;
+    }
+
+    /**
+     * Adds a finished word, if it is not empty, and starts the next one.
+     *
+     * @param words The words so far.
+     * @param word  The word being built.
+     */
+    private static void addWord(Set<String> words, StringBuilder word) {
+        if (word.length() > 0) {
+            words.add(word.toString());
+            word.setLength(0);
+        }
+    }
+
+    /**
+     * Checks whether a character may separate the digit groups of a number, e.g. a phone number.
+     *
+     * @param c The character.
+     * @return True for a space, dash, dot or bracket.
+     */
+    private static boolean isDigitSeparator(char c) {
+        return c == ' ' || c == '-' || c == '.' || c == '(' || c == ')';
+    }
+
+    /**
+     * Checks whether the word being built ends with a digit.
+     *
+     * @param word The word being built.
+     * @return True if its last character is a digit.
+     */
+    private static boolean endsWithDigit(StringBuilder word) {
+        return word.length() > 0 && Character.isDigit(word.charAt(word.length() - 1));
+    }
+
+    /**
+     * Checks whether the first character after a run of separators is a digit.
+     *
+     * @param text The text.
+     * @param i    The position of a separator.
+     * @return True if the run is followed by a digit.
+     */
+    private static boolean nextIsDigit(String text, int i) {
+        int next = i + 1;
+        while (next < text.length() && isDigitSeparator(text.charAt(next))) {
+            next++;
+        }
+        return next < text.length() && Character.isDigit(text.charAt(next));
+    }
+
+    /**
+     * The IDs of the customers that have a word, in no particular order.
+     */
+    private static final class IdList {
+        private int[] ids = new int[2];
+        private int size;
+
+        private void add(int id) {
+            if (size == ids.length) {
+                int[] grown = new int[size * 2];
+                System.arraycopy(ids, 0, grown, 0, size);
+                ids = grown;
+            }
+            ids[size++] = id;
+        }
+
+        private boolean remove(int id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    ids[i] = ids[--size];
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package helper;
+
+import database.CustomerQuery;
+import javafx.animation.PauseTransition;
+import javafx.collections.FXCollections;
+import javafx.concurrent.Task;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.ListCell;
+import javafx.util.Duration;
+import javafx.util.StringConverter;
+import model.Customer;
+import model.CustomerFilter;
+
+import java.util.List;
+
+/**
+ * Turns a customer ComboBox into a search-as-you-type picker, so a form no longer loads the whole customer book to open.
+ * The box starts empty; typing a name, phone number, postal code or address offers the best matches (see CustomerCache.search).
+ * Lookups wait until typing pauses, run off the JavaFX thread, and are dropped if newer typing has started another, so a
+ * slow lookup never overwrites the results of a later one. Until the customer cache is built, names are looked up by prefix
+ * in the database instead, as one short indexed query.
+ *
+ * @author Daniel Akoko
+ */
+public class CustomerPicker {
+
+    /** How long typing must pause before a lookup runs. */
+    private static final Duration DEBOUNCE = Duration.millis(150);
+    /** The most matches offered. */
+    private static final int LIMIT = 20;
+
+    private final ComboBox<Customer> box;
+    private final PauseTransition debounce = new PauseTransition(DEBOUNCE);
+    private Task<List<Customer>> lookup;
+    private boolean updating;
+
+    /**
+     * Makes a ComboBox a customer picker.
+     *
+     * @param box The ComboBox, as declared in the FXML.
+     */
+    public CustomerPicker(ComboBox<Customer> box) {
+        this.box = box;
+        box.setEditable(true);
+        box.setPromptText("Type to search");
+        box.setConverter(new StringConverter<>() {
+            @Override
+            public String toString(Customer customer) {
+                return customer == null ? "" : customer.getCustomerName();
+            }
+
+            @Override
+            public Customer fromString(String text) {
+                return match(text);
+            }
+        });
+        // Matches found by phone or postal code are shown with them, and namesakes can be told apart
+        box.setCellFactory(list -> new ListCell<>() {
+            @Override
+            protected void updateItem(Customer customer, boolean empty) {
+                super.updateItem(customer, empty);
+                setText(empty || customer == null ? null : describe(customer));
+            }
+        });
+        box.getEditor().textProperty().addListener((observable, oldText, newText) -> typed(newText));
+    }
+
+    /**
+     * Gets the chosen customer.
+     *
+     * @return The customer, or null if none has been chosen.
+     */
+    public Customer getValue() {
+        return box.getValue();
+    }
+
+    /**
+     * Shows a customer as chosen, e.g. when a form is filled from a saved appointment.
+     *
+     * @param customer The customer, or null to empty the picker.
+     */
+    public void setValue(Customer customer) {
+        cancel();
+        updating = true;
+        try {
+            box.setItems(customer == null ? FXCollections.observableArrayList() : FXCollections.observableArrayList(customer));
+            box.setValue(customer);
+            box.getEditor().setText(box.getConverter().toString(customer));
+        } finally {
+            updating = false;
+        }
+    }
+
+    /**
+     * Reacts to the text in the box changing, restarting the pause before a lookup.
+     * Text set by choosing a customer, or by setValue, does not start one.
+     *
+     * @param text The text now in the box.
+     */
+    private void typed(String text) {
+        Customer chosen = box.getValue();
+        if (updating || chosen != null && box.getConverter().toString(chosen).equals(text)) {
+            return;
+        }
+        cancel();
+        if (text == null || text.isBlank()) {
+            return;
+        }
+        debounce.setOnFinished(event -> lookUp(text));
+        debounce.playFromStart();
+    }
+
+    /**
+     * Looks up the customers matching typed text on a background thread and offers them, unless newer typing has started
+     * another lookup by the time it finishes.
+     *
+     * @param text The typed text.
+     */
+    private void lookUp(String text) {
+        Task<List<Customer>> task = new Task<>() {
+            @Override
+            protected List<Customer> call() {
+                try {
+                    if (CustomerCache.isLoaded()) {
+                        return CustomerCache.search(text, null, LIMIT);
+                    }
+                    CustomerFilter byName = new CustomerFilter(text, 0, 0, CustomerFilter.Sort.NAME, false);
+                    return CustomerQuery.getCustomerPage(byName, null, LIMIT);
+                } finally {
+                    JDBC.releaseConnection();
+                }
+            }
+        };
+        task.setOnSucceeded(event -> {
+            if (task == lookup) {
+                lookup = null;
+                offer(task.getValue());
+            }
+        });
+        task.setOnFailed(event -> {
+            if (task == lookup) {
+                lookup = null;
+                System.out.println("Error:" + task.getException().getMessage());
+            }
+        });
+        lookup = task;
+        Thread thread = new Thread(task, "customer-lookup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Offers the matches in the box's list, keeping the typed text.
+     *
+     * @param matches The matching customers, best first.
+     */
+    private void offer(List<Customer> matches) {
+        String text = box.getEditor().getText();
+        updating = true;
+        try {
+            box.getItems().setAll(matches);
+            box.getEditor().setText(text);
+        } finally {
+            updating = false;
+        }
+        if (matches.isEmpty()) {
+            box.hide();
+        } else {
+            box.show();
+        }
+    }
+
+    /**
+     * Stops a pending or running lookup, so its results are not offered.
+     */
+    private void cancel() {
+        debounce.stop();
+        if (lookup != null) {
+            lookup.cancel();
+            lookup = null;
+        }
+    }
+
+    /**
+     * Describes a match in the list: the name, then the phone number and postal code if they are known.
+     *
+     * @param customer The customer.
+     * @return The text shown for it.
+     */
+    private static String describe(Customer customer) {
+        StringBuilder text = new StringBuilder(String.valueOf(customer.getCustomerName()));
+        if (customer.getPhone() != null) {
+            text.append("  ").append(customer.getPhone());
+        }
+        if (customer.getPostalCode() != null) {
+            text.append("  ").append(customer.getPostalCode());
+        }
+        return text.toString();
+    }
+
+    /**
+     * Finds the offered customer whose name is the typed text, for text committed without choosing from the list.
+     *
+     * @param text The text in the box.
+     * @return The customer, the only one offered if its name starts with the text, or null if there is no such customer.
+     */
+    private Customer match(String text) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        String typed = text.trim();
+        for (Customer customer : box.getItems()) {
+            if (typed.equalsIgnoreCase(customer.getCustomerName())) {
+                return customer;
+            }
+        }
+        if (box.getItems().size() == 1) {
+            Customer only = box.getItems().get(0);
+            String name = only.getCustomerName();
+            if (name != null && name.regionMatches(true, 0, typed, 0, typed.length())) {
+                return only;
+            }
+        }
+        return null;
+    }
+}
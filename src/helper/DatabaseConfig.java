@@ -0,0 +1,186 @@
+package helper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+
+/**
+ * The database settings of the application.
+ * Settings are read from a properties file (database.properties in the working directory, or the file named by
+ * -Dscheduler.config) and may each be overridden by an environment variable, e.g. db.url by SCHEDULER_DB_URL
+ * and db.defaultFetchSize by SCHEDULER_DB_DEFAULTFETCHSIZE. Anything not set falls back to the built-in defaults.
+ * The driver keys are passed to MySQL Connector/J unchanged; see its documentation for their meaning.
+ *
+ * @author Daniel Akoko
+ */
+public class DatabaseConfig {
+
+    /** The settings file. */
+    public static final Path FILE = Path.of(System.getProperty("scheduler.config", "database.properties"));
+
+    /** Driver properties read from the settings and handed to the MySQL driver. */
+    private static final String[] DRIVER_KEYS = {
+            "cachePrepStmts", "prepStmtCacheSize", "prepStmtCacheSqlLimit", "useServerPrepStmts",
+            "rewriteBatchedStatements", "useCursorFetch", "defaultFetchSize", "connectTimeout", "socketTimeout"
+    };
+
+    private static final Properties DEFAULTS = new Properties();
+
+    static {
+        DEFAULTS.setProperty("db.url", "jdbc:mysql://localhost/client_schedule");
+        DEFAULTS.setProperty("db.user", "sqlUser");
+        DEFAULTS.setProperty("db.password", "Passw0rd!");
+        DEFAULTS.setProperty("db.embeddedUrl", "jdbc:h2:./client_schedule");
+        DEFAULTS.setProperty("db.poolSize", "4");
+        DEFAULTS.setProperty("db.borrowTimeout", "10000");
+        DEFAULTS.setProperty("db.isolation", "READ_COMMITTED");
+        // Reuse parsed statements on the client and send inserts in multi-row batches
+        DEFAULTS.setProperty("db.cachePrepStmts", "true");
+        DEFAULTS.setProperty("db.prepStmtCacheSize", "250");
+        DEFAULTS.setProperty("db.prepStmtCacheSqlLimit", "2048");
+        DEFAULTS.setProperty("db.useServerPrepStmts", "false");
+        DEFAULTS.setProperty("db.rewriteBatchedStatements", "true");
+        DEFAULTS.setProperty("db.useCursorFetch", "false");
+        DEFAULTS.setProperty("db.defaultFetchSize", "0");
+        DEFAULTS.setProperty("db.connectTimeout", "5000");
+        DEFAULTS.setProperty("db.socketTimeout", "30000");
+    }
+
+    private final Properties settings;
+
+    /**
+     * Constructs a configuration from resolved settings.
+     *
+     * @param settings The settings, with defaults and overrides already applied.
+     */
+    private DatabaseConfig(Properties settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Loads the configuration from the settings file and the environment.
+     * A missing file is not an error; the defaults and environment are used on their own.
+     *
+     * @return The configuration.
+     * @throws IOException If the file exists but cannot be read.
+     */
+    public static DatabaseConfig load() throws IOException {
+        Properties settings = new Properties();
+        settings.putAll(DEFAULTS);
+        if (Files.isRegularFile(FILE)) {
+            try (InputStream in = Files.newInputStream(FILE)) {
+                settings.load(in);
+            }
+        }
+        Map<String, String> environment = System.getenv();
+        for (String key : DEFAULTS.stringPropertyNames()) {
+            String value = environment.get("SCHEDULER_" + key.replace('.', '_').toUpperCase());
+            if (value != null) {
+                settings.setProperty(key, value);
+            }
+        }
+        return new DatabaseConfig(settings);
+    }
+
+    /**
+     * Gets the JDBC URL of the central MySQL database.
+     * Start and End are stored as UTC, so the session time zone is always UTC regardless of the configured URL.
+     *
+     * @return The URL.
+     */
+    public String getUrl() {
+        return settings.getProperty("db.url");
+    }
+
+    /**
+     * Gets the JDBC URL of the embedded database, without the compatibility settings JDBC adds.
+     *
+     * @return The URL.
+     */
+    public String getEmbeddedUrl() {
+        return settings.getProperty("db.embeddedUrl");
+    }
+
+    /**
+     * Gets the maximum number of open connections.
+     *
+     * @return The pool size, at least one.
+     */
+    public int getPoolSize() {
+        return Math.max(1, getInt("db.poolSize"));
+    }
+
+    /**
+     * Gets how long a caller waits for a free connection before giving up.
+     *
+     * @return The wait in milliseconds.
+     */
+    public long getBorrowTimeout() {
+        return getInt("db.borrowTimeout");
+    }
+
+    /**
+     * Gets the isolation level of a UnitOfWork begun without one.
+     * Accepts READ_UNCOMMITTED, READ_COMMITTED, REPEATABLE_READ or SERIALIZABLE.
+     *
+     * @return One of the Connection.TRANSACTION_* levels.
+     */
+    public int getIsolation() {
+        String level = settings.getProperty("db.isolation").trim().toUpperCase();
+        switch (level) {
+            case "READ_UNCOMMITTED": return Connection.TRANSACTION_READ_UNCOMMITTED;
+            case "READ_COMMITTED": return Connection.TRANSACTION_READ_COMMITTED;
+            case "REPEATABLE_READ": return Connection.TRANSACTION_REPEATABLE_READ;
+            case "SERIALIZABLE": return Connection.TRANSACTION_SERIALIZABLE;
+            default:
+                System.out.println("Error: unknown db.isolation " + level + ", using READ_COMMITTED");
+                return Connection.TRANSACTION_READ_COMMITTED;
+        }
+    }
+
+    /**
+     * Builds the properties handed to the MySQL driver: the credentials, the tuning keys and the UTC session time zone.
+     *
+     * @return The driver properties.
+     */
+    public Properties getDriverProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("user", settings.getProperty("db.user"));
+        properties.setProperty("password", settings.getProperty("db.password"));
+        for (String key : DRIVER_KEYS) {
+            properties.setProperty(key, settings.getProperty("db." + key));
+        }
+        properties.setProperty("connectionTimeZone", "UTC");
+        return properties;
+    }
+
+    /**
+     * Reads a whole-number setting.
+     *
+     * @param key The setting key.
+     * @return The value.
+     */
+    private int getInt(String key) {
+        try {
+            return Integer.parseInt(settings.getProperty(key).trim());
+        } catch (NumberFormatException e) {
+            System.out.println("Error: " + key + " is not a number, using " + DEFAULTS.getProperty(key));
+            return Integer.parseInt(DEFAULTS.getProperty(key));
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof DatabaseConfig && settings.equals(((DatabaseConfig) o).settings);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(settings);
+    }
+}
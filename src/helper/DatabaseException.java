@@ -0,0 +1,62 @@
+package helper;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
+
+/**
+ * Thrown when a database operation fails, in place of swallowing the error and returning an empty result.
+ * Controllers can tell a database that cannot be reached, which is worth retrying later, from a query that failed outright.
+ *
+ * @author Daniel Akoko
+ */
+public class DatabaseException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final boolean unavailable;
+
+    /**
+     * Constructs an exception.
+     *
+     * @param message     A message suitable for showing the user.
+     * @param cause       The underlying error, or null.
+     * @param unavailable True if the database could not be reached, false if the operation itself failed.
+     */
+    public DatabaseException(String message, Throwable cause, boolean unavailable) {
+        super(message, cause);
+        this.unavailable = unavailable;
+    }
+
+    /**
+     * Wraps a SQL exception, classifying it by its type and SQL state.
+     *
+     * @param message A message suitable for showing the user.
+     * @param cause   The SQL exception.
+     */
+    public DatabaseException(String message, SQLException cause) {
+        this(message, cause, isConnectionFailure(cause));
+    }
+
+    /**
+     * Checks whether the database could not be reached, as opposed to the operation failing.
+     *
+     * @return True if the database was unavailable, false otherwise.
+     */
+    public boolean isUnavailable() {
+        return unavailable;
+    }
+
+    /**
+     * Checks whether a SQL exception means the connection was lost or could not be made.
+     * SQL states in class 08 are connection exceptions in every driver.
+     *
+     * @param e The SQL exception.
+     * @return True if the connection failed, false otherwise.
+     */
+    public static boolean isConnectionFailure(SQLException e) {
+        String state = e.getSQLState();
+        return e instanceof SQLRecoverableException || e instanceof SQLTransientConnectionException
+                || e instanceof SQLNonTransientConnectionException || (state != null && state.startsWith("08"));
+    }
+}
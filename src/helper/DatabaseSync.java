@@ -0,0 +1,669 @@
+package helper;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Synchronizes an embedded desk database with the central MySQL database.
+ * The desk remembers the key and Version of every central row as of its last pull (the sync_rows table), so changes are
+ * found by comparing versions rather than timestamps, and deletions by comparing keys:
+ * <ul>
+ *   <li>Rows created on the desk are inserted centrally without their desk IDs, so the central database allocates the IDs
+ *   and rows created on two desks never collide. References to a pushed customer are rewritten to its central ID.</li>
+ *   <li>Rows changed on the desk are updated centrally only if the central row still has the Version the desk last pulled;
+ *   if another desk changed it meanwhile, the central copy is kept and the desk's change is reported.</li>
+ *   <li>Rows deleted on the desk are deleted centrally under the same Version condition.</li>
+ * </ul>
+ * Every table is then pulled back and rows deleted centrally are removed from the desk, so the desk ends with the central copy.
+ * The push runs in one central transaction. Before it commits, the desk commits the central ID each created row was given
+ * (the sync_pending table); the pull then runs in one desk transaction, which empties that table. A sync that fails before
+ * the central commit changes neither database. One that fails after it leaves the pushed rows centrally and the desk copies
+ * under their desk IDs, and the next sync finds those rows in sync_pending: it updates their central copies if they have
+ * changed since, instead of inserting them again, and deletes them centrally if they have been deleted on the desk.
+ * A desk's first sync after upgrading has no recorded rows and takes the central rows as its record,
+ * pushing only the rows whose Version differs from the central copy.
+ *
+ * @author Daniel Akoko
+ */
+public class DatabaseSync {
+
+    /** Tables in foreign-key order, each with its primary key. */
+    private static final String[][] TABLES = {
+            {"countries", "Country_ID"},
+            {"first_level_divisions", "Division_ID"},
+            {"users", "User_ID"},
+            {"contacts", "Contact_ID"},
+            {"customers", "Customer_ID"},
+            {"appointments", "Appointment_ID"},
+            {"appointment_series", "Series_ID"}
+    };
+    /** Tables written on the desk, in foreign-key order. Their rows carry a Version that every write bumps. */
+    private static final String[][] PUSHED_TABLES = {
+            {"customers", "Customer_ID"},
+            {"appointments", "Appointment_ID"},
+            {"appointment_series", "Series_ID"}
+    };
+    /** The column through which pushed rows refer to customers, whose IDs may change when they are pushed. */
+    private static final String CUSTOMER_REFERENCE = "Customer_ID";
+
+    /**
+     * Pushes the desk's changes to the central database and then pulls the central database into the desk.
+     * Does nothing unless the application is running on the embedded backend.
+     * Catches and prints any errors, so a desk that cannot reach the central server keeps working offline.
+     */
+    public static void synchronize() {
+        if (JDBC.getBackend() != JDBC.Backend.EMBEDDED) {
+            return;
+        }
+        try (Connection central = JDBC.openCentralConnection()) {
+            central.setAutoCommit(false);
+            Map<String, Map<Integer, Integer>> synced = new HashMap<>();
+            Map<String, List<Integer>> rekeyed = new HashMap<>();
+            try (UnitOfWork work = UnitOfWork.begin()) {
+                Connection local = JDBC.getConnection();
+                boolean recorded = hasRecordedRows(local);
+                for (String[] table : TABLES) {
+                    synced.put(table[0], recorded ? getRecordedRows(local, table[0]) : getVersions(central, table[0], table[1]));
+                }
+
+                // Pushing in foreign-key order, so a customer has its central ID before the rows that refer to it are pushed
+                Map<Integer, Integer> customerIds = new HashMap<>();
+                Map<String, Map<Integer, int[]>> pending = new HashMap<>();
+                for (String[] table : PUSHED_TABLES) {
+                    pending.put(table[0], getPending(local, central, table[0], table[1]));
+                    rekeyed.put(table[0], push(local, central, table[0], table[1], synced.get(table[0]), pending.get(table[0]), customerIds));
+                }
+                for (int i = PUSHED_TABLES.length - 1; i >= 0; i--) {
+                    pushDeletes(local, central, PUSHED_TABLES[i][0], PUSHED_TABLES[i][1], synced.get(PUSHED_TABLES[i][0]),
+                            pending.get(PUSHED_TABLES[i][0]));
+                }
+                for (String[] table : PUSHED_TABLES) {
+                    recordPending(local, table[0], pending.get(table[0]));
+                }
+                work.commit();
+            }
+            central.commit();
+
+            try (UnitOfWork work = UnitOfWork.begin()) {
+                Connection local = JDBC.getConnection();
+                // Dropping the desk copies that still hold desk IDs; the pull brings them back with their central IDs,
+                // and overwrites the other pushed rows in place
+                for (int i = PUSHED_TABLES.length - 1; i >= 0; i--) {
+                    delete(local, PUSHED_TABLES[i][0], PUSHED_TABLES[i][1], rekeyed.get(PUSHED_TABLES[i][0]));
+                }
+
+                Map<String, Map<Integer, Integer>> pulled = new HashMap<>();
+                for (String[] table : TABLES) {
+                    pulled.put(table[0], pull(central, local, table[0], table[1]));
+                }
+                for (int i = TABLES.length - 1; i >= 0; i--) {
+                    List<Integer> removed = new ArrayList<>(synced.get(TABLES[i][0]).keySet());
+                    removed.removeAll(pulled.get(TABLES[i][0]).keySet());
+                    delete(local, TABLES[i][0], TABLES[i][1], removed);
+                }
+                for (String[] table : TABLES) {
+                    recordRows(local, table[0], pulled.get(table[0]));
+                }
+                for (String[] table : PUSHED_TABLES) {
+                    recordPending(local, table[0], Map.of());
+                }
+                setSyncState(local, "central", System.currentTimeMillis());
+                setSyncState(local, "rows", System.currentTimeMillis());
+                work.commit();
+            }
+            restartIds(JDBC.getConnection());
+
+            // The local tables were rewritten underneath the caches
+            TimelineCache.invalidate();
+            SeriesCache.invalidate();
+            CustomerCache.invalidate();
+            GeographyCache.invalidate();
+            AppointmentSnapshot.delete();
+            System.out.println("Synchronization successful!");
+        } catch (Exception e) {
+            System.out.println("Error:" + e.getMessage());
+        }
+    }
+
+    /**
+     * Copies every row of a central table into the desk, inserting new rows and overwriting existing ones.
+     *
+     * @param central    The central connection.
+     * @param local      The desk connection.
+     * @param table      The table name.
+     * @param primaryKey The primary key column.
+     * @return The central keys, each with its Version, or 0 if the table has none.
+     * @throws SQLException If a statement fails.
+     */
+    private static Map<Integer, Integer> pull(Connection central, Connection local, String table, String primaryKey) throws SQLException {
+        Map<Integer, Integer> versions = new HashMap<>();
+        try (PreparedStatement select = central.prepareStatement("SELECT * FROM " + table)) {
+            ResultSet rows = select.executeQuery();
+            List<String> columns = columns(rows.getMetaData());
+            int version = indexOf(columns, "Version");
+            String merge = "MERGE INTO " + table + " (" + String.join(", ", columns) + ") KEY (" + primaryKey + ") VALUES (" +
+                    placeholders(columns.size()) + ")";
+            try (PreparedStatement write = local.prepareStatement(merge)) {
+                int pending = 0;
+                while (rows.next()) {
+                    versions.put(rows.getInt(primaryKey), version > 0 ? rows.getInt(version) : 0);
+                    for (int i = 1; i <= columns.size(); i++) {
+                        copyValue(rows, i, write, i);
+                    }
+                    write.addBatch();
+                    if (++pending == 500) {
+                        write.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    write.executeBatch();
+                }
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * Copies the rows created or changed on the desk into the central database.
+     * A created row is inserted without its desk ID; a changed row is updated only if the central row still has the
+     * Version the desk last pulled. A changed row the central database refuses, or that was changed on both sides, is reported
+     * and the pull brings back the central copy; a created row it refuses, e.g. for a customer deleted centrally, is reported and dropped.
+     * A created row already inserted by an earlier sync whose desk side failed is not inserted again: its central copy is
+     * updated like a changed row's if the desk row has changed since.
+     *
+     * @param local       The desk connection.
+     * @param central     The central connection.
+     * @param table       The table name.
+     * @param primaryKey  The primary key column.
+     * @param synced      The central keys and versions as of the last pull.
+     * @param pending     The created rows already inserted centrally (see getPending); receives the rows inserted now.
+     * @param customerIds The central IDs of the customers pushed so far, by desk ID; null for one the central database refused.
+     * @return The desk IDs of the rows whose desk copies hold a desk ID: those created on the desk and those changed to refer to one.
+     * @throws SQLException If a statement fails.
+     */
+    private static List<Integer> push(Connection local, Connection central, String table, String primaryKey, Map<Integer, Integer> synced,
+                                      Map<Integer, int[]> pending, Map<Integer, Integer> customerIds) throws SQLException {
+        List<Integer> created = new ArrayList<>();
+        List<Integer> changed = new ArrayList<>();
+        try (PreparedStatement select = local.prepareStatement("SELECT " + primaryKey + ", Version FROM " + table)) {
+            ResultSet rows = select.executeQuery();
+            while (rows.next()) {
+                Integer version = synced.get(rows.getInt(1));
+                if (version == null) {
+                    created.add(rows.getInt(1));
+                } else if (version != rows.getInt(2)) {
+                    changed.add(rows.getInt(1));
+                }
+            }
+        }
+        List<Integer> rekeyed = new ArrayList<>(created);
+        try (PreparedStatement select = local.prepareStatement("SELECT * FROM " + table + " WHERE " + primaryKey + " = ?")) {
+            for (int id : created) {
+                select.setInt(1, id);
+                ResultSet row = select.executeQuery();
+                if (row.next()) {
+                    Integer centralId;
+                    int[] earlier = pending.get(id);
+                    if (earlier != null) {
+                        centralId = earlier[0];
+                        if (row.getInt("Version") != earlier[1] && update(central, table, primaryKey, centralId, row, earlier[2], customerIds)) {
+                            earlier[1] = row.getInt("Version");
+                            earlier[2]++;
+                        }
+                    } else {
+                        centralId = insert(central, table, primaryKey, row, customerIds);
+                        if (centralId != null) {
+                            // The central row takes the desk row's Version
+                            pending.put(id, new int[]{centralId, row.getInt("Version"), row.getInt("Version")});
+                        }
+                    }
+                    if (table.equals("customers")) {
+                        customerIds.put(id, centralId);
+                    }
+                }
+            }
+            for (int id : changed) {
+                select.setInt(1, id);
+                ResultSet row = select.executeQuery();
+                if (row.next()) {
+                    update(central, table, primaryKey, id, row, synced.get(id), customerIds);
+                    int reference = indexOf(columns(row.getMetaData()), CUSTOMER_REFERENCE);
+                    if (reference > 0 && customerIds.containsKey(row.getInt(reference))) {
+                        rekeyed.add(id);
+                    }
+                }
+            }
+        }
+        return rekeyed;
+    }
+
+    /**
+     * Inserts a row created on the desk into the central database, which allocates its ID.
+     *
+     * @param central     The central connection.
+     * @param table       The table name.
+     * @param primaryKey  The primary key column.
+     * @param row         The desk row.
+     * @param customerIds The central IDs of the customers pushed so far, by desk ID.
+     * @return The row's central ID, or null if the central database refused it.
+     * @throws SQLException If the row cannot be read.
+     */
+    private static Integer insert(Connection central, String table, String primaryKey, ResultSet row,
+                                  Map<Integer, Integer> customerIds) throws SQLException {
+        List<String> columns = columns(row.getMetaData());
+        List<String> inserted = new ArrayList<>(columns);
+        inserted.remove(indexOf(columns, primaryKey) - 1);
+        String sql = "INSERT INTO " + table + " (" + String.join(", ", inserted) + ") VALUES (" + placeholders(inserted.size()) + ")";
+        try (PreparedStatement write = central.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            if (bindRow(row, columns, primaryKey, true, write, customerIds) == 0) {
+                System.out.println("Not synchronized, its customer was refused: " + table + " " + row.getInt(primaryKey));
+                return null;
+            }
+            write.executeUpdate();
+            ResultSet keys = write.getGeneratedKeys();
+            return keys.next() ? keys.getInt(1) : null;
+        } catch (SQLException e) {
+            // e.g. a row referring to something deleted centrally meanwhile, which the central database cannot hold
+            System.out.println("Not synchronized, " + e.getMessage() + ": " + table + " " + row.getInt(primaryKey));
+            return null;
+        }
+    }
+
+    /**
+     * Updates the central copy of a row changed on the desk, if the central row still has the version the desk last pulled.
+     * A row changed or deleted centrally meanwhile, or refused by the central database, is reported and the central copy kept.
+     *
+     * @param central     The central connection.
+     * @param table       The table name.
+     * @param primaryKey  The primary key column.
+     * @param key         The central row's ID, which differs from the desk row's for a row created on the desk.
+     * @param row         The desk row.
+     * @param version     The version the central row had when the desk last saw it.
+     * @param customerIds The central IDs of the customers pushed so far, by desk ID.
+     * @return True if the central row was updated, false if it was kept.
+     * @throws SQLException If the row cannot be read.
+     */
+    private static boolean update(Connection central, String table, String primaryKey, int key, ResultSet row, int version,
+                                  Map<Integer, Integer> customerIds) throws SQLException {
+        List<String> columns = columns(row.getMetaData());
+        List<String> assignments = new ArrayList<>();
+        for (String column : columns) {
+            if (!column.equalsIgnoreCase(primaryKey)) {
+                assignments.add(column.equalsIgnoreCase("Version") ? column + " = Version + 1" : column + " = ?");
+            }
+        }
+        String sql = "UPDATE " + table + " SET " + String.join(", ", assignments) + " WHERE " + primaryKey + " = ? AND Version = ?";
+        try (PreparedStatement write = central.prepareStatement(sql)) {
+            int parameter = bindRow(row, columns, primaryKey, false, write, customerIds);
+            if (parameter == 0) {
+                System.out.println("Not synchronized, its customer was refused: " + table + " " + row.getInt(primaryKey));
+                return false;
+            }
+            write.setInt(parameter, key);
+            write.setInt(parameter + 1, version);
+            if (write.executeUpdate() == 0) {
+                System.out.println("Not synchronized, changed or deleted on another desk: " + table + " " + row.getInt(primaryKey));
+                return false;
+            }
+            return true;
+        } catch (SQLException e) {
+            System.out.println("Not synchronized, " + e.getMessage() + ": " + table + " " + row.getInt(primaryKey));
+            return false;
+        }
+    }
+
+    /**
+     * Deletes centrally the rows deleted on the desk since the last pull, unless they have changed centrally since.
+     * A row the central database keeps, e.g. a customer another desk has booked meanwhile, comes back in the pull.
+     * Created rows an earlier sync inserted centrally and that have since been deleted on the desk are deleted centrally too,
+     * and forgotten.
+     *
+     * @param local      The desk connection.
+     * @param central    The central connection.
+     * @param table      The table name.
+     * @param primaryKey The primary key column.
+     * @param synced     The central keys and versions as of the last pull.
+     * @param pending    The created rows inserted centrally, by desk ID (see getPending).
+     * @throws SQLException If a statement fails.
+     */
+    private static void pushDeletes(Connection local, Connection central, String table, String primaryKey,
+                                    Map<Integer, Integer> synced, Map<Integer, int[]> pending) throws SQLException {
+        Set<Integer> remaining = new HashSet<>();
+        try (PreparedStatement select = local.prepareStatement("SELECT " + primaryKey + " FROM " + table)) {
+            ResultSet rows = select.executeQuery();
+            while (rows.next()) {
+                remaining.add(rows.getInt(1));
+            }
+        }
+        // The central keys to delete, each with the Version the central row must still have
+        Map<Integer, Integer> deleted = new HashMap<>(synced);
+        deleted.keySet().removeAll(remaining);
+        for (Map.Entry<Integer, int[]> entry : new ArrayList<>(pending.entrySet())) {
+            if (!remaining.contains(entry.getKey())) {
+                deleted.put(entry.getValue()[0], entry.getValue()[2]);
+                pending.remove(entry.getKey());
+            }
+        }
+        try (PreparedStatement delete = central.prepareStatement("DELETE FROM " + table + " WHERE " + primaryKey + " = ? AND Version = ?")) {
+            for (int id : deleted.keySet()) {
+                delete.setInt(1, id);
+                delete.setInt(2, deleted.get(id));
+                try {
+                    if (delete.executeUpdate() == 0) {
+                        System.out.println("Not deleted, changed on another desk: " + table + " " + id);
+                    }
+                } catch (SQLException e) {
+                    System.out.println("Not deleted, " + e.getMessage() + ": " + table + " " + id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Binds a desk row to an INSERT or UPDATE of every column but the primary key, rewriting a pushed customer's desk ID
+     * to its central ID.
+     *
+     * @param row         The desk row.
+     * @param columns     The row's columns.
+     * @param primaryKey  The primary key column, which is skipped.
+     * @param version     True to bind the Version column, false if the statement bumps it itself.
+     * @param write       The statement, with one parameter per bound column, in row order.
+     * @param customerIds The central IDs of the customers pushed so far, by desk ID.
+     * @return The index of the next parameter, or 0 if the row refers to a customer the central database refused.
+     * @throws SQLException If the row cannot be read.
+     */
+    private static int bindRow(ResultSet row, List<String> columns, String primaryKey, boolean version, PreparedStatement write,
+                               Map<Integer, Integer> customerIds) throws SQLException {
+        int parameter = 1;
+        for (int i = 1; i <= columns.size(); i++) {
+            String column = columns.get(i - 1);
+            if (column.equalsIgnoreCase(primaryKey) || (!version && column.equalsIgnoreCase("Version"))) {
+                continue;
+            }
+            if (column.equalsIgnoreCase(CUSTOMER_REFERENCE) && customerIds.containsKey(row.getInt(i))) {
+                Integer customerId = customerIds.get(row.getInt(i));
+                if (customerId == null) {
+                    return 0;
+                }
+                write.setInt(parameter++, customerId);
+            } else {
+                copyValue(row, i, write, parameter++);
+            }
+        }
+        return parameter;
+    }
+
+    /**
+     * Copies one column of a row into a statement parameter.
+     * Date-time columns are copied as LocalDateTime, so their stored values are not shifted by either driver's time zone handling.
+     *
+     * @param rows      The row.
+     * @param column    The column index.
+     * @param write     The statement.
+     * @param parameter The parameter index.
+     * @throws SQLException If the value cannot be read or bound.
+     */
+    private static void copyValue(ResultSet rows, int column, PreparedStatement write, int parameter) throws SQLException {
+        int type = rows.getMetaData().getColumnType(column);
+        if (type == Types.TIMESTAMP || type == Types.TIMESTAMP_WITH_TIMEZONE) {
+            write.setObject(parameter, rows.getObject(column, LocalDateTime.class));
+        } else {
+            write.setObject(parameter, rows.getObject(column));
+        }
+    }
+
+    /**
+     * Deletes rows from a desk table.
+     *
+     * @param local      The desk connection.
+     * @param table      The table name.
+     * @param primaryKey The primary key column.
+     * @param ids        The IDs of the rows to delete.
+     * @throws SQLException If a statement fails.
+     */
+    private static void delete(Connection local, String table, String primaryKey, List<Integer> ids) throws SQLException {
+        try (PreparedStatement delete = local.prepareStatement("DELETE FROM " + table + " WHERE " + primaryKey + " = ?")) {
+            for (int id : ids) {
+                delete.setInt(1, id);
+                delete.addBatch();
+            }
+            if (!ids.isEmpty()) {
+                delete.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * Reads the keys and versions of a central table, which a desk that has no recorded rows takes as its record.
+     *
+     * @param central    The central connection.
+     * @param table      The table name.
+     * @param primaryKey The primary key column.
+     * @return The keys, each with its Version, or 0 if the table has none.
+     * @throws SQLException If the query fails.
+     */
+    private static Map<Integer, Integer> getVersions(Connection central, String table, String primaryKey) throws SQLException {
+        Map<Integer, Integer> versions = new HashMap<>();
+        try (PreparedStatement select = central.prepareStatement("SELECT * FROM " + table)) {
+            ResultSet rows = select.executeQuery();
+            int version = indexOf(columns(rows.getMetaData()), "Version");
+            while (rows.next()) {
+                versions.put(rows.getInt(primaryKey), version > 0 ? rows.getInt(version) : 0);
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * Reads the keys and versions of a table's central rows as of the last pull.
+     *
+     * @param local The desk connection.
+     * @param table The table name.
+     * @return The keys, each with its Version.
+     * @throws SQLException If the query fails.
+     */
+    private static Map<Integer, Integer> getRecordedRows(Connection local, String table) throws SQLException {
+        Map<Integer, Integer> versions = new HashMap<>();
+        try (PreparedStatement select = local.prepareStatement("SELECT Row_ID, Version FROM sync_rows WHERE Table_Name = ?")) {
+            select.setString(1, table);
+            ResultSet rows = select.executeQuery();
+            while (rows.next()) {
+                versions.put(rows.getInt(1), rows.getInt(2));
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * Replaces the recorded keys and versions of a table's central rows with those just pulled.
+     *
+     * @param local    The desk connection.
+     * @param table    The table name.
+     * @param versions The keys, each with its Version.
+     * @throws SQLException If a statement fails.
+     */
+    private static void recordRows(Connection local, String table, Map<Integer, Integer> versions) throws SQLException {
+        try (PreparedStatement clear = local.prepareStatement("DELETE FROM sync_rows WHERE Table_Name = ?")) {
+            clear.setString(1, table);
+            clear.executeUpdate();
+        }
+        try (PreparedStatement insert = local.prepareStatement("INSERT INTO sync_rows (Table_Name, Row_ID, Version) VALUES (?, ?, ?)")) {
+            int pending = 0;
+            for (Map.Entry<Integer, Integer> entry : versions.entrySet()) {
+                insert.setString(1, table);
+                insert.setInt(2, entry.getKey());
+                insert.setInt(3, entry.getValue());
+                insert.addBatch();
+                if (++pending == 500) {
+                    insert.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                insert.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * Moves each pushed table's ID generator past the IDs pulled from the central database, so a row created on the desk
+     * does not take the ID of a pulled one. Run outside the sync transaction, since the database commits on schema changes.
+     *
+     * @param local The desk connection.
+     * @throws SQLException If a statement fails.
+     */
+    private static void restartIds(Connection local) throws SQLException {
+        for (String[] table : PUSHED_TABLES) {
+            int next;
+            try (PreparedStatement select = local.prepareStatement("SELECT COALESCE(MAX(" + table[1] + "), 0) + 1 FROM " + table[0])) {
+                ResultSet resultSet = select.executeQuery();
+                next = resultSet.next() ? resultSet.getInt(1) : 1;
+            }
+            try (Statement statement = local.createStatement()) {
+                statement.execute("ALTER TABLE " + table[0] + " ALTER COLUMN " + table[1] + " RESTART WITH " + next);
+            }
+        }
+    }
+
+    /**
+     * Reads the central IDs recorded for a table's created rows by a sync whose desk side did not commit, keeping those
+     * whose central copy exists, i.e. whose central side did commit; the others are pushed again as created rows.
+     *
+     * @param local      The desk connection.
+     * @param central    The central connection.
+     * @param table      The table name.
+     * @param primaryKey The primary key column.
+     * @return The rows by desk ID, each as {central ID, desk Version pushed, central Version}.
+     * @throws SQLException If a query fails.
+     */
+    private static Map<Integer, int[]> getPending(Connection local, Connection central, String table, String primaryKey) throws SQLException {
+        Map<Integer, int[]> pending = new HashMap<>();
+        String query = "SELECT Row_ID, Central_ID, Pushed_Version, Central_Version FROM sync_pending WHERE Table_Name = ?";
+        try (PreparedStatement select = local.prepareStatement(query);
+             PreparedStatement exists = central.prepareStatement("SELECT 1 FROM " + table + " WHERE " + primaryKey + " = ?")) {
+            select.setString(1, table);
+            ResultSet rows = select.executeQuery();
+            while (rows.next()) {
+                exists.setInt(1, rows.getInt(2));
+                if (exists.executeQuery().next()) {
+                    pending.put(rows.getInt(1), new int[]{rows.getInt(2), rows.getInt(3), rows.getInt(4)});
+                }
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Replaces the recorded central IDs of a table's created rows.
+     *
+     * @param local   The desk connection.
+     * @param table   The table name.
+     * @param pending The rows by desk ID, each as {central ID, desk Version pushed, central Version}; empty to clear them.
+     * @throws SQLException If a statement fails.
+     */
+    private static void recordPending(Connection local, String table, Map<Integer, int[]> pending) throws SQLException {
+        try (PreparedStatement clear = local.prepareStatement("DELETE FROM sync_pending WHERE Table_Name = ?")) {
+            clear.setString(1, table);
+            clear.executeUpdate();
+        }
+        String sql = "INSERT INTO sync_pending (Table_Name, Row_ID, Central_ID, Pushed_Version, Central_Version) VALUES (?, ?, ?, ?, ?)";
+        try (PreparedStatement insert = local.prepareStatement(sql)) {
+            for (Map.Entry<Integer, int[]> entry : pending.entrySet()) {
+                insert.setString(1, table);
+                insert.setInt(2, entry.getKey());
+                insert.setInt(3, entry.getValue()[0]);
+                insert.setInt(4, entry.getValue()[1]);
+                insert.setInt(5, entry.getValue()[2]);
+                insert.addBatch();
+            }
+            if (!pending.isEmpty()) {
+                insert.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * Checks whether the desk has recorded the central rows, which it does from its first sync with this version on.
+     *
+     * @param local The desk connection.
+     * @return True if the rows are recorded, false otherwise.
+     * @throws SQLException If the query fails.
+     */
+    private static boolean hasRecordedRows(Connection local) throws SQLException {
+        try (PreparedStatement statement = local.prepareStatement("SELECT 1 FROM sync_state WHERE Name = 'rows'")) {
+            return statement.executeQuery().next();
+        }
+    }
+
+    /**
+     * Records the time of a synchronization step.
+     *
+     * @param local The desk connection.
+     * @param name  The step, e.g. "central".
+     * @param time  The time in epoch milliseconds.
+     * @throws SQLException If the statement fails.
+     */
+    private static void setSyncState(Connection local, String name, long time) throws SQLException {
+        try (PreparedStatement statement = local.prepareStatement("MERGE INTO sync_state (Name, Last_Sync) KEY (Name) VALUES (?, ?)")) {
+            statement.setString(1, name);
+            statement.setObject(2, LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneOffset.UTC));
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Lists the column names of a result set.
+     *
+     * @param metaData The result set metadata.
+     * @return The column names in order.
+     * @throws SQLException If the metadata cannot be read.
+     */
+    private static List<String> columns(ResultSetMetaData metaData) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            columns.add(metaData.getColumnLabel(i));
+        }
+        return columns;
+    }
+
+    /**
+     * Finds a column by name, ignoring case, since the embedded database reports names in lower case.
+     *
+     * @param columns The column names.
+     * @param name    The column to find.
+     * @return Its index counting from 1, or 0 if there is no such column.
+     */
+    private static int indexOf(List<String> columns, String name) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).equalsIgnoreCase(name)) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Builds a list of statement parameters.
+     *
+     * @param count The number of parameters.
+     * @return The parameters, e.g. "?, ?, ?".
+     */
+    private static String placeholders(int count) {
+        return String.join(", ", java.util.Collections.nCopies(count, "?"));
+    }
+}
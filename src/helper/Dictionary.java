@@ -0,0 +1,39 @@
+package helper;
+
+import model.StringDictionary;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Shared dictionaries for the low-cardinality text columns: appointment types and locations, division names and country names.
+ * Query mappers read these columns through this class, so every row that repeats a value shares one canonical String,
+ * and caches and reports can hold and group on the int code instead of the text.
+ *
+ * @author Daniel Akoko
+ */
+public class Dictionary {
+
+    /** Appointment types. */
+    public static final StringDictionary TYPES = new StringDictionary();
+    /** Appointment locations. */
+    public static final StringDictionary LOCATIONS = new StringDictionary();
+    /** First-level division names. */
+    public static final StringDictionary DIVISIONS = new StringDictionary();
+    /** Country names. */
+    public static final StringDictionary COUNTRIES = new StringDictionary();
+
+    /**
+     * Reads a text column and returns the canonical instance of its value.
+     * The String read from the driver is dropped straight away, so only one copy of each value stays on the heap.
+     *
+     * @param resultSet  The result set, positioned on a row.
+     * @param column     The column label.
+     * @param dictionary The dictionary for the column.
+     * @return The canonical value, or null if the column is null.
+     * @throws SQLException If the column cannot be read.
+     */
+    public static String read(ResultSet resultSet, String column, StringDictionary dictionary) throws SQLException {
+        return dictionary.canonical(resultSet.getString(column));
+    }
+}
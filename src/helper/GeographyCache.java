@@ -0,0 +1,108 @@
+package helper;
+
+import database.CountryQuery;
+import database.DivisionQuery;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import model.Country;
+import model.Division;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory lookup tables of the first-level divisions and countries.
+ * There are only a few dozen of them and they do not change while the desk runs, so they are read once and every customer
+ * read from the customers table alone is given its division and country names from here, instead of by joining the two
+ * tables on every customer query or looking them up one at a time when a form is filled.
+ *
+ * @author Daniel Akoko
+ */
+public class GeographyCache {
+    private static final Map<Integer, Division> divisions = new HashMap<>();
+    private static final Map<Integer, Country> countries = new LinkedHashMap<>();
+    private static final Map<Integer, List<Division>> divisionsByCountry = new HashMap<>();
+    private static boolean loaded;
+
+    /**
+     * Finds a division by its ID.
+     *
+     * @param divisionId The ID of the division.
+     * @return The division, or null if it does not exist.
+     */
+    public static synchronized Division getDivision(int divisionId) {
+        load();
+        return divisions.get(divisionId);
+    }
+
+    /**
+     * Finds a country by its ID.
+     *
+     * @param countryId The ID of the country.
+     * @return The country, or null if it does not exist.
+     */
+    public static synchronized Country getCountry(int countryId) {
+        load();
+        return countries.get(countryId);
+    }
+
+    /**
+     * Gets every country, e.g. for a country combo box.
+     *
+     * @return A new list of the countries, in the order the database returned them.
+     */
+    public static synchronized ObservableList<Country> getCountries() {
+        load();
+        return FXCollections.observableArrayList(countries.values());
+    }
+
+    /**
+     * Gets the divisions of a country, e.g. for a division combo box.
+     *
+     * @param countryId The ID of the country.
+     * @return A new list of the country's divisions, empty if it has none.
+     */
+    public static synchronized ObservableList<Division> getDivisions(int countryId) {
+        load();
+        return FXCollections.observableArrayList(divisionsByCountry.getOrDefault(countryId, List.of()));
+    }
+
+    /**
+     * Builds the lookup tables ahead of their first use, e.g. before a customer query whose rows are streamed,
+     * since no other statement can run on the connection until they have all been read.
+     */
+    public static synchronized void preload() {
+        load();
+    }
+
+    /**
+     * Discards the lookup tables so the next lookup reads them again, e.g. after a sync that may have brought in new divisions.
+     */
+    public static synchronized void invalidate() {
+        divisions.clear();
+        countries.clear();
+        divisionsByCountry.clear();
+        loaded = false;
+    }
+
+    /**
+     * Reads the countries and divisions if they have not been read yet.
+     */
+    private static void load() {
+        if (!loaded) {
+            List<Country> countryList = CountryQuery.getAllCountry();
+            List<Division> divisionList = DivisionQuery.getAllDivisionID();
+            for (Country country : countryList) {
+                countries.put(country.getCountryId(), country);
+            }
+            for (Division division : divisionList) {
+                divisions.put(division.getDivisionId(), division);
+                divisionsByCountry.computeIfAbsent(division.getCountryId(), key -> new ArrayList<>()).add(division);
+            }
+            loaded = true;
+        }
+    }
+}
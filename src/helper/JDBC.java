@@ -1,35 +1,421 @@
 package helper;
 
+import javafx.application.Platform;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Objects;
+import java.util.Properties;
 
 public class JDBC {
-    private static final String protocol = "jdbc";
-    private static final String vendor = ":mysql:";
-    private static final String location = "//localhost/";
-    private static final String databaseName = "client_schedule";
-    private static final String jdbcUrl = protocol + vendor + location + databaseName + "?connectionTimeZone = SERVER"; // LOCAL
+    /**
+     * The storage backends the application can run on.
+     * MYSQL is the central server; EMBEDDED is an in-process, file-backed H2 database for branch desks, offline use and tests.
+     */
+    public enum Backend { MYSQL, EMBEDDED }
+
+    // MySQL compatibility mode, lower-case table names, and the reserved words this schema uses as column names
+    private static final String embeddedSettings =
+            ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE;NON_KEYWORDS=END,MONTH,USER,VALUE";
     private static final String driver = "com.mysql.cj.jdbc.Driver"; // Driver reference
-    private static final String userName = "sqlUser"; // Username
-    private static String password = "Passw0rd!"; // Password
-    public static Connection connection;  // Connection Interface
+    private static final String embeddedDriver = "org.h2.Driver";
+    private static final String embeddedUserName = "sa";
+
+    // Chosen with -Dscheduler.backend=embedded; the central MySQL server is the default
+    private static final Backend backend = Backend.valueOf(System.getProperty("scheduler.backend", "mysql").toUpperCase());
+
+    private static volatile DatabaseConfig config;
+    private static volatile ConnectionPool pool;
+    private static Thread configWatcher;
+
+    /** A connection unused for this long is checked before it is handed out again, in case the server dropped it. */
+    private static final long VALIDATE_AFTER_MILLIS = 5_000;
+    private static final int VALIDATE_TIMEOUT_SECONDS = 2;
+    /** Attempts made by read, and the wait before the second attempt on a worker thread, doubled after each failure. */
+    private static final int READ_ATTEMPTS = 3;
+    private static final long READ_RETRY_BACKOFF = 200;
+    /** Rows the embedded database reads at a time for a streamed result. */
+    private static final int STREAM_PAGE_SIZE = 500;
+
+    /** The connection each thread is using, and the pool it was borrowed from. */
+    private static final ThreadLocal<Lease> lease = new ThreadLocal<>();
+
+    /**
+     * A connection borrowed by a thread.
+     */
+    private static final class Lease {
+        private final ConnectionPool pool;
+        private final Connection connection;
+        private long lastUsed = System.currentTimeMillis();
+
+        private Lease(ConnectionPool pool, Connection connection) {
+            this.pool = pool;
+            this.connection = connection;
+        }
+    }
+
+    /**
+     * A unit of database work that produces a result.
+     *
+     * @param <T> The type of the result.
+     */
+    @FunctionalInterface
+    public interface SqlCall<T> {
+        /**
+         * Runs the work.
+         *
+         * @param connection The connection to run it on.
+         * @return The result.
+         * @throws SQLException If a statement fails.
+         */
+        T call(Connection connection) throws SQLException;
+    }
 
+    /**
+     * Loads the database settings, builds the connection pool and starts watching the settings file for changes.
+     * Then applies any schema migrations the database has not had yet.
+     */
     public static void openConnection() {
         try {
-            Class.forName(driver); // Locate Driver
-            connection = DriverManager.getConnection(jdbcUrl, userName, password); // Reference Connection object
+            Class.forName(backend == Backend.EMBEDDED ? embeddedDriver : driver); // Locate Driver
+            config = DatabaseConfig.load();
+            pool = createPool(config);
+            Migrator.migrate();
+            watchConfig();
             System.out.println("Connection successful!");
         } catch (Exception e) {
             System.out.println("Error:" + e.getMessage());
         }
     }
 
+    /**
+     * Gets the connection of the calling thread.
+     * A thread keeps the same connection across calls, so its statements and transactions share one session,
+     * and while a UnitOfWork is active it always gets the unit's connection.
+     * If the settings have been reloaded since the connection was borrowed, it is swapped for one from the new pool,
+     * and if it has sat unused for a while it is checked first and replaced if the server has dropped it.
+     * Fails at once while the circuit breaker is open. A connection that cannot be borrowed counts towards opening the
+     * breaker once, when the caller turns the exception into a DatabaseException with failure().
+     *
+     * @return The connection.
+     * @throws SQLException      If no connection can be borrowed.
+     * @throws DatabaseException If the database is known to be unreachable.
+     */
+    public static Connection getConnection() throws SQLException {
+        CircuitBreaker.check();
+        Connection transaction = UnitOfWork.activeConnection();
+        if (transaction != null) {
+            return transaction;
+        }
+        ConnectionPool current = pool;
+        if (current == null) {
+            throw new SQLException("The database connection has not been opened", "08003");
+        }
+        Lease held = lease.get();
+        if (held != null) {
+            long now = System.currentTimeMillis();
+            if (held.pool == current && isUsable(held, now)) {
+                held.lastUsed = now;
+                return held.connection;
+            }
+            discardConnection();
+        }
+
+        // A failed borrow is counted once, by failure(), when the caller turns it into a DatabaseException
+        Connection connection = current.borrow();
+        CircuitBreaker.recordSuccess();
+        lease.set(new Lease(current, connection));
+        return connection;
+    }
+
+    /**
+     * Runs an idempotent read, retrying it on a fresh connection if the connection is lost part way.
+     * Worker threads wait with exponential backoff between attempts; the JavaFX thread retries once straight away and otherwise
+     * leaves reconnecting to the circuit breaker, so the user interface never sleeps on a dead server.
+     * Only reads may use this: a write that failed after reaching the server could be applied twice.
+     *
+     * @param call The read to run.
+     * @param <T>  The type of the result.
+     * @return The result.
+     * @throws DatabaseException If the read fails, or the database cannot be reached.
+     */
+    public static <T> T read(SqlCall<T> call) {
+        boolean fxThread = Platform.isFxApplicationThread();
+        // Inside a transaction the read cannot move to another connection, so it is never retried
+        int attempts = UnitOfWork.isActive() ? 1 : fxThread ? 2 : READ_ATTEMPTS;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return call.call(getConnection());
+            } catch (SQLException e) {
+                DatabaseException failure = failure(e);
+                if (!failure.isUnavailable() || attempt == attempts || CircuitBreaker.isOpen()) {
+                    throw failure;
+                }
+                if (!fxThread) {
+                    try {
+                        Thread.sleep(READ_RETRY_BACKOFF << (attempt - 1));
+                    } catch (InterruptedException interrupted) {
+                        Thread.currentThread().interrupt();
+                        throw failure;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets a statement to hand its rows over as they arrive instead of loading the whole result first.
+     * MySQL Connector/J streams row by row when the fetch size is Integer.MIN_VALUE; the embedded database reads in pages.
+     * The connection cannot run another statement until the streamed result has been read to the end or closed.
+     *
+     * @param statement The statement, before it is executed.
+     * @throws SQLException If the fetch size is rejected.
+     */
+    public static void streamRows(Statement statement) throws SQLException {
+        statement.setFetchSize(backend == Backend.EMBEDDED ? STREAM_PAGE_SIZE : Integer.MIN_VALUE);
+    }
+
+    /**
+     * Turns a SQL exception into a DatabaseException.
+     * If the connection was lost, the thread's connection is discarded so the next call gets a new one, and the failure
+     * counts towards opening the circuit breaker.
+     *
+     * @param e The SQL exception.
+     * @return The exception to throw.
+     */
+    public static DatabaseException failure(SQLException e) {
+        DatabaseException failure = new DatabaseException("The database request failed: " + e.getMessage(), e);
+        if (failure.isUnavailable()) {
+            discardConnection();
+            CircuitBreaker.recordFailure();
+        }
+        return failure;
+    }
+
+    /**
+     * Checks whether the database answers, for the circuit breaker's background probe.
+     *
+     * @return True if a connection could be opened and validated, false otherwise.
+     */
+    static boolean probe() {
+        ConnectionPool current = pool;
+        if (current == null) {
+            return false;
+        }
+        try {
+            Connection connection = current.borrow();
+            boolean valid = connection.isValid(VALIDATE_TIMEOUT_SECONDS);
+            if (!valid) {
+                connection.close();
+            }
+            current.release(connection);
+            return valid;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Hands the calling thread's connection back to the pool.
+     * Worker threads call this when they are done with the database; the next getConnection borrows again.
+     */
+    public static void releaseConnection() {
+        Lease held = lease.get();
+        if (held != null) {
+            lease.remove();
+            held.pool.release(held.connection);
+        }
+    }
+
+    /**
+     * Closes the calling thread's connection, e.g. after the server dropped it, and gives its slot back to the pool.
+     */
+    private static void discardConnection() {
+        Lease held = lease.get();
+        if (held != null) {
+            lease.remove();
+            try {
+                held.connection.close();
+            } catch (SQLException e) {
+                // The connection is already broken
+            }
+            held.pool.release(held.connection);
+        }
+    }
+
+    /**
+     * Checks whether a thread's connection can still be used, validating it if it has been idle.
+     *
+     * @param held The thread's connection.
+     * @param now  The current time in epoch milliseconds.
+     * @return True if the connection is usable, false otherwise.
+     */
+    private static boolean isUsable(Lease held, long now) {
+        try {
+            if (held.connection.isClosed()) {
+                return false;
+            }
+            return now - held.lastUsed < VALIDATE_AFTER_MILLIS || held.connection.isValid(VALIDATE_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Rereads the database settings and, if they changed, replaces the connection pool.
+     * The old pool is drained: idle connections close at once, and connections in use close when their threads next ask for one.
+     * If the settings now point at another database, the caches are discarded so they are rebuilt from it.
+     */
+    public static synchronized void reloadConfig() {
+        try {
+            DatabaseConfig updated = DatabaseConfig.load();
+            if (updated.equals(config)) {
+                return;
+            }
+            ConnectionPool previous = pool;
+            String previousUrl = getDatabaseUrl();
+            config = updated;
+            pool = createPool(updated);
+            if (previous != null) {
+                previous.close();
+            }
+            if (!Objects.equals(previousUrl, getDatabaseUrl())) {
+                // The caches hold another database's rows
+                TimelineCache.invalidate();
+                SeriesCache.invalidate();
+                CustomerCache.invalidate();
+                GeographyCache.invalidate();
+            }
+            System.out.println("Database settings reloaded!");
+        } catch (Exception e) {
+            System.out.println("Error:" + e.getMessage());
+        }
+    }
+
+    /**
+     * Opens a separate connection to the central MySQL database, e.g. for an embedded desk to synchronize with.
+     *
+     * @return The new connection.
+     * @throws Exception If the driver cannot be found or the connection fails.
+     */
+    public static Connection openCentralConnection() throws Exception {
+        Class.forName(driver); // Locate Driver
+        DatabaseConfig settings = config != null ? config : DatabaseConfig.load();
+        return DriverManager.getConnection(settings.getUrl(), settings.getDriverProperties()); // Reference Connection object
+    }
+
     public static void closeConnection() {
         try {
-            connection.close(); // Reference Connection object
+            if (configWatcher != null) {
+                configWatcher.interrupt();
+            }
+            releaseConnection();
+            pool.close();
             System.out.println("Connection closed!");
         } catch (Exception e) {
             System.out.println("Error:" + e.getMessage());
         }
     }
+
+    /**
+     * Gets the database settings in use.
+     *
+     * @return The settings.
+     */
+    static DatabaseConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Gets the URL of the database the pool connects to, e.g. to tell apart data cached from different databases.
+     *
+     * @return The URL of the embedded database or the central server, depending on the backend, or null before openConnection.
+     */
+    public static String getDatabaseUrl() {
+        DatabaseConfig settings = config;
+        if (settings == null) {
+            return null;
+        }
+        return backend == Backend.EMBEDDED ? settings.getEmbeddedUrl() : settings.getUrl();
+    }
+
+    /**
+     * Gets the backend the application is running on.
+     *
+     * @return The backend.
+     */
+    public static Backend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Wraps a column in a case-sensitive comparison.
+     * MySQL compares text case-insensitively unless told otherwise; H2 is case-sensitive already.
+     *
+     * @param column The column name.
+     * @return The SQL expression to compare against.
+     */
+    public static String caseSensitive(String column) {
+        return backend == Backend.EMBEDDED ? column : "BINARY " + column;
+    }
+
+    /**
+     * Builds a connection pool for the backend in use.
+     *
+     * @param settings The database settings.
+     * @return The new pool.
+     */
+    private static ConnectionPool createPool(DatabaseConfig settings) {
+        ConnectionPool.Opener opener;
+        if (backend == Backend.EMBEDDED) {
+            String url = settings.getEmbeddedUrl() + embeddedSettings;
+            opener = () -> DriverManager.getConnection(url, embeddedUserName, "");
+        } else {
+            String url = settings.getUrl();
+            Properties properties = settings.getDriverProperties();
+            opener = () -> DriverManager.getConnection(url, properties);
+        }
+        return new ConnectionPool(opener, settings.getPoolSize(), settings.getBorrowTimeout());
+    }
+
+    /**
+     * Starts a background thread that reloads the database settings whenever the settings file changes.
+     *
+     * @throws IOException If the settings directory cannot be watched.
+     */
+    private static void watchConfig() throws IOException {
+        Path file = DatabaseConfig.FILE.toAbsolutePath();
+        WatchService watchService = FileSystems.getDefault().newWatchService();
+        file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+
+        configWatcher = new Thread(() -> {
+            try (watchService) {
+                while (true) {
+                    WatchKey key = watchService.take();
+                    boolean changed = false;
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        changed |= file.getFileName().equals(event.context());
+                    }
+                    key.reset();
+                    if (changed) {
+                        reloadConfig();
+                    }
+                }
+            } catch (InterruptedException | IOException e) {
+                // Closing the application stops the watcher
+            }
+        }, "database-config-watcher");
+        configWatcher.setDaemon(true);
+        configWatcher.start();
+    }
 }
@@ -0,0 +1,319 @@
+package helper;
+
+import database.AppointmentQuery;
+import database.ContactQuery;
+import database.CountryQuery;
+import database.CustomerQuery;
+import database.DivisionQuery;
+import database.SeriesQuery;
+import database.UserQuery;
+import model.Customer;
+import model.CustomerFilter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Applies the versioned schema migrations bundled under database/migrations and checks that the hot queries are indexed.
+ * Each script is named V{version}__{description}.sql and is applied once, in version order; applied versions are recorded
+ * in the schema_version table. Run on its own, the class migrates the configured database and then checks the query plans,
+ * exiting with status 1 if any filtered query would scan a whole table:
+ * <pre>
+ *   java helper.Migrator
+ * </pre>
+ *
+ * @author Daniel Akoko
+ */
+public class Migrator {
+
+    /** The bundled scripts, in version order. Resources cannot be listed from a jar, so each new script is added here. */
+    private static final String[] MIGRATIONS = {
+            "V1__baseline.sql",
+            "V2__appointment_series.sql",
+            "V3__sync_state.sql",
+            "V4__hot_query_indexes.sql",
+            "V5__row_versions.sql",
+            "V6__customer_sort_indexes.sql",
+            "V7__sync_rows.sql",
+            "V8__sync_pending.sql"
+    };
+    private static final String MIGRATION_PATH = "/database/migrations/";
+
+    /** A sample time for the range parameters of the hot queries. */
+    private static final LocalDateTime SAMPLE_TIME = LocalDateTime.of(2024, 1, 1, 9, 0);
+
+    /**
+     * Applies every bundled migration the database has not recorded yet.
+     * DDL commits implicitly on MySQL, so a script that fails part way is not rolled back; its version is not recorded,
+     * and the error names the script to fix before the next start.
+     *
+     * @throws DatabaseException If a script cannot be read or a statement fails.
+     */
+    public static void migrate() {
+        try {
+            Connection connection = JDBC.getConnection();
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE IF NOT EXISTS schema_version (Version INT NOT NULL PRIMARY KEY, " +
+                        "Description VARCHAR(100), Installed_On DATETIME)");
+            }
+            Set<Integer> applied = getAppliedVersions(connection);
+
+            for (String script : MIGRATIONS) {
+                int version = Integer.parseInt(script.substring(1, script.indexOf("__")));
+                if (applied.contains(version)) {
+                    continue;
+                }
+                String description = script.substring(script.indexOf("__") + 2, script.length() - 4).replace('_', ' ');
+                runScript(connection, readScript(script));
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "INSERT INTO schema_version (Version, Description, Installed_On) VALUES (?, ?, NOW())")) {
+                    statement.setInt(1, version);
+                    statement.setString(2, description);
+                    statement.executeUpdate();
+                }
+                System.out.println("Applied migration " + script);
+            }
+        } catch (SQLException e) {
+            throw JDBC.failure(e);
+        } catch (IOException e) {
+            throw new DatabaseException("The schema migrations could not be read: " + e.getMessage(), e, false);
+        }
+    }
+
+    /**
+     * Runs EXPLAIN on every hot query and reports those that would read their table without an index.
+     * The queries are the Query classes' own SQL, with sample parameters bound, so the check follows any change to them.
+     * On MySQL a query fails the check if no index is usable for the table (possible_keys is empty) or the optimizer still
+     * chose a full scan (type ALL). MySQL prefers a scan on a near-empty table, so the check is run against a database holding
+     * representative data, e.g. one seeded by the load test. On the embedded database a query fails if its plan is a table scan.
+     *
+     * @return One message per query that regressed; empty if every query is indexed.
+     * @throws DatabaseException If a plan cannot be read.
+     */
+    public static List<String> checkIndexes() {
+        List<String> failures = new ArrayList<>();
+        try {
+            Connection connection = JDBC.getConnection();
+            for (HotQuery query : hotQueries()) {
+                try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + query.sql)) {
+                    for (int i = 0; i < query.parameters.length; i++) {
+                        statement.setObject(i + 1, query.parameters[i]);
+                    }
+                    ResultSet plan = statement.executeQuery();
+                    if (!usesIndex(plan, query.table)) {
+                        failures.add(query.name + " reads " + query.table + " without an index: " + query.sql);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw JDBC.failure(e);
+        }
+        return failures;
+    }
+
+    /**
+     * Lists the filtered queries of the Query classes, each with the table that must be reached through an index.
+     * Reads of a whole table are not listed, and neither is UserQuery.validPassword, which compares a TEXT column no index can serve.
+     * Built when the check runs, since some queries depend on the backend in use.
+     *
+     * @return The queries.
+     */
+    private static List<HotQuery> hotQueries() {
+        List<HotQuery> queries = new ArrayList<>();
+        queries.add(new HotQuery("AppointmentQuery.getAppointment", "appointments", AppointmentQuery.APPOINTMENT_QUERY, 1));
+        queries.add(new HotQuery("AppointmentQuery.getAppointments", "appointments", AppointmentQuery.CUSTOMER_QUERY, 1));
+        queries.add(new HotQuery("AppointmentQuery.getUserAppointment", "appointments", AppointmentQuery.USER_QUERY, 1));
+        queries.add(new HotQuery("AppointmentQuery.getContactAppointment", "appointments", AppointmentQuery.CONTACT_QUERY, 1));
+        queries.add(new HotQuery("AppointmentQuery.getApptByWeek", "appointments", AppointmentQuery.STARTING_BETWEEN_QUERY,
+                SAMPLE_TIME, SAMPLE_TIME.plusWeeks(1)));
+        queries.add(new HotQuery("AppointmentQuery.getChangedSince", "appointments", AppointmentQuery.CHANGED_SINCE_QUERY, SAMPLE_TIME));
+        queries.add(new HotQuery("AppointmentQuery.getConflicts", "appointments", AppointmentQuery.CONFLICTS_QUERY,
+                1, SAMPLE_TIME.plusHours(1), SAMPLE_TIME, 0,
+                1, SAMPLE_TIME.plusHours(1), SAMPLE_TIME, 0,
+                1, SAMPLE_TIME.plusHours(1), SAMPLE_TIME, 0));
+        queries.add(new HotQuery("AppointmentQuery.deleteAppointment", "appointments", AppointmentQuery.DELETE_QUERY, 1));
+        queries.add(new HotQuery("AppointmentQuery.deleteCustomerAppointments", "appointments", AppointmentQuery.DELETE_CUSTOMER_QUERY, 1));
+        queries.add(new HotQuery("UserQuery.getUserId", "users", UserQuery.USER_NAME_QUERY, "test"));
+        queries.add(new HotQuery("UserQuery.validUsername", "users", UserQuery.validUsernameQuery(), "test", "test"));
+        queries.add(new HotQuery("UserQuery.returnUserId", "users", UserQuery.USER_QUERY, 1));
+        queries.add(new HotQuery("DivisionQuery.showDivision", "first_level_divisions", DivisionQuery.COUNTRY_DIVISIONS_QUERY, 1));
+        queries.add(new HotQuery("DivisionQuery.returnDivisionLevel", "first_level_divisions", DivisionQuery.DIVISION_QUERY, 1));
+        queries.add(new HotQuery("ContactQuery.returnContactId", "contacts", ContactQuery.CONTACT_NAME_QUERY, "test"));
+        queries.add(new HotQuery("ContactQuery.returnContactList", "contacts", ContactQuery.CONTACT_QUERY, 1));
+        queries.add(new HotQuery("CountryQuery.returnCountry", "countries", CountryQuery.COUNTRY_QUERY, 1));
+        queries.add(new HotQuery("CustomerQuery.getCustomer", "customers", CustomerQuery.CUSTOMER_BY_ID_QUERY, 1));
+        queries.add(new HotQuery("CustomerQuery.returnCustomerList", "customers", CustomerQuery.CUSTOMER_ID_QUERY, 1));
+        queries.add(pageQuery("CustomerQuery.getCustomerPage (name prefix)",
+                new CustomerFilter("a", 0, 0, CustomerFilter.Sort.NAME, false), null));
+        queries.add(pageQuery("CustomerQuery.getCustomerPage (division)",
+                new CustomerFilter("", 0, 1, CustomerFilter.Sort.NAME, false), null));
+        queries.add(pageQuery("CustomerQuery.getCustomerPage (country)",
+                new CustomerFilter("", 1, 0, CustomerFilter.Sort.NAME, false), null));
+        queries.add(pageQuery("CustomerQuery.getCustomerPage (next page)",
+                new CustomerFilter("", 0, 0, CustomerFilter.Sort.PHONE, false), new Customer(1, "a", "a", "a", "555", 1, 1, null, null)));
+        queries.add(new HotQuery("SeriesQuery.getOwnerSeries", "appointment_series", SeriesQuery.OWNER_SERIES_QUERY, 1, 1, 1));
+        queries.add(new HotQuery("SeriesQuery.deleteCustomerSeries", "appointment_series", SeriesQuery.DELETE_CUSTOMER_QUERY, 1));
+        return queries;
+    }
+
+    /**
+     * Builds a hot query from the customer page query for a sample filter, with three sample divisions for a country filter.
+     *
+     * @param name   The name to report the query by.
+     * @param filter The filter.
+     * @param after  The last customer of the previous page, or null for the first page.
+     * @return The query.
+     */
+    private static HotQuery pageQuery(String name, CustomerFilter filter, Customer after) {
+        List<Object> parameters = new ArrayList<>();
+        String sql = CustomerQuery.pageQuery(filter, List.of(1, 2, 3), after, 100, parameters);
+        return new HotQuery(name, "customers", sql, parameters.toArray());
+    }
+
+    /**
+     * Migrates the configured database and checks the query plans, for use from a build or deployment script.
+     *
+     * @param args Command-line arguments (not used).
+     */
+    public static void main(String[] args) {
+        JDBC.openConnection();
+        List<String> failures;
+        try {
+            migrate();
+            failures = checkIndexes();
+        } finally {
+            JDBC.closeConnection();
+        }
+        for (String failure : failures) {
+            System.out.println("Index check failed: " + failure);
+        }
+        System.out.println(failures.isEmpty() ? "Every hot query uses an index." : failures.size() + " queries regressed to a full scan.");
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+
+    /**
+     * Checks an EXPLAIN result for index use on a table.
+     *
+     * @param plan  The EXPLAIN result.
+     * @param table The table that must be reached through an index.
+     * @return True if the table is read through an index, false otherwise.
+     * @throws SQLException If the plan cannot be read.
+     */
+    private static boolean usesIndex(ResultSet plan, String table) throws SQLException {
+        if (JDBC.getBackend() == JDBC.Backend.EMBEDDED) {
+            // H2 returns the plan as text, naming the index it uses or "<table>.tableScan"
+            StringBuilder text = new StringBuilder();
+            while (plan.next()) {
+                text.append(plan.getString(1));
+            }
+            return !text.toString().toLowerCase(Locale.ROOT).contains(table + ".tablescan");
+        }
+
+        // A row for another table, or none at all when a primary key lookup finds no row, is not a scan of this table
+        while (plan.next()) {
+            if (!table.equalsIgnoreCase(plan.getString("table"))) {
+                continue;
+            }
+            String possibleKeys = plan.getString("possible_keys");
+            if (possibleKeys == null || possibleKeys.isEmpty() || "ALL".equalsIgnoreCase(plan.getString("type"))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the versions already applied to the database.
+     *
+     * @param connection The connection.
+     * @return The applied versions.
+     * @throws SQLException If the query fails.
+     */
+    private static Set<Integer> getAppliedVersions(Connection connection) throws SQLException {
+        Set<Integer> applied = new HashSet<>();
+        try (Statement statement = connection.createStatement()) {
+            ResultSet resultSet = statement.executeQuery("SELECT Version FROM schema_version");
+            while (resultSet.next()) {
+                applied.add(resultSet.getInt("Version"));
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Reads a bundled script.
+     *
+     * @param script The script's file name.
+     * @return The script text.
+     * @throws IOException If the script is missing or cannot be read.
+     */
+    private static String readScript(String script) throws IOException {
+        try (InputStream in = Migrator.class.getResourceAsStream(MIGRATION_PATH + script)) {
+            if (in == null) {
+                throw new IOException("Migration " + MIGRATION_PATH + script + " not found");
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Runs the statements of a script. Statements end with a semicolon at the end of a line, and lines starting with -- are comments.
+     *
+     * @param connection The connection to run the script on.
+     * @param script     The script text.
+     * @throws SQLException If a statement fails.
+     */
+    private static void runScript(Connection connection, String script) throws SQLException {
+        StringBuilder sql = new StringBuilder();
+        try (Statement statement = connection.createStatement()) {
+            for (String line : script.split("\\R")) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                    continue;
+                }
+                sql.append(line).append('\n');
+                if (trimmed.endsWith(";")) {
+                    statement.execute(sql.substring(0, sql.lastIndexOf(";")));
+                    sql.setLength(0);
+                }
+            }
+        }
+    }
+
+    /**
+     * A query to check, with the table it must reach through an index and sample values for its parameters.
+     */
+    private static class HotQuery {
+        private final String name;
+        private final String table;
+        private final String sql;
+        private final Object[] parameters;
+
+        /**
+         * Constructs a hot query.
+         *
+         * @param name       The name to report the query by, e.g. "AppointmentQuery.getAppointments".
+         * @param table      The table that must be reached through an index.
+         * @param sql        The query.
+         * @param parameters Sample values for its parameters, in order.
+         */
+        private HotQuery(String name, String table, String sql, Object... parameters) {
+            this.name = name;
+            this.table = table;
+            this.sql = sql;
+            this.parameters = parameters;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package helper;
+
+import javafx.event.ActionEvent;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Keeps every screen's node graph and controller once its FXML has been parsed, so navigating back to a screen reuses them
+ * instead of parsing the FXML, building the nodes and running initialize() again.
+ * Screens can be parsed ahead of time on a background thread with preload; a screen asked for before its preload has
+ * finished waits for it, and one that was never preloaded is parsed on first use.
+ * <p>
+ * Controllers keep only the wiring (cell factories, listeners, fixed choices) in initialize(), which runs once, and load their
+ * data in Screen.onShow, which runs every time the screen is shown. A screen whose data comes from the caches therefore
+ * switches in milliseconds, and one that queries the database costs only its queries.
+ *
+ * @author Daniel Akoko
+ */
+public class SceneCache {
+
+    /**
+     * A controller whose screen shows data that may have changed since it was last shown.
+     */
+    public interface Screen {
+        /**
+         * Called on the JavaFX thread each time the screen is about to be shown, including the first time.
+         * Loads the screen's data and resets any input left over from the last visit.
+         */
+        void onShow();
+    }
+
+    /**
+     * A parsed screen. The Scene is created on the JavaFX thread the first time the screen is shown.
+     */
+    private static final class Loaded {
+        private final Parent root;
+        private final Object controller;
+        private Scene scene;
+
+        private Loaded(Parent root, Object controller) {
+            this.root = root;
+            this.controller = controller;
+        }
+    }
+
+    private static final Map<String, FutureTask<Loaded>> screens = new ConcurrentHashMap<>();
+
+    /**
+     * Parses screens on a background thread, so they are ready before they are first shown.
+     * Nodes may be built off the JavaFX thread as long as they are not yet in a showing window, and initialize() does not query
+     * the database, so preloading needs no connection. A screen that fails to preload is parsed again when it is shown.
+     *
+     * @param names The FXML file names under view, without .fxml, e.g. AppointmentScreen.
+     */
+    public static void preload(String... names) {
+        Thread preloader = new Thread(() -> {
+            for (String name : names) {
+                task(name).run();
+            }
+        }, "scene-preload");
+        preloader.setDaemon(true);
+        preloader.start();
+    }
+
+    /**
+     * Shows a screen in the window an event came from.
+     *
+     * @param actionEvent The event triggering the navigation.
+     * @param name        The FXML file name under view, without .fxml.
+     * @param <T>         The type of the screen's controller.
+     * @return The screen's controller, e.g. to pass it the item to edit.
+     * @throws IOException If the FXML cannot be loaded.
+     */
+    public static <T> T show(ActionEvent actionEvent, String name) throws IOException {
+        return show((Stage) ((Node) actionEvent.getSource()).getScene().getWindow(), name);
+    }
+
+    /**
+     * Shows a screen in a window, after letting its controller load its data.
+     * Must be called on the JavaFX thread.
+     *
+     * @param stage The window.
+     * @param name  The FXML file name under view, without .fxml.
+     * @param <T>   The type of the screen's controller.
+     * @return The screen's controller, e.g. to pass it the item to edit.
+     * @throws IOException If the FXML cannot be loaded.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T show(Stage stage, String name) throws IOException {
+        Loaded loaded = get(name);
+        if (loaded.controller instanceof Screen) {
+            ((Screen) loaded.controller).onShow();
+        }
+        if (loaded.scene == null) {
+            loaded.scene = new Scene(loaded.root);
+        }
+        stage.setScene(loaded.scene);
+        stage.show();
+        return (T) loaded.controller;
+    }
+
+    /**
+     * Gets a parsed screen, parsing it on this thread if no preload has started it.
+     *
+     * @param name The FXML file name under view, without .fxml.
+     * @return The parsed screen.
+     * @throws IOException If the FXML cannot be loaded.
+     */
+    private static Loaded get(String name) throws IOException {
+        FutureTask<Loaded> task = task(name);
+        // Does nothing if a preload has already run the task or is running it; get() then waits for it
+        task.run();
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            // Forgetting the failure so the next attempt parses the screen again
+            screens.remove(name, task);
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException("Could not load " + name, cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading " + name, e);
+        }
+    }
+
+    /**
+     * Gets the task that parses a screen, creating it if this is the first request for the screen.
+     *
+     * @param name The FXML file name under view, without .fxml.
+     * @return The task.
+     */
+    private static FutureTask<Loaded> task(String name) {
+        return screens.computeIfAbsent(name, key -> new FutureTask<>(() -> {
+            FXMLLoader loader = new FXMLLoader(SceneCache.class.getResource("../view/" + key + ".fxml"));
+            Parent root = loader.load();
+            return new Loaded(root, loader.getController());
+        }));
+    }
+}
@@ -0,0 +1,205 @@
+package helper;
+
+import database.SeriesQuery;
+import model.Appointment;
+import model.AppointmentSeries;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory cache of recurring appointment series.
+ * Series are loaded once and patched by SeriesQuery on writes. Before every lookup the cache compares the version of each
+ * series it holds with the stored ones, and rereads only the series other desks have added or changed, dropping those they
+ * deleted. Occurrences are expanded lazily, only for the window a view, report or free-slot search asks for,
+ * so no occurrence rows are ever materialized.
+ *
+ * @author Daniel Akoko
+ */
+public class SeriesCache {
+    private static final List<AppointmentSeries> seriesList = new ArrayList<>();
+    /** The version of each cached series, by series ID, as last read or written by this desk. */
+    private static final Map<Integer, Integer> versions = new HashMap<>();
+    private static boolean loaded;
+
+    /**
+     * Finds a series by its ID, as it is now stored.
+     *
+     * @param seriesId The ID of the series.
+     * @return The series, or null if it does not exist.
+     */
+    public static synchronized AppointmentSeries getSeries(int seriesId) {
+        refresh();
+        for (AppointmentSeries series : seriesList) {
+            if (series.getSeriesId() == seriesId) {
+                return series;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Expands the occurrences of every stored series that overlap a window.
+     *
+     * @param from The start of the window.
+     * @param to   The end of the window.
+     * @return The occurrences, ordered by start time.
+     */
+    public static synchronized List<Appointment> expand(LocalDateTime from, LocalDateTime to) {
+        refresh();
+        List<Appointment> occurrences = new ArrayList<>();
+        for (AppointmentSeries series : seriesList) {
+            occurrences.addAll(series.expand(from, to));
+        }
+        occurrences.sort(Comparator.comparingLong(Appointment::getStartMillis));
+        return occurrences;
+    }
+
+    /**
+     * Collects the time booked by series occurrences for a customer, a contact or a user within a range.
+     *
+     * @param from       The start of the range.
+     * @param to         The end of the range.
+     * @param customerId The ID of the customer.
+     * @param contactId  The ID of the contact.
+     * @param userId     The ID of the user.
+     * @return The busy intervals as start/end pairs in epoch milliseconds, ordered by start; they may overlap.
+     */
+    public static synchronized long[] getBusyIntervals(LocalDateTime from, LocalDateTime to, int customerId, int contactId, int userId) {
+        refresh();
+        List<Appointment> occurrences = new ArrayList<>();
+        for (AppointmentSeries series : seriesList) {
+            if (series.getCustomerId() == customerId || series.getContact() == contactId || series.getUserId() == userId) {
+                occurrences.addAll(series.expand(from, to));
+            }
+        }
+        occurrences.sort(Comparator.comparingLong(Appointment::getStartMillis));
+
+        long[] busy = new long[occurrences.size() * 2];
+        for (int i = 0; i < occurrences.size(); i++) {
+            busy[i * 2] = occurrences.get(i).getStartMillis();
+            busy[i * 2 + 1] = occurrences.get(i).getEndMillis();
+        }
+        return busy;
+    }
+
+    /**
+     * Patches the cache with a newly added series.
+     *
+     * @param series The series that was added.
+     */
+    public static synchronized void added(AppointmentSeries series) {
+        if (loaded) {
+            seriesList.add(series);
+            versions.put(series.getSeriesId(), 0);
+        }
+    }
+
+    /**
+     * Patches a cached series with an occurrence that was excluded.
+     *
+     * @param seriesId The ID of the series.
+     * @param date     The excluded date, in the business time zone.
+     */
+    public static synchronized void exceptionAdded(int seriesId, LocalDate date) {
+        for (AppointmentSeries series : seriesList) {
+            if (series.getSeriesId() == seriesId) {
+                series.getRecurrence().addException(date);
+                versions.computeIfPresent(seriesId, (id, version) -> version + 1);
+            }
+        }
+    }
+
+    /**
+     * Removes a deleted series from the cache.
+     *
+     * @param seriesId The ID of the series that was deleted.
+     */
+    public static synchronized void deleted(int seriesId) {
+        seriesList.removeIf(series -> series.getSeriesId() == seriesId);
+        versions.remove(seriesId);
+    }
+
+    /**
+     * Removes the series of a deleted customer from the cache.
+     *
+     * @param customerId The ID of the customer whose series were deleted.
+     */
+    public static synchronized void customerDeleted(int customerId) {
+        seriesList.removeIf(series -> {
+            if (series.getCustomerId() == customerId) {
+                versions.remove(series.getSeriesId());
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Discards the cached series so the next lookup reloads them from the database.
+     */
+    public static synchronized void invalidate() {
+        seriesList.clear();
+        versions.clear();
+        loaded = false;
+    }
+
+    /**
+     * Loads the series ahead of their first use, e.g. on a background thread while the user logs in.
+     */
+    public static synchronized void preload() {
+        load();
+    }
+
+    /**
+     * Brings the cache up to date with the series every desk has stored, loading it if it has not been loaded yet.
+     * Only the versions are read in full; a series whose version differs from the cached one is read again, a new one is
+     * added and one no longer stored is dropped.
+     */
+    public static synchronized void refresh() {
+        if (!loaded) {
+            load();
+            return;
+        }
+        Map<Integer, Integer> stored = SeriesQuery.getSeriesVersions();
+        Set<Integer> changed = new HashSet<>();
+        for (Map.Entry<Integer, Integer> entry : stored.entrySet()) {
+            if (!entry.getValue().equals(versions.get(entry.getKey()))) {
+                changed.add(entry.getKey());
+            }
+        }
+        // Read before anything is dropped, so a failed read leaves the cache as it was
+        List<AppointmentSeries> reread = SeriesQuery.getSeries(changed);
+        seriesList.removeIf(series -> !stored.containsKey(series.getSeriesId()) || changed.contains(series.getSeriesId()));
+        versions.keySet().retainAll(stored.keySet());
+        if (!changed.isEmpty()) {
+            seriesList.addAll(reread);
+            seriesList.sort(Comparator.comparingInt(AppointmentSeries::getSeriesId));
+            for (int seriesId : changed) {
+                versions.put(seriesId, stored.get(seriesId));
+            }
+        }
+    }
+
+    /**
+     * Loads the series from the database if they have not been loaded yet.
+     * The versions are read first, so a series changed while the series are read is read again by the next refresh.
+     */
+    private static void load() {
+        if (!loaded) {
+            Map<Integer, Integer> stored = SeriesQuery.getSeriesVersions();
+            seriesList.addAll(SeriesQuery.getAllSeries());
+            for (AppointmentSeries series : seriesList) {
+                versions.put(series.getSeriesId(), stored.getOrDefault(series.getSeriesId(), -1));
+            }
+            loaded = true;
+        }
+    }
+}
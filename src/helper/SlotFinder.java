@@ -0,0 +1,139 @@
+package helper;
+
+import model.TimeSlot;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static helper.Util.BUSINESS_END_TIME;
+import static helper.Util.BUSINESS_START_TIME;
+import static helper.Util.BUSINESS_ZONE;
+
+/**
+ * Finds free windows for booking an appointment.
+ * The busy time of the customer, the contact and the user is merged from the cached timelines and recurring series,
+ * and subtracted from the business hours of each day in the requested range.
+ *
+ * @author Daniel Akoko
+ */
+public class SlotFinder {
+
+    /** Free windows start on this grid so they line up with the times offered in the forms. */
+    private static final long STEP_MILLIS = Duration.ofMinutes(15).toMillis();
+
+    /**
+     * Finds the earliest free windows that can hold an appointment of the specified duration.
+     * Only business hours (8:00 a.m. to 10:00 p.m. ET) on every day from the start date to the end date are searched,
+     * weekends included as the forms allow, and windows in the past are skipped.
+     *
+     * @param customerId The ID of the customer.
+     * @param contactId  The ID of the contact.
+     * @param userId     The ID of the user.
+     * @param duration   The length of the appointment.
+     * @param from       The first day to search.
+     * @param to         The last day to search.
+     * @param limit      The maximum number of windows to return.
+     * @return The free windows in local time, earliest first.
+     */
+    public static List<TimeSlot> findFreeSlots(int customerId, int contactId, int userId, Duration duration,
+                                               LocalDate from, LocalDate to, int limit) {
+        List<TimeSlot> slots = new ArrayList<>();
+        long length = duration.toMillis();
+        if (length <= 0 || to.isBefore(from)) {
+            return slots;
+        }
+
+        long rangeStart = businessTime(from, BUSINESS_START_TIME.getHour(), BUSINESS_START_TIME.getMinute());
+        long rangeEnd = businessTime(to, BUSINESS_END_TIME.getHour(), BUSINESS_END_TIME.getMinute());
+        long[] busy = merge(TimelineCache.getBusyIntervals(rangeStart, rangeEnd, customerId, contactId, userId),
+                SeriesCache.getBusyIntervals(TimeConverter.toLocal(rangeStart), TimeConverter.toLocal(rangeEnd), customerId, contactId, userId));
+        long now = System.currentTimeMillis();
+
+        int next = 0;
+        for (LocalDate day = from; !day.isAfter(to) && slots.size() < limit; day = day.plusDays(1)) {
+            long open = businessTime(day, BUSINESS_START_TIME.getHour(), BUSINESS_START_TIME.getMinute());
+            long close = businessTime(day, BUSINESS_END_TIME.getHour(), BUSINESS_END_TIME.getMinute());
+            long cursor = alignUp(Math.max(open, now));
+
+            while (cursor + length <= close && slots.size() < limit) {
+                // Skip busy intervals that end before the cursor; they are sorted and do not overlap
+                while (next < busy.length && busy[next + 1] <= cursor) {
+                    next += 2;
+                }
+                if (next < busy.length && busy[next] < cursor + length) {
+                    // The window starting at the cursor runs into busy time, so move past it
+                    cursor = alignUp(Math.max(cursor, busy[next + 1]));
+                    continue;
+                }
+                long gapEnd = next < busy.length ? Math.min(busy[next], close) : close;
+                slots.add(new TimeSlot(TimeConverter.toLocal(cursor), TimeConverter.toLocal(gapEnd)));
+                cursor = gapEnd;
+            }
+        }
+        return slots;
+    }
+
+    /**
+     * Merges two lists of busy intervals, each ordered by start, into one ordered list without overlaps.
+     *
+     * @param first  The first list as start/end pairs.
+     * @param second The second list as start/end pairs.
+     * @return The merged list as start/end pairs.
+     */
+    private static long[] merge(long[] first, long[] second) {
+        if (second.length == 0) {
+            return first;
+        }
+        long[] merged = new long[first.length + second.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length || j < second.length) {
+            long start;
+            long end;
+            if (j >= second.length || (i < first.length && first[i] <= second[j])) {
+                start = first[i];
+                end = first[i + 1];
+                i += 2;
+            } else {
+                start = second[j];
+                end = second[j + 1];
+                j += 2;
+            }
+            if (count > 0 && start <= merged[count - 1]) {
+                merged[count - 1] = Math.max(merged[count - 1], end);
+            } else {
+                merged[count++] = start;
+                merged[count++] = end;
+            }
+        }
+        return Arrays.copyOf(merged, count);
+    }
+
+    /**
+     * Converts a time of day in the business time zone to epoch milliseconds.
+     *
+     * @param day    The day.
+     * @param hour   The hour of the day.
+     * @param minute The minute of the hour.
+     * @return The epoch milliseconds.
+     */
+    private static long businessTime(LocalDate day, int hour, int minute) {
+        return ZonedDateTime.of(day.atTime(hour, minute), BUSINESS_ZONE).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Rounds a time up to the next slot boundary.
+     *
+     * @param time The time in epoch milliseconds.
+     * @return The rounded time.
+     */
+    private static long alignUp(long time) {
+        return Math.floorDiv(time + STEP_MILLIS - 1, STEP_MILLIS) * STEP_MILLIS;
+    }
+}
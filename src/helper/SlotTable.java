@@ -0,0 +1,187 @@
+package helper;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+
+import static helper.Util.BUSINESS_END_TIME;
+import static helper.Util.BUSINESS_START_TIME;
+import static helper.Util.BUSINESS_ZONE;
+
+/**
+ * Precomputed tables of the times offered in the appointment forms.
+ * For each system time zone, business time zone, local date and slot length, the start and end times that fall within
+ * business hours are worked out once, in local time, and shared by every form that asks for the same day.
+ * Days on which either zone changes its clocks are handled by stepping through instants rather than local times,
+ * so skipped local times are never offered and repeated local times are offered once.
+ *
+ * @author Daniel Akoko
+ */
+public class SlotTable {
+
+    /** The default slot length offered in the forms, in minutes. */
+    public static final int DEFAULT_STEP_MINUTES = 15;
+
+    /** Tables for the most recently used days are kept; older ones are recomputed on demand. */
+    private static final int MAX_TABLES = 512;
+
+    private static final Map<Key, Table> tables = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Table> eldest) {
+            return size() > MAX_TABLES;
+        }
+    };
+
+    /**
+     * Identifies one slot table.
+     */
+    private record Key(ZoneId systemZone, ZoneId businessZone, LocalDate date, int stepMinutes) { }
+
+    /**
+     * The start and end times offered for one local date.
+     */
+    private record Table(List<LocalTime> startTimes, List<LocalTime> endTimes) { }
+
+    /**
+     * Gets the appointment start times offered on a date in the system time zone, using the default slot length.
+     *
+     * @param date The local date.
+     * @return The start times in local time, earliest first. The list is shared and cannot be modified.
+     */
+    public static List<LocalTime> getStartTimes(LocalDate date) {
+        return getStartTimes(ZoneId.systemDefault(), BUSINESS_ZONE, date, DEFAULT_STEP_MINUTES);
+    }
+
+    /**
+     * Gets the appointment end times offered on a date in the system time zone, using the default slot length.
+     *
+     * @param date The local date.
+     * @return The end times in local time, earliest first. The list is shared and cannot be modified.
+     */
+    public static List<LocalTime> getEndTimes(LocalDate date) {
+        return getEndTimes(ZoneId.systemDefault(), BUSINESS_ZONE, date, DEFAULT_STEP_MINUTES);
+    }
+
+    /**
+     * Gets the appointment start times offered on a local date.
+     *
+     * @param systemZone   The time zone the times are shown in.
+     * @param businessZone The time zone in which business hours are defined.
+     * @param date         The local date.
+     * @param stepMinutes  The slot length in minutes.
+     * @return The start times in local time, earliest first. The list is shared and cannot be modified.
+     */
+    public static List<LocalTime> getStartTimes(ZoneId systemZone, ZoneId businessZone, LocalDate date, int stepMinutes) {
+        return table(systemZone, businessZone, date, stepMinutes).startTimes();
+    }
+
+    /**
+     * Gets the appointment end times offered on a local date.
+     *
+     * @param systemZone   The time zone the times are shown in.
+     * @param businessZone The time zone in which business hours are defined.
+     * @param date         The local date.
+     * @param stepMinutes  The slot length in minutes.
+     * @return The end times in local time, earliest first. The list is shared and cannot be modified.
+     */
+    public static List<LocalTime> getEndTimes(ZoneId systemZone, ZoneId businessZone, LocalDate date, int stepMinutes) {
+        return table(systemZone, businessZone, date, stepMinutes).endTimes();
+    }
+
+    /**
+     * Precomputes the tables for a run of days in the system time zone, so the forms find them ready.
+     *
+     * @param from The first local date.
+     * @param days The number of days.
+     */
+    public static void preload(LocalDate from, int days) {
+        for (int i = 0; i < days; i++) {
+            table(ZoneId.systemDefault(), BUSINESS_ZONE, from.plusDays(i), DEFAULT_STEP_MINUTES);
+        }
+    }
+
+    /**
+     * Checks that an appointment lies within a single business day's hours (8:00 a.m. to 10:00 p.m. ET).
+     *
+     * @param start The start date and time in the system time zone.
+     * @param end   The end date and time in the system time zone.
+     * @return True if the appointment starts before it ends and lies within business hours, false otherwise.
+     */
+    public static boolean isWithinBusinessHours(LocalDateTime start, LocalDateTime end) {
+        if (start == null || end == null || !start.isBefore(end)) {
+            return false;
+        }
+        ZonedDateTime businessStart = start.atZone(ZoneId.systemDefault()).withZoneSameInstant(BUSINESS_ZONE);
+        ZonedDateTime businessEnd = end.atZone(ZoneId.systemDefault()).withZoneSameInstant(BUSINESS_ZONE);
+        LocalDate day = businessStart.toLocalDate();
+        return !businessStart.isBefore(ZonedDateTime.of(day, BUSINESS_START_TIME, BUSINESS_ZONE))
+                && !businessEnd.isAfter(ZonedDateTime.of(day, BUSINESS_END_TIME, BUSINESS_ZONE));
+    }
+
+    /**
+     * Drops every precomputed table, e.g. after the system time zone has changed.
+     */
+    public static synchronized void invalidate() {
+        tables.clear();
+    }
+
+    /**
+     * Gets a table from the cache, computing it on first use.
+     *
+     * @param systemZone   The time zone the times are shown in.
+     * @param businessZone The time zone in which business hours are defined.
+     * @param date         The local date.
+     * @param stepMinutes  The slot length in minutes.
+     * @return The table.
+     */
+    private static synchronized Table table(ZoneId systemZone, ZoneId businessZone, LocalDate date, int stepMinutes) {
+        Key key = new Key(Objects.requireNonNull(systemZone), Objects.requireNonNull(businessZone), Objects.requireNonNull(date), stepMinutes);
+        return tables.computeIfAbsent(key, SlotTable::compute);
+    }
+
+    /**
+     * Computes the start and end times for one local date.
+     * A local date can overlap the business hours of the business day before, the same day, or the day after,
+     * depending on how far apart the two zones are, so all three business days are stepped through.
+     *
+     * @param key The table to compute.
+     * @return The computed table.
+     */
+    private static Table compute(Key key) {
+        long step = key.stepMinutes() * 60_000L;
+        long dayStart = key.date().atStartOfDay(key.systemZone()).toInstant().toEpochMilli();
+        long dayEnd = key.date().plusDays(1).atStartOfDay(key.systemZone()).toInstant().toEpochMilli();
+
+        // Sorted sets keep times in order when the window wraps past local midnight, and fold repeated times together
+        TreeSet<LocalTime> startTimes = new TreeSet<>();
+        TreeSet<LocalTime> endTimes = new TreeSet<>();
+        for (LocalDate businessDay = key.date().minusDays(1); !businessDay.isAfter(key.date().plusDays(1)); businessDay = businessDay.plusDays(1)) {
+            long open = ZonedDateTime.of(businessDay, BUSINESS_START_TIME, key.businessZone()).toInstant().toEpochMilli();
+            long close = ZonedDateTime.of(businessDay, BUSINESS_END_TIME, key.businessZone()).toInstant().toEpochMilli();
+            for (long time = open; time <= close; time += step) {
+                if (time < dayStart || time >= dayEnd) {
+                    continue;
+                }
+                LocalTime local = Instant.ofEpochMilli(time).atZone(key.systemZone()).toLocalTime();
+                if (time + step <= close) {
+                    startTimes.add(local);
+                }
+                if (time > open) {
+                    endTimes.add(local);
+                }
+            }
+        }
+        return new Table(Collections.unmodifiableList(new ArrayList<>(startTimes)),
+                Collections.unmodifiableList(new ArrayList<>(endTimes)));
+    }
+}
@@ -0,0 +1,122 @@
+package helper;
+
+import database.ContactQuery;
+import database.UserQuery;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Prepares the desk in the background while the login screen is up, instead of before it is shown.
+ * Opening the database (and the optional sync) runs in parallel with precomputing the form time slots; once the database
+ * is open, the appointment, series and customer caches and the reference lists the forms load are read in parallel, each on
+ * a startup thread and pooled connection, so the pool's connections are opened together and the statements the screens run
+ * first are already parsed and cached on them. The screens' FXML is parsed at the same time by SceneCache.preload.
+ * <p>
+ * The login waits only for the database; a warm-up step that fails is printed and left for the screen that needs it to retry.
+ *
+ * @author Daniel Akoko
+ */
+public class Startup {
+
+    /**
+     * Threads the startup steps run on. There are four warm-up steps but only three threads, one less than the default pool
+     * size of four, so a login that starts during the warm-up always finds a free connection instead of queueing behind
+     * them; the fourth step starts when the first of the others finishes.
+     */
+    private static final int THREADS = 3;
+    /** Days of form time slots precomputed. */
+    private static final int SLOT_DAYS = 14;
+
+    private static volatile CompletableFuture<Void> ready = CompletableFuture.completedFuture(null);
+    private static volatile CompletableFuture<Void> warmedUp = CompletableFuture.completedFuture(null);
+
+    /**
+     * Starts the pipeline and returns at once.
+     *
+     * @param sync True to bring in the central database's changes once the database is open (see DatabaseSync).
+     */
+    public static void begin(boolean sync) {
+        AtomicInteger count = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(THREADS, task -> {
+            Thread thread = new Thread(task, "startup-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        CompletableFuture<Void> database = step(workers, "open the database", () -> {
+            JDBC.openConnection();
+            if (sync) {
+                DatabaseSync.synchronize();
+            }
+        });
+        CompletableFuture<Void> slots = step(workers, "precompute the time slots", () -> SlotTable.preload(LocalDate.now(), SLOT_DAYS));
+        ready = CompletableFuture.allOf(database, slots);
+
+        warmedUp = database.thenCompose(opened -> CompletableFuture.allOf(
+                step(workers, "load the appointments", TimelineCache::preload),
+                step(workers, "load the series", () -> {
+                    SeriesCache.preload();
+                    LocalDateTime now = LocalDateTime.now();
+                    SeriesCache.expand(now, now.plusWeeks(1));
+                }),
+                step(workers, "load the reference lists", () -> {
+                    ContactQuery.getAllContacts();
+                    UserQuery.getUserList();
+                    GeographyCache.preload();
+                }),
+                step(workers, "load the customers", CustomerCache::preload)
+        )).thenCombine(slots, (loaded, precomputed) -> (Void) null);
+        warmedUp.whenComplete((done, failure) -> workers.shutdown());
+    }
+
+    /**
+     * Gets a future that completes once the database is open and the time slots are precomputed.
+     * The login continues from it on the JavaFX thread, so the screen stays responsive while it waits.
+     *
+     * @return The future.
+     */
+    public static CompletableFuture<Void> whenReady() {
+        return ready;
+    }
+
+    /**
+     * Waits until the database is open and the time slots are precomputed.
+     * Called off the JavaFX thread, e.g. by the headless service before it starts serving.
+     */
+    public static void awaitReady() {
+        ready.join();
+    }
+
+    /**
+     * Waits until every startup step has finished, e.g. before the database is closed at exit.
+     */
+    public static void awaitWarmUp() {
+        warmedUp.join();
+    }
+
+    /**
+     * Runs a step on a worker thread and hands the thread's connection back afterwards.
+     * A failed step is printed and completes normally, so the steps after it still run.
+     *
+     * @param workers The startup threads.
+     * @param what    What the step does, for the error message.
+     * @param step    The step.
+     * @return A future that completes when the step has finished.
+     */
+    private static CompletableFuture<Void> step(ExecutorService workers, String what, Runnable step) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                step.run();
+            } catch (RuntimeException e) {
+                System.out.println("Error: could not " + what + " at startup: " + e.getMessage());
+            } finally {
+                JDBC.releaseConnection();
+            }
+        }, workers);
+    }
+}
@@ -0,0 +1,67 @@
+package helper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Merges an edit form with a row someone else saved while the form was open.
+ * Each field is compared three ways: the value the form was opened with, the value in the form, and the value now saved.
+ * A field only one side changed takes that side's value; a field both sides changed to different values keeps the
+ * form's value and is recorded as a conflict, so the user can review it before saving again.
+ *
+ * @author Daniel Akoko
+ */
+public class ThreeWayMerge {
+
+    private final List<String> conflicts = new ArrayList<>();
+
+    /**
+     * Merges one field.
+     *
+     * @param name   The field's label, used in the conflict list.
+     * @param base   The value the form was opened with.
+     * @param mine   The value in the form.
+     * @param theirs The value now saved.
+     * @param <T>    The type of the field.
+     * @return The merged value.
+     */
+    public <T> T field(String name, T base, T mine, T theirs) {
+        if (Objects.equals(mine, theirs) || Objects.equals(theirs, base)) {
+            return mine;
+        }
+        if (Objects.equals(mine, base)) {
+            return theirs;
+        }
+        conflicts.add(name + ": yours \"" + mine + "\", saved \"" + theirs + "\"");
+        return mine;
+    }
+
+    /**
+     * Checks whether any field was changed differently on both sides.
+     *
+     * @return True if there are conflicts, false otherwise.
+     */
+    public boolean hasConflicts() {
+        return !conflicts.isEmpty();
+    }
+
+    /**
+     * Describes the merge for an alert: that the saved changes were taken into the form, and which fields kept the form's value
+     * over a different saved one.
+     *
+     * @param what The kind of row, e.g. "appointment".
+     * @return The message.
+     */
+    public String describe(String what) {
+        StringBuilder message = new StringBuilder("Another user saved this " + what + " while you were editing it. ")
+                .append("Their changes have been merged into the form.");
+        if (hasConflicts()) {
+            message.append("\n\nYou both changed these fields; your values have been kept:");
+            for (String conflict : conflicts) {
+                message.append("\n  ").append(conflict);
+            }
+        }
+        return message.append("\n\nReview the form and save again.").toString();
+    }
+}
@@ -0,0 +1,119 @@
+package helper;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.zone.ZoneRules;
+
+/**
+ * The single place where appointment times change representation.
+ * Inside the application, times are epoch milliseconds; the database stores them as UTC date-times,
+ * and the forms and tables show them as local date-times in the system time zone.
+ * The zone rules of the system time zone are looked up once, at startup, and reused for every conversion without locking.
+ *
+ * @author Daniel Akoko
+ */
+public class TimeConverter {
+
+    /** The zone rules of the system time zone, read once at startup; the desk never changes its default zone. */
+    private static final ZoneRules SYSTEM_RULES = ZoneId.systemDefault().getRules();
+
+    /**
+     * Converts a local date and time in the system time zone to epoch milliseconds.
+     * A local time skipped by a clock change is read with the offset before the change, as ZonedDateTime does.
+     *
+     * @param time The local date and time.
+     * @return The epoch milliseconds.
+     */
+    public static long toEpochMilli(LocalDateTime time) {
+        ZoneOffset offset = SYSTEM_RULES.getOffset(time);
+        return time.toEpochSecond(offset) * 1000 + time.getNano() / 1_000_000;
+    }
+
+    /**
+     * Converts epoch milliseconds to a local date and time in the system time zone.
+     *
+     * @param epochMilli The epoch milliseconds.
+     * @return The local date and time.
+     */
+    public static LocalDateTime toLocal(long epochMilli) {
+        Instant instant = Instant.ofEpochMilli(epochMilli);
+        return LocalDateTime.ofInstant(instant, SYSTEM_RULES.getOffset(instant));
+    }
+
+    /**
+     * Converts epoch milliseconds to a date and time in the specified time zone.
+     *
+     * @param epochMilli The epoch milliseconds.
+     * @param zone       The time zone.
+     * @return The zoned date and time.
+     */
+    public static ZonedDateTime toZoned(long epochMilli, ZoneId zone) {
+        return Instant.ofEpochMilli(epochMilli).atZone(zone);
+    }
+
+    /**
+     * Converts epoch milliseconds to a date and time in the business time zone, e.g. to apply a recurrence rule the same
+     * way on every desk.
+     *
+     * @param epochMilli The epoch milliseconds.
+     * @return The date and time in the business time zone.
+     */
+    public static LocalDateTime toBusiness(long epochMilli) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), Util.BUSINESS_ZONE);
+    }
+
+    /**
+     * Converts a date and time in the business time zone to epoch milliseconds.
+     * A time skipped by a clock change is read with the offset before the change, as ZonedDateTime does.
+     *
+     * @param time The date and time in the business time zone.
+     * @return The epoch milliseconds.
+     */
+    public static long fromBusiness(LocalDateTime time) {
+        return time.atZone(Util.BUSINESS_ZONE).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Sets a statement parameter to a UTC date-time.
+     * The value is bound as a LocalDateTime, so the driver stores it without any further time zone conversion.
+     *
+     * @param statement  The prepared statement.
+     * @param index      The parameter index.
+     * @param epochMilli The time in epoch milliseconds.
+     * @throws SQLException If the parameter cannot be set.
+     */
+    public static void setUtc(PreparedStatement statement, int index, long epochMilli) throws SQLException {
+        statement.setObject(index, LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), ZoneOffset.UTC));
+    }
+
+    /**
+     * Sets a statement parameter to the UTC form of a local date and time in the system time zone.
+     *
+     * @param statement The prepared statement.
+     * @param index     The parameter index.
+     * @param time      The local date and time.
+     * @throws SQLException If the parameter cannot be set.
+     */
+    public static void setUtc(PreparedStatement statement, int index, LocalDateTime time) throws SQLException {
+        setUtc(statement, index, toEpochMilli(time));
+    }
+
+    /**
+     * Reads a UTC date-time column as epoch milliseconds.
+     *
+     * @param resultSet The result set, positioned on a row.
+     * @param column    The column label.
+     * @return The epoch milliseconds.
+     * @throws SQLException If the column cannot be read.
+     */
+    public static long getUtc(ResultSet resultSet, String column) throws SQLException {
+        LocalDateTime utc = resultSet.getObject(column, LocalDateTime.class);
+        return utc.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
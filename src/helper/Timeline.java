@@ -0,0 +1,175 @@
+package helper;
+
+import java.util.Arrays;
+
+/**
+ * A sorted timeline of appointment intervals belonging to a single owner (e.g. one contact).
+ * Intervals are kept in primitive arrays ordered by start time, so range lookups are a binary search
+ * instead of a scan or a database round-trip.
+ * Times are epoch milliseconds and intervals are half-open: [start, end).
+ *
+ * @author Daniel Akoko
+ */
+public class Timeline {
+    private int size;
+    private int[] ids = new int[8];
+    private long[] starts = new long[8];
+    private long[] ends = new long[8];
+    // maxEnds[i] is the latest end among intervals 0..i, which lets overlap lookups skip ahead with a binary search
+    private long[] maxEnds = new long[8];
+
+    /**
+     * Gets the number of intervals on the timeline.
+     *
+     * @return The number of intervals.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the appointment ID stored at the specified position.
+     *
+     * @param index The position on the timeline.
+     * @return The appointment ID.
+     */
+    public int getId(int index) {
+        return ids[index];
+    }
+
+    /**
+     * Gets the start time stored at the specified position.
+     *
+     * @param index The position on the timeline.
+     * @return The start time in epoch milliseconds.
+     */
+    public long getStart(int index) {
+        return starts[index];
+    }
+
+    /**
+     * Gets the end time stored at the specified position.
+     *
+     * @param index The position on the timeline.
+     * @return The end time in epoch milliseconds.
+     */
+    public long getEnd(int index) {
+        return ends[index];
+    }
+
+    /**
+     * Inserts an interval, keeping the timeline sorted by start time.
+     *
+     * @param id    The appointment ID.
+     * @param start The start time in epoch milliseconds.
+     * @param end   The end time in epoch milliseconds.
+     */
+    public void insert(int id, long start, long end) {
+        if (size == ids.length) {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            maxEnds = Arrays.copyOf(maxEnds, capacity);
+        }
+        // Insert after any intervals with the same start so equal starts keep their insertion order
+        int index = lowerBound(start + 1);
+        int moved = size - index;
+        System.arraycopy(ids, index, ids, index + 1, moved);
+        System.arraycopy(starts, index, starts, index + 1, moved);
+        System.arraycopy(ends, index, ends, index + 1, moved);
+        ids[index] = id;
+        starts[index] = start;
+        ends[index] = end;
+        size++;
+        updateMaxEnds(index);
+    }
+
+    /**
+     * Removes the interval for the specified appointment ID.
+     *
+     * @param id The appointment ID.
+     * @return True if an interval was removed, false if the ID was not on the timeline.
+     */
+    public boolean remove(int id) {
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == id) {
+                int moved = size - i - 1;
+                System.arraycopy(ids, i + 1, ids, i, moved);
+                System.arraycopy(starts, i + 1, starts, i, moved);
+                System.arraycopy(ends, i + 1, ends, i, moved);
+                size--;
+                updateMaxEnds(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds the first position whose start time is at or after the specified time.
+     *
+     * @param time The time in epoch milliseconds.
+     * @return The position, or size() if every interval starts before the time.
+     */
+    public int lowerBound(long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Gets the IDs of the intervals that start within the specified range.
+     *
+     * @param from The inclusive lower bound in epoch milliseconds.
+     * @param to   The exclusive upper bound in epoch milliseconds.
+     * @return The matching appointment IDs, ordered by start time.
+     */
+    public int[] between(long from, long to) {
+        int first = lowerBound(from);
+        int last = Math.max(first, lowerBound(to));
+        return Arrays.copyOfRange(ids, first, last);
+    }
+
+    /**
+     * Finds the first position at which some interval ends after the specified time.
+     * No interval before this position can overlap a range starting at the time.
+     *
+     * @param time The time in epoch milliseconds.
+     * @return The position, or size() if no interval ends after the time.
+     */
+    public int firstEndingAfter(long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (maxEnds[mid] <= time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Recomputes the running maximum end from the specified position onward.
+     *
+     * @param from The first position to recompute.
+     */
+    private void updateMaxEnds(int from) {
+        long max = from == 0 ? Long.MIN_VALUE : maxEnds[from - 1];
+        for (int i = from; i < size; i++) {
+            max = Math.max(max, ends[i]);
+            maxEnds[i] = max;
+        }
+    }
+}
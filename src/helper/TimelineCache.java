@@ -0,0 +1,393 @@
+package helper;
+
+import database.AppointmentQuery;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import model.Appointment;
+import model.AppointmentTable;
+import model.ReportTotal;
+import model.StringDictionary;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory cache of appointment timelines, one per customer, contact and user.
+ * The cache is built from a single query the first time it is used and is then patched by
+ * AppointmentQuery whenever an appointment is added, modified or deleted,
+ * so switching contacts in the reports or looking for free time costs a delta fetch instead of a full query.
+ * Appointment details are held in a compact AppointmentTable and turned into Appointment objects only for the rows returned.
+ * The table is saved to a memory-mapped AppointmentSnapshot, so later starts fetch only what changed.
+ * Other desks' changes are brought in by refresh, which fetches only the rows changed since the last fetch; every public
+ * reader calls it first, so the reports, the slot finder and the API never answer from a timeline another desk has changed.
+ *
+ * @author Daniel Akoko
+ */
+public class TimelineCache {
+    private static final AppointmentTable appointments = new AppointmentTable(Dictionary.TYPES, Dictionary.LOCATIONS);
+    private static final Map<Integer, Timeline> customerTimelines = new HashMap<>();
+    private static final Map<Integer, Timeline> contactTimelines = new HashMap<>();
+    private static final Map<Integer, Timeline> userTimelines = new HashMap<>();
+    /**
+     * How far before the high-water mark changes are fetched again, so a row stamped before the mark by a transaction
+     * that committed after it was read is not missed.
+     */
+    private static final long LOOKBACK_MILLIS = 60_000;
+
+    private static boolean loaded;
+    private static long highWater;
+    /** The URL of the database the cache was built from, recorded with its snapshot. */
+    private static String source;
+
+    /**
+     * Retrieves every appointment, ordered by appointment ID, as the database now holds them.
+     * The cache is first brought up to date (see refresh), so the appointment screen shows other desks' changes
+     * like the week and month views do, while opening it costs a delta fetch instead of a full query.
+     *
+     * @return ObservableList of all appointments.
+     */
+    public static synchronized ObservableList<Appointment> getAppointments() {
+        refresh();
+        ObservableList<Appointment> all = FXCollections.observableArrayList();
+        for (int i = 0; i < appointments.size(); i++) {
+            all.add(appointments.toAppointment(i));
+        }
+        return all;
+    }
+
+    /**
+     * Retrieves the schedule of a contact as the database now holds it, ordered by start time.
+     *
+     * @param contactId The ID of the contact.
+     * @return ObservableList of the contact's appointments.
+     */
+    public static synchronized ObservableList<Appointment> getContactSchedule(int contactId) {
+        refresh();
+        Timeline timeline = contactTimelines.get(contactId);
+        return timeline == null ? FXCollections.observableArrayList() : toList(timeline, 0, timeline.size());
+    }
+
+    /**
+     * Retrieves the part of a contact's schedule that starts within the specified range, as the database now holds it,
+     * ordered by start time.
+     *
+     * @param contactId The ID of the contact.
+     * @param from      The inclusive start of the range.
+     * @param to        The exclusive end of the range.
+     * @return ObservableList of the contact's appointments within the range.
+     */
+    public static synchronized ObservableList<Appointment> getContactSchedule(int contactId, LocalDateTime from, LocalDateTime to) {
+        refresh();
+        Timeline timeline = contactTimelines.get(contactId);
+        if (timeline == null) {
+            return FXCollections.observableArrayList();
+        }
+        int first = timeline.lowerBound(TimeConverter.toEpochMilli(from));
+        int last = Math.max(first, timeline.lowerBound(TimeConverter.toEpochMilli(to)));
+        return toList(timeline, first, last);
+    }
+
+    /**
+     * Collects the busy time of a customer, a contact and a user within the specified range, after bringing the cache up to date.
+     * The three timelines are already sorted by start, so they are merged in a single pass and
+     * touching or overlapping intervals are coalesced.
+     *
+     * @param from       The start of the range in epoch milliseconds.
+     * @param to         The end of the range in epoch milliseconds.
+     * @param customerId The ID of the customer.
+     * @param contactId  The ID of the contact.
+     * @param userId     The ID of the user.
+     * @return The busy intervals as start/end pairs, ordered and non-overlapping.
+     */
+    public static synchronized long[] getBusyIntervals(long from, long to, int customerId, int contactId, int userId) {
+        refresh();
+        Timeline[] timelines = {customerTimelines.get(customerId), contactTimelines.get(contactId), userTimelines.get(userId)};
+        int[] next = new int[timelines.length];
+        int[] last = new int[timelines.length];
+        for (int t = 0; t < timelines.length; t++) {
+            if (timelines[t] != null) {
+                next[t] = timelines[t].firstEndingAfter(from);
+                last[t] = timelines[t].lowerBound(to);
+            }
+        }
+
+        long[] busy = new long[16];
+        int count = 0;
+        while (true) {
+            // Pick the timeline whose next interval starts earliest
+            int pick = -1;
+            for (int t = 0; t < timelines.length; t++) {
+                if (next[t] < last[t] && (pick < 0 || timelines[t].getStart(next[t]) < timelines[pick].getStart(next[pick]))) {
+                    pick = t;
+                }
+            }
+            if (pick < 0) {
+                break;
+            }
+            long start = timelines[pick].getStart(next[pick]);
+            long end = timelines[pick].getEnd(next[pick]);
+            next[pick]++;
+            if (end <= from) {
+                continue;
+            }
+            if (count > 0 && start <= busy[count - 1]) {
+                busy[count - 1] = Math.max(busy[count - 1], end);
+            } else {
+                if (count == busy.length) {
+                    busy = Arrays.copyOf(busy, count * 2);
+                }
+                busy[count++] = start;
+                busy[count++] = end;
+            }
+        }
+        return Arrays.copyOf(busy, count);
+    }
+
+    /**
+     * Counts the appointments of each type, as the database now holds them.
+     * Rows are tallied by their type code in a plain int array, and the codes are turned back into names only for the result.
+     *
+     * @return ObservableList of type totals, ordered by type name.
+     */
+    public static synchronized ObservableList<ReportTotal> getTypeTotals() {
+        refresh();
+        int[] counts = new int[Dictionary.TYPES.size()];
+        for (int i = 0; i < appointments.size(); i++) {
+            int code = appointments.getTypeCode(i);
+            if (code != StringDictionary.NONE) {
+                counts[code]++;
+            }
+        }
+
+        ObservableList<ReportTotal> totals = FXCollections.observableArrayList();
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] > 0) {
+                totals.add(new ReportTotal(Dictionary.TYPES.decode(code), counts[code]));
+            }
+        }
+        totals.sort(Comparator.comparing(ReportTotal::getLabel));
+        return totals;
+    }
+
+    /**
+     * Checks whether the cache has been built, so lookups will not need to load every appointment first.
+     *
+     * @return True if the cache is built, false otherwise.
+     */
+    public static synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Patches the cache with a newly added appointment.
+     * Does nothing if the cache has not been built yet, since the next build will read the appointment anyway.
+     *
+     * @param appointment The appointment that was added.
+     */
+    public static synchronized void added(Appointment appointment) {
+        if (loaded) {
+            index(appointment);
+        }
+    }
+
+    /**
+     * Patches the cache with the new details of a modified appointment.
+     *
+     * @param appointment The appointment as it is now stored.
+     */
+    public static synchronized void modified(Appointment appointment) {
+        if (loaded) {
+            unindex(appointment.getAppointmentId());
+            index(appointment);
+        }
+    }
+
+    /**
+     * Removes a deleted appointment from the cache.
+     *
+     * @param appointmentId The ID of the appointment that was deleted.
+     */
+    public static synchronized void deleted(int appointmentId) {
+        if (loaded) {
+            unindex(appointmentId);
+        }
+    }
+
+    /**
+     * Removes every appointment of a deleted customer from the cache.
+     *
+     * @param customerId The ID of the customer whose appointments were deleted.
+     */
+    public static synchronized void customerDeleted(int customerId) {
+        if (loaded) {
+            List<Integer> ids = new ArrayList<>();
+            for (int i = 0; i < appointments.size(); i++) {
+                if (appointments.getCustomerId(i) == customerId) {
+                    ids.add(appointments.getId(i));
+                }
+            }
+            for (int appointmentId : ids) {
+                unindex(appointmentId);
+            }
+        }
+    }
+
+    /**
+     * Brings the cache up to date with the changes every desk has made, building it if it has not been built yet.
+     * Only the appointments changed since the last fetch are read, plus the list of IDs so appointments deleted
+     * elsewhere are dropped.
+     */
+    public static synchronized void refresh() {
+        if (!loaded) {
+            load();
+            return;
+        }
+        long mark = AppointmentQuery.getLastUpdate();
+        for (Appointment appointment : AppointmentQuery.getChangedSince(highWater - LOOKBACK_MILLIS)) {
+            unindex(appointment.getAppointmentId());
+            index(appointment);
+        }
+        int[] ids = AppointmentQuery.getAppointmentIds();
+        List<Integer> deleted = new ArrayList<>();
+        for (int i = 0; i < appointments.size(); i++) {
+            if (Arrays.binarySearch(ids, appointments.getId(i)) < 0) {
+                deleted.add(appointments.getId(i));
+            }
+        }
+        for (int appointmentId : deleted) {
+            unindex(appointmentId);
+        }
+        highWater = mark;
+    }
+
+    /**
+     * Discards the cached timelines so the next lookup rebuilds them from the database.
+     */
+    public static synchronized void invalidate() {
+        appointments.clear();
+        customerTimelines.clear();
+        contactTimelines.clear();
+        userTimelines.clear();
+        loaded = false;
+    }
+
+    /**
+     * Writes the cached appointments to the local snapshot, so the next start only needs the changes made after this one.
+     * Does nothing if the cache has not been built.
+     */
+    public static synchronized void saveSnapshot() {
+        if (loaded) {
+            AppointmentSnapshot.write(appointments, highWater, source);
+        }
+    }
+
+    /**
+     * Builds the timelines ahead of their first use, e.g. on a background thread while the user logs in.
+     */
+    public static synchronized void preload() {
+        load();
+    }
+
+    /**
+     * Builds the timelines if they have not been built yet.
+     * The appointments are read from the local snapshot when there is one, and only the rows changed since its
+     * high-water mark are fetched from the database, along with the list of IDs so deleted rows can be dropped.
+     * Without a snapshot every appointment is read from the database and a snapshot is written for next time.
+     * The high-water mark is taken before reading, so a change made during the read is fetched again next time rather than missed.
+     */
+    private static void load() {
+        if (!loaded) {
+            source = JDBC.getDatabaseUrl();
+            long mark = AppointmentQuery.getLastUpdate();
+            long snapshotMark = AppointmentSnapshot.read(appointments, source);
+            if (snapshotMark >= 0) {
+                for (Appointment appointment : AppointmentQuery.getChangedSince(snapshotMark - LOOKBACK_MILLIS)) {
+                    appointments.put(appointment);
+                }
+                appointments.retain(AppointmentQuery.getAppointmentIds());
+            } else {
+                for (Appointment appointment : AppointmentQuery.getAppointmentList()) {
+                    appointments.put(appointment);
+                }
+            }
+            for (int i = 0; i < appointments.size(); i++) {
+                addToTimelines(i);
+            }
+            highWater = mark;
+            loaded = true;
+            AppointmentSnapshot.write(appointments, highWater, source);
+        }
+    }
+
+    /**
+     * Adds an appointment to the appointment table and to its customer's, contact's and user's timelines.
+     *
+     * @param appointment The appointment to add.
+     */
+    private static void index(Appointment appointment) {
+        appointments.put(appointment);
+        addToTimelines(appointments.indexOf(appointment.getAppointmentId()));
+    }
+
+    /**
+     * Adds a row of the appointment table to its customer's, contact's and user's timelines.
+     *
+     * @param index The row index.
+     */
+    private static void addToTimelines(int index) {
+        int id = appointments.getId(index);
+        long start = appointments.getStart(index);
+        long end = appointments.getEnd(index);
+        customerTimelines.computeIfAbsent(appointments.getCustomerId(index), key -> new Timeline()).insert(id, start, end);
+        contactTimelines.computeIfAbsent(appointments.getContactId(index), key -> new Timeline()).insert(id, start, end);
+        userTimelines.computeIfAbsent(appointments.getUserId(index), key -> new Timeline()).insert(id, start, end);
+    }
+
+    /**
+     * Removes an appointment from the appointment table and from its customer's, contact's and user's timelines.
+     *
+     * @param appointmentId The ID of the appointment to remove.
+     */
+    private static void unindex(int appointmentId) {
+        int index = appointments.indexOf(appointmentId);
+        if (index >= 0) {
+            remove(customerTimelines.get(appointments.getCustomerId(index)), appointmentId);
+            remove(contactTimelines.get(appointments.getContactId(index)), appointmentId);
+            remove(userTimelines.get(appointments.getUserId(index)), appointmentId);
+            appointments.remove(appointmentId);
+        }
+    }
+
+    /**
+     * Removes an appointment from a timeline, if the timeline exists.
+     *
+     * @param timeline      The timeline, or null.
+     * @param appointmentId The ID of the appointment to remove.
+     */
+    private static void remove(Timeline timeline, int appointmentId) {
+        if (timeline != null) {
+            timeline.remove(appointmentId);
+        }
+    }
+
+    /**
+     * Copies a slice of a timeline into a list of appointments.
+     *
+     * @param timeline The timeline to read.
+     * @param first    The first position, inclusive.
+     * @param last     The last position, exclusive.
+     * @return ObservableList of the appointments in the slice.
+     */
+    private static ObservableList<Appointment> toList(Timeline timeline, int first, int last) {
+        ObservableList<Appointment> schedule = FXCollections.observableArrayList();
+        for (int i = first; i < last; i++) {
+            schedule.add(appointments.toAppointment(appointments.indexOf(timeline.getId(i))));
+        }
+        return schedule;
+    }
+}
@@ -0,0 +1,184 @@
+package helper;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Groups several Query calls into one database transaction.
+ * Query methods always use the calling thread's connection, so every call made between begin and commit runs on the
+ * transaction's connection and is committed once, or rolled back together if anything fails:
+ * <pre>
+ *   try (UnitOfWork work = UnitOfWork.begin()) {
+ *       AppointmentQuery.deleteCustomerAppointments(customerId);
+ *       CustomerQuery.deleteCustomer(customerId);
+ *       work.commit();
+ *   }
+ * </pre>
+ * Closing a unit that was not committed rolls it back. A unit begun while another is active on the same thread joins the
+ * outer one, which alone commits, and which refuses to commit if a joined unit was closed without committing.
+ * Cache updates that must only happen once the data is committed are registered with afterCommit.
+ *
+ * @author Daniel Akoko
+ */
+public class UnitOfWork implements AutoCloseable {
+
+    /** The outermost unit active on each thread. */
+    private static final ThreadLocal<UnitOfWork> current = new ThreadLocal<>();
+
+    private final Connection connection;
+    private final boolean outermost;
+    private final boolean previousAutoCommit;
+    private final int previousIsolation;
+    private final List<Runnable> afterCommit;
+    private boolean committed;
+    private boolean rollbackOnly;
+
+    /**
+     * Constructs a unit.
+     *
+     * @param connection The transaction's connection.
+     * @param outermost  True if this unit owns the transaction, false if it joined an outer one.
+     * @param isolation  The isolation level to restore when the unit ends.
+     * @param autoCommit The auto-commit mode to restore when the unit ends.
+     */
+    private UnitOfWork(Connection connection, boolean outermost, int isolation, boolean autoCommit) {
+        this.connection = connection;
+        this.outermost = outermost;
+        this.previousIsolation = isolation;
+        this.previousAutoCommit = autoCommit;
+        this.afterCommit = outermost ? new ArrayList<>() : null;
+    }
+
+    /**
+     * Begins a unit at the isolation level set by db.isolation in the database settings.
+     *
+     * @return The unit, to be committed and closed by the caller.
+     * @throws DatabaseException If the transaction cannot be started.
+     */
+    public static UnitOfWork begin() {
+        return begin(JDBC.getConfig().getIsolation());
+    }
+
+    /**
+     * Begins a unit at a specific isolation level.
+     * If a unit is already active on this thread, the new unit joins it and the level is left as the outer unit set it.
+     *
+     * @param isolation One of the Connection.TRANSACTION_* levels.
+     * @return The unit, to be committed and closed by the caller.
+     * @throws DatabaseException If the transaction cannot be started.
+     */
+    public static UnitOfWork begin(int isolation) {
+        UnitOfWork outer = current.get();
+        if (outer != null) {
+            return new UnitOfWork(outer.connection, false, 0, false);
+        }
+        try {
+            Connection connection = JDBC.getConnection();
+            UnitOfWork work = new UnitOfWork(connection, true, connection.getTransactionIsolation(), connection.getAutoCommit());
+            if (isolation != work.previousIsolation) {
+                connection.setTransactionIsolation(isolation);
+            }
+            connection.setAutoCommit(false);
+            current.set(work);
+            return work;
+        } catch (SQLException e) {
+            throw JDBC.failure(e);
+        }
+    }
+
+    /**
+     * Gets the connection of the unit active on this thread.
+     *
+     * @return The connection, or null if no unit is active.
+     */
+    static Connection activeConnection() {
+        UnitOfWork work = current.get();
+        return work != null ? work.connection : null;
+    }
+
+    /**
+     * Checks whether a unit is active on this thread.
+     *
+     * @return True if a unit is active, false otherwise.
+     */
+    public static boolean isActive() {
+        return current.get() != null;
+    }
+
+    /**
+     * Runs an action once the active unit commits, or straight away if no unit is active.
+     * Used by Query methods to patch the in-memory caches only with data that is really stored.
+     *
+     * @param action The action to run.
+     */
+    public static void afterCommit(Runnable action) {
+        UnitOfWork work = current.get();
+        if (work == null) {
+            action.run();
+        } else {
+            work.afterCommit.add(action);
+        }
+    }
+
+    /**
+     * Commits the unit's work. For a unit that joined an outer one, only marks it as complete.
+     *
+     * @throws DatabaseException If the commit fails or a joined unit failed; the work is rolled back when the unit is closed.
+     */
+    public void commit() {
+        if (!outermost) {
+            committed = true;
+            return;
+        }
+        if (rollbackOnly) {
+            throw new DatabaseException("The changes were not saved because part of them failed.", null, false);
+        }
+        committed = true;
+        try {
+            connection.commit();
+        } catch (SQLException e) {
+            committed = false;
+            throw JDBC.failure(e);
+        }
+        for (Runnable action : afterCommit) {
+            action.run();
+        }
+        afterCommit.clear();
+    }
+
+    /**
+     * Ends the unit, rolling it back if it was not committed, and restores the connection's previous settings.
+     * A joined unit that was not committed marks the outer unit so it rolls back too, since its part cannot be undone alone.
+     * A connection already discarded after a lost connection is left alone, so the loss counts once towards the circuit breaker.
+     */
+    @Override
+    public void close() {
+        if (!outermost) {
+            UnitOfWork outer = current.get();
+            if (!committed && outer != null) {
+                outer.rollbackOnly = true;
+            }
+            return;
+        }
+        current.remove();
+        try {
+            if (connection.isClosed()) {
+                // Discarded by the JDBC.failure that ended the unit, which counted it towards the breaker;
+                // the server has dropped the transaction with the connection
+                return;
+            }
+            if (!committed) {
+                connection.rollback();
+            }
+            connection.setAutoCommit(previousAutoCommit);
+            if (connection.getTransactionIsolation() != previousIsolation) {
+                connection.setTransactionIsolation(previousIsolation);
+            }
+        } catch (SQLException e) {
+            // The connection broke as the unit ended; JDBC replaces it on the next call and the server has discarded the transaction
+            JDBC.failure(e);
+        }
+    }
+}
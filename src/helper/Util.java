@@ -1,19 +1,25 @@
 package helper;
 
-import database.AppointmentQuery;
-import javafx.collections.ObservableList;
 import javafx.scene.control.Alert;
-import model.Appointment;
+import model.Conflict;
 
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.time.ZoneId;
-import java.time.ZonedDateTime;
+import java.util.List;
 
 /**
  * Utility class providing various helper methods.
  */
 public class Util {
 
+    /** The time zone in which business hours are defined. */
+    public static final ZoneId BUSINESS_ZONE = ZoneId.of("America/New_York");
+    /** The opening time of the business day, in the business time zone. */
+    public static final LocalTime BUSINESS_START_TIME = LocalTime.of(8, 0);
+    /** The closing time of the business day, in the business time zone. */
+    public static final LocalTime BUSINESS_END_TIME = LocalTime.of(22, 0);
+
     /**
      * Displays an error alert with the specified title and content.
      *
@@ -42,71 +48,57 @@ public class Util {
 
     //for AddAppointment
     /**
-     * Validates overlapping appointments for the specified customer and time range.
+     * Validates overlapping appointments for the specified customer, contact and user and time range.
      * Validation for addAppointment Controller class
      *
      * @param customerId    The ID of the customer.
+     * @param contactId     The ID of the contact.
+     * @param userId        The ID of the user.
      * @param startDateTime The start date and time of the appointment.
      * @param endDateTime   The end date and time of the appointment.
      * @return True if there is an overlap, false otherwise.
      */
-    public static boolean validateOverlapping(int customerId, LocalDateTime startDateTime, LocalDateTime endDateTime) {
-        ObservableList<Appointment> appointments = AppointmentQuery.getAppointments(customerId);
-
-        for (Appointment appointment : appointments) {
-            LocalDateTime appointmentStart = appointment.getStart();
-            LocalDateTime appointmentEnd = appointment.getEnd();
-
-            if (appointmentStart.isEqual(startDateTime) || appointmentEnd.isEqual(endDateTime)) {
-                // Check for exact match of start or end times
-                errorAlert("OVERLAP ERROR", "Start time or End time cannot be the same as existing appointment");
-                return true;
-            } else if (startDateTime.isAfter(appointmentStart) && startDateTime.isBefore(appointmentEnd)) {
-                // Check for overlap in the start time
-                errorAlert("OVERLAP ERROR", "Appointment start overlap not allowed.");
-                return true;
-            } else if (endDateTime.isAfter(appointmentStart) && endDateTime.isBefore(appointmentEnd)) {
-                // Check for overlap in the end time
-                errorAlert("OVERLAP ERROR", "Appointment end overlap not allowed.");
-                return true;
-            } else if (customerId != appointment.getCustomerId()) {
-                continue;
-            }
-        }
-        return false;
+    public static boolean validateOverlapping(int customerId, int contactId, int userId, LocalDateTime startDateTime, LocalDateTime endDateTime) {
+        return validatingOverlap(0, customerId, contactId, userId, startDateTime, endDateTime);
     }
 
 
     //for Update Appointment
     /**
-     * Validates overlapping appointments during an update for the specified customer and time range.
+     * Validates overlapping appointments during an update for the specified customer, contact and user and time range.
      * Validation for the updateAppointment Controller class
+     * The appointment being updated is excluded, so moving it within its own time slot is not reported as an overlap.
+     * Every conflict is listed in a single error alert, together with the customer, contact or user it double-books.
      *
+     * @param appointmentId The ID of the appointment being updated, or 0 for a new appointment.
      * @param customerId    The ID of the customer.
+     * @param contactId     The ID of the contact.
+     * @param userId        The ID of the user.
      * @param startDateTime The start date and time of the appointment.
      * @param endDateTime   The end date and time of the appointment.
      * @return True if there is an overlap, false otherwise.
      */
-    public static boolean validatingOverlap(int customerId, LocalDateTime startDateTime, LocalDateTime endDateTime) {
-        ObservableList<Appointment> appointments = AppointmentQuery.getAppointments(customerId);
-        for(Appointment appointment : appointments) {
-            LocalDateTime appointmentStart = appointment.getStart();
-            LocalDateTime appointmentEnd = appointment.getEnd();
-
-            if (!(customerId == appointment.getCustomerId()) && !(startDateTime.isEqual(appointmentStart)) && !(endDateTime.isEqual(appointmentEnd))){
-                validateOverlapping(customerId, startDateTime, endDateTime);
-            }
-        }
-        return false;
+    public static boolean validatingOverlap(int appointmentId, int customerId, int contactId, int userId, LocalDateTime startDateTime, LocalDateTime endDateTime) {
+        return showOverlaps("appointment", ConflictChecker.findConflicts(customerId, contactId, userId, startDateTime, endDateTime, appointmentId));
     }
 
     /**
-     * Converts the given LocalDateTime to the system time zone.
+     * Lists the conflicts a check found in a single error alert, each with the customer, contact or user it double-books.
+     * Used by the forms once their save (see ConflictChecker.bookIfFree) has ended, so no lock is held while the alert is up.
      *
-     * @param time The LocalDateTime to be converted.
+     * @param subject   What was checked, "appointment" or "series".
+     * @param conflicts The conflicts found.
+     * @return True if there were any, false otherwise.
      */
-    public void convertToSystemTimeZone(LocalDateTime time){
-        ZoneId systemZone = ZoneId.systemDefault();
-        ZonedDateTime.of(time, systemZone);
+    public static boolean showOverlaps(String subject, List<Conflict> conflicts) {
+        if (conflicts.isEmpty()) {
+            return false;
+        }
+        StringBuilder content = new StringBuilder("The " + subject + " overlaps existing appointments:");
+        for (Conflict conflict : conflicts) {
+            content.append("\n").append(conflict);
+        }
+        errorAlert("OVERLAP ERROR", content.toString());
+        return true;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,316 @@
+package loadtest;
+
+import database.AppointmentQuery;
+import database.ContactQuery;
+import database.CountryQuery;
+import database.CustomerQuery;
+import database.SeriesQuery;
+import database.UserQuery;
+import helper.ConflictChecker;
+import helper.CustomerCache;
+import helper.JDBC;
+import helper.SeriesCache;
+import helper.SlotTable;
+import helper.TimelineCache;
+import helper.UnitOfWork;
+import model.Appointment;
+import model.Conflict;
+import model.CustomerFilter;
+import model.UpdateResult;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * One simulated scheduling desk.
+ * A desk runs in a JVM of its own with its own connection and caches, as a desktop client does, picking workflows from
+ * the mix and pausing for a randomised think time between them. Each workflow makes the same Query and validation calls as the screen it
+ * stands for, including the lists a form loads when it opens, but nothing is drawn and no alert is shown.
+ *
+ * @author Daniel Akoko
+ */
+class Desk implements Runnable {
+
+    /** Appointments a desk remembers for later updates. */
+    private static final int MAX_OWN_APPOINTMENTS = 50;
+    /** Days ahead that bookings are spread over. */
+    private static final int BOOKING_DAYS = 14;
+    /** Customers the customer screen reads per page. */
+    private static final int CUSTOMER_PAGE_SIZE = 100;
+
+    private final int number;
+    private final LoadTest.Settings settings;
+    private final LoadTest.ReferenceData reference;
+    private final Map<Operation, OperationStats> stats;
+    private final long startAt;
+    private final long measureFrom;
+    private final long stopAt;
+    private final Random random;
+    /** The desk's own appointments, each as {ID, version}. */
+    private final List<int[]> ownAppointments = new ArrayList<>();
+
+    /**
+     * Constructs a desk.
+     *
+     * @param number      The desk's number, from 0.
+     * @param settings    The load test settings.
+     * @param reference   The IDs the desk books against.
+     * @param stats       Where operations are recorded.
+     * @param startAt     When the desk starts working, in epoch milliseconds.
+     * @param measureFrom When the ramp-up ends; operations started earlier are not recorded.
+     * @param stopAt      When the desk stops.
+     */
+    Desk(int number, LoadTest.Settings settings, LoadTest.ReferenceData reference, Map<Operation, OperationStats> stats,
+         long startAt, long measureFrom, long stopAt) {
+        this.number = number;
+        this.settings = settings;
+        this.reference = reference;
+        this.stats = stats;
+        this.startAt = startAt;
+        this.measureFrom = measureFrom;
+        this.stopAt = stopAt;
+        this.random = new Random(settings.seed + number);
+    }
+
+    @Override
+    public void run() {
+        try {
+            pause(startAt - System.currentTimeMillis());
+            while (System.currentTimeMillis() < stopAt && !Thread.currentThread().isInterrupted()) {
+                Operation operation = settings.pick(random);
+                if (operation == Operation.UPDATE_APPOINTMENT && ownAppointments.isEmpty()) {
+                    // Nothing booked yet to change
+                    operation = Operation.ADD_APPOINTMENT;
+                }
+                boolean measured = System.currentTimeMillis() >= measureFrom;
+                long began = System.nanoTime();
+                try {
+                    long setup = perform(operation);
+                    if (measured) {
+                        stats.get(operation).success(System.nanoTime() - began - setup);
+                    }
+                } catch (Exception e) {
+                    if (measured) {
+                        stats.get(operation).failure(e);
+                    }
+                }
+                pause(thinkTime());
+            }
+        } finally {
+            JDBC.releaseConnection();
+        }
+    }
+
+    /**
+     * Runs one workflow.
+     *
+     * @param operation The workflow.
+     * @return Nanoseconds spent preparing test data, which are not part of the operation's latency.
+     * @throws Exception If the workflow fails.
+     */
+    private long perform(Operation operation) throws Exception {
+        switch (operation) {
+            case LOGIN: login(); return 0;
+            case VIEW_WEEK: viewWeek(); return 0;
+            case ADD_APPOINTMENT: addAppointment(); return 0;
+            case UPDATE_APPOINTMENT: updateAppointment(); return 0;
+            case DELETE_CUSTOMER: return deleteCustomer();
+            case OPEN_REPORTS: openReports(); return 0;
+            default: throw new IllegalStateException("Unknown operation " + operation);
+        }
+    }
+
+    /**
+     * The login screen: the username and password checks, then the user's appointments for the upcoming-appointment alert.
+     * Login attempts are not written to login_activity.txt.
+     *
+     * @throws SQLException If the user ID cannot be read.
+     */
+    private void login() throws SQLException {
+        if (!UserQuery.validUsername(settings.user) || !UserQuery.validPassword(settings.password)
+                || !UserQuery.validateUser(settings.user, settings.password)) {
+            throw new IllegalStateException("Login rejected for " + settings.user + "; set -Dload.user and -Dload.password");
+        }
+        AppointmentQuery.getUserAppointment(UserQuery.getUserId(settings.user));
+    }
+
+    /**
+     * The appointment screen's week view: the week's appointments and the recurring occurrences that fall in it.
+     */
+    private void viewWeek() {
+        AppointmentQuery.getApptByWeek();
+        LocalDateTime now = LocalDateTime.now();
+        SeriesCache.expand(now, now.plusWeeks(1));
+    }
+
+    /**
+     * The add appointment form: the lists it loads when it opens, the business hours and overlap checks, and the insert.
+     * The customer is picked by typing, which the customer cache answers without a query.
+     * A time that overlaps is counted as a completed operation, since the form would show the conflicts and not save.
+     */
+    private void addAppointment() {
+        ContactQuery.getAllContacts();
+        UserQuery.getUserList();
+
+        int customerId = reference.pickCustomer(random);
+        int contactId = reference.pickContact(random);
+        int userId = reference.pickUser(random);
+        LocalDateTime[] slot = pickSlot();
+        if (isBookable(0, customerId, contactId, userId, slot)) {
+            int id = AppointmentQuery.addAppointment("Load test", "Booked by desk " + number, "Load test", "Planning",
+                    slot[0], slot[1], customerId, userId, contactId);
+            if (id > 0) {
+                remember(id, 0);
+            }
+        }
+    }
+
+    /**
+     * The update appointment form: the lists it loads when it opens, the checks, and the update,
+     * moving one of the desk's own appointments to a new time.
+     * The contact and user are found in the loaded lists and the customer in the customer cache, as the form fills itself.
+     * An update made to an old version, e.g. after the desk's own earlier update failed part way, is counted as completed,
+     * as the form would show the merge; the appointment's version is refreshed from the result.
+     */
+    private void updateAppointment() {
+        int[] own = ownAppointments.get(random.nextInt(ownAppointments.size()));
+        int appointmentId = own[0];
+        int customerId = reference.pickCustomer(random);
+        int contactId = reference.pickContact(random);
+        int userId = reference.pickUser(random);
+
+        ContactQuery.getAllContacts();
+        UserQuery.getUserList();
+        CustomerCache.getCustomer(customerId);
+
+        LocalDateTime[] slot = pickSlot();
+        if (isBookable(appointmentId, customerId, contactId, userId, slot)) {
+            UpdateResult<Appointment> result = AppointmentQuery.modifyAppointment(appointmentId, own[1], "Load test",
+                    "Moved by desk " + number, "Load test", "Planning", slot[0], slot[1], customerId, userId, contactId);
+            if (result.getStatus() == UpdateResult.Status.DELETED) {
+                ownAppointments.remove(own);
+            } else {
+                own[1] = result.getCurrent().getVersion();
+            }
+        }
+    }
+
+    /**
+     * The customer screen's delete: a customer made for the purpose, with one appointment, is deleted together with its
+     * appointments and recurring series in one transaction, and the screen reloads its first page of customers.
+     *
+     * @return Nanoseconds spent creating the customer and its appointment.
+     */
+    private long deleteCustomer() {
+        long setupStart = System.nanoTime();
+        int customerId = CustomerQuery.addCustomer("Load test desk " + number, "1 Test Street", "00000", "555-0100",
+                reference.pickDivision(random));
+        LocalDateTime[] slot = pickSlot();
+        AppointmentQuery.addAppointment("Load test", "To be deleted", "Load test", "Planning", slot[0], slot[1],
+                customerId, reference.pickUser(random), reference.pickContact(random));
+        long setup = System.nanoTime() - setupStart;
+
+        int deleted;
+        try (UnitOfWork work = UnitOfWork.begin()) {
+            AppointmentQuery.deleteCustomerAppointments(customerId);
+            SeriesQuery.deleteCustomerSeries(customerId);
+            deleted = CustomerQuery.deleteCustomer(customerId);
+            work.commit();
+        }
+        if (deleted == 0) {
+            throw new IllegalStateException("Customer " + customerId + " was not deleted");
+        }
+        CustomerQuery.getCustomerPage(CustomerFilter.ALL, null, CUSTOMER_PAGE_SIZE);
+        return setup;
+    }
+
+    /**
+     * The report screen: the contact schedule, the type and month totals and the customers per country.
+     */
+    private void openReports() {
+        ContactQuery.getAllContacts();
+        TimelineCache.getContactSchedule(reference.pickContact(random));
+        TimelineCache.getTypeTotals();
+        AppointmentQuery.getAppointmentTypeMonth();
+        CountryQuery.countryTotals();
+    }
+
+    /**
+     * Runs the form checks on a time.
+     *
+     * @param appointmentId The appointment being moved, or 0 for a new one.
+     * @param customerId    The customer.
+     * @param contactId     The contact.
+     * @param userId        The user.
+     * @param slot          The start and end.
+     * @return True if the time is within business hours and free, false otherwise.
+     */
+    private boolean isBookable(int appointmentId, int customerId, int contactId, int userId, LocalDateTime[] slot) {
+        if (!SlotTable.isWithinBusinessHours(slot[0], slot[1])) {
+            return false;
+        }
+        List<Conflict> conflicts = ConflictChecker.findConflicts(customerId, contactId, userId, slot[0], slot[1], appointmentId);
+        return conflicts.isEmpty();
+    }
+
+    /**
+     * Picks a start time offered by the forms on a random day of the next two weeks, and an end 30 or 60 minutes later.
+     *
+     * @return The start and end.
+     */
+    private LocalDateTime[] pickSlot() {
+        LocalDate day = LocalDate.now().plusDays(1 + random.nextInt(BOOKING_DAYS));
+        List<LocalTime> starts = SlotTable.getStartTimes(day);
+        LocalTime start = starts.isEmpty() ? LocalTime.NOON : starts.get(random.nextInt(starts.size()));
+        LocalDateTime from = day.atTime(start);
+        return new LocalDateTime[]{from, from.plusMinutes(random.nextBoolean() ? 30 : 60)};
+    }
+
+    /**
+     * Keeps an appointment for later updates, forgetting the oldest once enough are kept.
+     *
+     * @param appointmentId The appointment's ID.
+     * @param version       The version the desk last saw.
+     */
+    private void remember(int appointmentId, int version) {
+        if (ownAppointments.size() == MAX_OWN_APPOINTMENTS) {
+            ownAppointments.remove(0);
+        }
+        ownAppointments.add(new int[]{appointmentId, version});
+    }
+
+    /**
+     * Draws a think time from an exponential distribution around the configured mean, capped at ten times the mean.
+     *
+     * @return The pause in milliseconds.
+     */
+    private long thinkTime() {
+        if (settings.thinkTime <= 0) {
+            return 0;
+        }
+        double pause = -settings.thinkTime * Math.log(1 - random.nextDouble());
+        return (long) Math.min(pause, settings.thinkTime * 10.0);
+    }
+
+    /**
+     * Sleeps, without sleeping past the end of the run.
+     *
+     * @param millis The pause in milliseconds.
+     */
+    private void pause(long millis) {
+        long wait = Math.min(millis, stopAt - System.currentTimeMillis());
+        if (wait > 0) {
+            try {
+                Thread.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package loadtest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A simulated desk running in a JVM of its own, as the load test sees it.
+ * The desk gets the load test's classpath and its load.*, db.* and scheduler.* settings, so it has its own connection pool
+ * and caches like a real desk. It reads the reference data, reports that it is ready and waits for the times of its run
+ * on its standard input; every operation it then measures comes back as a line on its standard output and is recorded here.
+ *
+ * @author Daniel Akoko
+ */
+class DeskProcess {
+
+    /** The line a desk prints once it is ready to start. */
+    static final String READY = "ready";
+    /** The start of the line a desk prints for an operation that completed, followed by the operation and nanoseconds. */
+    static final String SUCCESS = "ok";
+    /** The start of the line a desk prints for an operation that failed, followed by the operation and the failure. */
+    static final String FAILURE = "error";
+
+    private final int number;
+    private final Process process;
+    private final Thread relay;
+    private volatile boolean ready;
+
+    /**
+     * Launches a desk.
+     *
+     * @param number  The desk's number, from 0.
+     * @param stats   Where the desk's operations are recorded.
+     * @param started Counted down once the desk is ready or has exited without becoming ready.
+     * @throws IOException If the JVM cannot be started.
+     */
+    DeskProcess(int number, Map<Operation, OperationStats> stats, CountDownLatch started) throws IOException {
+        this.number = number;
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("load.") || name.startsWith("db.") || name.startsWith("scheduler.")) {
+                command.add("-D" + name + "=" + System.getProperty(name));
+            }
+        }
+        command.add(LoadTest.class.getName());
+        command.add(LoadTest.DESK_ARGUMENT);
+        command.add(String.valueOf(number));
+        process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        relay = new Thread(() -> relay(stats, started), "desk-" + number);
+        relay.setDaemon(true);
+        relay.start();
+    }
+
+    /**
+     * Checks whether the desk has read its reference data and is waiting to start.
+     *
+     * @return True if the desk is ready, false otherwise.
+     */
+    boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Tells the desk when to run.
+     *
+     * @param startAt     When the desk starts working, in epoch milliseconds.
+     * @param measureFrom When the ramp-up ends.
+     * @param stopAt      When the desk stops.
+     * @throws IOException If the desk has exited.
+     */
+    void start(long startAt, long measureFrom, long stopAt) throws IOException {
+        try (Writer input = new OutputStreamWriter(process.getOutputStream())) {
+            input.write(startAt + " " + measureFrom + " " + stopAt + System.lineSeparator());
+        }
+    }
+
+    /**
+     * Waits for the desk to finish the operation it is in and exit, and stops it if it does not.
+     *
+     * @param timeout The longest wait, in milliseconds.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    void finish(long timeout) throws InterruptedException {
+        if (!process.waitFor(timeout, TimeUnit.MILLISECONDS)) {
+            process.destroyForcibly();
+        }
+        relay.join(timeout);
+    }
+
+    /**
+     * Stops the desk at once, e.g. when another desk failed to start.
+     */
+    void stop() {
+        process.destroyForcibly();
+    }
+
+    /**
+     * Records the lines the desk prints until it exits; lines that are not results are printed with the desk's number.
+     *
+     * @param stats   Where the desk's operations are recorded.
+     * @param started Counted down once the desk is ready or has exited without becoming ready.
+     */
+    private void relay(Map<Operation, OperationStats> stats, CountDownLatch started) {
+        try (BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = output.readLine()) != null) {
+                String[] parts = line.split(" ", 3);
+                if (line.equals(READY)) {
+                    ready = true;
+                    started.countDown();
+                } else if (parts.length == 3 && parts[0].equals(SUCCESS)) {
+                    stats.get(Operation.fromKey(parts[1])).success(Long.parseLong(parts[2]));
+                } else if (parts.length == 3 && parts[0].equals(FAILURE)) {
+                    stats.get(Operation.fromKey(parts[1])).failure(parts[2]);
+                } else {
+                    System.out.println("desk-" + number + ": " + line);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("desk-" + number + ": " + e.getMessage());
+        } finally {
+            if (!ready) {
+                started.countDown();
+            }
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package loadtest;
+
+import database.ContactQuery;
+import database.CustomerQuery;
+import database.DivisionQuery;
+import database.UserQuery;
+import helper.JDBC;
+import helper.SlotTable;
+import model.Contact;
+import model.Customer;
+import model.Division;
+import model.User;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many scheduling desks one database can serve.
+ * Runs a number of simulated desks (see Desk) against the configured database, each in a JVM of its own (see DeskProcess),
+ * and reports the throughput, median and 99th percentile latency and errors of each workflow:
+ * <pre>
+ *   java -Dload.desks=50 -Dload.duration=120 loadtest.LoadTest
+ * </pre>
+ * Settings, as system properties:
+ * <ul>
+ *     <li>load.desks - number of desks (10)</li>
+ *     <li>load.rampUp - seconds over which the desks start, one after another; not measured (10)</li>
+ *     <li>load.duration - seconds measured once every desk has started (60)</li>
+ *     <li>load.thinkTime - mean pause between a desk's operations in milliseconds, 0 for none (1000)</li>
+ *     <li>load.mix - relative weights, e.g. viewWeek=40,addAppointment=20; operations not listed keep their default weight</li>
+ *     <li>load.user, load.password - the login the desks use (test, test)</li>
+ *     <li>load.seed - seed for the desks' random choices, so runs can be repeated (1)</li>
+ * </ul>
+ * Each desk has its own connection pool and caches, like a desktop client: a desk's caches see only its own writes and
+ * load from the database on their first use, so the results include the queries that sharing one process would hide.
+ * The server needs a connection for every desk, and the embedded backend, which one process holds open, cannot be tested.
+ * The run writes appointments and customers: use a test database.
+ * Exits with status 1 if any operation failed.
+ *
+ * @author Daniel Akoko
+ */
+public class LoadTest {
+
+    /** How often progress is printed while the test runs, in milliseconds. */
+    private static final long PROGRESS_INTERVAL = 10_000;
+    /** How long the desks have to start and read the reference data, in milliseconds. */
+    private static final long START_TIMEOUT = 120_000;
+    /** The argument that runs a single desk, followed by its number, in the JVM DeskProcess starts. */
+    static final String DESK_ARGUMENT = "--desk";
+
+    /**
+     * The settings of a run.
+     */
+    static final class Settings {
+        final int desks = Integer.getInteger("load.desks", 10);
+        final long rampUp = Long.getLong("load.rampUp", 10) * 1000;
+        final long duration = Long.getLong("load.duration", 60) * 1000;
+        final long thinkTime = Long.getLong("load.thinkTime", 1000);
+        final String user = System.getProperty("load.user", "test");
+        final String password = System.getProperty("load.password", "test");
+        final long seed = Long.getLong("load.seed", 1);
+        private final int[] weights = new int[Operation.values().length];
+        private int totalWeight;
+
+        /**
+         * Reads the settings from the system properties.
+         *
+         * @throws IllegalArgumentException If load.mix names an unknown operation or has a weight that is not a number.
+         */
+        Settings() {
+            for (Operation operation : Operation.values()) {
+                weights[operation.ordinal()] = operation.getDefaultWeight();
+            }
+            String mix = System.getProperty("load.mix", "");
+            for (String entry : mix.split(",")) {
+                if (entry.isBlank()) {
+                    continue;
+                }
+                String[] parts = entry.split("=");
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("load.mix entries look like viewWeek=40, not " + entry);
+                }
+                weights[Operation.fromKey(parts[0]).ordinal()] = Math.max(0, Integer.parseInt(parts[1].trim()));
+            }
+            for (int weight : weights) {
+                totalWeight += weight;
+            }
+            if (totalWeight == 0) {
+                throw new IllegalArgumentException("load.mix leaves every operation with a weight of 0");
+            }
+        }
+
+        /**
+         * Picks the next operation according to the mix.
+         *
+         * @param random The desk's random source.
+         * @return The operation.
+         */
+        Operation pick(Random random) {
+            int roll = random.nextInt(totalWeight);
+            for (Operation operation : Operation.values()) {
+                roll -= weights[operation.ordinal()];
+                if (roll < 0) {
+                    return operation;
+                }
+            }
+            throw new IllegalStateException("The mix weights do not add up");
+        }
+
+        /**
+         * Gets an operation's share of the mix.
+         *
+         * @param operation The operation.
+         * @return The share, from 0 to 1.
+         */
+        double share(Operation operation) {
+            return weights[operation.ordinal()] / (double) totalWeight;
+        }
+    }
+
+    /**
+     * The IDs of the customers, contacts, users and divisions the desks book against, read once before the run.
+     */
+    static final class ReferenceData {
+        private final int[] customers;
+        private final int[] contacts;
+        private final int[] users;
+        private final int[] divisions;
+
+        /**
+         * Reads the IDs from the database.
+         *
+         * @throws IllegalStateException If a table the desks need is empty.
+         */
+        ReferenceData() {
+            customers = CustomerQuery.getCustomerList().stream().mapToInt(Customer::getCustomerId).toArray();
+            contacts = ContactQuery.getAllContacts().stream().mapToInt(Contact::getContactId).toArray();
+            users = UserQuery.getUserList().stream().mapToInt(User::getUserId).toArray();
+            divisions = DivisionQuery.getAllDivisionID().stream().mapToInt(Division::getDivisionId).toArray();
+            if (customers.length == 0 || contacts.length == 0 || users.length == 0 || divisions.length == 0) {
+                throw new IllegalStateException("The database needs at least one customer, contact, user and division");
+            }
+        }
+
+        /**
+         * Picks a customer at random.
+         *
+         * @param random The desk's random source.
+         * @return The customer's ID.
+         */
+        int pickCustomer(Random random) {
+            return customers[random.nextInt(customers.length)];
+        }
+
+        /**
+         * Picks a contact at random.
+         *
+         * @param random The desk's random source.
+         * @return The contact's ID.
+         */
+        int pickContact(Random random) {
+            return contacts[random.nextInt(contacts.length)];
+        }
+
+        /**
+         * Picks a user at random.
+         *
+         * @param random The desk's random source.
+         * @return The user's ID.
+         */
+        int pickUser(Random random) {
+            return users[random.nextInt(users.length)];
+        }
+
+        /**
+         * Picks a division at random.
+         *
+         * @param random The desk's random source.
+         * @return The division's ID.
+         */
+        int pickDivision(Random random) {
+            return divisions[random.nextInt(divisions.length)];
+        }
+    }
+
+    /**
+     * The stats of a desk running in its own JVM, which prints each operation for the load test to record instead of keeping it.
+     */
+    private static final class RelayedStats extends OperationStats {
+        private final Operation operation;
+
+        /**
+         * Constructs the stats of one operation.
+         *
+         * @param operation The operation.
+         */
+        RelayedStats(Operation operation) {
+            this.operation = operation;
+        }
+
+        @Override
+        public void success(long nanos) {
+            System.out.println(DeskProcess.SUCCESS + " " + operation.getKey() + " " + nanos);
+        }
+
+        @Override
+        public void failure(String message) {
+            System.out.println(DeskProcess.FAILURE + " " + operation.getKey() + " " + String.valueOf(message).replaceAll("\\s+", " "));
+        }
+    }
+
+    /**
+     * Runs the load test with the settings given as system properties and prints the results.
+     *
+     * @param args Command-line arguments: none, or --desk and a number in a desk's own JVM.
+     * @throws InterruptedException If interrupted while waiting for the desks.
+     * @throws IOException          If a desk's JVM cannot be started or told when to run.
+     */
+    public static void main(String[] args) throws InterruptedException, IOException {
+        if (args.length == 2 && args[0].equals(DESK_ARGUMENT)) {
+            runDesk(Integer.parseInt(args[1]));
+            return;
+        }
+        Settings settings = new Settings();
+        Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+
+        System.out.printf("Starting %d desks%n", settings.desks);
+        CountDownLatch started = new CountDownLatch(settings.desks);
+        List<DeskProcess> desks = new ArrayList<>();
+        for (int i = 0; i < settings.desks; i++) {
+            desks.add(new DeskProcess(i, stats, started));
+        }
+        if (!started.await(START_TIMEOUT, TimeUnit.MILLISECONDS) || !desks.stream().allMatch(DeskProcess::isReady)) {
+            System.out.println("Not every desk started");
+            for (DeskProcess desk : desks) {
+                desk.stop();
+            }
+            System.exit(1);
+        }
+
+        long start = System.currentTimeMillis();
+        long measureFrom = start + settings.rampUp;
+        long stopAt = measureFrom + settings.duration;
+        System.out.printf("Running %d desks: %d s ramp-up, %d s measured, %d ms mean think time%n",
+                settings.desks, settings.rampUp / 1000, settings.duration / 1000, settings.thinkTime);
+        for (int i = 0; i < settings.desks; i++) {
+            desks.get(i).start(start + settings.rampUp * i / settings.desks, measureFrom, stopAt);
+        }
+
+        while (System.currentTimeMillis() < stopAt) {
+            Thread.sleep(Math.min(PROGRESS_INTERVAL, Math.max(1, stopAt - System.currentTimeMillis())));
+            int done = 0;
+            int errors = 0;
+            for (OperationStats operationStats : stats.values()) {
+                done += operationStats.getCount();
+                errors += operationStats.getErrors();
+            }
+            System.out.printf("  %3d s: %d operations measured, %d errors%n", (System.currentTimeMillis() - start) / 1000, done, errors);
+        }
+        for (DeskProcess desk : desks) {
+            // A desk finishes the operation it is in before it stops
+            desk.finish(PROGRESS_INTERVAL);
+        }
+
+        boolean failed = report(settings, stats);
+        System.exit(failed ? 1 : 0);
+    }
+
+    /**
+     * Runs one desk in this JVM: reads the reference data, reports that it is ready, waits for the times of the run
+     * and then passes each operation it measures on to the load test.
+     *
+     * @param number The desk's number, from 0.
+     * @throws IOException If the times of the run cannot be read.
+     */
+    private static void runDesk(int number) throws IOException {
+        Settings settings = new Settings();
+        JDBC.openConnection();
+        SlotTable.preload(LocalDate.now(), 15);
+        ReferenceData reference = new ReferenceData();
+        JDBC.releaseConnection();
+
+        Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new RelayedStats(operation));
+        }
+        System.out.println(DeskProcess.READY);
+        String times = new BufferedReader(new InputStreamReader(System.in)).readLine();
+        if (times != null) {
+            String[] parts = times.trim().split(" ");
+            new Desk(number, settings, reference, stats, Long.parseLong(parts[0]), Long.parseLong(parts[1]),
+                    Long.parseLong(parts[2])).run();
+        }
+        JDBC.closeConnection();
+        System.exit(0);
+    }
+
+    /**
+     * Prints the results table and the errors seen.
+     *
+     * @param settings The settings of the run.
+     * @param stats    The recorded operations.
+     * @return True if any operation failed, false otherwise.
+     */
+    private static boolean report(Settings settings, Map<Operation, OperationStats> stats) {
+        double seconds = settings.duration / 1000.0;
+        System.out.println();
+        System.out.printf("%-18s %6s %8s %8s %9s %9s %7s%n", "Operation", "Mix", "Count", "Ops/s", "p50 ms", "p99 ms", "Errors");
+        int totalCount = 0;
+        int totalErrors = 0;
+        for (Operation operation : Operation.values()) {
+            OperationStats operationStats = stats.get(operation);
+            int count = operationStats.getCount();
+            int errors = operationStats.getErrors();
+            totalCount += count;
+            totalErrors += errors;
+            System.out.printf("%-18s %5.0f%% %8d %8.1f %9.1f %9.1f %7d%n", operation.getKey(), settings.share(operation) * 100,
+                    count, count / seconds, operationStats.getPercentile(0.50), operationStats.getPercentile(0.99), errors);
+        }
+        System.out.printf("%-18s %6s %8d %8.1f %9s %9s %7d%n", "total", "", totalCount, totalCount / seconds, "", "", totalErrors);
+
+        for (Operation operation : Operation.values()) {
+            for (String message : stats.get(operation).getErrorMessages()) {
+                System.out.println("Error in " + operation.getKey() + ": " + message);
+            }
+        }
+        return totalErrors > 0;
+    }
+}
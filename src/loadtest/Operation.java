@@ -0,0 +1,59 @@
+package loadtest;
+
+/**
+ * The desk workflows the load test runs, each with its default share of the mix.
+ * The defaults follow what a scheduling desk does over a day: mostly looking at the week, with regular bookings and
+ * changes, and the occasional login, report or customer removal.
+ *
+ * @author Daniel Akoko
+ */
+public enum Operation {
+    LOGIN("login", 5),
+    VIEW_WEEK("viewWeek", 40),
+    ADD_APPOINTMENT("addAppointment", 20),
+    UPDATE_APPOINTMENT("updateAppointment", 15),
+    DELETE_CUSTOMER("deleteCustomer", 5),
+    OPEN_REPORTS("openReports", 15);
+
+    private final String key;
+    private final int defaultWeight;
+
+    Operation(String key, int defaultWeight) {
+        this.key = key;
+        this.defaultWeight = defaultWeight;
+    }
+
+    /**
+     * Gets the name used for the operation in -Dload.mix and in the report.
+     *
+     * @return The key.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Gets the operation's share of the default mix.
+     *
+     * @return The relative weight.
+     */
+    public int getDefaultWeight() {
+        return defaultWeight;
+    }
+
+    /**
+     * Finds an operation by its key.
+     *
+     * @param key The key, e.g. viewWeek.
+     * @return The operation.
+     * @throws IllegalArgumentException If no operation has the key.
+     */
+    public static Operation fromKey(String key) {
+        for (Operation operation : values()) {
+            if (operation.key.equalsIgnoreCase(key.trim())) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation " + key);
+    }
+}
@@ -0,0 +1,98 @@
+package loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * The latencies and errors recorded for one operation during a load test.
+ * Every latency is kept, so the percentiles are exact; a run of a few hundred thousand operations needs only a few megabytes.
+ *
+ * @author Daniel Akoko
+ */
+public class OperationStats {
+
+    /** Distinct error messages kept for the report. */
+    private static final int MAX_ERROR_MESSAGES = 3;
+
+    private long[] latencies = new long[1024];
+    private int count;
+    private int errors;
+    private final Set<String> errorMessages = new LinkedHashSet<>();
+
+    /**
+     * Records an operation that completed.
+     *
+     * @param nanos How long it took, in nanoseconds.
+     */
+    public synchronized void success(long nanos) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = nanos;
+    }
+
+    /**
+     * Records an operation that failed. Its latency is not counted, since a fast failure would flatter the percentiles.
+     *
+     * @param error The failure.
+     */
+    public synchronized void failure(Throwable error) {
+        failure(error.getClass().getSimpleName() + ": " + error.getMessage());
+    }
+
+    /**
+     * Records an operation that failed, as described by a desk running in another JVM.
+     *
+     * @param message The failure's type and message.
+     */
+    public synchronized void failure(String message) {
+        errors++;
+        if (errorMessages.size() < MAX_ERROR_MESSAGES) {
+            errorMessages.add(message);
+        }
+    }
+
+    /**
+     * Gets the number of operations that completed.
+     *
+     * @return The count.
+     */
+    public synchronized int getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the number of operations that failed.
+     *
+     * @return The count.
+     */
+    public synchronized int getErrors() {
+        return errors;
+    }
+
+    /**
+     * Gets the first few distinct error messages.
+     *
+     * @return The messages.
+     */
+    public synchronized Set<String> getErrorMessages() {
+        return new LinkedHashSet<>(errorMessages);
+    }
+
+    /**
+     * Gets the latency below which a share of the completed operations fell.
+     *
+     * @param percentile The share, e.g. 0.99.
+     * @return The latency in milliseconds, or 0 if nothing completed.
+     */
+    public synchronized double getPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile * count) - 1;
+        return sorted[Math.max(0, Math.min(index, count - 1))] / 1_000_000.0;
+    }
+}
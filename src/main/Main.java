@@ -1,15 +1,23 @@
 package main;
 
+import helper.DatabaseException;
+import helper.DatabaseSync;
 import helper.JDBC;
+import helper.SceneCache;
+import helper.Startup;
+import helper.TimelineCache;
 import helper.Util;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
+import server.SchedulerServer;
 
 import java.io.IOException;
-import java.time.LocalDateTime;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
 
 /**
  * The main class of the Scheduling Application, extending JavaFX Application.
@@ -20,6 +28,13 @@ import java.time.LocalDateTime;
  */
 public class Main extends Application {
 
+    /** The screens parsed in the background while the user logs in. */
+    private static final String[] SCREENS = {"MainScreen", "AppointmentScreen", "CustomerScreen", "ReportScreen",
+            "AddAppointment", "UpdateAppointment", "AddCustomer", "UpdateCustomer"};
+
+    /** Set by --train: show every screen once and exit, to record the classes a desk loads into a class-data-sharing archive. */
+    private static boolean training;
+
     /**
      * The main entry point for the Scheduling Application.
      *
@@ -33,27 +48,136 @@ public class Main extends Application {
         stage.setScene(scene);
         stage.setTitle("Scheduling Application");
         stage.show();
+        System.out.println("Login screen shown " + (System.currentTimeMillis()
+                - ManagementFactory.getRuntimeMXBean().getStartTime()) + " ms after launch");
+
+        // Parse the other screens in the background while the user logs in, so the first visit to each is quick
+        SceneCache.preload(SCREENS);
+
+        if (training) {
+            Thread trainer = new Thread(() -> {
+                Startup.awaitWarmUp();
+                Platform.runLater(() -> train(stage));
+            }, "cds-training");
+            trainer.setDaemon(true);
+            trainer.start();
+        }
+    }
+
+    /**
+     * Shows and lays out every screen once, then exits, so a run with -XX:ArchiveClassesAtExit records every class a desk
+     * loads up to its first use of each screen. See the README for the commands that create and use the archive.
+     *
+     * @param stage The primary stage.
+     */
+    private static void train(Stage stage) {
+        try {
+            for (String screen : SCREENS) {
+                SceneCache.show(stage, screen);
+                stage.getScene().getRoot().applyCss();
+                stage.getScene().getRoot().layout();
+            }
+        } catch (IOException e) {
+            System.out.println("Error:" + e.getMessage());
+        }
+        Platform.exit();
     }
 
     /**
      * The main method that launches the JavaFX application.
-     * It initializes the database connection, converts the current time to the system time zone,
-     * and then launches the JavaFX application.
+     * It starts opening the database connection, precomputing the form time slots and warming the caches in the background
+     * (see Startup), and then launches the JavaFX application, so the login screen does not wait for any of them.
+     * With --headless no window is opened; the scheduling operations are served over HTTP instead (see SchedulerServer).
      *
-     * @param args Command-line arguments passed to the application. (not used in this application)
+     * @param args Command-line arguments passed to the application; --headless starts the service mode,
+     *             --train shows every screen once and exits.
      */
     public static void main(String[] args) {
-        // Open the JDBC database connection
-        JDBC.openConnection();
+        if (Arrays.asList(args).contains("--headless")) {
+            startHeadless();
+            return;
+        }
 
-        // Create a Util object and convert the current time to the system time zone
-        Util obj = new Util();
-        obj.convertToSystemTimeZone(LocalDateTime.now());
+        // Database failures thrown from event handlers are shown to the user instead of leaving a screen half-loaded
+        Thread.setDefaultUncaughtExceptionHandler(Main::handleUncaught);
+
+        training = Arrays.asList(args).contains("--train");
+
+        // Open the database, precompute the form time slots and warm the caches while the login screen comes up.
+        // A desk on the embedded backend brings in the central database's changes when started with -Dscheduler.sync=true
+        Startup.begin(Boolean.getBoolean("scheduler.sync"));
 
         // Launch the JavaFX application
         launch(args);
 
+        // Let a warm-up still running finish before the database is closed
+        Startup.awaitWarmUp();
+
+        // Send the desk's changes back to the central database
+        if (Boolean.getBoolean("scheduler.sync")) {
+            DatabaseSync.synchronize();
+        }
+
+        // Save the cached appointments so the next start only fetches what changed
+        TimelineCache.saveSnapshot();
+
         // Close the JDBC database connection when the application exits
         JDBC.closeConnection();
     }
-}
\ No newline at end of file
+
+    /**
+     * Opens the database and starts the scheduling service, which runs until the process is stopped.
+     * Shutting down (e.g. with Ctrl+C) stops the server, syncs and saves the appointment snapshot like the desktop application's exit.
+     */
+    private static void startHeadless() {
+        Startup.begin(Boolean.getBoolean("scheduler.sync"));
+        Startup.awaitReady();
+
+        SchedulerServer server;
+        try {
+            server = new SchedulerServer(Integer.getInteger("scheduler.port", SchedulerServer.DEFAULT_PORT));
+        } catch (IOException e) {
+            System.out.println("Error: the scheduling service could not start: " + e.getMessage());
+            JDBC.closeConnection();
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            Startup.awaitWarmUp();
+            if (Boolean.getBoolean("scheduler.sync")) {
+                DatabaseSync.synchronize();
+            }
+            TimelineCache.saveSnapshot();
+            JDBC.closeConnection();
+        }));
+        server.start();
+    }
+
+    /**
+     * Handles an exception nothing else caught.
+     * A DatabaseException anywhere in the cause chain, including one wrapped by FXMLLoader while a screen loads,
+     * is shown in an error alert on the JavaFX thread; anything else is printed as before.
+     *
+     * @param thread    The thread the exception was thrown on.
+     * @param throwable The exception.
+     */
+    private static void handleUncaught(Thread thread, Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DatabaseException) {
+                String message = cause.getMessage();
+                if (Platform.isFxApplicationThread()) {
+                    Util.errorAlert("DATABASE ERROR", message);
+                    return;
+                }
+                try {
+                    Platform.runLater(() -> Util.errorAlert("DATABASE ERROR", message));
+                    return;
+                } catch (IllegalStateException e) {
+                    // JavaFX has not started or has already shut down, so there is nowhere to show the alert
+                    break;
+                }
+            }
+        }
+        throwable.printStackTrace();
+    }
+}
@@ -1,10 +1,15 @@
 package model;
 
+import helper.TimeConverter;
+
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
 
 /**
  * Represents an appointment with various attributes such as appointment ID, title, description, location, type,
- * start and end times, customer and user IDs, contact information, and type total.
+ * start and end times, customer and user IDs, and contact information.
+ * The start and end are held as epoch milliseconds; local and zoned views are derived from them on request.
  */
 public class Appointment {
     // Attributes
@@ -13,12 +18,13 @@ public class Appointment {
     private String description;
     private String location;
     private String type;
-    private LocalDateTime start;
-    private LocalDateTime end;
+    private long start;
+    private long end;
     private int customerId;
     private int userId;
     private int contact;
-    private int typeTotal;
+    private int seriesId;
+    private int version;
 
     /**
      * Constructs an Appointment object with specified details.
@@ -35,6 +41,25 @@ public class Appointment {
      * @param contact       The contact information related to the appointment.
      */
     public Appointment(int appointmentId, String title, String description, String location, String type, LocalDateTime start, LocalDateTime end, int customerId, int userId, int contact) {
+        this(appointmentId, title, description, location, type, TimeConverter.toEpochMilli(start), TimeConverter.toEpochMilli(end),
+                customerId, userId, contact);
+    }
+
+    /**
+     * Constructs an Appointment object with specified details and times in epoch milliseconds.
+     *
+     * @param appointmentId The unique identifier for the appointment.
+     * @param title         The title of the appointment.
+     * @param description   The description of the appointment.
+     * @param location      The location of the appointment.
+     * @param type          The type of the appointment.
+     * @param start         The start of the appointment in epoch milliseconds.
+     * @param end           The end of the appointment in epoch milliseconds.
+     * @param customerId    The ID of the customer associated with the appointment.
+     * @param userId        The ID of the user associated with the appointment.
+     * @param contact       The contact information related to the appointment.
+     */
+    public Appointment(int appointmentId, String title, String description, String location, String type, long start, long end, int customerId, int userId, int contact) {
         this.appointmentId = appointmentId;
         this.title = title;
         this.description = description;
@@ -47,17 +72,6 @@ public class Appointment {
         this.contact = contact;
     }
 
-    /**
-     * Constructs an Appointment object with specified type and type total.
-     *
-     * @param type      The type of the appointment.
-     * @param typeTotal The total count of appointments with the specified type.
-     */
-    public Appointment(String type, int typeTotal) {
-        this.type = type;
-        this.typeTotal = typeTotal;
-    }
-
     // Additional getter and setter methods...
 
     /**
@@ -156,7 +170,7 @@ public class Appointment {
      * @return The start date and time of the appointment.
      */
     public LocalDateTime getStart() {
-        return start;
+        return TimeConverter.toLocal(start);
     }
 
     /**
@@ -165,7 +179,7 @@ public class Appointment {
      * @param start The new appointment start date and time to set.
      */
     public void setStart(LocalDateTime start) {
-        this.start = start;
+        this.start = TimeConverter.toEpochMilli(start);
     }
 
     /**
@@ -174,7 +188,7 @@ public class Appointment {
      * @return The end date and time of the appointment.
      */
     public LocalDateTime getEnd() {
-        return end;
+        return TimeConverter.toLocal(end);
     }
 
     /**
@@ -183,7 +197,45 @@ public class Appointment {
      * @param end The new appointment end date and time to set.
      */
     public void setEnd(LocalDateTime end) {
-        this.end = end;
+        this.end = TimeConverter.toEpochMilli(end);
+    }
+
+    /**
+     * Gets the start of the appointment in epoch milliseconds.
+     *
+     * @return The start in epoch milliseconds.
+     */
+    public long getStartMillis() {
+        return start;
+    }
+
+    /**
+     * Gets the end of the appointment in epoch milliseconds.
+     *
+     * @return The end in epoch milliseconds.
+     */
+    public long getEndMillis() {
+        return end;
+    }
+
+    /**
+     * Gets the start date and time of the appointment in the specified time zone.
+     *
+     * @param zone The time zone.
+     * @return The zoned start date and time.
+     */
+    public ZonedDateTime getStart(ZoneId zone) {
+        return TimeConverter.toZoned(start, zone);
+    }
+
+    /**
+     * Gets the end date and time of the appointment in the specified time zone.
+     *
+     * @param zone The time zone.
+     * @return The zoned end date and time.
+     */
+    public ZonedDateTime getEnd(ZoneId zone) {
+        return TimeConverter.toZoned(end, zone);
     }
 
     /**
@@ -241,21 +293,39 @@ public class Appointment {
     }
 
     /**
-     * Gets the appointment ID.
+     * Gets the ID of the recurring series this appointment is an occurrence of.
      *
-     * @return The appointment ID.
+     * @return The series ID, or 0 if the appointment is a single stored appointment.
+     */
+    public int getSeriesId() {
+        return seriesId;
+    }
+
+    /**
+     * Sets the ID of the recurring series this appointment is an occurrence of.
+     *
+     * @param seriesId The new series ID to set.
+     */
+    public void setSeriesId(int seriesId) {
+        this.seriesId = seriesId;
+    }
+
+    /**
+     * Gets the row version the appointment was read at, which an update must name to succeed.
+     *
+     * @return The version.
      */
-    public int getTypeTotal() {
-        return typeTotal;
+    public int getVersion() {
+        return version;
     }
 
     /**
-     * Sets the appointment total.
+     * Sets the row version the appointment was read at.
      *
-     * @param typeTotal The new appointment type total to set.
+     * @param version The new version to set.
      */
-    public void setTypeTotal(int typeTotal) {
-        this.typeTotal = typeTotal;
+    public void setVersion(int version) {
+        this.version = version;
     }
 
     /**
@@ -266,8 +336,8 @@ public class Appointment {
     @Override
     public String toString() {
         return ("Appointment: {" + Integer.toString(appointmentId) + "} \nCustomer: {" + Integer.toString(customerId) +
-                " } \nContact: {" + Integer.toString(contact) + "} \n Type: " + type + " \nStart: {"+ start +
-                "} \nEnd: {" + end);
+                " } \nContact: {" + Integer.toString(contact) + "} \n Type: " + type + " \nStart: {"+ getStart() +
+                "} \nEnd: {" + getEnd());
     }
 
 
@@ -0,0 +1,146 @@
+package model;
+
+import helper.TimeConverter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents a recurring appointment: the details shared by every occurrence, the first occurrence's start and end,
+ * and the recurrence rule that generates the rest.
+ */
+public class AppointmentSeries {
+    // Attributes
+    private final int seriesId;
+    private final String title;
+    private final String description;
+    private final String location;
+    private final String type;
+    private final LocalDateTime start;
+    private final LocalDateTime end;
+    private final int customerId;
+    private final int userId;
+    private final int contact;
+    private final Recurrence recurrence;
+
+    /**
+     * Constructs an AppointmentSeries object with specified details.
+     *
+     * @param seriesId    The unique identifier for the series.
+     * @param title       The title of each occurrence.
+     * @param description The description of each occurrence.
+     * @param location    The location of each occurrence.
+     * @param type        The type of each occurrence.
+     * @param start       The start date and time of the first occurrence.
+     * @param end         The end date and time of the first occurrence.
+     * @param customerId  The ID of the customer associated with the series.
+     * @param userId      The ID of the user associated with the series.
+     * @param contact     The ID of the contact associated with the series.
+     * @param recurrence  The rule that generates the occurrences.
+     */
+    public AppointmentSeries(int seriesId, String title, String description, String location, String type, LocalDateTime start,
+                             LocalDateTime end, int customerId, int userId, int contact, Recurrence recurrence) {
+        this.seriesId = seriesId;
+        this.title = title;
+        this.description = description;
+        this.location = location;
+        this.type = type;
+        this.start = start;
+        this.end = end;
+        this.customerId = customerId;
+        this.userId = userId;
+        this.contact = contact;
+        this.recurrence = recurrence;
+    }
+
+    /**
+     * Gets the series ID.
+     *
+     * @return The series ID.
+     */
+    public int getSeriesId() {
+        return seriesId;
+    }
+
+    /**
+     * Gets the start date and time of the first occurrence.
+     *
+     * @return The start date and time.
+     */
+    public LocalDateTime getStart() {
+        return start;
+    }
+
+    /**
+     * Gets the end date and time of the first occurrence.
+     *
+     * @return The end date and time.
+     */
+    public LocalDateTime getEnd() {
+        return end;
+    }
+
+    /**
+     * Gets the customer ID.
+     *
+     * @return The customer ID.
+     */
+    public int getCustomerId() {
+        return customerId;
+    }
+
+    /**
+     * Gets the user ID.
+     *
+     * @return The user ID.
+     */
+    public int getUserId() {
+        return userId;
+    }
+
+    /**
+     * Gets the contact ID.
+     *
+     * @return The contact ID.
+     */
+    public int getContact() {
+        return contact;
+    }
+
+    /**
+     * Gets the recurrence rule of the series.
+     *
+     * @return The recurrence rule.
+     */
+    public Recurrence getRecurrence() {
+        return recurrence;
+    }
+
+    /**
+     * Expands the occurrences that overlap a window into Appointment objects.
+     * Only the occurrences in the window are created. The rule is applied in the business time zone, and only the results
+     * are converted to local time, so desks in different zones or daylight-saving regimes compute the same occurrences
+     * and skip the same excluded dates.
+     *
+     * @param from The start of the window.
+     * @param to   The end of the window.
+     * @return The occurrences, earliest first, each carrying this series' ID.
+     */
+    public List<Appointment> expand(LocalDateTime from, LocalDateTime to) {
+        long first = TimeConverter.toEpochMilli(start);
+        long length = TimeConverter.toEpochMilli(end) - first;
+        List<Appointment> occurrences = new ArrayList<>();
+        // An occurrence overlaps the window if it starts before the window ends and ends after the window starts
+        LocalDateTime windowStart = TimeConverter.toBusiness(TimeConverter.toEpochMilli(from) - length + 1);
+        LocalDateTime windowEnd = TimeConverter.toBusiness(TimeConverter.toEpochMilli(to));
+        for (LocalDateTime businessStart : recurrence.occurrencesBetween(TimeConverter.toBusiness(first), windowStart, windowEnd)) {
+            long occurrenceStart = TimeConverter.fromBusiness(businessStart);
+            Appointment occurrence = new Appointment(0, title, description, location, type, TimeConverter.toLocal(occurrenceStart),
+                    TimeConverter.toLocal(occurrenceStart + length), customerId, userId, contact);
+            occurrence.setSeriesId(seriesId);
+            occurrences.add(occurrence);
+        }
+        return occurrences;
+    }
+}
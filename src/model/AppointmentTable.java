@@ -0,0 +1,345 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * A compact, column-oriented table of appointments.
+ * Each field is held in its own primitive array, with rows kept in order of appointment ID so a row is found by binary search.
+ * Start and end are epoch milliseconds, and type and location are stored as dictionary codes,
+ * so a row costs a few dozen bytes plus its free-text title and description.
+ * Callers read rows through index-based getters, and build an Appointment only when one is needed.
+ */
+public class AppointmentTable {
+    private final StringDictionary types;
+    private final StringDictionary locations;
+
+    private int size;
+    private int[] ids = new int[16];
+    private int[] customerIds = new int[16];
+    private int[] userIds = new int[16];
+    private int[] contactIds = new int[16];
+    private int[] versions = new int[16];
+    private int[] typeCodes = new int[16];
+    private int[] locationCodes = new int[16];
+    private long[] starts = new long[16];
+    private long[] ends = new long[16];
+    private String[] titles = new String[16];
+    private String[] descriptions = new String[16];
+
+    /**
+     * Constructs an empty table with its own dictionaries.
+     */
+    public AppointmentTable() {
+        this(new StringDictionary(), new StringDictionary());
+    }
+
+    /**
+     * Constructs an empty table that encodes type and location with the specified dictionaries.
+     *
+     * @param types     The dictionary for appointment types.
+     * @param locations The dictionary for appointment locations.
+     */
+    public AppointmentTable(StringDictionary types, StringDictionary locations) {
+        this.types = types;
+        this.locations = locations;
+    }
+
+    /**
+     * Gets the number of rows.
+     *
+     * @return The number of rows.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the row of an appointment.
+     *
+     * @param appointmentId The ID of the appointment.
+     * @return The row index, or -1 if the appointment is not in the table.
+     */
+    public int indexOf(int appointmentId) {
+        int index = Arrays.binarySearch(ids, 0, size, appointmentId);
+        return index >= 0 ? index : -1;
+    }
+
+    /**
+     * Adds an appointment, or replaces the row if the appointment is already in the table.
+     *
+     * @param appointment The appointment to store.
+     */
+    public void put(Appointment appointment) {
+        put(appointment.getAppointmentId(), appointment.getTitle(), appointment.getDescription(), appointment.getLocation(),
+                appointment.getType(), appointment.getStartMillis(), appointment.getEndMillis(),
+                appointment.getCustomerId(), appointment.getUserId(), appointment.getContact(), appointment.getVersion());
+    }
+
+    /**
+     * Adds a row from its fields, or replaces the row if the appointment is already in the table.
+     *
+     * @param appointmentId The unique identifier for the appointment.
+     * @param title         The title of the appointment.
+     * @param description   The description of the appointment.
+     * @param location      The location of the appointment.
+     * @param type          The type of the appointment.
+     * @param start         The start of the appointment in epoch milliseconds.
+     * @param end           The end of the appointment in epoch milliseconds.
+     * @param customerId    The ID of the customer associated with the appointment.
+     * @param userId        The ID of the user associated with the appointment.
+     * @param contactId     The ID of the contact related to the appointment.
+     * @param version       The row version the appointment was read at.
+     */
+    public void put(int appointmentId, String title, String description, String location, String type, long start, long end,
+                    int customerId, int userId, int contactId, int version) {
+        int index = Arrays.binarySearch(ids, 0, size, appointmentId);
+        if (index < 0) {
+            index = -index - 1;
+            grow();
+            shift(index, index + 1, size - index);
+            size++;
+        }
+        ids[index] = appointmentId;
+        customerIds[index] = customerId;
+        userIds[index] = userId;
+        contactIds[index] = contactId;
+        versions[index] = version;
+        typeCodes[index] = types.encode(type);
+        locationCodes[index] = locations.encode(location);
+        starts[index] = start;
+        ends[index] = end;
+        titles[index] = title;
+        descriptions[index] = description;
+    }
+
+    /**
+     * Removes an appointment.
+     *
+     * @param appointmentId The ID of the appointment.
+     * @return True if the appointment was in the table, false otherwise.
+     */
+    public boolean remove(int appointmentId) {
+        int index = indexOf(appointmentId);
+        if (index < 0) {
+            return false;
+        }
+        shift(index + 1, index, size - index - 1);
+        size--;
+        // Dropping the references in the vacated slot so the strings can be collected
+        titles[size] = null;
+        descriptions[size] = null;
+        return true;
+    }
+
+    /**
+     * Removes every row whose appointment ID is not in the specified list, e.g. appointments deleted elsewhere.
+     * Both the table and the list are in ID order, so this is a single merge pass.
+     *
+     * @param sortedIds The IDs to keep, in ascending order.
+     * @return The number of rows removed.
+     */
+    public int retain(int[] sortedIds) {
+        int kept = 0;
+        int next = 0;
+        for (int i = 0; i < size; i++) {
+            while (next < sortedIds.length && sortedIds[next] < ids[i]) {
+                next++;
+            }
+            if (next < sortedIds.length && sortedIds[next] == ids[i]) {
+                if (kept != i) {
+                    shift(i, kept, 1);
+                }
+                kept++;
+            }
+        }
+        int removed = size - kept;
+        Arrays.fill(titles, kept, size, null);
+        Arrays.fill(descriptions, kept, size, null);
+        size = kept;
+        return removed;
+    }
+
+    /**
+     * Removes every row. The dictionaries keep their codes.
+     */
+    public void clear() {
+        Arrays.fill(titles, 0, size, null);
+        Arrays.fill(descriptions, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Gets the appointment ID of a row.
+     *
+     * @param index The row index.
+     * @return The appointment ID.
+     */
+    public int getId(int index) {
+        return ids[index];
+    }
+
+    /**
+     * Gets the customer ID of a row.
+     *
+     * @param index The row index.
+     * @return The customer ID.
+     */
+    public int getCustomerId(int index) {
+        return customerIds[index];
+    }
+
+    /**
+     * Gets the user ID of a row.
+     *
+     * @param index The row index.
+     * @return The user ID.
+     */
+    public int getUserId(int index) {
+        return userIds[index];
+    }
+
+    /**
+     * Gets the contact ID of a row.
+     *
+     * @param index The row index.
+     * @return The contact ID.
+     */
+    public int getContactId(int index) {
+        return contactIds[index];
+    }
+
+    /**
+     * Gets the row version of a row.
+     *
+     * @param index The row index.
+     * @return The version.
+     */
+    public int getVersion(int index) {
+        return versions[index];
+    }
+
+    /**
+     * Gets the dictionary code of a row's type.
+     *
+     * @param index The row index.
+     * @return The type code.
+     */
+    public int getTypeCode(int index) {
+        return typeCodes[index];
+    }
+
+    /**
+     * Gets the start of a row in epoch milliseconds.
+     *
+     * @param index The row index.
+     * @return The start.
+     */
+    public long getStart(int index) {
+        return starts[index];
+    }
+
+    /**
+     * Gets the end of a row in epoch milliseconds.
+     *
+     * @param index The row index.
+     * @return The end.
+     */
+    public long getEnd(int index) {
+        return ends[index];
+    }
+
+    /**
+     * Gets the title of a row.
+     *
+     * @param index The row index.
+     * @return The title.
+     */
+    public String getTitle(int index) {
+        return titles[index];
+    }
+
+    /**
+     * Gets the description of a row.
+     *
+     * @param index The row index.
+     * @return The description.
+     */
+    public String getDescription(int index) {
+        return descriptions[index];
+    }
+
+    /**
+     * Gets the type of a row.
+     *
+     * @param index The row index.
+     * @return The type.
+     */
+    public String getType(int index) {
+        return types.decode(typeCodes[index]);
+    }
+
+    /**
+     * Gets the location of a row.
+     *
+     * @param index The row index.
+     * @return The location.
+     */
+    public String getLocation(int index) {
+        return locations.decode(locationCodes[index]);
+    }
+
+    /**
+     * Builds an Appointment object from a row, for screens and callers that need one.
+     *
+     * @param index The row index.
+     * @return A new Appointment object.
+     */
+    public Appointment toAppointment(int index) {
+        Appointment appointment = new Appointment(ids[index], titles[index], descriptions[index], getLocation(index), getType(index),
+                starts[index], ends[index], customerIds[index], userIds[index], contactIds[index]);
+        appointment.setVersion(versions[index]);
+        return appointment;
+    }
+
+    /**
+     * Makes room for at least one more row.
+     */
+    private void grow() {
+        if (size < ids.length) {
+            return;
+        }
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        customerIds = Arrays.copyOf(customerIds, capacity);
+        userIds = Arrays.copyOf(userIds, capacity);
+        contactIds = Arrays.copyOf(contactIds, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+        typeCodes = Arrays.copyOf(typeCodes, capacity);
+        locationCodes = Arrays.copyOf(locationCodes, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+        titles = Arrays.copyOf(titles, capacity);
+        descriptions = Arrays.copyOf(descriptions, capacity);
+    }
+
+    /**
+     * Moves a run of rows within every column.
+     *
+     * @param from   The first row to move.
+     * @param to     The position to move it to.
+     * @param length The number of rows to move.
+     */
+    private void shift(int from, int to, int length) {
+        System.arraycopy(ids, from, ids, to, length);
+        System.arraycopy(customerIds, from, customerIds, to, length);
+        System.arraycopy(userIds, from, userIds, to, length);
+        System.arraycopy(contactIds, from, contactIds, to, length);
+        System.arraycopy(versions, from, versions, to, length);
+        System.arraycopy(typeCodes, from, typeCodes, to, length);
+        System.arraycopy(locationCodes, from, locationCodes, to, length);
+        System.arraycopy(starts, from, starts, to, length);
+        System.arraycopy(ends, from, ends, to, length);
+        System.arraycopy(titles, from, titles, to, length);
+        System.arraycopy(descriptions, from, descriptions, to, length);
+    }
+}
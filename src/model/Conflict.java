@@ -0,0 +1,88 @@
+package model;
+
+/**
+ * Represents a scheduling conflict: an existing appointment that already books a customer, contact or user
+ * during the time requested for a new appointment.
+ */
+public class Conflict {
+
+    /**
+     * The kind of resource whose calendar has the conflict.
+     */
+    public enum Owner {
+        CUSTOMER("Customer"),
+        CONTACT("Contact"),
+        USER("User");
+
+        private final String label;
+
+        Owner(String label) {
+            this.label = label;
+        }
+
+        /**
+         * Gets the display label of the owner kind.
+         *
+         * @return The display label.
+         */
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    // Attributes
+    private final Owner owner;
+    private final int ownerId;
+    private final Appointment appointment;
+
+    /**
+     * Constructs a Conflict object with specified details.
+     *
+     * @param owner       The kind of resource that is double-booked.
+     * @param ownerId     The ID of the customer, contact or user that is double-booked.
+     * @param appointment The existing appointment that overlaps the requested time.
+     */
+    public Conflict(Owner owner, int ownerId, Appointment appointment) {
+        this.owner = owner;
+        this.ownerId = ownerId;
+        this.appointment = appointment;
+    }
+
+    /**
+     * Gets the kind of resource that is double-booked.
+     *
+     * @return The owner kind.
+     */
+    public Owner getOwner() {
+        return owner;
+    }
+
+    /**
+     * Gets the ID of the customer, contact or user that is double-booked.
+     *
+     * @return The owner ID.
+     */
+    public int getOwnerId() {
+        return ownerId;
+    }
+
+    /**
+     * Gets the existing appointment that overlaps the requested time.
+     *
+     * @return The conflicting appointment.
+     */
+    public Appointment getAppointment() {
+        return appointment;
+    }
+
+    /**
+     * Generates a string representation of the Conflict object.
+     *
+     * @return A formatted string naming the owner and the conflicting appointment.
+     */
+    @Override
+    public String toString() {
+        return owner.getLabel() + " " + ownerId + " is already booked by appointment " + appointment.getAppointmentId() +
+                " (" + appointment.getStart() + " to " + appointment.getEnd() + ")";
+    }
+}
@@ -15,6 +15,7 @@ public class Customer {
     private int countryId;
     private String divisionName;
     private String country;
+    private int version;
 
     /**
      * Constructs a Customer object with specified details.
@@ -215,6 +216,24 @@ public class Customer {
         this.country = country;
     }
 
+    /**
+     * Gets the row version the customer was read at, which an update must name to succeed.
+     *
+     * @return The version.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Sets the row version the customer was read at.
+     *
+     * @param version The new version to set.
+     */
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     /**
      * Generates a string representation of the Customer object.
      *
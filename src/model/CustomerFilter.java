@@ -0,0 +1,168 @@
+package model;
+
+import java.util.Comparator;
+import java.util.function.Function;
+
+/**
+ * Represents what the customer screen shows: the customers whose name starts with a prefix, in a country and a division,
+ * sorted on one column. The database does the filtering and sorting and returns one page at a time
+ * (see CustomerQuery.getCustomerPage); customers already in memory, e.g. search results, can be checked and ordered the same
+ * way with matches and comparator.
+ * Instances are immutable; the with methods return a changed copy.
+ */
+public class CustomerFilter {
+
+    /**
+     * The columns the customers can be sorted on. Ties, and the ID sort itself, are ordered by customer ID, so every row has
+     * a unique position that the next page can start after.
+     */
+    public enum Sort {
+        /** By customer ID. */
+        ID,
+        /** By customer name. */
+        NAME,
+        /** By address. */
+        ADDRESS,
+        /** By postal code. */
+        POSTAL_CODE,
+        /** By phone number. */
+        PHONE
+    }
+
+    /** Every customer, in ID order. */
+    public static final CustomerFilter ALL = new CustomerFilter("", 0, 0, Sort.ID, false);
+
+    // Attributes
+    private final String namePrefix;
+    private final int countryId;
+    private final int divisionId;
+    private final Sort sort;
+    private final boolean descending;
+
+    /**
+     * Constructs a CustomerFilter object with specified details.
+     *
+     * @param namePrefix The start of the customer name, or an empty string for any name.
+     * @param countryId  The ID of the country, or 0 for any country.
+     * @param divisionId The ID of the division, or 0 for any division.
+     * @param sort       The column to sort on.
+     * @param descending True to sort from the highest value down.
+     */
+    public CustomerFilter(String namePrefix, int countryId, int divisionId, Sort sort, boolean descending) {
+        this.namePrefix = namePrefix == null ? "" : namePrefix.trim();
+        this.countryId = countryId;
+        this.divisionId = divisionId;
+        this.sort = sort;
+        this.descending = descending;
+    }
+
+    /**
+     * Gets the start of the customer name.
+     *
+     * @return The prefix, or an empty string for any name.
+     */
+    public String getNamePrefix() {
+        return namePrefix;
+    }
+
+    /**
+     * Gets the country ID.
+     *
+     * @return The country ID, or 0 for any country.
+     */
+    public int getCountryId() {
+        return countryId;
+    }
+
+    /**
+     * Gets the division ID.
+     *
+     * @return The division ID, or 0 for any division.
+     */
+    public int getDivisionId() {
+        return divisionId;
+    }
+
+    /**
+     * Gets the column to sort on.
+     *
+     * @return The sort column.
+     */
+    public Sort getSort() {
+        return sort;
+    }
+
+    /**
+     * Checks whether the customers are sorted from the highest value down.
+     *
+     * @return True for a descending sort, false for an ascending one.
+     */
+    public boolean isDescending() {
+        return descending;
+    }
+
+    /**
+     * Checks a customer against the name prefix, country and division, ignoring case like the database does.
+     *
+     * @param customer The customer.
+     * @return True if the customer meets every condition, false otherwise.
+     */
+    public boolean matches(Customer customer) {
+        String name = customer.getCustomerName();
+        return (namePrefix.isEmpty() || name != null && name.regionMatches(true, 0, namePrefix, 0, namePrefix.length()))
+                && (countryId == 0 || customer.getCountryId() == countryId)
+                && (divisionId == 0 || customer.getDivisionId() == divisionId);
+    }
+
+    /**
+     * Gets the order of the sort: the sort column ignoring case, with customers that have no value first, then the customer ID,
+     * all reversed for a descending sort.
+     *
+     * @return The comparator.
+     */
+    public Comparator<Customer> comparator() {
+        Comparator<Customer> byId = Comparator.comparingInt(Customer::getCustomerId);
+        Comparator<Customer> order;
+        switch (sort) {
+            case NAME: order = byText(Customer::getCustomerName).thenComparing(byId); break;
+            case ADDRESS: order = byText(Customer::getAddress).thenComparing(byId); break;
+            case POSTAL_CODE: order = byText(Customer::getPostalCode).thenComparing(byId); break;
+            case PHONE: order = byText(Customer::getPhone).thenComparing(byId); break;
+            default: order = byId;
+        }
+        return descending ? order.reversed() : order;
+    }
+
+    /**
+     * Orders customers by a text column, ignoring case, with those that have no value first.
+     *
+     * @param column The column.
+     * @return The comparator.
+     */
+    private static Comparator<Customer> byText(Function<Customer, String> column) {
+        return Comparator.comparing(column, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER));
+    }
+
+    /**
+     * Returns a copy of this filter with other name, country and division conditions and the same sort.
+     *
+     * @param namePrefix The start of the customer name, or an empty string for any name.
+     * @param countryId  The ID of the country, or 0 for any country.
+     * @param divisionId The ID of the division, or 0 for any division.
+     * @return The new filter.
+     */
+    public CustomerFilter withConditions(String namePrefix, int countryId, int divisionId) {
+        return new CustomerFilter(namePrefix, countryId, divisionId, sort, descending);
+    }
+
+    /**
+     * Returns a copy of this filter with another sort and the same conditions.
+     *
+     * @param sort       The column to sort on.
+     * @param descending True to sort from the highest value down.
+     * @return The new filter.
+     */
+    public CustomerFilter withSort(Sort sort, boolean descending) {
+        return new CustomerFilter(namePrefix, countryId, divisionId, sort, descending);
+    }
+}
@@ -0,0 +1,206 @@
+package model;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Represents an RRULE-style recurrence rule: a daily, weekly or monthly frequency with an interval,
+ * an optional last date, and a set of excluded dates.
+ * Occurrences are never stored; they are computed on demand for the window that is asked for.
+ * Times and dates are in the business time zone (see AppointmentSeries.expand), so every desk agrees on them.
+ */
+public class Recurrence {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.BASIC_ISO_DATE;
+
+    /**
+     * How often the series repeats.
+     */
+    public enum Frequency {
+        DAILY, WEEKLY, MONTHLY
+    }
+
+    // Attributes
+    private final Frequency frequency;
+    private final int interval;
+    private final LocalDate until;
+    private final TreeSet<LocalDate> exceptions = new TreeSet<>();
+
+    /**
+     * Constructs a Recurrence object with specified details.
+     *
+     * @param frequency How often the series repeats.
+     * @param interval  The number of days, weeks or months between occurrences.
+     * @param until     The last date on which an occurrence may start, or null if the series does not end.
+     */
+    public Recurrence(Frequency frequency, int interval, LocalDate until) {
+        this.frequency = frequency;
+        this.interval = Math.max(1, interval);
+        this.until = until;
+    }
+
+    /**
+     * Parses a rule such as "FREQ=WEEKLY;INTERVAL=1;UNTIL=20261231" and a comma-separated list of excluded dates.
+     *
+     * @param rule       The recurrence rule.
+     * @param exceptions The excluded dates in yyyyMMdd form, or null or blank if there are none.
+     * @return The parsed Recurrence object.
+     */
+    public static Recurrence parse(String rule, String exceptions) {
+        Frequency frequency = Frequency.WEEKLY;
+        int interval = 1;
+        LocalDate until = null;
+        for (String part : rule.split(";")) {
+            String[] pair = part.split("=", 2);
+            if (pair.length < 2) {
+                continue;
+            }
+            switch (pair[0].trim().toUpperCase()) {
+                case "FREQ" -> frequency = Frequency.valueOf(pair[1].trim().toUpperCase());
+                case "INTERVAL" -> interval = Integer.parseInt(pair[1].trim());
+                case "UNTIL" -> until = LocalDate.parse(pair[1].trim(), DATE_FORMAT);
+                default -> { }
+            }
+        }
+
+        Recurrence recurrence = new Recurrence(frequency, interval, until);
+        if (exceptions != null && !exceptions.isBlank()) {
+            for (String date : exceptions.split(",")) {
+                recurrence.addException(LocalDate.parse(date.trim(), DATE_FORMAT));
+            }
+        }
+        return recurrence;
+    }
+
+    /**
+     * Gets the frequency of the series.
+     *
+     * @return The frequency.
+     */
+    public Frequency getFrequency() {
+        return frequency;
+    }
+
+    /**
+     * Gets the number of days, weeks or months between occurrences.
+     *
+     * @return The interval.
+     */
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * Gets the last date on which an occurrence may start.
+     *
+     * @return The last date, or null if the series does not end.
+     */
+    public LocalDate getUntil() {
+        return until;
+    }
+
+    /**
+     * Excludes the occurrence that starts on the specified date.
+     *
+     * @param date The date to exclude, in the business time zone.
+     */
+    public void addException(LocalDate date) {
+        exceptions.add(date);
+    }
+
+    /**
+     * Checks whether the occurrence on the specified date has been excluded.
+     *
+     * @param date The date to check, in the business time zone.
+     * @return True if the date is excluded, false otherwise.
+     */
+    public boolean isException(LocalDate date) {
+        return exceptions.contains(date);
+    }
+
+    /**
+     * Formats the rule part of the recurrence, e.g. "FREQ=WEEKLY;INTERVAL=1;UNTIL=20261231".
+     *
+     * @return The formatted rule.
+     */
+    public String toRule() {
+        return "FREQ=" + frequency + ";INTERVAL=" + interval + (until == null ? "" : ";UNTIL=" + until.format(DATE_FORMAT));
+    }
+
+    /**
+     * Formats the excluded dates as a comma-separated list.
+     *
+     * @return The formatted dates, or an empty string if there are none.
+     */
+    public String toExceptions() {
+        StringBuilder builder = new StringBuilder();
+        for (LocalDate date : exceptions) {
+            if (builder.length() > 0) {
+                builder.append(',');
+            }
+            builder.append(date.format(DATE_FORMAT));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Computes the start times of the occurrences that start within a window.
+     * The first candidate is found arithmetically from the window start, so the cost depends on the size of the window
+     * rather than on how long the series has been running.
+     *
+     * @param first The start of the first occurrence of the series.
+     * @param from  The inclusive start of the window.
+     * @param to    The exclusive end of the window.
+     * @return The occurrence start times in the window, earliest first.
+     */
+    public List<LocalDateTime> occurrencesBetween(LocalDateTime first, LocalDateTime from, LocalDateTime to) {
+        List<LocalDateTime> occurrences = new ArrayList<>();
+        // Step back one period from the arithmetic estimate, since month lengths make it approximate
+        long index = Math.max(0, unitsBetween(first, from) / interval - 1);
+        while (true) {
+            LocalDateTime occurrence = occurrence(first, index++);
+            if (!occurrence.isBefore(to) || (until != null && occurrence.toLocalDate().isAfter(until))) {
+                break;
+            }
+            if (!occurrence.isBefore(from) && !isException(occurrence.toLocalDate())) {
+                occurrences.add(occurrence);
+            }
+        }
+        return occurrences;
+    }
+
+    /**
+     * Computes the start of the occurrence with the specified index.
+     *
+     * @param first The start of the first occurrence of the series.
+     * @param index The zero-based index of the occurrence.
+     * @return The start of the occurrence.
+     */
+    private LocalDateTime occurrence(LocalDateTime first, long index) {
+        return switch (frequency) {
+            case DAILY -> first.plusDays(index * interval);
+            case WEEKLY -> first.plusWeeks(index * interval);
+            case MONTHLY -> first.plusMonths(index * interval);
+        };
+    }
+
+    /**
+     * Counts the whole days, weeks or months from the first occurrence to a time.
+     *
+     * @param first The start of the first occurrence of the series.
+     * @param time  The time to measure to.
+     * @return The number of whole units, or 0 if the time is before the first occurrence.
+     */
+    private long unitsBetween(LocalDateTime first, LocalDateTime time) {
+        ChronoUnit unit = switch (frequency) {
+            case DAILY -> ChronoUnit.DAYS;
+            case WEEKLY -> ChronoUnit.WEEKS;
+            case MONTHLY -> ChronoUnit.MONTHS;
+        };
+        return Math.max(0, unit.between(first, time));
+    }
+}
@@ -0,0 +1,38 @@
+package model;
+
+/**
+ * Represents one line of a count report, such as the number of appointments of a type or in a month.
+ */
+public class ReportTotal {
+    private final String label;
+    private final int total;
+
+    /**
+     * Constructs a ReportTotal object with specified details.
+     *
+     * @param label The value being counted, such as an appointment type or a month name.
+     * @param total The number of appointments with that value.
+     */
+    public ReportTotal(String label, int total) {
+        this.label = label;
+        this.total = total;
+    }
+
+    /**
+     * Gets the value being counted.
+     *
+     * @return The label.
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Gets the number of appointments with the value.
+     *
+     * @return The total.
+     */
+    public int getTotal() {
+        return total;
+    }
+}
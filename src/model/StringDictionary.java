@@ -0,0 +1,70 @@
+package model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps the distinct values of a low-cardinality text column to small int codes and back.
+ * Each distinct value is stored once, so rows can hold an int code instead of their own copy of the text.
+ * Codes are handed out in order of first appearance and never change.
+ */
+public class StringDictionary {
+    /** The code used for a missing value. */
+    public static final int NONE = -1;
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private String[] values = new String[16];
+    private int size;
+
+    /**
+     * Gets the code of a value, assigning the next code if the value has not been seen before.
+     *
+     * @param value The value, or null.
+     * @return The code, or NONE if the value is null.
+     */
+    public synchronized int encode(String value) {
+        if (value == null) {
+            return NONE;
+        }
+        Integer code = codes.get(value);
+        if (code == null) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            code = size;
+            values[size++] = value;
+            codes.put(value, code);
+        }
+        return code;
+    }
+
+    /**
+     * Gets the value of a code.
+     *
+     * @param code The code.
+     * @return The value, or null if the code is NONE.
+     */
+    public synchronized String decode(int code) {
+        return code == NONE ? null : values[code];
+    }
+
+    /**
+     * Gets the canonical instance of a value, so equal values read from different rows share one String.
+     *
+     * @param value The value, or null.
+     * @return The canonical instance, or null if the value is null.
+     */
+    public synchronized String canonical(String value) {
+        return decode(encode(value));
+    }
+
+    /**
+     * Gets the number of distinct values seen so far.
+     *
+     * @return The number of codes handed out.
+     */
+    public synchronized int size() {
+        return size;
+    }
+}
@@ -0,0 +1,55 @@
+package model;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Represents a free window of time in which an appointment can be booked, with a start and an end.
+ */
+public class TimeSlot {
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("EEE MMM d  HH:mm");
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
+
+    // Attributes
+    private final LocalDateTime start;
+    private final LocalDateTime end;
+
+    /**
+     * Constructs a TimeSlot object with specified start and end.
+     *
+     * @param start The start date and time of the free window.
+     * @param end   The end date and time of the free window.
+     */
+    public TimeSlot(LocalDateTime start, LocalDateTime end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Gets the start date and time of the free window.
+     *
+     * @return The start date and time.
+     */
+    public LocalDateTime getStart() {
+        return start;
+    }
+
+    /**
+     * Gets the end date and time of the free window.
+     *
+     * @return The end date and time.
+     */
+    public LocalDateTime getEnd() {
+        return end;
+    }
+
+    /**
+     * Generates a string representation of the TimeSlot object.
+     *
+     * @return A formatted string containing the day and the time range of the free window.
+     */
+    @Override
+    public String toString() {
+        return start.format(DAY_FORMAT) + " - " + end.format(end.toLocalDate().equals(start.toLocalDate()) ? TIME_FORMAT : DAY_FORMAT);
+    }
+}
@@ -0,0 +1,96 @@
+package model;
+
+/**
+ * Represents the outcome of an optimistic update: the row was updated, or it had changed or been deleted since it was read.
+ * A stale result carries the row as it now is, so the form that made the update can merge with it and save again.
+ *
+ * @param <T> The kind of row, e.g. Appointment.
+ */
+public class UpdateResult<T> {
+
+    /**
+     * What happened to the update.
+     */
+    public enum Status {
+        /** The row was at the expected version and has been updated. */
+        UPDATED,
+        /** Someone else updated the row first; nothing was written. */
+        STALE,
+        /** The row no longer exists; nothing was written. */
+        DELETED
+    }
+
+    // Attributes
+    private final Status status;
+    private final T current;
+
+    /**
+     * Constructs an UpdateResult object with specified details.
+     *
+     * @param status  What happened to the update.
+     * @param current The row as it now is, or null if it was deleted.
+     */
+    private UpdateResult(Status status, T current) {
+        this.status = status;
+        this.current = current;
+    }
+
+    /**
+     * Creates the result of an update that was written.
+     *
+     * @param current The row as written, at its new version, or null if the caller did not build it.
+     * @param <T>     The kind of row.
+     * @return The result.
+     */
+    public static <T> UpdateResult<T> updated(T current) {
+        return new UpdateResult<>(Status.UPDATED, current);
+    }
+
+    /**
+     * Creates the result of an update made against an old version of the row.
+     *
+     * @param current The row as it now is.
+     * @param <T>     The kind of row.
+     * @return The result.
+     */
+    public static <T> UpdateResult<T> stale(T current) {
+        return new UpdateResult<>(Status.STALE, current);
+    }
+
+    /**
+     * Creates the result of an update to a row that no longer exists.
+     *
+     * @param <T> The kind of row.
+     * @return The result.
+     */
+    public static <T> UpdateResult<T> deleted() {
+        return new UpdateResult<>(Status.DELETED, null);
+    }
+
+    /**
+     * Gets what happened to the update.
+     *
+     * @return The status.
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Checks whether the update was written.
+     *
+     * @return True if the row was updated, false otherwise.
+     */
+    public boolean isUpdated() {
+        return status == Status.UPDATED;
+    }
+
+    /**
+     * Gets the row as it now is: as written for an update, as someone else left it for a stale one.
+     *
+     * @return The row, or null if it was deleted or an updated row was not built.
+     */
+    public T getCurrent() {
+        return current;
+    }
+}
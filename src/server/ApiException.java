@@ -0,0 +1,32 @@
+package server;
+
+/**
+ * Thrown by a resource to end a request with an HTTP error status and a message for the client.
+ *
+ * @author Daniel Akoko
+ */
+public class ApiException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final int status;
+
+    /**
+     * Constructs an exception.
+     *
+     * @param status  The HTTP status to respond with.
+     * @param message The message sent to the client.
+     */
+    public ApiException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    /**
+     * Gets the HTTP status to respond with.
+     *
+     * @return The status code.
+     */
+    public int getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,194 @@
+package server;
+
+import database.AppointmentQuery;
+import helper.ConflictChecker;
+import helper.SlotTable;
+import helper.TimelineCache;
+import model.Appointment;
+import model.Conflict;
+import model.UpdateResult;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serves /appointments.
+ * <pre>
+ *   GET    /appointments                  every appointment, streamed
+ *   GET    /appointments?range=week       appointments starting within a week (or range=month)
+ *   GET    /appointments?customerId=1     appointments of a customer (or contactId, userId)
+ *   POST   /appointments                  add an appointment
+ *   PUT    /appointments/{id}             update an appointment at a version
+ *   DELETE /appointments/{id}             delete an appointment
+ * </pre>
+ * New and updated appointments are checked like the appointment forms check them: 422 if the time is outside
+ * business hours, 409 with the conflicting appointments if it double-books the customer, contact or user.
+ * An update must carry the version it was read at; if the appointment has been updated since, nothing is written and the
+ * answer is 409 with the appointment as it now is under "current", and 404 if it has been deleted.
+ * The conflict check and the write run in one transaction that first locks the customer, contact and user rows
+ * (see ConflictChecker.bookIfFree), so two requests, or a request and a desk form, cannot both find the same time free.
+ *
+ * @author Daniel Akoko
+ */
+class AppointmentResource {
+
+    /**
+     * Handles a request.
+     *
+     * @param request The request.
+     * @throws IOException If the response cannot be sent.
+     */
+    static void handle(Request request) throws IOException {
+        String method = request.getMethod();
+        if (request.getSegmentCount() == 0 && method.equals("GET")) {
+            list(request);
+        } else if (request.getSegmentCount() == 0 && method.equals("POST")) {
+            save(request, 0);
+        } else if (request.getSegmentCount() == 1 && method.equals("PUT")) {
+            save(request, request.getId(0));
+        } else if (request.getSegmentCount() == 1 && method.equals("DELETE")) {
+            AppointmentQuery.deleteAppointment(request.getId(0));
+            request.respondEmpty(204);
+        } else {
+            throw new ApiException(404, "No such resource: " + method + " /appointments");
+        }
+    }
+
+    /**
+     * Lists appointments, filtered by the query string.
+     *
+     * @param request The request.
+     * @throws IOException If the response cannot be sent.
+     */
+    private static void list(Request request) throws IOException {
+        String range = request.getParameter("range");
+        Integer customerId = request.getIntParameter("customerId");
+        Integer contactId = request.getIntParameter("contactId");
+        Integer userId = request.getIntParameter("userId");
+
+        List<Appointment> appointments;
+        if ("week".equals(range)) {
+            appointments = AppointmentQuery.getApptByWeek();
+        } else if ("month".equals(range)) {
+            appointments = AppointmentQuery.getMonthlyAppointment();
+        } else if (range != null) {
+            throw new ApiException(400, "range must be week or month");
+        } else if (customerId != null) {
+            appointments = AppointmentQuery.getAppointments(customerId);
+        } else if (contactId != null) {
+            appointments = TimelineCache.getContactSchedule(contactId);
+        } else if (userId != null) {
+            appointments = AppointmentQuery.getUserAppointment(userId);
+        } else {
+            // The whole table is streamed straight from the result set
+            request.stream(json -> {
+                json.beginArray();
+                AppointmentQuery.forEachAppointment(appointment -> write(json, appointment));
+                json.endArray();
+            });
+            return;
+        }
+
+        request.respond(200, json -> {
+            json.beginArray();
+            for (Appointment appointment : appointments) {
+                write(json, appointment);
+            }
+            json.endArray();
+        });
+    }
+
+    /**
+     * Validates and adds or updates an appointment.
+     *
+     * @param request       The request, with the appointment in its body.
+     * @param appointmentId The ID of the appointment to update, or 0 to add one.
+     * @throws IOException If the response cannot be sent.
+     */
+    private static void save(Request request, int appointmentId) throws IOException {
+        int version = appointmentId == 0 ? 0 : request.getInt("version");
+        String title = request.getString("title");
+        String description = request.getString("description");
+        String location = request.getString("location");
+        String type = request.getString("type");
+        LocalDateTime start = request.getTime("start");
+        LocalDateTime end = request.getTime("end");
+        int customerId = request.getInt("customerId");
+        int userId = request.getInt("userId");
+        int contactId = request.getInt("contactId");
+
+        if (!SlotTable.isWithinBusinessHours(start, end)) {
+            throw new ApiException(422, "The appointment must start before it ends and lie within business hours (8:00 a.m. to 10:00 p.m. ET)");
+        }
+        List<Conflict> conflicts = new ArrayList<>();
+        Integer addedId = null;
+        UpdateResult<Appointment> result = null;
+        if (appointmentId == 0) {
+            addedId = ConflictChecker.bookIfFree(customerId, contactId, userId, start, end, 0, conflicts,
+                    () -> AppointmentQuery.addAppointment(title, description, location, type, start, end, customerId, userId, contactId));
+        } else {
+            result = ConflictChecker.bookIfFree(customerId, contactId, userId, start, end, appointmentId, conflicts,
+                    () -> AppointmentQuery.modifyAppointment(appointmentId, version, title, description, location,
+                            type, start, end, customerId, userId, contactId));
+        }
+
+        if (!conflicts.isEmpty()) {
+            request.respond(409, json -> {
+                json.beginObject().field("error", "The appointment overlaps existing appointments");
+                json.name("conflicts").beginArray();
+                for (Conflict conflict : conflicts) {
+                    json.beginObject()
+                            .field("owner", conflict.getOwner().name())
+                            .field("ownerId", conflict.getOwnerId())
+                            .name("appointment");
+                    write(json, conflict.getAppointment());
+                    json.endObject();
+                }
+                json.endArray().endObject();
+            });
+        } else if (appointmentId == 0) {
+            int id = addedId;
+            request.respond(201, json -> json.beginObject().field("appointmentId", id).endObject());
+        } else if (result.getStatus() == UpdateResult.Status.DELETED) {
+            throw new ApiException(404, "Appointment " + appointmentId + " has been deleted");
+        } else if (result.getStatus() == UpdateResult.Status.STALE) {
+            Appointment current = result.getCurrent();
+            request.respond(409, json -> {
+                json.beginObject().field("error", "The appointment has been updated since version " + version).name("current");
+                write(json, current);
+                json.endObject();
+            });
+        } else {
+            int updatedVersion = result.getCurrent().getVersion();
+            request.respond(200, json -> json.beginObject()
+                    .field("appointmentId", appointmentId)
+                    .field("version", updatedVersion)
+                    .endObject());
+        }
+    }
+
+    /**
+     * Writes an appointment as a JSON object.
+     *
+     * @param json        The writer.
+     * @param appointment The appointment.
+     */
+    static void write(Json.Writer json, Appointment appointment) {
+        json.beginObject()
+                .field("appointmentId", appointment.getAppointmentId())
+                .field("title", appointment.getTitle())
+                .field("description", appointment.getDescription())
+                .field("location", appointment.getLocation())
+                .field("type", appointment.getType())
+                .field("start", Instant.ofEpochMilli(appointment.getStartMillis()).toString())
+                .field("end", Instant.ofEpochMilli(appointment.getEndMillis()).toString())
+                .field("customerId", appointment.getCustomerId())
+                .field("userId", appointment.getUserId())
+                .field("contactId", appointment.getContact())
+                .field("version", appointment.getVersion())
+                .endObject();
+    }
+}
@@ -0,0 +1,142 @@
+package server;
+
+import database.AppointmentQuery;
+import database.CustomerQuery;
+import database.SeriesQuery;
+import helper.UnitOfWork;
+import model.Appointment;
+import model.Customer;
+import model.UpdateResult;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Serves /customers.
+ * <pre>
+ *   GET    /customers                     every customer with its division and country, streamed
+ *   GET    /customers/{id}/appointments   appointments of a customer
+ *   POST   /customers                     add a customer
+ *   PUT    /customers/{id}                update a customer at a version
+ *   DELETE /customers/{id}                delete a customer with its appointments and recurring series
+ * </pre>
+ * An update must carry the version it was read at; if the customer has been updated since, nothing is written and the
+ * answer is 409 with the customer as it now is under "current", and 404 if it has been deleted.
+ *
+ * @author Daniel Akoko
+ */
+class CustomerResource {
+
+    /**
+     * Handles a request.
+     *
+     * @param request The request.
+     * @throws IOException If the response cannot be sent.
+     */
+    static void handle(Request request) throws IOException {
+        String method = request.getMethod();
+        int segments = request.getSegmentCount();
+        if (segments == 0 && method.equals("GET")) {
+            request.stream(json -> {
+                json.beginArray();
+                CustomerQuery.forEachCustomer(customer -> write(json, customer));
+                json.endArray();
+            });
+        } else if (segments == 2 && method.equals("GET") && request.getSegment(1).equals("appointments")) {
+            List<Appointment> appointments = AppointmentQuery.getAppointments(request.getId(0));
+            request.respond(200, json -> {
+                json.beginArray();
+                for (Appointment appointment : appointments) {
+                    AppointmentResource.write(json, appointment);
+                }
+                json.endArray();
+            });
+        } else if (segments == 0 && method.equals("POST")) {
+            add(request);
+        } else if (segments == 1 && method.equals("PUT")) {
+            update(request, request.getId(0));
+        } else if (segments == 1 && method.equals("DELETE")) {
+            delete(request, request.getId(0));
+        } else {
+            throw new ApiException(404, "No such resource: " + method + " /customers");
+        }
+    }
+
+    /**
+     * Updates a customer, if it is still at the version the client read.
+     *
+     * @param request    The request, with the customer and its version in its body.
+     * @param customerId The ID of the customer.
+     * @throws IOException If the response cannot be sent.
+     */
+    private static void update(Request request, int customerId) throws IOException {
+        int version = request.getInt("version");
+        UpdateResult<Customer> result = CustomerQuery.updateCustomer(customerId, version, request.getString("customerName"),
+                request.getString("address"), request.getString("postalCode"), request.getString("phone"), request.getInt("divisionId"));
+        if (result.getStatus() == UpdateResult.Status.DELETED) {
+            throw new ApiException(404, "Customer " + customerId + " has been deleted");
+        } else if (result.getStatus() == UpdateResult.Status.STALE) {
+            request.respond(409, json -> {
+                json.beginObject().field("error", "The customer has been updated since version " + version).name("current");
+                write(json, result.getCurrent());
+                json.endObject();
+            });
+        } else {
+            request.respond(200, json -> json.beginObject().field("customerId", customerId).field("version", version + 1).endObject());
+        }
+    }
+
+    /**
+     * Adds a customer.
+     *
+     * @param request The request, with the customer in its body.
+     * @throws IOException If the response cannot be sent.
+     */
+    private static void add(Request request) throws IOException {
+        int id = CustomerQuery.addCustomer(request.getString("customerName"), request.getString("address"),
+                request.getString("postalCode"), request.getString("phone"), request.getInt("divisionId"));
+        request.respond(201, json -> json.beginObject().field("customerId", id).endObject());
+    }
+
+    /**
+     * Deletes a customer's appointments, recurring series and then the customer as one transaction, as the customer screen does.
+     *
+     * @param request    The request.
+     * @param customerId The ID of the customer.
+     * @throws IOException If the response cannot be sent.
+     */
+    private static void delete(Request request, int customerId) throws IOException {
+        int deleted;
+        try (UnitOfWork work = UnitOfWork.begin()) {
+            AppointmentQuery.deleteCustomerAppointments(customerId);
+            SeriesQuery.deleteCustomerSeries(customerId);
+            deleted = CustomerQuery.deleteCustomer(customerId);
+            work.commit();
+        }
+        if (deleted == 0) {
+            throw new ApiException(404, "No customer with ID " + customerId);
+        }
+        request.respondEmpty(204);
+    }
+
+    /**
+     * Writes a customer as a JSON object.
+     *
+     * @param json     The writer.
+     * @param customer The customer.
+     */
+    private static void write(Json.Writer json, Customer customer) {
+        json.beginObject()
+                .field("customerId", customer.getCustomerId())
+                .field("customerName", customer.getCustomerName())
+                .field("address", customer.getAddress())
+                .field("postalCode", customer.getPostalCode())
+                .field("phone", customer.getPhone())
+                .field("divisionId", customer.getDivisionId())
+                .field("division", customer.getDivisionName())
+                .field("countryId", customer.getCountryId())
+                .field("country", customer.getCountry())
+                .field("version", customer.getVersion())
+                .endObject();
+    }
+}
@@ -0,0 +1,360 @@
+package server;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The small subset of JSON the scheduling service speaks.
+ * Responses are written value by value through a Writer, so a list of any length is sent without being built in memory first.
+ * Request bodies are flat objects of strings, numbers, booleans and nulls, which parse reads into a map of their text values.
+ *
+ * @author Daniel Akoko
+ */
+public class Json {
+
+    /**
+     * Writes JSON to a character stream as it goes, inserting the commas between values.
+     * I/O errors are rethrown as UncheckedIOException so values can be written from a row consumer.
+     */
+    public static class Writer {
+        private final java.io.Writer out;
+        /** One entry per open object or array: true until its first value has been written. */
+        private final Deque<Boolean> first = new ArrayDeque<>();
+        private boolean afterName;
+
+        /**
+         * Constructs a writer.
+         *
+         * @param out The stream to write to; buffering it is up to the caller.
+         */
+        public Writer(java.io.Writer out) {
+            this.out = out;
+        }
+
+        /**
+         * Opens an object.
+         *
+         * @return This writer.
+         */
+        public Writer beginObject() {
+            separate();
+            write("{");
+            first.push(true);
+            return this;
+        }
+
+        /**
+         * Closes the innermost object.
+         *
+         * @return This writer.
+         */
+        public Writer endObject() {
+            first.pop();
+            write("}");
+            return this;
+        }
+
+        /**
+         * Opens an array.
+         *
+         * @return This writer.
+         */
+        public Writer beginArray() {
+            separate();
+            write("[");
+            first.push(true);
+            return this;
+        }
+
+        /**
+         * Closes the innermost array.
+         *
+         * @return This writer.
+         */
+        public Writer endArray() {
+            first.pop();
+            write("]");
+            return this;
+        }
+
+        /**
+         * Writes the name of the next member of the innermost object.
+         *
+         * @param name The member name.
+         * @return This writer.
+         */
+        public Writer name(String name) {
+            separate();
+            write(quote(name));
+            write(":");
+            afterName = true;
+            return this;
+        }
+
+        /**
+         * Writes a string value, or null.
+         *
+         * @param value The value.
+         * @return This writer.
+         */
+        public Writer value(String value) {
+            separate();
+            write(value == null ? "null" : quote(value));
+            return this;
+        }
+
+        /**
+         * Writes a number value.
+         *
+         * @param value The value.
+         * @return This writer.
+         */
+        public Writer value(long value) {
+            separate();
+            write(Long.toString(value));
+            return this;
+        }
+
+        /**
+         * Writes a boolean value.
+         *
+         * @param value The value.
+         * @return This writer.
+         */
+        public Writer value(boolean value) {
+            separate();
+            write(Boolean.toString(value));
+            return this;
+        }
+
+        /**
+         * Writes a member with a string value.
+         *
+         * @param name  The member name.
+         * @param value The value.
+         * @return This writer.
+         */
+        public Writer field(String name, String value) {
+            return name(name).value(value);
+        }
+
+        /**
+         * Writes a member with a number value.
+         *
+         * @param name  The member name.
+         * @param value The value.
+         * @return This writer.
+         */
+        public Writer field(String name, long value) {
+            return name(name).value(value);
+        }
+
+        /**
+         * Sends what has been written so far on to the client.
+         */
+        public void flush() {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Writes the comma before a value that is not the first in its object or array.
+         */
+        private void separate() {
+            if (afterName) {
+                afterName = false;
+                return;
+            }
+            if (!first.isEmpty()) {
+                if (!first.pop()) {
+                    write(",");
+                }
+                first.push(false);
+            }
+        }
+
+        private void write(String text) {
+            try {
+                out.write(text);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Quotes a string, escaping the characters JSON does not allow inside one.
+     *
+     * @param value The string.
+     * @return The quoted string.
+     */
+    public static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': quoted.append("\\\""); break;
+                case '\\': quoted.append("\\\\"); break;
+                case '\n': quoted.append("\\n"); break;
+                case '\r': quoted.append("\\r"); break;
+                case '\t': quoted.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    /**
+     * Parses a flat JSON object.
+     * Each member's value is kept as text: strings unescaped, numbers and booleans as written, and null as a null entry.
+     *
+     * @param text The JSON text.
+     * @return The members, in the order they appear.
+     * @throws IllegalArgumentException If the text is not a flat JSON object.
+     */
+    public static Map<String, String> parse(String text) {
+        Parser parser = new Parser(text);
+        Map<String, String> members = parser.object();
+        parser.skipWhitespace();
+        if (parser.position != text.length()) {
+            throw parser.error("Unexpected text after the object");
+        }
+        return members;
+    }
+
+    /**
+     * Reads a flat object from JSON text.
+     */
+    private static final class Parser {
+        private final String text;
+        private int position;
+
+        private Parser(String text) {
+            this.text = text;
+        }
+
+        private Map<String, String> object() {
+            Map<String, String> members = new LinkedHashMap<>();
+            expect('{');
+            skipWhitespace();
+            if (peek() == '}') {
+                position++;
+                return members;
+            }
+            while (true) {
+                skipWhitespace();
+                String name = string();
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                members.put(name, value());
+                skipWhitespace();
+                char next = next();
+                if (next == '}') {
+                    return members;
+                }
+                if (next != ',') {
+                    throw error("Expected , or }");
+                }
+            }
+        }
+
+        private String value() {
+            char c = peek();
+            if (c == '"') {
+                return string();
+            }
+            if (c == '{' || c == '[') {
+                throw error("Nested objects and arrays are not accepted");
+            }
+            int start = position;
+            while (position < text.length() && ",} \t\r\n".indexOf(text.charAt(position)) < 0) {
+                position++;
+            }
+            String literal = text.substring(start, position);
+            if (literal.equals("null")) {
+                return null;
+            }
+            if (literal.equals("true") || literal.equals("false") || literal.matches("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?")) {
+                return literal;
+            }
+            throw error("Invalid value " + literal);
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                char escaped = next();
+                switch (escaped) {
+                    case 'n': value.append('\n'); break;
+                    case 'r': value.append('\r'); break;
+                    case 't': value.append('\t'); break;
+                    case 'b': value.append('\b'); break;
+                    case 'f': value.append('\f'); break;
+                    case 'u':
+                        if (position + 4 > text.length()) {
+                            throw error("Incomplete \\u escape");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("Invalid \\u escape");
+                        }
+                        position += 4;
+                        break;
+                    default: value.append(escaped);
+                }
+            }
+        }
+
+        private void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        private void expect(char expected) {
+            if (next() != expected) {
+                throw error("Expected " + expected);
+            }
+        }
+
+        private char peek() {
+            if (position >= text.length()) {
+                throw error("Unexpected end of input");
+            }
+            return text.charAt(position);
+        }
+
+        private char next() {
+            char c = peek();
+            position++;
+            return c;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + position);
+        }
+    }
+}
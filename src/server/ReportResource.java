@@ -0,0 +1,73 @@
+package server;
+
+import database.AppointmentQuery;
+import database.CountryQuery;
+import helper.TimelineCache;
+import model.Country;
+import model.ReportTotal;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Serves the reports of the report screen under /reports.
+ * <pre>
+ *   GET /reports/types       appointments per type
+ *   GET /reports/months      appointments per month
+ *   GET /reports/countries   customers per country
+ * </pre>
+ *
+ * @author Daniel Akoko
+ */
+class ReportResource {
+
+    /**
+     * Handles a request.
+     *
+     * @param request The request.
+     * @throws IOException If the response cannot be sent.
+     */
+    static void handle(Request request) throws IOException {
+        if (!request.getMethod().equals("GET") || request.getSegmentCount() != 1) {
+            throw new ApiException(404, "No such resource: " + request.getMethod() + " /reports");
+        }
+        switch (request.getSegment(0)) {
+            case "types":
+                writeTotals(request, TimelineCache.getTypeTotals());
+                break;
+            case "months":
+                writeTotals(request, AppointmentQuery.getAppointmentTypeMonth());
+                break;
+            case "countries":
+                List<Country> countries = CountryQuery.countryTotals();
+                request.respond(200, json -> {
+                    json.beginArray();
+                    for (Country country : countries) {
+                        // countryTotals keeps the country name in the month field the report table reads
+                        json.beginObject().field("label", country.getMonth()).field("total", country.getMonthCount()).endObject();
+                    }
+                    json.endArray();
+                });
+                break;
+            default:
+                throw new ApiException(404, "No such report: " + request.getSegment(0));
+        }
+    }
+
+    /**
+     * Sends report totals as an array of label and total pairs.
+     *
+     * @param request The request.
+     * @param totals  The totals.
+     * @throws IOException If the response cannot be sent.
+     */
+    private static void writeTotals(Request request, List<ReportTotal> totals) throws IOException {
+        request.respond(200, json -> {
+            json.beginArray();
+            for (ReportTotal total : totals) {
+                json.beginObject().field("label", total.getLabel()).field("total", total.getTotal()).endObject();
+            }
+            json.endArray();
+        });
+    }
+}
@@ -0,0 +1,256 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import helper.TimeConverter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * One HTTP request to the scheduling service, with the helpers the resources use to read it and answer it.
+ * Path segments are counted from after the resource name, so for /customers/7/appointments segment 0 is "7".
+ * Times are exchanged as ISO-8601 instants in UTC, e.g. 2024-03-01T14:00:00Z.
+ *
+ * @author Daniel Akoko
+ */
+public class Request {
+
+    /** Bodies larger than this are refused rather than read into memory. */
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+
+    private final HttpExchange exchange;
+    private final String[] segments;
+    private Map<String, String> query;
+    private Map<String, String> body;
+    private boolean responded;
+
+    /**
+     * Constructs a request.
+     *
+     * @param exchange The HTTP exchange.
+     * @param resource The path the resource is mounted at, e.g. /customers.
+     */
+    Request(HttpExchange exchange, String resource) {
+        this.exchange = exchange;
+        String rest = exchange.getRequestURI().getPath().substring(resource.length());
+        rest = rest.replaceAll("^/+|/+$", "");
+        this.segments = rest.isEmpty() ? new String[0] : rest.split("/+");
+    }
+
+    /**
+     * Gets the HTTP method.
+     *
+     * @return The method, e.g. GET.
+     */
+    public String getMethod() {
+        return exchange.getRequestMethod();
+    }
+
+    /**
+     * Gets the number of path segments after the resource name.
+     *
+     * @return The number of segments.
+     */
+    public int getSegmentCount() {
+        return segments.length;
+    }
+
+    /**
+     * Gets a path segment.
+     *
+     * @param index The segment's position after the resource name.
+     * @return The segment.
+     */
+    public String getSegment(int index) {
+        return segments[index];
+    }
+
+    /**
+     * Gets a path segment that holds an ID.
+     *
+     * @param index The segment's position after the resource name.
+     * @return The ID.
+     * @throws ApiException With status 404 if the segment is not a number.
+     */
+    public int getId(int index) {
+        try {
+            return Integer.parseInt(segments[index]);
+        } catch (NumberFormatException e) {
+            throw new ApiException(404, "No such resource: " + exchange.getRequestURI().getPath());
+        }
+    }
+
+    /**
+     * Gets a query string parameter.
+     *
+     * @param name The parameter name.
+     * @return The value, or null if it is not given.
+     */
+    public String getParameter(String name) {
+        if (query == null) {
+            query = new HashMap<>();
+            String raw = exchange.getRequestURI().getRawQuery();
+            if (raw != null) {
+                for (String pair : raw.split("&")) {
+                    int equals = pair.indexOf('=');
+                    String key = equals < 0 ? pair : pair.substring(0, equals);
+                    String value = equals < 0 ? "" : pair.substring(equals + 1);
+                    query.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return query.get(name);
+    }
+
+    /**
+     * Gets a whole-number query string parameter.
+     *
+     * @param name The parameter name.
+     * @return The value, or null if it is not given.
+     * @throws ApiException With status 400 if the value is not a number.
+     */
+    public Integer getIntParameter(String name) {
+        String value = getParameter(name);
+        return value == null ? null : toInt(name, value);
+    }
+
+    /**
+     * Gets a text member of the JSON body that must be present and not blank.
+     *
+     * @param name The member name.
+     * @return The value.
+     * @throws ApiException With status 400 if the body is not a JSON object or the member is missing or blank.
+     */
+    public String getString(String name) {
+        String value = getBody().get(name);
+        if (value == null || value.isBlank()) {
+            throw new ApiException(400, "Missing field: " + name);
+        }
+        return value;
+    }
+
+    /**
+     * Gets a whole-number member of the JSON body.
+     *
+     * @param name The member name.
+     * @return The value.
+     * @throws ApiException With status 400 if the member is missing or not a number.
+     */
+    public int getInt(String name) {
+        return toInt(name, getString(name));
+    }
+
+    /**
+     * Gets a time member of the JSON body, given as an ISO-8601 instant, in the system time zone the Query classes work in.
+     *
+     * @param name The member name.
+     * @return The date and time.
+     * @throws ApiException With status 400 if the member is missing or not an instant.
+     */
+    public LocalDateTime getTime(String name) {
+        String value = getString(name);
+        try {
+            return TimeConverter.toLocal(Instant.parse(value).toEpochMilli());
+        } catch (DateTimeParseException e) {
+            throw new ApiException(400, "Field " + name + " is not an ISO-8601 instant: " + value);
+        }
+    }
+
+    /**
+     * Sends a JSON response of known, small size.
+     *
+     * @param status The HTTP status.
+     * @param body   Writes the response value.
+     * @throws IOException If the response cannot be sent.
+     */
+    public void respond(int status, Consumer<Json.Writer> body) throws IOException {
+        StringWriter text = new StringWriter();
+        body.accept(new Json.Writer(text));
+        byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        responded = true;
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Sends a 200 response whose JSON is written while it is produced, in chunks, so a list of any length
+     * goes out without being held in memory. Once the first chunk is sent the status can no longer change,
+     * so a failure part way leaves the client with incomplete JSON.
+     *
+     * @param body Writes the response value.
+     * @throws IOException If the response cannot be sent.
+     */
+    public void stream(Consumer<Json.Writer> body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        responded = true;
+        exchange.sendResponseHeaders(200, 0);
+        try (BufferedWriter out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8))) {
+            body.accept(new Json.Writer(out));
+        }
+    }
+
+    /**
+     * Sends a response without a body.
+     *
+     * @param status The HTTP status, e.g. 204.
+     * @throws IOException If the response cannot be sent.
+     */
+    public void respondEmpty(int status) throws IOException {
+        responded = true;
+        exchange.sendResponseHeaders(status, -1);
+    }
+
+    /**
+     * Checks whether the status line has been sent, after which an error can no longer be reported.
+     *
+     * @return True if a response has been started, false otherwise.
+     */
+    boolean hasResponded() {
+        return responded;
+    }
+
+    /**
+     * Reads and parses the JSON body on first use.
+     *
+     * @return The body's members.
+     */
+    private Map<String, String> getBody() {
+        if (body == null) {
+            try (InputStream in = exchange.getRequestBody()) {
+                byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+                if (bytes.length > MAX_BODY_BYTES) {
+                    throw new ApiException(413, "The request body is larger than " + MAX_BODY_BYTES + " bytes");
+                }
+                body = Json.parse(new String(bytes, StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                throw new ApiException(400, "The request body is not a flat JSON object: " + e.getMessage());
+            } catch (IOException e) {
+                throw new ApiException(400, "The request body could not be read: " + e.getMessage());
+            }
+        }
+        return body;
+    }
+
+    private static int toInt(String name, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, "Field " + name + " is not a whole number: " + value);
+        }
+    }
+}
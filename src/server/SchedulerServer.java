@@ -0,0 +1,168 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import helper.DatabaseException;
+import helper.JDBC;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The headless scheduling service: the appointment, customer and report operations over HTTP and JSON,
+ * run on the same Query classes, caches and connection pool as the desktop application.
+ * Started by running main.Main with --headless; the port is set with -Dscheduler.port (8080 by default).
+ * Each request runs on its own virtual thread when the runtime has them (Java 21 and later), otherwise on a fixed
+ * pool of platform threads; either way the connection pool (db.poolSize) bounds how many reach the database at once,
+ * and a request's connection goes back to the pool as soon as the request is answered.
+ * The routes are listed on AppointmentResource, CustomerResource and ReportResource.
+ * <p>
+ * Errors are answered with a JSON object holding a message: 400 for a malformed request, 404 for an unknown path,
+ * 409 for an appointment that double-books or an update made to an old version, 422 for one outside business hours, 503 while the database is unreachable
+ * and 500 for any other database failure.
+ *
+ * @author Daniel Akoko
+ */
+public class SchedulerServer {
+
+    /** The port used when -Dscheduler.port is not set. */
+    public static final int DEFAULT_PORT = 8080;
+    /** Platform threads used when virtual threads are not available. */
+    private static final int FALLBACK_THREADS = 32;
+
+    /**
+     * Handles the requests to one resource.
+     */
+    @FunctionalInterface
+    interface Resource {
+        /**
+         * Handles a request.
+         *
+         * @param request The request.
+         * @throws IOException If the response cannot be sent.
+         */
+        void handle(Request request) throws IOException;
+    }
+
+    private final HttpServer http;
+    private final ExecutorService executor;
+
+    /**
+     * Constructs a server bound to a port, without starting it.
+     *
+     * @param port The port to listen on; 0 picks a free one.
+     * @throws IOException If the port cannot be bound.
+     */
+    public SchedulerServer(int port) throws IOException {
+        http = HttpServer.create(new InetSocketAddress(port), 0);
+        executor = newExecutor();
+        http.setExecutor(executor);
+        mount("/appointments", AppointmentResource::handle);
+        mount("/customers", CustomerResource::handle);
+        mount("/reports", ReportResource::handle);
+    }
+
+    /**
+     * Starts answering requests.
+     */
+    public void start() {
+        http.start();
+        System.out.println("Scheduling service listening on port " + getPort());
+    }
+
+    /**
+     * Stops the server, giving requests in progress a few seconds to finish.
+     */
+    public void stop() {
+        http.stop(2);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets the port the server listens on.
+     *
+     * @return The port.
+     */
+    public int getPort() {
+        return http.getAddress().getPort();
+    }
+
+    /**
+     * Routes a path, and everything under it, to a resource.
+     *
+     * @param path     The path, e.g. /customers.
+     * @param resource The resource.
+     */
+    private void mount(String path, Resource resource) {
+        http.createContext(path, exchange -> dispatch(exchange, path, resource));
+    }
+
+    /**
+     * Runs one request and turns any failure into an error response.
+     * The thread's database connection is always handed back to the pool, since the next request may run on another thread.
+     *
+     * @param exchange The HTTP exchange.
+     * @param path     The path the resource is mounted at.
+     * @param resource The resource.
+     */
+    private static void dispatch(HttpExchange exchange, String path, Resource resource) {
+        Request request = new Request(exchange, path);
+        try {
+            resource.handle(request);
+        } catch (ApiException e) {
+            fail(request, e.getStatus(), e.getMessage());
+        } catch (DatabaseException e) {
+            fail(request, e.isUnavailable() ? 503 : 500, e.getMessage());
+        } catch (IOException | UncheckedIOException e) {
+            // The client went away; there is no one left to answer
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            fail(request, 500, "Internal error: " + e);
+        } finally {
+            JDBC.releaseConnection();
+            exchange.close();
+        }
+    }
+
+    /**
+     * Sends an error response, unless part of a response has already gone out.
+     *
+     * @param request The request.
+     * @param status  The HTTP status.
+     * @param message The message for the client.
+     */
+    private static void fail(Request request, int status, String message) {
+        if (request.hasResponded()) {
+            System.out.println("Error: a streamed response failed part way: " + message);
+            return;
+        }
+        try {
+            request.respond(status, json -> json.beginObject().field("error", message).endObject());
+        } catch (IOException e) {
+            // The client went away
+        }
+    }
+
+    /**
+     * Creates the executor requests run on: one virtual thread per request if the runtime supports them.
+     * Looked up reflectively so the application still builds and runs on Java 17.
+     *
+     * @return The executor.
+     */
+    private static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(FALLBACK_THREADS);
+        }
+    }
+}